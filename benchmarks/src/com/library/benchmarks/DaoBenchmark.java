@@ -0,0 +1,106 @@
+package com.library.benchmarks;
+
+import com.library.database.BookDAO;
+import com.library.database.BookIssueDAO;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.tools.DatasetSeeder;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the hot DAO paths, parameterized by catalog size so that
+ * queries which scale with the table size show up as regressions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    public int books;
+    
+    private BookDAO bookDAO;
+    private BookIssueDAO bookIssueDAO;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedDatabase.load(books);
+        bookDAO = new BookDAO();
+        bookIssueDAO = new BookIssueDAO();
+    }
+    
+    @Benchmark
+    public List<Book> searchBooks() {
+        return bookDAO.searchBooks(DatasetSeeder.randomSearchTerm(ThreadLocalRandom.current()));
+    }
+    
+    @Benchmark
+    public List<Book> getAllBooks() {
+        return bookDAO.getAllBooks();
+    }
+    
+    @Benchmark
+    public List<BookIssue> getOverdueBooks() {
+        return bookIssueDAO.getOverdueBooks();
+    }
+    
+    @Benchmark
+    public boolean addBookIssue(IssueState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BookIssue issue = new BookIssue(
+            1 + random.nextInt(books),
+            1 + random.nextInt(Math.max(1, books / 2)),
+            state.issueDate,
+            state.dueDate,
+            "Issued"
+        );
+        return bookIssueDAO.addBookIssue(issue);
+    }
+    
+    @Benchmark
+    public boolean updateBookAvailability(AvailabilityState state) {
+        // Alternate the direction so counts stay where the seed put them
+        state.change = -state.change;
+        return bookDAO.updateBookAvailability(1 + ThreadLocalRandom.current().nextInt(books), state.change);
+    }
+    
+    /**
+     * Keeps every book in stock so addBookIssue always takes the insert path
+     * instead of being rejected once copies run out
+     */
+    @State(Scope.Benchmark)
+    public static class IssueState {
+        final Date issueDate = Date.valueOf(LocalDate.now());
+        final Date dueDate = Date.valueOf(LocalDate.now().plusDays(14));
+        
+        @Setup(Level.Iteration)
+        public void restock() throws SQLException {
+            EmbeddedDatabase.execute("UPDATE books SET available = quantity + 1000000");
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class AvailabilityState {
+        int change = 1;
+    }
+}
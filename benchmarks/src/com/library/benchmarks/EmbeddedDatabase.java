@@ -0,0 +1,128 @@
+package com.library.benchmarks;
+
+import com.library.database.DatabaseConnection;
+import com.library.tools.DatasetSeeder;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * In-memory H2 database in MySQL mode standing in for the library database,
+ * so the benchmarks run offline. The schema mirrors library_db.sql.
+ *
+ * The library.db.* properties are set when this class is initialized, which
+ * must happen before anything touches {@link DatabaseConnection}; JMH forks a
+ * fresh JVM per benchmark and parameter set, so each fork sees one dataset.
+ */
+public final class EmbeddedDatabase {
+    public static final String URL = "jdbc:h2:mem:library;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final long RANDOM_SEED = 42;
+    
+    private static final String[] SCHEMA = {
+        "DROP TABLE IF EXISTS change_log",
+        "DROP TABLE IF EXISTS circulation_daily",
+        "DROP TABLE IF EXISTS book_issues",
+        "DROP TABLE IF EXISTS members",
+        "DROP TABLE IF EXISTS books",
+        "CREATE TABLE books (" +
+        "  book_id INT NOT NULL AUTO_INCREMENT," +
+        "  title VARCHAR(255) NOT NULL," +
+        "  author VARCHAR(255) NOT NULL," +
+        "  publisher VARCHAR(255) NOT NULL," +
+        "  isbn VARCHAR(20) NOT NULL," +
+        "  category VARCHAR(100) NOT NULL," +
+        "  quantity INT NOT NULL," +
+        "  available INT NOT NULL," +
+        "  added_date DATE NOT NULL," +
+        "  search_key VARCHAR(2048) NOT NULL DEFAULT ''," +
+        "  PRIMARY KEY (book_id))",
+        "CREATE TABLE members (" +
+        "  member_id INT NOT NULL AUTO_INCREMENT," +
+        "  name VARCHAR(255) NOT NULL," +
+        "  email VARCHAR(255) NOT NULL," +
+        "  phone VARCHAR(20) NOT NULL," +
+        "  address TEXT NOT NULL," +
+        "  member_type ENUM('Student', 'Faculty', 'Staff') NOT NULL," +
+        "  join_date DATE NOT NULL," +
+        "  status ENUM('Active', 'Inactive') NOT NULL DEFAULT 'Active'," +
+        "  search_key VARCHAR(1024) NOT NULL DEFAULT ''," +
+        "  PRIMARY KEY (member_id))",
+        "CREATE TABLE book_issues (" +
+        "  issue_id INT NOT NULL AUTO_INCREMENT," +
+        "  book_id INT NOT NULL," +
+        "  member_id INT NOT NULL," +
+        "  issue_date DATE NOT NULL," +
+        "  due_date DATE NOT NULL," +
+        "  return_date DATE DEFAULT NULL," +
+        "  fine_amount DECIMAL(10,2) DEFAULT 0.00," +
+        "  status ENUM('Issued', 'Returned', 'Overdue') NOT NULL DEFAULT 'Issued'," +
+        "  PRIMARY KEY (issue_id)," +
+        "  FOREIGN KEY (book_id) REFERENCES books(book_id) ON DELETE CASCADE," +
+        "  FOREIGN KEY (member_id) REFERENCES members(member_id) ON DELETE CASCADE)",
+        "CREATE INDEX idx_book_issues_issue_date ON book_issues (issue_date)",
+        "CREATE INDEX idx_book_issues_return_date ON book_issues (return_date)",
+        "CREATE TABLE circulation_daily (" +
+        "  day DATE NOT NULL," +
+        "  category VARCHAR(100) NOT NULL," +
+        "  member_type ENUM('Student', 'Faculty', 'Staff') NOT NULL," +
+        "  issues INT NOT NULL DEFAULT 0," +
+        "  returns INT NOT NULL DEFAULT 0," +
+        "  late_returns INT NOT NULL DEFAULT 0," +
+        "  fines DECIMAL(12,2) NOT NULL DEFAULT 0.00," +
+        "  overdue_change INT NOT NULL DEFAULT 0," +
+        "  PRIMARY KEY (day, category, member_type))",
+        "CREATE TABLE change_log (" +
+        "  change_id BIGINT NOT NULL AUTO_INCREMENT," +
+        "  event_type ENUM('Book', 'Member', 'LoanIssued', 'LoanReturned') NOT NULL," +
+        "  entity_id INT NOT NULL," +
+        "  book_id INT DEFAULT NULL," +
+        "  member_id INT DEFAULT NULL," +
+        "  change_type ENUM('ADDED', 'UPDATED', 'DELETED') DEFAULT NULL," +
+        "  origin VARCHAR(36) NOT NULL," +
+        "  created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)," +
+        "  PRIMARY KEY (change_id))",
+        "CREATE INDEX idx_change_log_created ON change_log (created_at)"
+    };
+    
+    static {
+        System.setProperty("library.db.url", URL);
+        System.setProperty("library.db.user", "sa");
+        System.setProperty("library.db.password", "");
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private EmbeddedDatabase() {
+    }
+    
+    /**
+     * Recreate the schema and seed a dataset scaled from the number of books:
+     * half as many members and twice as many loans
+     * @param books Number of books
+     * @throws SQLException if the schema or data cannot be created
+     */
+    public static synchronized void load(int books) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            for (String sql : SCHEMA) {
+                stmt.execute(sql);
+            }
+        }
+        
+        new DatasetSeeder(RANDOM_SEED).seed(books, Math.max(1, books / 2), books * 2);
+    }
+    
+    /**
+     * Run an update statement against the embedded database
+     * @param sql Statement to run
+     * @throws SQLException if the statement fails
+     */
+    public static void execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
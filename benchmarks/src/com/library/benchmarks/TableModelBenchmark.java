@@ -0,0 +1,86 @@
+package com.library.benchmarks;
+
+import com.library.ui.BookPanel;
+import com.library.ui.IssueBookPanel;
+import com.library.ui.MemberPanel;
+import com.library.ui.OverdueBookPanel;
+import com.library.ui.ReturnBookPanel;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the full reload of each panel's table or combo models, from the
+ * DAO queries through to the model updates, run on the event dispatch thread
+ * like a real refresh. Runs headless.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class TableModelBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    public int books;
+    
+    private BookPanel bookPanel;
+    private MemberPanel memberPanel;
+    private IssueBookPanel issueBookPanel;
+    private ReturnBookPanel returnBookPanel;
+    private OverdueBookPanel overdueBookPanel;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, InterruptedException, InvocationTargetException {
+        EmbeddedDatabase.load(books);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                bookPanel = new BookPanel();
+                memberPanel = new MemberPanel();
+                issueBookPanel = new IssueBookPanel();
+                returnBookPanel = new ReturnBookPanel();
+                overdueBookPanel = new OverdueBookPanel();
+            }
+        });
+    }
+    
+    @Benchmark
+    public void bookPanel() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(bookPanel::refreshData);
+    }
+    
+    @Benchmark
+    public void memberPanel() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(memberPanel::refreshData);
+    }
+    
+    @Benchmark
+    public void issueBookPanel() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(issueBookPanel::refreshData);
+    }
+    
+    @Benchmark
+    public void returnBookPanel() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(returnBookPanel::refreshData);
+    }
+    
+    @Benchmark
+    public void overdueBookPanel() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(overdueBookPanel::refreshData);
+    }
+}
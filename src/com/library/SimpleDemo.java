@@ -1,6 +1,8 @@
 package com.library;
 
+import com.library.ui.TrendChart;
 import java.awt.*;
+import java.time.LocalDate;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
@@ -204,12 +206,16 @@ public class SimpleDemo {
             add(welcomePanel, BorderLayout.NORTH);
             
             // Statistics panel
-            JPanel statsPanel = new JPanel(new GridLayout(2, 2, 15, 15));
+            JPanel statsPanel = new JPanel(new GridLayout(1, 4, 15, 15));
             statsPanel.add(createStatsCard("Total Books", "125", new Color(41, 128, 185)));
             statsPanel.add(createStatsCard("Total Members", "42", new Color(39, 174, 96)));
             statsPanel.add(createStatsCard("Books Issued", "37", new Color(142, 68, 173)));
             statsPanel.add(createStatsCard("Overdue Books", "5", new Color(231, 76, 60)));
-            add(statsPanel, BorderLayout.CENTER);
+            
+            JPanel centerPanel = new JPanel(new BorderLayout(15, 15));
+            centerPanel.add(statsPanel, BorderLayout.NORTH);
+            centerPanel.add(createTrendsPanel(), BorderLayout.CENTER);
+            add(centerPanel, BorderLayout.CENTER);
             
             // Quick actions panel
             JPanel actionsPanel = new JPanel(new GridLayout(1, 4, 10, 0));
@@ -246,6 +252,39 @@ public class SimpleDemo {
             add(actionsPanel, BorderLayout.SOUTH);
         }
         
+        private JPanel createTrendsPanel() {
+            // Sample data for the last 30 days
+            int days = 30;
+            int[] issues = new int[days];
+            int[] returns = new int[days];
+            int[] overdue = new int[days];
+            double[] utilization = new double[days];
+            for (int i = 0; i < days; i++) {
+                issues[i] = 6 + (i * 7) % 5 + (i % 7 == 5 ? -4 : 0);
+                returns[i] = 5 + (i * 3) % 6 + (i % 7 == 5 ? -3 : 0);
+                overdue[i] = 3 + (i / 6) % 3;
+                utilization[i] = 0.25 + 0.05 * Math.sin(i / 4.0);
+            }
+            LocalDate firstDay = LocalDate.now().minusDays(days - 1);
+            
+            JPanel panel = new JPanel(new GridLayout(1, 3, 15, 15));
+            TrendChart circulationChart = new TrendChart("Issues and Returns", new String[] {"Issues", "Returns"},
+                new Color[] {new Color(142, 68, 173), new Color(39, 174, 96)});
+            circulationChart.setData(firstDay, issues, returns);
+            TrendChart overdueChart = new TrendChart("Overdue Loans", new String[] {"Overdue"},
+                new Color[] {new Color(231, 76, 60)});
+            overdueChart.setData(firstDay, overdue);
+            TrendChart utilizationChart = new TrendChart("Copies on Loan", new String[] {"Utilization"},
+                new Color[] {new Color(41, 128, 185)});
+            utilizationChart.setPercent(true);
+            utilizationChart.setData(firstDay, utilization);
+            
+            panel.add(circulationChart);
+            panel.add(overdueChart);
+            panel.add(utilizationChart);
+            return panel;
+        }
+        
         private JPanel createStatsCard(String title, String value, Color color) {
             JPanel panel = new JPanel(new BorderLayout());
             panel.setBackground(color);
@@ -1 +1,710 @@
- 
\ No newline at end of file
+package com.library.database;
+
+import com.library.events.BookChangedEvent;
+import com.library.events.ChangeType;
+import com.library.events.EventBus;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.AvailabilityDiscrepancy;
+import com.library.models.Book;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the books table
+ */
+public class BookDAO {
+    private static final OperationMetrics GET_ALL_BOOKS = MetricsRegistry.getInstance().operation("BookDAO.getAllBooks");
+    private static final OperationMetrics GET_BOOK_BY_ID = MetricsRegistry.getInstance().operation("BookDAO.getBookById");
+    private static final OperationMetrics GET_BOOKS_BY_IDS = MetricsRegistry.getInstance().operation("BookDAO.getBooksByIds");
+    private static final OperationMetrics GET_BOOK_BY_ISBN = MetricsRegistry.getInstance().operation("BookDAO.getBookByIsbn");
+    private static final OperationMetrics SEARCH_BOOKS = MetricsRegistry.getInstance().operation("BookDAO.searchBooks");
+    private static final OperationMetrics SCAN_BOOKS = MetricsRegistry.getInstance().operation("BookDAO.scanBooks");
+    private static final OperationMetrics REBUILD_SEARCH_KEYS = MetricsRegistry.getInstance().operation("BookDAO.rebuildSearchKeys");
+    private static final OperationMetrics FIND_AVAILABLE_BY_TITLE_PREFIX = MetricsRegistry.getInstance().operation("BookDAO.findAvailableByTitlePrefix");
+    private static final OperationMetrics COUNT_BOOKS = MetricsRegistry.getInstance().operation("BookDAO.countBooks");
+    private static final OperationMetrics COUNT_COPIES = MetricsRegistry.getInstance().operation("BookDAO.countCopies");
+    private static final OperationMetrics ADD_BOOK = MetricsRegistry.getInstance().operation("BookDAO.addBook");
+    private static final OperationMetrics UPDATE_BOOK = MetricsRegistry.getInstance().operation("BookDAO.updateBook");
+    private static final OperationMetrics DELETE_BOOK = MetricsRegistry.getInstance().operation("BookDAO.deleteBook");
+    private static final OperationMetrics UPDATE_BOOK_AVAILABILITY = MetricsRegistry.getInstance().operation("BookDAO.updateBookAvailability");
+    private static final OperationMetrics GET_BOOK_ID_RANGE = MetricsRegistry.getInstance().operation("BookDAO.getBookIdRange");
+    private static final OperationMetrics FIND_AVAILABILITY_DRIFT = MetricsRegistry.getInstance().operation("BookDAO.findAvailabilityDrift");
+    private static final OperationMetrics FIX_AVAILABILITY = MetricsRegistry.getInstance().operation("BookDAO.fixAvailability");
+    
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    
+    /**
+     * Get all books
+     * @return List of all books
+     */
+    public List<Book> getAllBooks() {
+        long start = System.nanoTime();
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT * FROM books ORDER BY title";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                books.add(extractBookFromResultSet(rs));
+            }
+            GET_ALL_BOOKS.record(start, books.size());
+        } catch (SQLException e) {
+            GET_ALL_BOOKS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return books;
+    }
+    
+    /**
+     * Get a book by ID
+     * @param bookId Book ID
+     * @return Book, or null if not found
+     */
+    public Book getBookById(int bookId) {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM books WHERE book_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, bookId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    Book book = extractBookFromResultSet(rs);
+                    GET_BOOK_BY_ID.record(start, 1);
+                    return book;
+                }
+            }
+            GET_BOOK_BY_ID.record(start, 0);
+        } catch (SQLException e) {
+            GET_BOOK_BY_ID.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get several books by ID in one query
+     * @param bookIds Book IDs
+     * @return Books found, in the order of the IDs
+     */
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        long start = System.nanoTime();
+        List<Book> books = new ArrayList<>();
+        if (bookIds.isEmpty()) {
+            return books;
+        }
+        String sql = "SELECT * FROM books WHERE book_id IN (" + DatabaseConnection.placeholders(bookIds.size()) + ")";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < bookIds.size(); i++) {
+                pstmt.setInt(i + 1, bookIds.get(i));
+            }
+            
+            Map<Integer, Book> byId = new HashMap<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Book book = extractBookFromResultSet(rs);
+                    byId.put(book.getBookId(), book);
+                }
+            }
+            for (int bookId : bookIds) {
+                Book book = byId.get(bookId);
+                if (book != null) {
+                    books.add(book);
+                }
+            }
+            GET_BOOKS_BY_IDS.record(start, books.size());
+        } catch (SQLException e) {
+            GET_BOOKS_BY_IDS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return books;
+    }
+    
+    /**
+     * Get a book by ISBN
+     * @param isbn ISBN exactly as stored
+     * @return Book, or null if not found
+     */
+    public Book getBookByIsbn(String isbn) {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM books WHERE isbn = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, isbn);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    Book book = extractBookFromResultSet(rs);
+                    GET_BOOK_BY_ISBN.record(start, 1);
+                    return book;
+                }
+            }
+            GET_BOOK_BY_ISBN.record(start, 0);
+        } catch (SQLException e) {
+            GET_BOOK_BY_ISBN.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Search books by title, author, publisher, ISBN or category, ignoring case
+     * and accents. Only the term is folded; the rows' folded text is stored in
+     * search_key when they are written.
+     * @param searchTerm Text to search for
+     * @return List of matching books
+     */
+    public List<Book> searchBooks(String searchTerm) {
+        long start = System.nanoTime();
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT * FROM books WHERE search_key LIKE ? ORDER BY title";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, SearchKeys.containsPattern(searchTerm));
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(extractBookFromResultSet(rs));
+                }
+            }
+            SEARCH_BOOKS.record(start, books.size());
+        } catch (SQLException e) {
+            SEARCH_BOOKS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return books;
+    }
+    
+    /**
+     * Find books with a copy available whose title starts with a prefix. The
+     * prefix match walks idx_books_title, so each call reads at most one page.
+     * @param prefix Start of the title; empty for the first titles
+     * @param limit Most books to return
+     * @return Matching books in title order
+     */
+    public List<Book> findAvailableByTitlePrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT * FROM books WHERE title LIKE ? AND available > 0 ORDER BY title LIMIT ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, DatabaseConnection.likePrefix(prefix));
+            pstmt.setInt(2, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(extractBookFromResultSet(rs));
+                }
+            }
+            FIND_AVAILABLE_BY_TITLE_PREFIX.record(start, books.size());
+        } catch (SQLException e) {
+            FIND_AVAILABLE_BY_TITLE_PREFIX.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return books;
+    }
+    
+    /**
+     * Stream every book without holding the result set in memory
+     * @param handler Receives each book
+     * @return Number of books streamed, or -1 on error
+     */
+    public int scanBooks(RowHandler<Book> handler) {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM books";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql)) {
+            
+            int rows = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.row(extractBookFromResultSet(rs));
+                    rows++;
+                }
+            }
+            SCAN_BOOKS.record(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            SCAN_BOOKS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Count all books
+     * @return Number of books, or 0 on error
+     */
+    public int countBooks() {
+        long start = System.nanoTime();
+        String sql = "SELECT COUNT(*) FROM books";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            int count = rs.next() ? rs.getInt(1) : 0;
+            COUNT_BOOKS.record(start, 1);
+            return count;
+        } catch (SQLException e) {
+            COUNT_BOOKS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Count all copies of all books
+     * @return Sum of the book quantities, or 0 on error
+     */
+    public int countCopies() {
+        long start = System.nanoTime();
+        String sql = "SELECT COALESCE(SUM(quantity), 0) FROM books";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            int count = rs.next() ? rs.getInt(1) : 0;
+            COUNT_COPIES.record(start, 1);
+            return count;
+        } catch (SQLException e) {
+            COUNT_COPIES.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Add a new book
+     * @param book Book to add
+     * @return true if successful, false otherwise
+     */
+    public boolean addBook(Book book) {
+        long start = System.nanoTime();
+        String sql = "INSERT INTO books (title, author, publisher, isbn, category, quantity, available, added_date, " +
+                     "search_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            BookChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, book.getTitle());
+                pstmt.setString(2, book.getAuthor());
+                pstmt.setString(3, book.getPublisher());
+                pstmt.setString(4, book.getIsbn());
+                pstmt.setString(5, book.getCategory());
+                pstmt.setInt(6, book.getQuantity());
+                pstmt.setInt(7, book.getAvailable());
+                pstmt.setDate(8, book.getAddedDate());
+                pstmt.setString(9, searchKey(book.getTitle(), book.getAuthor(), book.getPublisher(),
+                                             book.getIsbn(), book.getCategory()));
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    ADD_BOOK.record(start, 0);
+                    return false;
+                }
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        book.setBookId(keys.getInt(1));
+                    }
+                }
+                event = new BookChangedEvent(book.getBookId(), ChangeType.ADDED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            ADD_BOOK.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            ADD_BOOK.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Update an existing book
+     * @param book Book with updated values
+     * @return true if successful, false otherwise
+     */
+    public boolean updateBook(Book book) {
+        long start = System.nanoTime();
+        String sql = "UPDATE books SET title = ?, author = ?, publisher = ?, isbn = ?, category = ?, " +
+                     "quantity = ?, available = ?, search_key = ? WHERE book_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            BookChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, book.getTitle());
+                pstmt.setString(2, book.getAuthor());
+                pstmt.setString(3, book.getPublisher());
+                pstmt.setString(4, book.getIsbn());
+                pstmt.setString(5, book.getCategory());
+                pstmt.setInt(6, book.getQuantity());
+                pstmt.setInt(7, book.getAvailable());
+                pstmt.setString(8, searchKey(book.getTitle(), book.getAuthor(), book.getPublisher(),
+                                             book.getIsbn(), book.getCategory()));
+                pstmt.setInt(9, book.getBookId());
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    UPDATE_BOOK.record(start, 0);
+                    return false;
+                }
+                event = new BookChangedEvent(book.getBookId(), ChangeType.UPDATED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            UPDATE_BOOK.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            UPDATE_BOOK.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Delete a book. Books with copies currently issued are not deleted.
+     * @param bookId ID of the book to delete
+     * @return true if successful, false otherwise
+     */
+    public boolean deleteBook(int bookId) {
+        long start = System.nanoTime();
+        String sql = "DELETE FROM books WHERE book_id = ? AND NOT EXISTS " +
+                     "(SELECT 1 FROM book_issues WHERE book_id = ? AND return_date IS NULL)";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            BookChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, bookId);
+                pstmt.setInt(2, bookId);
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    DELETE_BOOK.record(start, 0);
+                    return false;
+                }
+                event = new BookChangedEvent(bookId, ChangeType.DELETED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            DELETE_BOOK.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            DELETE_BOOK.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Adjust the number of available copies of a book
+     * @param bookId Book ID
+     * @param change Amount to add (negative to subtract)
+     * @return true if successful, false otherwise
+     */
+    public boolean updateBookAvailability(int bookId, int change) {
+        long start = System.nanoTime();
+        String sql = "UPDATE books SET available = available + ? WHERE book_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            BookChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, change);
+                pstmt.setInt(2, bookId);
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    UPDATE_BOOK_AVAILABILITY.record(start, 0);
+                    return false;
+                }
+                event = new BookChangedEvent(bookId, ChangeType.UPDATED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            UPDATE_BOOK_AVAILABILITY.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            UPDATE_BOOK_AVAILABILITY.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Get the lowest and highest book ID
+     * @return Array of lowest and highest ID, or null if there are no books
+     */
+    public int[] getBookIdRange() {
+        long start = System.nanoTime();
+        String sql = "SELECT MIN(book_id), MAX(book_id) FROM books";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            GET_BOOK_ID_RANGE.record(start, 1);
+            if (rs.next()) {
+                int min = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    return new int[] {min, rs.getInt(2)};
+                }
+            }
+        } catch (SQLException e) {
+            GET_BOOK_ID_RANGE.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Find books in an ID range whose available count differs from their quantity
+     * minus their open loans, never below zero, which is what
+     * {@link #fixAvailability} sets. Uses a plain consistent read, so it takes no
+     * locks.
+     * @param fromId First book ID, inclusive
+     * @param toId Last book ID, inclusive
+     * @return Discrepancies ordered by book ID, or null on error
+     */
+    public List<AvailabilityDiscrepancy> findAvailabilityDrift(int fromId, int toId) {
+        long start = System.nanoTime();
+        List<AvailabilityDiscrepancy> drift = new ArrayList<>();
+        String sql = "SELECT b.book_id, b.title, b.quantity, b.available, COALESCE(o.open_loans, 0) AS open_loans " +
+                     "FROM books b LEFT JOIN (SELECT book_id, COUNT(*) AS open_loans FROM book_issues " +
+                     "WHERE return_date IS NULL AND book_id BETWEEN ? AND ? GROUP BY book_id) o " +
+                     "ON o.book_id = b.book_id WHERE b.book_id BETWEEN ? AND ? " +
+                     "AND b.available <> GREATEST(b.quantity - COALESCE(o.open_loans, 0), 0) ORDER BY b.book_id";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, fromId);
+            pstmt.setInt(2, toId);
+            pstmt.setInt(3, fromId);
+            pstmt.setInt(4, toId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    drift.add(new AvailabilityDiscrepancy(
+                        rs.getInt("book_id"),
+                        rs.getString("title"),
+                        rs.getInt("quantity"),
+                        rs.getInt("available"),
+                        rs.getInt("open_loans")
+                    ));
+                }
+            }
+            FIND_AVAILABILITY_DRIFT.record(start, drift.size());
+            return drift;
+        } catch (SQLException e) {
+            FIND_AVAILABILITY_DRIFT.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Set the available count of books back to their quantity minus their open
+     * loans, never below zero. Each book is corrected in its own short
+     * transaction, which also writes its change_log row. Besides the book's row
+     * lock, the recount in the update is a locking read of that book's loans in
+     * book_issues, so an issue or return of the book waits for the correction
+     * or is fully counted by it. Books that were corrected in the meantime are
+     * left alone.
+     * @param bookIds IDs of the books to correct
+     * @return Number of books changed, or -1 on error
+     */
+    public int fixAvailability(List<Integer> bookIds) {
+        long start = System.nanoTime();
+        String openLoans = "(SELECT COUNT(*) FROM book_issues WHERE book_id = ? AND return_date IS NULL)";
+        String sql = "UPDATE books SET available = GREATEST(quantity - " + openLoans + ", 0) " +
+                     "WHERE book_id = ? AND available <> GREATEST(quantity - " + openLoans + ", 0)";
+        int fixed = 0;
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            for (int bookId : bookIds) {
+                BookChangedEvent event = null;
+                
+                try {
+                    pstmt.setInt(1, bookId);
+                    pstmt.setInt(2, bookId);
+                    pstmt.setInt(3, bookId);
+                    
+                    if (pstmt.executeUpdate() > 0) {
+                        event = new BookChangedEvent(bookId, ChangeType.UPDATED);
+                        changeLogDAO.recordChange(conn, event);
+                    }
+                    
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                
+                if (event != null) {
+                    fixed++;
+                    EventBus.getInstance().publish(event);
+                }
+            }
+            FIX_AVAILABILITY.record(start, fixed);
+            return fixed;
+        } catch (SQLException e) {
+            FIX_AVAILABILITY.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Recompute the search key of every book, a page at a time. Run after
+     * adding the search_key column or changing the folding rules.
+     * @param pageSize Books read and updated per round trip
+     * @return Number of books updated, or -1 on error
+     */
+    public int rebuildSearchKeys(int pageSize) {
+        long start = System.nanoTime();
+        String selectSql = "SELECT book_id, title, author, publisher, isbn, category FROM books " +
+                           "WHERE book_id > ? ORDER BY book_id LIMIT ?";
+        String updateSql = "UPDATE books SET search_key = ? WHERE book_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement select = conn.prepareStatement(selectSql);
+             PreparedStatement update = conn.prepareStatement(updateSql)) {
+            
+            int rows = 0;
+            int lastId = 0;
+            int pageRows;
+            do {
+                select.setInt(1, lastId);
+                select.setInt(2, pageSize);
+                pageRows = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getInt(1);
+                        update.setString(1, searchKey(rs.getString(2), rs.getString(3), rs.getString(4),
+                                                      rs.getString(5), rs.getString(6)));
+                        update.setInt(2, lastId);
+                        update.addBatch();
+                        pageRows++;
+                    }
+                }
+                update.executeBatch();
+                rows += pageRows;
+            } while (pageRows == pageSize);
+            REBUILD_SEARCH_KEYS.record(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            REBUILD_SEARCH_KEYS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Build the stored search key of a book
+     * @param title Title
+     * @param author Author
+     * @param publisher Publisher
+     * @param isbn ISBN
+     * @param category Category
+     * @return Folded key for the search_key column
+     */
+    public static String searchKey(String title, String author, String publisher, String isbn, String category) {
+        return SearchKeys.key(title, author, publisher, isbn, category);
+    }
+    
+    /**
+     * Create a Book object from the current row of a result set
+     * @param rs Result set positioned on a books row
+     * @return Book object
+     * @throws SQLException if a column cannot be read
+     */
+    private Book extractBookFromResultSet(ResultSet rs) throws SQLException {
+        return new Book(
+            rs.getInt("book_id"),
+            rs.getString("title"),
+            rs.getString("author"),
+            rs.getString("publisher"),
+            rs.getString("isbn"),
+            rs.getString("category"),
+            rs.getInt("quantity"),
+            rs.getInt("available"),
+            rs.getDate("added_date")
+        );
+    }
+}
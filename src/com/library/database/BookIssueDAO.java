@@ -1 +1,661 @@
- 
\ No newline at end of file
+package com.library.database;
+
+import com.library.events.EventBus;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.BookIssue;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data Access Object for the book_issues table
+ */
+public class BookIssueDAO {
+    private static final OperationMetrics GET_ALL_BOOK_ISSUES = MetricsRegistry.getInstance().operation("BookIssueDAO.getAllBookIssues");
+    private static final OperationMetrics GET_BOOK_ISSUE_BY_ID = MetricsRegistry.getInstance().operation("BookIssueDAO.getBookIssueById");
+    private static final OperationMetrics GET_BOOK_ISSUES_BY_IDS = MetricsRegistry.getInstance().operation("BookIssueDAO.getBookIssuesByIds");
+    private static final OperationMetrics GET_OPEN_BOOK_ISSUES = MetricsRegistry.getInstance().operation("BookIssueDAO.getOpenBookIssues");
+    private static final OperationMetrics SEARCH_OPEN_BOOK_ISSUES = MetricsRegistry.getInstance().operation("BookIssueDAO.searchOpenBookIssues");
+    private static final OperationMetrics GET_OVERDUE_BOOKS = MetricsRegistry.getInstance().operation("BookIssueDAO.getOverdueBooks");
+    private static final OperationMetrics ADD_BOOK_ISSUE = MetricsRegistry.getInstance().operation("BookIssueDAO.addBookIssue");
+    private static final OperationMetrics ADD_BOOK_ISSUES = MetricsRegistry.getInstance().operation("BookIssueDAO.addBookIssues");
+    private static final OperationMetrics RETURN_BOOK_ISSUE = MetricsRegistry.getInstance().operation("BookIssueDAO.returnBookIssue");
+    private static final OperationMetrics RETURN_BOOK_ISSUES = MetricsRegistry.getInstance().operation("BookIssueDAO.returnBookIssues");
+    private static final OperationMetrics COUNT_ISSUED_BOOKS = MetricsRegistry.getInstance().operation("BookIssueDAO.countIssuedBooks");
+    private static final OperationMetrics COUNT_OVERDUE_BOOKS = MetricsRegistry.getInstance().operation("BookIssueDAO.countOverdueBooks");
+    private static final OperationMetrics SCAN_LOANS = MetricsRegistry.getInstance().operation("BookIssueDAO.scanLoans");
+    private static final OperationMetrics SCAN_ISSUE_KEYS = MetricsRegistry.getInstance().operation("BookIssueDAO.scanIssueKeys");
+    private static final String SELECT_WITH_NAMES =
+        "SELECT bi.*, b.title AS book_title, m.name AS member_name FROM book_issues bi " +
+        "JOIN books b ON bi.book_id = b.book_id " +
+        "JOIN members m ON bi.member_id = m.member_id";
+    
+    private final CirculationRollupDAO rollupDAO = new CirculationRollupDAO();
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    
+    /**
+     * Get all book issues
+     * @return List of all book issues
+     */
+    public List<BookIssue> getAllBookIssues() {
+        long start = System.nanoTime();
+        List<BookIssue> issues = new ArrayList<>();
+        String sql = SELECT_WITH_NAMES + " ORDER BY bi.issue_date DESC";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                issues.add(extractBookIssueFromResultSet(rs));
+            }
+            GET_ALL_BOOK_ISSUES.record(start, issues.size());
+        } catch (SQLException e) {
+            GET_ALL_BOOK_ISSUES.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return issues;
+    }
+    
+    /**
+     * Get a book issue by ID
+     * @param issueId Issue ID
+     * @return Book issue, or null if not found
+     */
+    public BookIssue getBookIssueById(int issueId) {
+        long start = System.nanoTime();
+        String sql = SELECT_WITH_NAMES + " WHERE bi.issue_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, issueId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    BookIssue issue = extractBookIssueFromResultSet(rs);
+                    GET_BOOK_ISSUE_BY_ID.record(start, 1);
+                    return issue;
+                }
+            }
+            GET_BOOK_ISSUE_BY_ID.record(start, 0);
+        } catch (SQLException e) {
+            GET_BOOK_ISSUE_BY_ID.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get several book issues by ID in one query
+     * @param issueIds Issue IDs
+     * @return Book issues found, in no particular order
+     */
+    public List<BookIssue> getBookIssuesByIds(List<Integer> issueIds) {
+        long start = System.nanoTime();
+        List<BookIssue> issues = new ArrayList<>();
+        if (issueIds.isEmpty()) {
+            return issues;
+        }
+        String sql = SELECT_WITH_NAMES + " WHERE bi.issue_id IN (" + DatabaseConnection.placeholders(issueIds.size()) + ")";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < issueIds.size(); i++) {
+                pstmt.setInt(i + 1, issueIds.get(i));
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    issues.add(extractBookIssueFromResultSet(rs));
+                }
+            }
+            GET_BOOK_ISSUES_BY_IDS.record(start, issues.size());
+        } catch (SQLException e) {
+            GET_BOOK_ISSUES_BY_IDS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return issues;
+    }
+    
+    /**
+     * Get the books currently issued, with book titles and member names
+     * @return Open book issues, most recent first
+     */
+    public List<BookIssue> getOpenBookIssues() {
+        long start = System.nanoTime();
+        List<BookIssue> issues = new ArrayList<>();
+        String sql = SELECT_WITH_NAMES + " WHERE bi.return_date IS NULL ORDER BY bi.issue_date DESC";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                issues.add(extractBookIssueFromResultSet(rs));
+            }
+            GET_OPEN_BOOK_ISSUES.record(start, issues.size());
+        } catch (SQLException e) {
+            GET_OPEN_BOOK_ISSUES.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return issues;
+    }
+    
+    /**
+     * Search the books currently issued by book or member text, ignoring case
+     * and accents, or by issue, book or member ID
+     * @param searchTerm Text to search for
+     * @return Matching open book issues, most recent first
+     */
+    public List<BookIssue> searchOpenBookIssues(String searchTerm) {
+        long start = System.nanoTime();
+        List<BookIssue> issues = new ArrayList<>();
+        String sql = SELECT_WITH_NAMES + " WHERE bi.return_date IS NULL AND (b.search_key LIKE ? " +
+                     "OR m.search_key LIKE ? OR CAST(bi.issue_id AS CHAR) LIKE ? " +
+                     "OR CAST(bi.book_id AS CHAR) LIKE ? OR CAST(bi.member_id AS CHAR) LIKE ?) " +
+                     "ORDER BY bi.issue_date DESC";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            String pattern = SearchKeys.containsPattern(searchTerm);
+            for (int i = 1; i <= 5; i++) {
+                pstmt.setString(i, pattern);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    issues.add(extractBookIssueFromResultSet(rs));
+                }
+            }
+            SEARCH_OPEN_BOOK_ISSUES.record(start, issues.size());
+        } catch (SQLException e) {
+            SEARCH_OPEN_BOOK_ISSUES.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return issues;
+    }
+    
+    /**
+     * Get all issued books that are past their due date
+     * @return List of overdue book issues
+     */
+    public List<BookIssue> getOverdueBooks() {
+        long start = System.nanoTime();
+        List<BookIssue> issues = new ArrayList<>();
+        String sql = SELECT_WITH_NAMES + " WHERE bi.return_date IS NULL AND bi.due_date < CURDATE() " +
+                     "ORDER BY bi.due_date";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                issues.add(extractBookIssueFromResultSet(rs));
+            }
+            GET_OVERDUE_BOOKS.record(start, issues.size());
+        } catch (SQLException e) {
+            GET_OVERDUE_BOOKS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return issues;
+    }
+    
+    /**
+     * Issue a book. Records the issue, takes one copy out of the available
+     * count and counts it in the daily rollup in a single transaction; fails if
+     * no copy is available.
+     * @param bookIssue Book issue to add
+     * @return true if successful, false otherwise
+     */
+    public boolean addBookIssue(BookIssue bookIssue) {
+        long start = System.nanoTime();
+        String updateSql = "UPDATE books SET available = available - 1 WHERE book_id = ? AND available > 0";
+        String insertSql = "INSERT INTO book_issues (book_id, member_id, issue_date, due_date, status) " +
+                           "VALUES (?, ?, ?, ?, ?)";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            LoanIssuedEvent event;
+            
+            try (PreparedStatement updateStmt = conn.prepareStatement(updateSql);
+                 PreparedStatement insertStmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                
+                updateStmt.setInt(1, bookIssue.getBookId());
+                if (updateStmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    ADD_BOOK_ISSUE.record(start, 0);
+                    return false;
+                }
+                
+                insertStmt.setInt(1, bookIssue.getBookId());
+                insertStmt.setInt(2, bookIssue.getMemberId());
+                insertStmt.setDate(3, bookIssue.getIssueDate());
+                insertStmt.setDate(4, bookIssue.getDueDate());
+                insertStmt.setString(5, bookIssue.getStatus());
+                insertStmt.executeUpdate();
+                
+                try (ResultSet keys = insertStmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        bookIssue.setIssueId(keys.getInt(1));
+                    }
+                }
+                rollupDAO.recordIssue(conn, bookIssue.getIssueId());
+                event = new LoanIssuedEvent(bookIssue.getIssueId(), bookIssue.getBookId(), bookIssue.getMemberId());
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            ADD_BOOK_ISSUE.record(start, 2);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            ADD_BOOK_ISSUE.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Issue several books in one transaction. Each book's available count is
+     * checked and decremented in the same batch; if any book has no copy left
+     * the whole transaction is rolled back and nothing is issued.
+     * @param bookIssues Issues to add; their IDs are set on success
+     * @return IDs of the books that had no copy available (nothing was issued),
+     *         an empty list if every book was issued, or null on error
+     */
+    public List<Integer> addBookIssues(List<BookIssue> bookIssues) {
+        long start = System.nanoTime();
+        String updateSql = "UPDATE books SET available = available - 1 WHERE book_id = ? AND available > 0";
+        String insertSql = "INSERT INTO book_issues (book_id, member_id, issue_date, due_date, status) " +
+                           "VALUES (?, ?, ?, ?, ?)";
+        List<Integer> unavailable = new ArrayList<>();
+        List<LoanIssuedEvent> events = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement updateStmt = conn.prepareStatement(updateSql);
+                 PreparedStatement insertStmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                
+                for (BookIssue bookIssue : bookIssues) {
+                    updateStmt.setInt(1, bookIssue.getBookId());
+                    updateStmt.addBatch();
+                }
+                int[] updated = updateStmt.executeBatch();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        unavailable.add(bookIssues.get(i).getBookId());
+                    }
+                }
+                if (!unavailable.isEmpty()) {
+                    conn.rollback();
+                    ADD_BOOK_ISSUES.record(start, 0);
+                    return unavailable;
+                }
+                
+                for (BookIssue bookIssue : bookIssues) {
+                    insertStmt.setInt(1, bookIssue.getBookId());
+                    insertStmt.setInt(2, bookIssue.getMemberId());
+                    insertStmt.setDate(3, bookIssue.getIssueDate());
+                    insertStmt.setDate(4, bookIssue.getDueDate());
+                    insertStmt.setString(5, bookIssue.getStatus());
+                    insertStmt.addBatch();
+                }
+                insertStmt.executeBatch();
+                
+                List<Integer> issueIds = new ArrayList<>();
+                try (ResultSet keys = insertStmt.getGeneratedKeys()) {
+                    for (BookIssue bookIssue : bookIssues) {
+                        if (!keys.next()) {
+                            throw new SQLException("Missing generated key for book " + bookIssue.getBookId());
+                        }
+                        bookIssue.setIssueId(keys.getInt(1));
+                        issueIds.add(bookIssue.getIssueId());
+                    }
+                }
+                rollupDAO.recordIssues(conn, issueIds);
+                for (BookIssue bookIssue : bookIssues) {
+                    events.add(new LoanIssuedEvent(bookIssue.getIssueId(), bookIssue.getBookId(), bookIssue.getMemberId()));
+                }
+                changeLogDAO.recordChanges(conn, events);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            ADD_BOOK_ISSUES.record(start, bookIssues.size() * 2);
+            for (LoanIssuedEvent event : events) {
+                EventBus.getInstance().publish(event);
+            }
+            return unavailable;
+        } catch (SQLException e) {
+            ADD_BOOK_ISSUES.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Return a book. Marks the issue as returned with its fine, puts the copy
+     * back into the available count and counts the return in the daily rollup
+     * in a single transaction.
+     * @param issueId Issue ID
+     * @param returnDate Date the book was returned
+     * @param fineAmount Fine charged for the return
+     * @return true if successful, false if the issue does not exist or was already returned
+     */
+    public boolean returnBookIssue(int issueId, Date returnDate, double fineAmount) {
+        long start = System.nanoTime();
+        String selectSql = "SELECT book_id, member_id FROM book_issues WHERE issue_id = ? AND return_date IS NULL FOR UPDATE";
+        String issueSql = "UPDATE book_issues SET status = 'Returned', return_date = ?, fine_amount = ? WHERE issue_id = ?";
+        String bookSql = "UPDATE books SET available = available + 1 WHERE book_id = ?";
+        int bookId;
+        int memberId;
+        LoanReturnedEvent event;
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement selectStmt = conn.prepareStatement(selectSql);
+                 PreparedStatement issueStmt = conn.prepareStatement(issueSql);
+                 PreparedStatement bookStmt = conn.prepareStatement(bookSql)) {
+                
+                selectStmt.setInt(1, issueId);
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        RETURN_BOOK_ISSUE.record(start, 0);
+                        return false;
+                    }
+                    bookId = rs.getInt("book_id");
+                    memberId = rs.getInt("member_id");
+                }
+                
+                issueStmt.setDate(1, returnDate);
+                issueStmt.setDouble(2, fineAmount);
+                issueStmt.setInt(3, issueId);
+                issueStmt.executeUpdate();
+                
+                bookStmt.setInt(1, bookId);
+                bookStmt.executeUpdate();
+                rollupDAO.recordReturn(conn, issueId);
+                event = new LoanReturnedEvent(issueId, bookId, memberId);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            RETURN_BOOK_ISSUE.record(start, 2);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            RETURN_BOOK_ISSUE.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Stream every loan that was open at some point in a date range. Rows are read
+     * through a forward-only cursor so the table never has to fit in memory.
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @param handler Receives each loan on the calling thread
+     * @return Number of loans read, or -1 on error
+     */
+    public long scanLoans(Date from, Date to, LoanRowHandler handler) {
+        long start = System.nanoTime();
+        String sql = "SELECT book_id, member_id, DATEDIFF(issue_date, '1970-01-01'), " +
+                     "DATEDIFF(due_date, '1970-01-01'), DATEDIFF(return_date, '1970-01-01') " +
+                     "FROM book_issues WHERE issue_date <= ? AND (return_date IS NULL OR return_date >= ?)";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql)) {
+            
+            pstmt.setDate(1, to);
+            pstmt.setDate(2, from);
+            
+            long rows = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int returnDay = rs.getInt(5);
+                    if (rs.wasNull()) {
+                        returnDay = -1;
+                    }
+                    handler.loan(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), returnDay);
+                    rows++;
+                }
+            }
+            SCAN_LOANS.record(start, (int) Math.min(rows, Integer.MAX_VALUE));
+            return rows;
+        } catch (SQLException e) {
+            SCAN_LOANS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Stream the keys of every issue: its issue, book and member IDs and its
+     * return date. The other fields are left unset, so a pass over the whole
+     * history reads only what loan counts need.
+     * @param handler Receives each issue
+     * @return Number of issues streamed, or -1 on error
+     */
+    public int scanIssueKeys(RowHandler<BookIssue> handler) {
+        long start = System.nanoTime();
+        String sql = "SELECT issue_id, book_id, member_id, return_date FROM book_issues";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql)) {
+            
+            int rows = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    BookIssue issue = new BookIssue();
+                    issue.setIssueId(rs.getInt(1));
+                    issue.setBookId(rs.getInt(2));
+                    issue.setMemberId(rs.getInt(3));
+                    issue.setReturnDate(rs.getDate(4));
+                    handler.row(issue);
+                    rows++;
+                }
+            }
+            SCAN_ISSUE_KEYS.record(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            SCAN_ISSUE_KEYS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Return several books in one transaction. Issues that are not currently
+     * issued are skipped; the rest are marked returned with their fines, their
+     * copies go back into the available counts and the returns are counted in
+     * the daily rollups, each step as one batch.
+     * @param bookIssues Issues to return, with the fine to charge set on each
+     * @param returnDate Date the books were returned
+     * @return IDs of the issues returned, or null on error
+     */
+    public List<Integer> returnBookIssues(List<BookIssue> bookIssues, Date returnDate) {
+        long start = System.nanoTime();
+        List<Integer> returned = new ArrayList<>();
+        if (bookIssues.isEmpty()) {
+            return returned;
+        }
+        String selectSql = "SELECT issue_id, book_id, member_id FROM book_issues WHERE issue_id IN (" +
+                           DatabaseConnection.placeholders(bookIssues.size()) + ") AND return_date IS NULL ORDER BY issue_id FOR UPDATE";
+        String issueSql = "UPDATE book_issues SET status = 'Returned', return_date = ?, fine_amount = ? WHERE issue_id = ?";
+        String bookSql = "UPDATE books SET available = available + ? WHERE book_id = ?";
+        Map<Integer, Double> fines = new HashMap<>();
+        for (BookIssue bookIssue : bookIssues) {
+            fines.put(bookIssue.getIssueId(), bookIssue.getFineAmount());
+        }
+        List<int[]> loans = new ArrayList<>();
+        List<LoanReturnedEvent> events = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement selectStmt = conn.prepareStatement(selectSql);
+                 PreparedStatement issueStmt = conn.prepareStatement(issueSql);
+                 PreparedStatement bookStmt = conn.prepareStatement(bookSql)) {
+                
+                int index = 1;
+                for (BookIssue bookIssue : bookIssues) {
+                    selectStmt.setInt(index++, bookIssue.getIssueId());
+                }
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    while (rs.next()) {
+                        loans.add(new int[] {rs.getInt("issue_id"), rs.getInt("book_id"), rs.getInt("member_id")});
+                    }
+                }
+                if (loans.isEmpty()) {
+                    conn.rollback();
+                    RETURN_BOOK_ISSUES.record(start, 0);
+                    return returned;
+                }
+                
+                // Copies per book, in book order so concurrent batches lock books in the same order
+                Map<Integer, Integer> copies = new TreeMap<>();
+                for (int[] loan : loans) {
+                    issueStmt.setDate(1, returnDate);
+                    issueStmt.setDouble(2, fines.get(loan[0]));
+                    issueStmt.setInt(3, loan[0]);
+                    issueStmt.addBatch();
+                    copies.merge(loan[1], 1, Integer::sum);
+                    returned.add(loan[0]);
+                }
+                issueStmt.executeBatch();
+                
+                for (Map.Entry<Integer, Integer> entry : copies.entrySet()) {
+                    bookStmt.setInt(1, entry.getValue());
+                    bookStmt.setInt(2, entry.getKey());
+                    bookStmt.addBatch();
+                }
+                bookStmt.executeBatch();
+                
+                rollupDAO.recordReturns(conn, returned);
+                for (int[] loan : loans) {
+                    events.add(new LoanReturnedEvent(loan[0], loan[1], loan[2]));
+                }
+                changeLogDAO.recordChanges(conn, events);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            RETURN_BOOK_ISSUES.record(start, loans.size());
+            for (LoanReturnedEvent event : events) {
+                EventBus.getInstance().publish(event);
+            }
+            return returned;
+        } catch (SQLException e) {
+            RETURN_BOOK_ISSUES.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Count books currently issued: loans not yet returned, whatever their
+     * status. Only the open loans are read, through the return date index.
+     * @return Number of open issues
+     */
+    public int countIssuedBooks() {
+        return countIssues(COUNT_ISSUED_BOOKS, "SELECT COUNT(*) FROM book_issues WHERE return_date IS NULL");
+    }
+    
+    /**
+     * Count issued books that are past their due date
+     * @return Number of overdue issues
+     */
+    public int countOverdueBooks() {
+        return countIssues(COUNT_OVERDUE_BOOKS, "SELECT COUNT(*) FROM book_issues WHERE return_date IS NULL AND due_date < CURDATE()");
+    }
+    
+    /**
+     * Run a single-value count query
+     * @param metrics Metrics to record the call in
+     * @param sql Count query
+     * @return The count, or 0 on error
+     */
+    private int countIssues(OperationMetrics metrics, String sql) {
+        long start = System.nanoTime();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            int count = rs.next() ? rs.getInt(1) : 0;
+            metrics.record(start, 1);
+            return count;
+        } catch (SQLException e) {
+            metrics.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Create a BookIssue object from the current row of a result set
+     * @param rs Result set positioned on a joined book_issues row
+     * @return BookIssue object
+     * @throws SQLException if a column cannot be read
+     */
+    private BookIssue extractBookIssueFromResultSet(ResultSet rs) throws SQLException {
+        BookIssue issue = new BookIssue(
+            rs.getInt("book_id"),
+            rs.getInt("member_id"),
+            rs.getDate("issue_date"),
+            rs.getDate("due_date"),
+            rs.getString("status")
+        );
+        issue.setIssueId(rs.getInt("issue_id"));
+        issue.setReturnDate(rs.getDate("return_date"));
+        issue.setFineAmount(rs.getDouble("fine_amount"));
+        issue.setBookTitle(rs.getString("book_title"));
+        issue.setMemberName(rs.getString("member_name"));
+        return issue;
+    }
+}
@@ -0,0 +1,236 @@
+package com.library.database;
+
+import com.library.events.BookChangedEvent;
+import com.library.events.ChangeType;
+import com.library.events.LibraryEvent;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.events.MemberChangedEvent;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data Access Object for the change_log table, the shared feed of entity
+ * changes that lets every running client invalidate its views
+ */
+public class ChangeLogDAO {
+    
+    /**
+     * Record a change in the change log on the caller's connection, so it
+     * commits or rolls back with the write that made it
+     * @param conn Connection of the writing transaction
+     * @param event Event that is published once the transaction commits
+     * @throws SQLException if the change cannot be recorded
+     */
+    void recordChange(Connection conn, LibraryEvent event) throws SQLException {
+        recordChanges(conn, Collections.singletonList(event));
+    }
+    
+    /**
+     * Record several changes in the change log as one batch, tagged with this
+     * client's origin so its own relay skips them
+     * @param conn Connection of the writing transaction
+     * @param events Events that are published once the transaction commits
+     * @throws SQLException if the changes cannot be recorded
+     */
+    void recordChanges(Connection conn, List<? extends LibraryEvent> events) throws SQLException {
+        String sql = "INSERT INTO change_log (event_type, entity_id, book_id, member_id, change_type, origin) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        String origin = InvalidationRelay.getInstance().getOrigin();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (LibraryEvent event : events) {
+                if (event instanceof BookChangedEvent) {
+                    BookChangedEvent bookEvent = (BookChangedEvent) event;
+                    bindChange(pstmt, "Book", bookEvent.getBookId(), null, null, bookEvent.getChangeType());
+                } else if (event instanceof MemberChangedEvent) {
+                    MemberChangedEvent memberEvent = (MemberChangedEvent) event;
+                    bindChange(pstmt, "Member", memberEvent.getMemberId(), null, null, memberEvent.getChangeType());
+                } else if (event instanceof LoanIssuedEvent) {
+                    LoanIssuedEvent loanEvent = (LoanIssuedEvent) event;
+                    bindChange(pstmt, "LoanIssued", loanEvent.getIssueId(),
+                        loanEvent.getBookId(), loanEvent.getMemberId(), null);
+                } else if (event instanceof LoanReturnedEvent) {
+                    LoanReturnedEvent loanEvent = (LoanReturnedEvent) event;
+                    bindChange(pstmt, "LoanReturned", loanEvent.getIssueId(),
+                        loanEvent.getBookId(), loanEvent.getMemberId(), null);
+                } else {
+                    continue;
+                }
+                pstmt.setString(6, origin);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Get the ID of the newest change, used as the starting point for polling
+     * @return Highest change ID, or 0 if the log is empty
+     * @throws SQLException if the query fails
+     */
+    public long getLatestChangeId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(change_id), 0) FROM change_log";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    /**
+     * Read the changes after a given change ID, plus some earlier IDs that
+     * were missing from previous reads. Change IDs are allocated when a row is
+     * inserted but become visible when its transaction commits, so a lower ID
+     * can appear after a higher one has been read. Both parts are primary key
+     * lookups, so the cost depends only on the number of changes read.
+     * @param afterChangeId Changes with a higher ID are returned
+     * @param missingIds Lower IDs to look for again
+     * @param limit Maximum number of changes after afterChangeId to read
+     * @return Changes in ID order
+     * @throws SQLException if the query fails
+     */
+    public List<Change> getChanges(long afterChangeId, Collection<Long> missingIds, int limit) throws SQLException {
+        String sql = "SELECT * FROM change_log WHERE change_id > ?" +
+                     (missingIds.isEmpty() ? "" : " OR change_id IN (" + DatabaseConnection.placeholders(missingIds.size()) + ")") +
+                     " ORDER BY change_id LIMIT ?";
+        List<Change> changes = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            pstmt.setLong(index++, afterChangeId);
+            for (long changeId : missingIds) {
+                pstmt.setLong(index++, changeId);
+            }
+            // Missing IDs sort first, so they never use up the limit of new changes
+            pstmt.setInt(index, limit + missingIds.size());
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new Change(rs.getLong("change_id"), rs.getString("origin"), extractEventFromResultSet(rs)));
+                }
+            }
+        }
+        
+        return changes;
+    }
+    
+    /**
+     * Delete changes older than a given age. Every client has long since read them.
+     * @param maxAgeMinutes Age in minutes after which changes are removed
+     * @return Number of changes deleted
+     */
+    public int purgeChanges(int maxAgeMinutes) {
+        String sql = "DELETE FROM change_log WHERE created_at < NOW() - INTERVAL ? MINUTE";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, maxAgeMinutes);
+            
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Bind the first five insert parameters of a change
+     * @param pstmt Insert statement
+     * @param eventType Value of the event_type column
+     * @param entityId Changed entity ID
+     * @param bookId Book involved in a loan, or null
+     * @param memberId Member involved in a loan, or null
+     * @param changeType Kind of change for books and members, or null
+     * @throws SQLException if a parameter cannot be set
+     */
+    private void bindChange(PreparedStatement pstmt, String eventType, int entityId,
+                            Integer bookId, Integer memberId, ChangeType changeType) throws SQLException {
+        pstmt.setString(1, eventType);
+        pstmt.setInt(2, entityId);
+        if (bookId != null) {
+            pstmt.setInt(3, bookId);
+        } else {
+            pstmt.setNull(3, Types.INTEGER);
+        }
+        if (memberId != null) {
+            pstmt.setInt(4, memberId);
+        } else {
+            pstmt.setNull(4, Types.INTEGER);
+        }
+        pstmt.setString(5, changeType != null ? changeType.name() : null);
+    }
+    
+    /**
+     * Create an event from the current row of a result set
+     * @param rs Result set positioned on a change_log row
+     * @return Event object
+     * @throws SQLException if a column cannot be read
+     */
+    private LibraryEvent extractEventFromResultSet(ResultSet rs) throws SQLException {
+        int entityId = rs.getInt("entity_id");
+        try {
+            switch (rs.getString("event_type")) {
+                case "Book":
+                    return new BookChangedEvent(entityId, ChangeType.valueOf(rs.getString("change_type")));
+                case "Member":
+                    return new MemberChangedEvent(entityId, ChangeType.valueOf(rs.getString("change_type")));
+                case "LoanIssued":
+                    return new LoanIssuedEvent(entityId, rs.getInt("book_id"), rs.getInt("member_id"));
+                default:
+                    return new LoanReturnedEvent(entityId, rs.getInt("book_id"), rs.getInt("member_id"));
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            // A malformed row is skipped rather than stopping the relay on it
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * One row of the change log
+     */
+    public static class Change {
+        private final long changeId;
+        private final String origin;
+        private final LibraryEvent event;
+        
+        /**
+         * Constructor
+         * @param changeId Change ID
+         * @param origin ID of the client that made the change
+         * @param event The change as an event, or null if the row is malformed
+         */
+        Change(long changeId, String origin, LibraryEvent event) {
+            this.changeId = changeId;
+            this.origin = origin;
+            this.event = event;
+        }
+        
+        public long getChangeId() {
+            return changeId;
+        }
+        
+        public String getOrigin() {
+            return origin;
+        }
+        
+        public LibraryEvent getEvent() {
+            return event;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.library.database;
+
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.CirculationRollup;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data Access Object for the circulation_daily rollup table. Rows are kept
+ * current by the issue and return transactions in {@link BookIssueDAO}; reads
+ * cost the number of days in the range, not the size of book_issues.
+ */
+public class CirculationRollupDAO {
+    private static final OperationMetrics GET_ROLLUPS = MetricsRegistry.getInstance().operation("CirculationRollupDAO.getRollups");
+    private static final OperationMetrics REBUILD_RANGE = MetricsRegistry.getInstance().operation("CirculationRollupDAO.rebuildRange");
+    private static final OperationMetrics REBUILD_OVERDUE_FROM = MetricsRegistry.getInstance().operation("CirculationRollupDAO.rebuildOverdueFrom");
+    
+    private static final String FROM_ISSUES =
+        " FROM book_issues bi JOIN books b ON bi.book_id = b.book_id JOIN members m ON bi.member_id = m.member_id";
+    
+    // A loan is overdue at the end of every day after its due date up to, but
+    // not including, the day it is returned. overdue_change holds the net change
+    // of that count on each day: +1 the day after the due date, recorded when the
+    // loan is issued, and -1 on the day of a late return. A book back in time
+    // takes its +1 off again, so it never counts.
+    private static final String OVERDUE_FROM = "bi.due_date + INTERVAL '1' DAY";
+    private static final String OVERDUE_UNTIL =
+        "CASE WHEN bi.return_date > bi.due_date THEN bi.return_date ELSE " + OVERDUE_FROM + " END";
+    
+    /**
+     * Get the rollup rows in a date range
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return Rollups per day, category and member type, ordered by day
+     */
+    public List<CirculationRollup> getRollups(Date from, Date to) {
+        return getRollups("day, category, member_type", "day, category, member_type", from, to);
+    }
+    
+    /**
+     * Get totals per day over all categories and member types
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return One rollup per day with activity, ordered by day
+     */
+    public List<CirculationRollup> getDailyTotals(Date from, Date to) {
+        return getRollups("day, NULL AS category, NULL AS member_type", "day", from, to);
+    }
+    
+    /**
+     * Run a grouped query over the rollup table
+     * @param columns Key columns to select
+     * @param groupBy Columns to group and order by
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return Rollups, empty on error
+     */
+    private List<CirculationRollup> getRollups(String columns, String groupBy, Date from, Date to) {
+        long start = System.nanoTime();
+        List<CirculationRollup> rollups = new ArrayList<>();
+        String sql = "SELECT " + columns + ", SUM(issues) AS issues, SUM(returns) AS returns, " +
+                     "SUM(late_returns) AS late_returns, SUM(fines) AS fines, " +
+                     "SUM(overdue_change) AS overdue_change FROM circulation_daily " +
+                     "WHERE day BETWEEN ? AND ? GROUP BY " + groupBy + " ORDER BY " + groupBy;
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setDate(1, from);
+            pstmt.setDate(2, to);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rollups.add(new CirculationRollup(
+                        rs.getDate("day"),
+                        rs.getString("category"),
+                        rs.getString("member_type"),
+                        rs.getInt("issues"),
+                        rs.getInt("returns"),
+                        rs.getInt("late_returns"),
+                        rs.getDouble("fines"),
+                        rs.getInt("overdue_change")
+                    ));
+                }
+            }
+            GET_ROLLUPS.record(start, rollups.size());
+        } catch (SQLException e) {
+            GET_ROLLUPS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return rollups;
+    }
+    
+    /**
+     * Count an issue in the rollup of its issue date. Runs on the caller's
+     * connection so it commits or rolls back with the issue itself.
+     * @param conn Connection of the issuing transaction
+     * @param issueId ID of the new issue
+     * @throws SQLException if the rollup cannot be updated
+     */
+    void recordIssue(Connection conn, int issueId) throws SQLException {
+        recordIssues(conn, Collections.singletonList(issueId));
+    }
+    
+    /**
+     * Count several issues in the rollups of their issue dates as one batch,
+     * and each loan as falling overdue the day after its due date
+     * @param conn Connection of the issuing transaction
+     * @param issueIds IDs of the new issues
+     * @throws SQLException if the rollups cannot be updated
+     */
+    void recordIssues(Connection conn, List<Integer> issueIds) throws SQLException {
+        String issuesSql = "INSERT INTO circulation_daily (day, category, member_type, issues) " +
+                           "SELECT bi.issue_date, b.category, m.member_type, 1" + FROM_ISSUES + " WHERE bi.issue_id = ? " +
+                           "ON DUPLICATE KEY UPDATE issues = issues + 1";
+        String overdueSql = "INSERT INTO circulation_daily (day, category, member_type, overdue_change) " +
+                            "SELECT " + OVERDUE_FROM + ", b.category, m.member_type, 1" + FROM_ISSUES + " WHERE bi.issue_id = ? " +
+                            "ON DUPLICATE KEY UPDATE overdue_change = overdue_change + 1";
+        
+        executeForIssues(conn, issuesSql, issueIds);
+        executeForIssues(conn, overdueSql, issueIds);
+    }
+    
+    /**
+     * Count a return, its lateness and its fine in the rollup of its return
+     * date. Must run after the issue row has been marked returned.
+     * @param conn Connection of the returning transaction
+     * @param issueId ID of the returned issue
+     * @throws SQLException if the rollup cannot be updated
+     */
+    void recordReturn(Connection conn, int issueId) throws SQLException {
+        recordReturns(conn, Collections.singletonList(issueId));
+    }
+    
+    /**
+     * Count several returns in the rollups of their return dates as one batch,
+     * and take the loans out of the overdue count
+     * @param conn Connection of the returning transaction
+     * @param issueIds IDs of the returned issues
+     * @throws SQLException if the rollups cannot be updated
+     */
+    void recordReturns(Connection conn, List<Integer> issueIds) throws SQLException {
+        String returnsSql = "INSERT INTO circulation_daily (day, category, member_type, returns, late_returns, fines) " +
+                            "SELECT bi.return_date, b.category, m.member_type, 1, " +
+                            "CASE WHEN bi.return_date > bi.due_date THEN 1 ELSE 0 END, bi.fine_amount" + FROM_ISSUES + " WHERE bi.issue_id = ? AND bi.return_date IS NOT NULL " +
+                            "ON DUPLICATE KEY UPDATE returns = returns + 1, late_returns = late_returns + VALUES(late_returns), " +
+                            "fines = fines + VALUES(fines)";
+        String overdueSql = "INSERT INTO circulation_daily (day, category, member_type, overdue_change) " +
+                            "SELECT " + OVERDUE_UNTIL + ", b.category, m.member_type, -1" + FROM_ISSUES + " WHERE bi.issue_id = ? AND bi.return_date IS NOT NULL " +
+                            "ON DUPLICATE KEY UPDATE overdue_change = overdue_change - 1";
+        
+        executeForIssues(conn, returnsSql, issueIds);
+        executeForIssues(conn, overdueSql, issueIds);
+    }
+    
+    /**
+     * Run a rollup update once for each of some issues, as one batch
+     * @param conn Connection of the issuing or returning transaction
+     * @param sql Update taking the issue ID as its only parameter
+     * @param issueIds Issue IDs
+     * @throws SQLException if the rollups cannot be updated
+     */
+    private void executeForIssues(Connection conn, String sql, List<Integer> issueIds) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int issueId : issueIds) {
+                pstmt.setInt(1, issueId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Recompute the rollups of a date range from book_issues, replacing what
+     * is there. The range should not include days still receiving issues and
+     * returns, or concurrent updates may be counted twice or lost.
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @return true if successful, false otherwise
+     */
+    public boolean rebuildRange(Date from, Date to) {
+        long start = System.nanoTime();
+        String deleteSql = "DELETE FROM circulation_daily WHERE day BETWEEN ? AND ?";
+        String issuesSql = "INSERT INTO circulation_daily (day, category, member_type, issues) " +
+                           "SELECT bi.issue_date, b.category, m.member_type, COUNT(*)" + FROM_ISSUES +
+                           " WHERE bi.issue_date BETWEEN ? AND ? GROUP BY bi.issue_date, b.category, m.member_type";
+        String returnsSql = "INSERT INTO circulation_daily (day, category, member_type, returns, late_returns, fines) " +
+                            "SELECT bi.return_date, b.category, m.member_type, COUNT(*), " +
+                            "SUM(CASE WHEN bi.return_date > bi.due_date THEN 1 ELSE 0 END), SUM(bi.fine_amount)" + FROM_ISSUES +
+                            " WHERE bi.return_date BETWEEN ? AND ? GROUP BY bi.return_date, b.category, m.member_type " +
+                            "ON DUPLICATE KEY UPDATE returns = VALUES(returns), late_returns = VALUES(late_returns), " +
+                            "fines = VALUES(fines)";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            int rows = 0;
+            
+            try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
+                 PreparedStatement issuesStmt = conn.prepareStatement(issuesSql);
+                 PreparedStatement returnsStmt = conn.prepareStatement(returnsSql);
+                 PreparedStatement fallingOverdueStmt = conn.prepareStatement(overdueChangesSql(true, "BETWEEN ? AND ?"));
+                 PreparedStatement lateReturnsStmt = conn.prepareStatement(overdueChangesSql(false, "BETWEEN ? AND ?"))) {
+                
+                for (PreparedStatement pstmt : new PreparedStatement[] {deleteStmt, issuesStmt, returnsStmt,
+                                                                         fallingOverdueStmt, lateReturnsStmt}) {
+                    pstmt.setDate(1, from);
+                    pstmt.setDate(2, to);
+                    rows += pstmt.executeUpdate();
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            REBUILD_RANGE.record(start, rows);
+            return true;
+        } catch (SQLException e) {
+            REBUILD_RANGE.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Recompute the overdue changes of every day from a given day on. Loans
+     * still out fall overdue on days after the last issue or return, which a
+     * rebuild of the days with activity does not reach.
+     * @param from First day, inclusive
+     * @return true if successful, false otherwise
+     */
+    public boolean rebuildOverdueFrom(Date from) {
+        long start = System.nanoTime();
+        String resetSql = "UPDATE circulation_daily SET overdue_change = 0 WHERE day >= ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            int rows = 0;
+            
+            try (PreparedStatement resetStmt = conn.prepareStatement(resetSql);
+                 PreparedStatement fallingOverdueStmt = conn.prepareStatement(overdueChangesSql(true, ">= ?"));
+                 PreparedStatement lateReturnsStmt = conn.prepareStatement(overdueChangesSql(false, ">= ?"))) {
+                
+                for (PreparedStatement pstmt : new PreparedStatement[] {resetStmt, fallingOverdueStmt, lateReturnsStmt}) {
+                    pstmt.setDate(1, from);
+                    rows += pstmt.executeUpdate();
+                }
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            REBUILD_OVERDUE_FROM.record(start, rows);
+            return true;
+        } catch (SQLException e) {
+            REBUILD_OVERDUE_FROM.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Build the statement that adds the loans entering or leaving the overdue
+     * count on some days to their rollups. Books returned by their due date
+     * never count, so they are left out of both.
+     * @param fallingOverdue true to count loans falling overdue, false to count
+     *        late returns
+     * @param range Condition on the day, with its parameters
+     * @return SQL
+     */
+    private static String overdueChangesSql(boolean fallingOverdue, String range) {
+        String day = fallingOverdue ? OVERDUE_FROM : "bi.return_date";
+        String late = fallingOverdue ? "(bi.return_date IS NULL OR bi.return_date > bi.due_date)"
+                                     : "bi.return_date > bi.due_date";
+        return "INSERT INTO circulation_daily (day, category, member_type, overdue_change) " +
+               "SELECT " + day + " AS change_day, b.category, m.member_type, " + (fallingOverdue ? "" : "-") + "COUNT(*)" +
+               FROM_ISSUES + " WHERE " + day + " " + range + " AND " + late + " " +
+               "GROUP BY change_day, b.category, m.member_type " +
+               "ON DUPLICATE KEY UPDATE overdue_change = overdue_change + VALUES(overdue_change)";
+    }
+    
+    /**
+     * Get the first and last day with any circulation activity
+     * @return Array of first and last day, or null if there are no issues
+     */
+    public Date[] getActivityRange() {
+        String sql = "SELECT MIN(issue_date), GREATEST(MAX(issue_date), COALESCE(MAX(return_date), MAX(issue_date))) " +
+                     "FROM book_issues";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            if (rs.next() && rs.getDate(1) != null) {
+                return new Date[] {rs.getDate(1), rs.getDate(2)};
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+}
@@ -0,0 +1,304 @@
+package com.library.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small bounded JDBC connection pool. Connections handed out are proxies whose
+ * close() returns the physical connection to the pool, so DAO code keeps its
+ * usual try-with-resources pattern. Statements they create are traced by
+ * {@link StatementTracer} while Flight Recorder is recording SQL events or the
+ * slow query log is enabled.
+ */
+public class ConnectionPool {
+    private static final long VALIDATE_AFTER_IDLE_MS = 30000;
+    
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param url JDBC URL
+     * @param user Database user
+     * @param password Database password
+     * @param maxSize Maximum number of physical connections
+     * @param borrowTimeoutMs How long a caller waits for a free connection
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMs) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.permits = new Semaphore(maxSize, true);
+    }
+    
+    /**
+     * Borrow a connection. Closing it returns it to the pool.
+     * @return Pooled connection
+     * @throws SQLException if no connection becomes free in time or one cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        waitingThreads.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+        
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            borrowCount.increment();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Open a new physical connection for the pool
+     * @return Pooled connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        try {
+            PooledConnection pooled = new PooledConnection(physical);
+            openConnections.incrementAndGet();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            physical.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Open a connection outside the pool, for housekeeping that must not
+     * compete with the desks for pooled connections
+     * @return New physical connection; the caller closes it
+     * @throws SQLException if the connection cannot be opened
+     */
+    Connection openUnpooled() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+    
+    /**
+     * Take a usable idle connection, discarding any that went stale
+     * @return Idle connection, or null if none is available
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.returnedAt < VALIDATE_AFTER_IDLE_MS || isValid(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+    
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private void discard(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Already broken
+        }
+    }
+    
+    /**
+     * Put a connection back after its lease was closed, undoing any open
+     * transaction and any session settings the borrower changed so the next
+     * borrower gets a connection in its default state
+     * @param pooled Connection being returned
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                openConnections.decrementAndGet();
+            } else {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                if (pooled.settingsChanged) {
+                    pooled.physical.setReadOnly(pooled.defaultReadOnly);
+                    pooled.physical.setTransactionIsolation(pooled.defaultIsolation);
+                    pooled.settingsChanged = false;
+                }
+                pooled.returnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    /**
+     * Close every idle connection
+     */
+    public void shutdown() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * @return Physical connections currently open
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+    
+    /**
+     * @return Connections currently lent out
+     */
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+    
+    /**
+     * @return Threads currently waiting for a connection
+     */
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+    
+    /**
+     * @return Total number of successful borrows
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+    
+    /**
+     * @return Total number of borrows that timed out
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+    
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+        private volatile long returnedAt = System.currentTimeMillis();
+        
+        // Set when a borrower changes read-only or isolation, so release only
+        // restores them (a round trip each) when needed
+        private volatile boolean settingsChanged;
+        
+        /**
+         * Constructor
+         * @param physical New physical connection
+         * @throws SQLException if its default settings cannot be read
+         */
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.defaultReadOnly = physical.isReadOnly();
+            this.defaultIsolation = physical.getTransactionIsolation();
+        }
+        
+        /**
+         * Create a proxy for one borrow; closing it releases this connection once
+         * @return Leased connection
+         */
+        Connection lease() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean closed;
+                
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!closed) {
+                                closed = true;
+                                release(PooledConnection.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed || physical.isClosed();
+                        case "setReadOnly":
+                        case "setTransactionIsolation":
+                            if (closed) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                            settingsChanged = true;
+                            break;
+                        case "unwrap":
+                            if (((Class<?>) args[0]).isInstance(physical)) {
+                                return physical;
+                            }
+                            break;
+                        default:
+                            if (closed) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                        return StatementTracer.wrap((Statement) result, method.getReturnType(), sql);
+                    }
+                    return result;
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, handler);
+        }
+    }
+}
@@ -1 +1,100 @@
- 
\ No newline at end of file
+package com.library.database;
+
+import com.library.metrics.MetricsRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Utility class for obtaining connections to the library database.
+ * Connections come from a shared pool; the defaults can be overridden with the
+ * system properties library.db.url, library.db.user, library.db.password and
+ * library.db.poolSize (for example to point a load test at a scratch database).
+ */
+public class DatabaseConnection {
+    private static final String URL = "jdbc:mysql://localhost:3306/library_management_system";
+    private static final String USER = "root";
+    private static final String PASSWORD = "";
+    private static final int POOL_SIZE = 10;
+    private static final long BORROW_TIMEOUT_MS = 30000;
+    
+    private static final ConnectionPool POOL = new ConnectionPool(
+        System.getProperty("library.db.url", URL),
+        System.getProperty("library.db.user", USER),
+        System.getProperty("library.db.password", PASSWORD),
+        Integer.getInteger("library.db.poolSize", POOL_SIZE),
+        BORROW_TIMEOUT_MS
+    );
+    
+    static {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.registerGauge("library_db_pool_active", "Connections currently borrowed", POOL::getActiveConnections);
+        metrics.registerGauge("library_db_pool_open", "Connections currently open", POOL::getOpenConnections);
+        metrics.registerGauge("library_db_pool_waiting", "Threads waiting for a connection", POOL::getWaitingThreads);
+        metrics.registerGauge("library_db_pool_timeouts", "Borrows that timed out", POOL::getTimeoutCount);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DatabaseConnection() {
+    }
+    
+    /**
+     * Get a connection to the database. Callers are responsible for closing it,
+     * which returns it to the pool.
+     * @return Database connection
+     * @throws SQLException if a connection cannot be established
+     */
+    public static Connection getConnection() throws SQLException {
+        return POOL.getConnection();
+    }
+    
+    /**
+     * Prepare a query whose rows are streamed from the server one at a time
+     * instead of being buffered, for scans over whole tables. The connection
+     * cannot run other statements until the result set is closed.
+     * @param conn Open connection
+     * @param sql Query
+     * @return Forward-only, read-only statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering them
+        pstmt.setFetchSize(Integer.MIN_VALUE);
+        return pstmt;
+    }
+    
+    /**
+     * Build a LIKE pattern matching values that start with a prefix, escaping
+     * the wildcard characters in the prefix itself
+     * @param prefix Literal prefix
+     * @return Pattern for use with LIKE
+     */
+    static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+    
+    /**
+     * Build a list of JDBC placeholders for an IN clause
+     * @param count Number of placeholders
+     * @return "?, ?, ..." with count entries
+     */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Get the shared connection pool
+     * @return Connection pool
+     */
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+}
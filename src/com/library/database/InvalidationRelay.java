@@ -0,0 +1,145 @@
+package com.library.database;
+
+import com.library.events.EventBus;
+import com.library.events.LibraryEvent;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps clients on different desks in sync through the change_log table.
+ * The DAOs record each change in the log inside the transaction that makes
+ * it; a background poller reads changes made by other clients and
+ * republishes them on the local {@link EventBus}, so their panels update the
+ * affected rows within tens of milliseconds.
+ *
+ * A change ID can become visible after a higher one, when its transaction
+ * commits later. IDs skipped over by a read are looked for again on every
+ * poll until they appear or {@value #GAP_TIMEOUT_MS} ms have passed, after
+ * which their transaction is taken to have rolled back.
+ */
+public class InvalidationRelay {
+    private static final InvalidationRelay INSTANCE = new InvalidationRelay();
+    
+    private static final long POLL_INTERVAL_MS = 25;
+    private static final long RETRY_DELAY_MS = 5000;
+    private static final int BATCH_SIZE = 500;
+    private static final int PURGE_AGE_MINUTES = 60;
+    private static final long PURGE_INTERVAL_MS = 60000;
+    private static final long GAP_TIMEOUT_MS = 30000;
+    private static final int MAX_GAPS = 10000;
+    
+    private final String origin = UUID.randomUUID().toString();
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    /** Change IDs skipped over by a read, with the time they were noticed */
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private ScheduledExecutorService poller;
+    private long lastChangeId = -1;
+    private long nextAttemptAt;
+    private long nextPurgeAt;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private InvalidationRelay() {
+    }
+    
+    /**
+     * Get the relay for this client
+     * @return The relay
+     */
+    public static InvalidationRelay getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Start relaying changes. Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-invalidation-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Get the ID identifying this client in the change log
+     * @return Client ID
+     */
+    public String getOrigin() {
+        return origin;
+    }
+    
+    /**
+     * Read and republish new changes from other clients
+     */
+    private void poll() {
+        long now = System.currentTimeMillis();
+        if (now < nextAttemptAt) {
+            return;
+        }
+        
+        try {
+            if (lastChangeId < 0) {
+                // Only changes made after this client started are of interest
+                lastChangeId = changeLogDAO.getLatestChangeId();
+                nextPurgeAt = now + PURGE_INTERVAL_MS;
+                return;
+            }
+            
+            List<ChangeLogDAO.Change> changes = changeLogDAO.getChanges(lastChangeId, gaps.keySet(), BATCH_SIZE);
+            for (ChangeLogDAO.Change change : changes) {
+                long changeId = change.getChangeId();
+                if (gaps.remove(changeId) == null) {
+                    for (long missing = lastChangeId + 1; missing < changeId && gaps.size() < MAX_GAPS; missing++) {
+                        gaps.put(missing, now);
+                    }
+                    lastChangeId = changeId;
+                }
+                LibraryEvent event = change.getEvent();
+                if (event != null && !origin.equals(change.getOrigin())) {
+                    EventBus.getInstance().publish(event);
+                }
+            }
+            expireGaps(now);
+            
+            if (now >= nextPurgeAt) {
+                changeLogDAO.purgeChanges(PURGE_AGE_MINUTES);
+                nextPurgeAt = now + PURGE_INTERVAL_MS;
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Database unreachable or a bad row; back off instead of failing
+            // every tick, and never let the exception cancel the schedule
+            e.printStackTrace();
+            nextAttemptAt = now + RETRY_DELAY_MS;
+        }
+    }
+    
+    /**
+     * Stop looking for change IDs that have been missing too long, whose
+     * transactions rolled back
+     * @param now Current time in milliseconds
+     */
+    private void expireGaps(long now) {
+        Iterator<Long> noticedAt = gaps.values().iterator();
+        while (noticedAt.hasNext()) {
+            // Gaps are kept in the order they were noticed, so stop at the first recent one
+            if (now - noticedAt.next() < GAP_TIMEOUT_MS) {
+                break;
+            }
+            noticedAt.remove();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.library.database;
+
+/**
+ * Receives loans streamed by {@link BookIssueDAO#scanLoans}. Dates are passed as
+ * epoch days so the scan allocates nothing per row.
+ */
+public interface LoanRowHandler {
+    /**
+     * Handle one loan
+     * @param bookId Book ID
+     * @param memberId Member ID
+     * @param issueDay Issue date as an epoch day
+     * @param dueDay Due date as an epoch day
+     * @param returnDay Return date as an epoch day, or -1 if not returned
+     */
+    void loan(int bookId, int memberId, int issueDay, int dueDay, int returnDay);
+}
@@ -1 +1,471 @@
- 
\ No newline at end of file
+package com.library.database;
+
+import com.library.events.ChangeType;
+import com.library.events.EventBus;
+import com.library.events.MemberChangedEvent;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the members table
+ */
+public class MemberDAO {
+    private static final OperationMetrics GET_ALL_MEMBERS = MetricsRegistry.getInstance().operation("MemberDAO.getAllMembers");
+    private static final OperationMetrics GET_MEMBER_BY_ID = MetricsRegistry.getInstance().operation("MemberDAO.getMemberById");
+    private static final OperationMetrics GET_MEMBERS_BY_IDS = MetricsRegistry.getInstance().operation("MemberDAO.getMembersByIds");
+    private static final OperationMetrics SEARCH_MEMBERS = MetricsRegistry.getInstance().operation("MemberDAO.searchMembers");
+    private static final OperationMetrics REBUILD_SEARCH_KEYS = MetricsRegistry.getInstance().operation("MemberDAO.rebuildSearchKeys");
+    private static final OperationMetrics SCAN_MEMBERS = MetricsRegistry.getInstance().operation("MemberDAO.scanMembers");
+    private static final OperationMetrics FIND_ACTIVE_BY_NAME_PREFIX = MetricsRegistry.getInstance().operation("MemberDAO.findActiveByNamePrefix");
+    private static final OperationMetrics COUNT_MEMBERS = MetricsRegistry.getInstance().operation("MemberDAO.countMembers");
+    private static final OperationMetrics ADD_MEMBER = MetricsRegistry.getInstance().operation("MemberDAO.addMember");
+    private static final OperationMetrics UPDATE_MEMBER = MetricsRegistry.getInstance().operation("MemberDAO.updateMember");
+    private static final OperationMetrics DELETE_MEMBER = MetricsRegistry.getInstance().operation("MemberDAO.deleteMember");
+    
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    
+    /**
+     * Get all members
+     * @return List of all members
+     */
+    public List<Member> getAllMembers() {
+        long start = System.nanoTime();
+        List<Member> members = new ArrayList<>();
+        String sql = "SELECT * FROM members ORDER BY name";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                members.add(extractMemberFromResultSet(rs));
+            }
+            GET_ALL_MEMBERS.record(start, members.size());
+        } catch (SQLException e) {
+            GET_ALL_MEMBERS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return members;
+    }
+    
+    /**
+     * Get a member by ID
+     * @param memberId Member ID
+     * @return Member, or null if not found
+     */
+    public Member getMemberById(int memberId) {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM members WHERE member_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, memberId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    Member member = extractMemberFromResultSet(rs);
+                    GET_MEMBER_BY_ID.record(start, 1);
+                    return member;
+                }
+            }
+            GET_MEMBER_BY_ID.record(start, 0);
+        } catch (SQLException e) {
+            GET_MEMBER_BY_ID.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get several members by ID in one query
+     * @param memberIds Member IDs
+     * @return Members found, in the order of the IDs
+     */
+    public List<Member> getMembersByIds(List<Integer> memberIds) {
+        long start = System.nanoTime();
+        List<Member> members = new ArrayList<>();
+        if (memberIds.isEmpty()) {
+            return members;
+        }
+        String sql = "SELECT * FROM members WHERE member_id IN (" + DatabaseConnection.placeholders(memberIds.size()) + ")";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < memberIds.size(); i++) {
+                pstmt.setInt(i + 1, memberIds.get(i));
+            }
+            
+            Map<Integer, Member> byId = new HashMap<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Member member = extractMemberFromResultSet(rs);
+                    byId.put(member.getMemberId(), member);
+                }
+            }
+            for (int memberId : memberIds) {
+                Member member = byId.get(memberId);
+                if (member != null) {
+                    members.add(member);
+                }
+            }
+            GET_MEMBERS_BY_IDS.record(start, members.size());
+        } catch (SQLException e) {
+            GET_MEMBERS_BY_IDS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return members;
+    }
+    
+    /**
+     * Search members by name, email or phone, ignoring case and accents. Only
+     * the term is folded; the rows' folded text is stored in search_key when
+     * they are written.
+     * @param searchTerm Text to search for
+     * @param limit Most members to return
+     * @return List of matching members by name
+     */
+    public List<Member> searchMembers(String searchTerm, int limit) {
+        long start = System.nanoTime();
+        List<Member> members = new ArrayList<>();
+        String sql = "SELECT * FROM members WHERE search_key LIKE ? ORDER BY name LIMIT ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, SearchKeys.containsPattern(searchTerm));
+            pstmt.setInt(2, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    members.add(extractMemberFromResultSet(rs));
+                }
+            }
+            SEARCH_MEMBERS.record(start, members.size());
+        } catch (SQLException e) {
+            SEARCH_MEMBERS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return members;
+    }
+    
+    /**
+     * Find active members whose name starts with a prefix. The match is a
+     * range scan of idx_members_status_name, so each call reads at most one page.
+     * @param prefix Start of the name; empty for the first names
+     * @param limit Most members to return
+     * @return Matching members in name order
+     */
+    public List<Member> findActiveByNamePrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<Member> members = new ArrayList<>();
+        String sql = "SELECT * FROM members WHERE status = 'Active' AND name LIKE ? ORDER BY name LIMIT ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, DatabaseConnection.likePrefix(prefix));
+            pstmt.setInt(2, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    members.add(extractMemberFromResultSet(rs));
+                }
+            }
+            FIND_ACTIVE_BY_NAME_PREFIX.record(start, members.size());
+        } catch (SQLException e) {
+            FIND_ACTIVE_BY_NAME_PREFIX.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return members;
+    }
+    
+    /**
+     * Stream every member without holding the result set in memory
+     * @param handler Receives each member
+     * @return Number of members streamed, or -1 on error
+     */
+    public int scanMembers(RowHandler<Member> handler) {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM members";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = DatabaseConnection.prepareStreaming(conn, sql)) {
+            
+            int rows = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.row(extractMemberFromResultSet(rs));
+                    rows++;
+                }
+            }
+            SCAN_MEMBERS.record(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            SCAN_MEMBERS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Count all members
+     * @return Number of members, or 0 on error
+     */
+    public int countMembers() {
+        long start = System.nanoTime();
+        String sql = "SELECT COUNT(*) FROM members";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            int count = rs.next() ? rs.getInt(1) : 0;
+            COUNT_MEMBERS.record(start, 1);
+            return count;
+        } catch (SQLException e) {
+            COUNT_MEMBERS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Add a new member
+     * @param member Member to add
+     * @return true if successful, false otherwise
+     */
+    public boolean addMember(Member member) {
+        long start = System.nanoTime();
+        String sql = "INSERT INTO members (name, email, phone, address, member_type, join_date, status, search_key) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            MemberChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, member.getName());
+                pstmt.setString(2, member.getEmail());
+                pstmt.setString(3, member.getPhone());
+                pstmt.setString(4, member.getAddress());
+                pstmt.setString(5, member.getMemberType());
+                pstmt.setDate(6, member.getJoinDate());
+                pstmt.setString(7, member.getStatus());
+                pstmt.setString(8, searchKey(member.getName(), member.getEmail(), member.getPhone()));
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    ADD_MEMBER.record(start, 0);
+                    return false;
+                }
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        member.setMemberId(keys.getInt(1));
+                    }
+                }
+                event = new MemberChangedEvent(member.getMemberId(), ChangeType.ADDED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            ADD_MEMBER.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            ADD_MEMBER.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Update an existing member
+     * @param member Member with updated values
+     * @return true if successful, false otherwise
+     */
+    public boolean updateMember(Member member) {
+        long start = System.nanoTime();
+        String sql = "UPDATE members SET name = ?, email = ?, phone = ?, address = ?, member_type = ?, " +
+                     "status = ?, search_key = ? WHERE member_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            MemberChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, member.getName());
+                pstmt.setString(2, member.getEmail());
+                pstmt.setString(3, member.getPhone());
+                pstmt.setString(4, member.getAddress());
+                pstmt.setString(5, member.getMemberType());
+                pstmt.setString(6, member.getStatus());
+                pstmt.setString(7, searchKey(member.getName(), member.getEmail(), member.getPhone()));
+                pstmt.setInt(8, member.getMemberId());
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    UPDATE_MEMBER.record(start, 0);
+                    return false;
+                }
+                event = new MemberChangedEvent(member.getMemberId(), ChangeType.UPDATED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            UPDATE_MEMBER.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            UPDATE_MEMBER.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Delete a member. Members with books currently issued are not deleted.
+     * @param memberId ID of the member to delete
+     * @return true if successful, false otherwise
+     */
+    public boolean deleteMember(int memberId) {
+        long start = System.nanoTime();
+        String sql = "DELETE FROM members WHERE member_id = ? AND NOT EXISTS " +
+                     "(SELECT 1 FROM book_issues WHERE member_id = ? AND return_date IS NULL)";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            MemberChangedEvent event;
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, memberId);
+                pstmt.setInt(2, memberId);
+                
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    DELETE_MEMBER.record(start, 0);
+                    return false;
+                }
+                event = new MemberChangedEvent(memberId, ChangeType.DELETED);
+                changeLogDAO.recordChange(conn, event);
+                
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+            DELETE_MEMBER.record(start, 1);
+            EventBus.getInstance().publish(event);
+            return true;
+        } catch (SQLException e) {
+            DELETE_MEMBER.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Recompute the search key of every member, a page at a time. Run after
+     * adding the search_key column or changing the folding rules.
+     * @param pageSize Members read and updated per round trip
+     * @return Number of members updated, or -1 on error
+     */
+    public int rebuildSearchKeys(int pageSize) {
+        long start = System.nanoTime();
+        String selectSql = "SELECT member_id, name, email, phone FROM members " +
+                           "WHERE member_id > ? ORDER BY member_id LIMIT ?";
+        String updateSql = "UPDATE members SET search_key = ? WHERE member_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement select = conn.prepareStatement(selectSql);
+             PreparedStatement update = conn.prepareStatement(updateSql)) {
+            
+            int rows = 0;
+            int lastId = 0;
+            int pageRows;
+            do {
+                select.setInt(1, lastId);
+                select.setInt(2, pageSize);
+                pageRows = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getInt(1);
+                        update.setString(1, searchKey(rs.getString(2), rs.getString(3), rs.getString(4)));
+                        update.setInt(2, lastId);
+                        update.addBatch();
+                        pageRows++;
+                    }
+                }
+                update.executeBatch();
+                rows += pageRows;
+            } while (pageRows == pageSize);
+            REBUILD_SEARCH_KEYS.record(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            REBUILD_SEARCH_KEYS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Build the stored search key of a member
+     * @param name Name
+     * @param email Email address
+     * @param phone Phone number
+     * @return Folded key for the search_key column
+     */
+    public static String searchKey(String name, String email, String phone) {
+        return SearchKeys.key(name, email, phone);
+    }
+    
+    /**
+     * Create a Member object from the current row of a result set
+     * @param rs Result set positioned on a members row
+     * @return Member object
+     * @throws SQLException if a column cannot be read
+     */
+    private Member extractMemberFromResultSet(ResultSet rs) throws SQLException {
+        return new Member(
+            rs.getInt("member_id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getString("phone"),
+            rs.getString("address"),
+            rs.getString("member_type"),
+            rs.getDate("join_date"),
+            rs.getString("status")
+        );
+    }
+}
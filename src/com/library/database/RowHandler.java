@@ -0,0 +1,14 @@
+package com.library.database;
+
+/**
+ * Receives the rows of a table streamed by a DAO scan, one at a time on the
+ * scanning thread
+ * @param <T> Model a row is read into
+ */
+public interface RowHandler<T> {
+    /**
+     * Handle one row
+     * @param row Row read
+     */
+    void row(T row);
+}
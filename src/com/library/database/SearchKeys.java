@@ -0,0 +1,132 @@
+package com.library.database;
+
+import java.text.Normalizer;
+
+/**
+ * Case- and accent-folded search keys. A key is computed once when a book or
+ * member is written and stored in its search_key column with a binary
+ * collation, so a search folds only the search term and then compares bytes,
+ * instead of lower-casing or collating every row per query. The in-memory
+ * search indexes fold their text the same way.
+ */
+public final class SearchKeys {
+    /** Separates the fields of a key so a term cannot match across two fields */
+    private static final char FIELD_SEPARATOR = '\u001F';
+    
+    /**
+     * Not instantiable
+     */
+    private SearchKeys() {
+    }
+    
+    /**
+     * Fold text for matching: accents and other combining marks removed,
+     * compatibility forms such as ligatures and full-width letters decomposed,
+     * lower case, trimmed, and runs of whitespace collapsed to one space.
+     * "Café  Ærø" folds to "cafe aero".
+     * @param text Text to fold
+     * @return Folded text
+     */
+    public static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        String source = ascii ? text : Normalizer.normalize(text, Normalizer.Form.NFKD);
+        
+        StringBuilder sb = new StringBuilder(source.length());
+        boolean space = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = sb.length() > 0;
+            } else if (ascii || Character.getType(c) != Character.NON_SPACING_MARK) {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                appendFolded(sb, c);
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Build the stored key of a record from its searchable fields
+     * @param fields Field values; null values are stored as empty fields
+     * @return Folded fields joined by a separator no search term contains
+     */
+    public static String key(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(FIELD_SEPARATOR);
+            }
+            if (fields[i] != null) {
+                sb.append(fold(fields[i]));
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Build a LIKE pattern matching keys that contain a search term, escaping
+     * the wildcard characters in the term itself
+     * @param term Search term as typed
+     * @return Pattern for use with LIKE against a search_key column
+     */
+    static String containsPattern(String term) {
+        String folded = fold(term).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + folded + "%";
+    }
+    
+    /**
+     * Append the lower-case form of one character, spelling out the letters
+     * that have no decomposition into a base letter and a mark
+     * @param sb Destination
+     * @param c Character, already decomposed
+     */
+    private static void appendFolded(StringBuilder sb, char c) {
+        if (c < 0x80) {
+            sb.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+            return;
+        }
+        switch (c) {
+            case '\u00DF': // sharp s
+                sb.append("ss");
+                break;
+            case '\u00C6':
+            case '\u00E6':
+                sb.append("ae");
+                break;
+            case '\u0152':
+            case '\u0153':
+                sb.append("oe");
+                break;
+            case '\u00D8':
+            case '\u00F8':
+                sb.append('o');
+                break;
+            case '\u0110':
+            case '\u0111':
+                sb.append('d');
+                break;
+            case '\u0141':
+            case '\u0142':
+                sb.append('l');
+                break;
+            case '\u00DE':
+            case '\u00FE':
+                sb.append("th");
+                break;
+            case '\u0131': // dotless i
+                sb.append('i');
+                break;
+            case '\u03C2': // final sigma
+                sb.append('\u03C3');
+                break;
+            default:
+                sb.append(Character.toLowerCase(c));
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.library.database;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log of statements that ran longer than a threshold, with their bind values,
+ * the DAO method and UI (or service) method that issued them and, optionally,
+ * the EXPLAIN plan captured on a separate connection. Entries are queued and
+ * written by a background thread to a size-rotated file, so a slow desk never
+ * waits on the log; when the queue is full, entries are dropped and counted.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.sql.slowMs - threshold in milliseconds, e.g. 500; default -1, which disables the
+ *       log so that statements are not wrapped at all</li>
+ *   <li>library.sql.explain - capture EXPLAIN plans, default false</li>
+ *   <li>library.sql.log - log file, default slow-queries.log</li>
+ *   <li>library.sql.logMaxBytes - size at which the file is rotated, default 10 MB</li>
+ *   <li>library.sql.logFiles - rotated files kept, default 5</li>
+ * </ul>
+ */
+public class SlowQueryLog {
+    private static final SlowQueryLog INSTANCE = new SlowQueryLog();
+    
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final String DATABASE_PACKAGE = "com.library.database.";
+    
+    private final long thresholdNanos;
+    private final boolean explain = Boolean.getBoolean("library.sql.explain");
+    private final Path logFile = Paths.get(System.getProperty("library.sql.log", "slow-queries.log"));
+    private final long maxBytes = Long.getLong("library.sql.logMaxBytes", 10L * 1024 * 1024);
+    private final int maxFiles = Integer.getInteger("library.sql.logFiles", 5);
+    
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder loggedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private Thread writerThread;
+    private BufferedWriter writer;
+    private long fileSize;
+    private Connection explainConnection;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private SlowQueryLog() {
+        long thresholdMs = Long.getLong("library.sql.slowMs", -1);
+        this.thresholdNanos = thresholdMs < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+    }
+    
+    /**
+     * Get the slow query log for this process
+     * @return The log
+     */
+    public static SlowQueryLog getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * @return true if statements over the threshold are being logged
+     */
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+    
+    /**
+     * @return Entries written so far
+     */
+    public long getLoggedCount() {
+        return loggedCount.sum();
+    }
+    
+    /**
+     * @return Entries dropped because the writer fell behind
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+    
+    /**
+     * Queue a statement for the log if it exceeded the threshold
+     * @param sql Statement text
+     * @param parameters Bind values by index; not modified afterwards by the caller
+     * @param elapsedNanos Time spent in the execute call; for queries this
+     *        excludes reading the rows, which the caller paces
+     * @param rows Rows changed, -1 for queries
+     */
+    void offer(String sql, Map<Integer, Object> parameters, long elapsedNanos, long rows) {
+        if (!isEnabled() || elapsedNanos < thresholdNanos) {
+            return;
+        }
+        
+        String[] callers = findCallers();
+        Entry entry = new Entry(LocalDateTime.now(), sql, parameters, elapsedNanos, rows, callers[0], callers[1]);
+        startWriter();
+        if (!queue.offer(entry)) {
+            droppedCount.increment();
+        }
+    }
+    
+    /**
+     * Find the DAO method and the UI or service method on the current stack
+     * @return DAO method and calling method, "-" where none was found
+     */
+    private static String[] findCallers() {
+        String[] callers = {"-", "-"};
+        StackWalker.getInstance().forEach(frame -> {
+            String className = frame.getClassName();
+            if (callers[0].equals("-") && className.startsWith(DATABASE_PACKAGE) && className.endsWith("DAO")) {
+                callers[0] = className.substring(DATABASE_PACKAGE.length()) + "." + frame.getMethodName();
+            } else if (callers[1].equals("-")
+                       && (className.startsWith("com.library.ui.") || className.startsWith("com.library.service."))) {
+                callers[1] = className + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        });
+        return callers;
+    }
+    
+    private synchronized void startWriter() {
+        if (writerThread != null) {
+            return;
+        }
+        writerThread = new Thread(this::drain, "library-slow-query-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * Body of the writer thread
+     */
+    private void drain() {
+        while (true) {
+            try {
+                Entry entry = queue.take();
+                write(entry);
+                // Flush once the burst is written rather than per entry
+                if (queue.isEmpty() && writer != null) {
+                    writer.flush();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeWriter();
+            }
+        }
+    }
+    
+    /**
+     * Format and append one entry, rotating the file first if it is full
+     * @param entry Entry to write
+     * @throws IOException if the file cannot be written
+     */
+    private void write(Entry entry) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append(entry.time).append(' ')
+            .append(String.format(Locale.ROOT, "%.1f ms", entry.elapsedNanos / 1e6))
+            .append(" rows=").append(entry.rows)
+            .append(" dao=").append(entry.daoMethod)
+            .append(" caller=").append(entry.caller).append('\n');
+        text.append("  ").append(entry.sql.replaceAll("\\s+", " ")).append('\n');
+        if (!entry.parameters.isEmpty()) {
+            text.append("  binds:");
+            for (Map.Entry<Integer, Object> parameter : entry.parameters.entrySet()) {
+                text.append(' ').append(parameter.getKey()).append('=').append(literal(parameter.getValue()));
+            }
+            text.append('\n');
+        }
+        if (explain) {
+            appendPlan(text, entry);
+        }
+        
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (writer == null || fileSize + bytes.length > maxBytes) {
+            rotate();
+        }
+        writer.write(text.toString());
+        fileSize += bytes.length;
+        loggedCount.increment();
+    }
+    
+    /**
+     * Close the current file, shift the rotated ones and open a new file
+     * @throws IOException if the files cannot be moved or opened
+     */
+    private void rotate() throws IOException {
+        if (writer != null && fileSize > 0) {
+            closeWriter();
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                if (Files.exists(rotated(i))) {
+                    Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(logFile, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (writer == null) {
+            writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            fileSize = Files.size(logFile);
+        }
+    }
+    
+    private Path rotated(int index) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + index);
+    }
+    
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Nothing more to do
+            }
+            writer = null;
+        }
+    }
+    
+    /**
+     * Append the EXPLAIN output for an entry, with the bind values inlined
+     * @param text Entry text being built
+     * @param entry Entry to explain
+     */
+    private void appendPlan(StringBuilder text, Entry entry) {
+        String sql = entry.sql.trim();
+        String verb = sql.length() >= 6 ? sql.substring(0, 6).toUpperCase(Locale.ROOT) : "";
+        if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE") && !verb.equals("INSERT")) {
+            return;
+        }
+        
+        try {
+            if (explainConnection == null || explainConnection.isClosed()) {
+                explainConnection = DatabaseConnection.getPool().openUnpooled();
+            }
+            try (Statement stmt = explainConnection.createStatement();
+                 ResultSet rs = stmt.executeQuery("EXPLAIN " + inline(sql, entry.parameters))) {
+                
+                ResultSetMetaData meta = rs.getMetaData();
+                text.append("  plan:\n    ");
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    text.append(meta.getColumnLabel(i)).append(i < meta.getColumnCount() ? " | " : "\n");
+                }
+                while (rs.next()) {
+                    text.append("    ");
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        text.append(rs.getString(i)).append(i < meta.getColumnCount() ? " | " : "\n");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            text.append("  plan unavailable: ").append(e.getMessage()).append('\n');
+            try {
+                if (explainConnection != null) {
+                    explainConnection.close();
+                }
+            } catch (SQLException ignored) {
+                // Already broken
+            }
+            explainConnection = null;
+        }
+    }
+    
+    /**
+     * Replace each placeholder with its bind value as an SQL literal
+     * @param sql Statement with ? placeholders
+     * @param parameters Bind values by index
+     * @return Statement with the values inlined
+     */
+    private static String inline(String sql, Map<Integer, Object> parameters) {
+        StringBuilder result = new StringBuilder(sql.length() + 32);
+        int index = 1;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                result.append(literal(parameters.get(index++)));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+    
+    private static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+    
+    /**
+     * One slow statement waiting to be written
+     */
+    private static class Entry {
+        private final LocalDateTime time;
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private final long elapsedNanos;
+        private final long rows;
+        private final String daoMethod;
+        private final String caller;
+        
+        Entry(LocalDateTime time, String sql, Map<Integer, Object> parameters, long elapsedNanos, long rows,
+              String daoMethod, String caller) {
+            this.time = time;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.elapsedNanos = elapsedNanos;
+            this.rows = rows;
+            this.daoMethod = daoMethod;
+            this.caller = caller;
+        }
+    }
+}
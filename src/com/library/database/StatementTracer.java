@@ -0,0 +1,213 @@
+package com.library.database;
+
+import com.library.diagnostics.SqlExecutionEvent;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.EventType;
+
+/**
+ * Wraps JDBC statements to observe every execution: each one emits a
+ * {@link SqlExecutionEvent} and, if the execute call runs longer than the
+ * threshold, is written to the {@link SlowQueryLog} with its bind values.
+ * Statements are only wrapped while one of the two is enabled; otherwise the
+ * driver's statement is returned untouched. Result sets are only wrapped while
+ * the Flight Recorder event is enabled, since counting rows puts a reflective
+ * call on every next() and getter of a scan.
+ */
+class StatementTracer implements InvocationHandler {
+    private static final EventType SQL_EVENT_TYPE = EventType.getEventType(SqlExecutionEvent.class);
+    
+    private final Statement statement;
+    private final String preparedSql;
+    private Map<Integer, Object> parameters = new TreeMap<>();
+    private boolean parametersShared;
+    private Execution pending;
+    
+    private StatementTracer(Statement statement, String preparedSql) {
+        this.statement = statement;
+        this.preparedSql = preparedSql;
+    }
+    
+    /**
+     * Wrap a statement if SQL events are being recorded or slow queries logged
+     * @param statement Statement from the driver
+     * @param type Statement interface to expose (Statement, PreparedStatement or CallableStatement)
+     * @param preparedSql SQL the statement was prepared with, or null for plain statements
+     * @return The statement, possibly wrapped
+     */
+    static Object wrap(Statement statement, Class<?> type, String preparedSql) {
+        if (!SQL_EVENT_TYPE.isEnabled() && !SlowQueryLog.getInstance().isEnabled()) {
+            return statement;
+        }
+        return Proxy.newProxyInstance(
+            Statement.class.getClassLoader(), new Class<?>[] {type}, new StatementTracer(statement, preparedSql));
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute")) {
+            return execute(method, args);
+        }
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+        } else if (name.equals("clearParameters")) {
+            parameters = new TreeMap<>();
+            parametersShared = false;
+        } else if (name.equals("close")) {
+            finishQuery();
+        }
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Remember a bind value. The map is copied before changing it if a logged
+     * execution still refers to it.
+     */
+    private void bind(int index, Object value) {
+        if (parametersShared) {
+            parameters = new TreeMap<>(parameters);
+            parametersShared = false;
+        }
+        parameters.put(index, value);
+    }
+    
+    /**
+     * Run an execute method and observe it. The slow query log sees the time
+     * spent in the execute call; while Flight Recorder is recording, the event
+     * of a query stays open until its result set or statement is closed so
+     * that it includes the fetch.
+     */
+    private Object execute(Method method, Object[] args) throws Throwable {
+        finishQuery();
+        
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+        if (sql == null) {
+            sql = "(batch)";
+        }
+        Execution execution = new Execution(sql, parameters);
+        parametersShared = true;
+        
+        Object result;
+        try {
+            result = method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            execution.event.failed = true;
+            execution.executed();
+            execution.finish();
+            throw e.getCause();
+        }
+        
+        if (result instanceof ResultSet) {
+            // Streamed reads are paced by the caller, so only the execute call is timed
+            execution.executed();
+            if (SQL_EVENT_TYPE.isEnabled()) {
+                pending = execution;
+                return wrapResultSet((ResultSet) result, execution);
+            }
+            execution.finish();
+            return result;
+        }
+        if (result instanceof Number) {
+            execution.rows = ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            execution.rows = 0;
+            for (int count : (int[]) result) {
+                execution.rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[]) {
+            execution.rows = 0;
+            for (long count : (long[]) result) {
+                execution.rows += Math.max(0, count);
+            }
+        }
+        execution.executed();
+        execution.finish();
+        return result;
+    }
+    
+    /**
+     * Wrap a query's result set to count rows for the Flight Recorder event and
+     * finish the event when it is closed
+     */
+    private ResultSet wrapResultSet(final ResultSet resultSet, final Execution execution) {
+        execution.rows = 0;
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("close")) {
+                    finishQuery();
+                }
+                Object result;
+                try {
+                    result = method.invoke(resultSet, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    execution.rows++;
+                }
+                return result;
+            }
+        };
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class}, handler);
+    }
+    
+    /**
+     * Finish the last query, if it is still open
+     */
+    private void finishQuery() {
+        if (pending != null) {
+            pending.finish();
+            pending = null;
+        }
+    }
+    
+    /**
+     * One execution of the statement
+     */
+    private static class Execution {
+        private final SqlExecutionEvent event = new SqlExecutionEvent();
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private final long startNanos;
+        private long rows = -1;
+        
+        Execution(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.startNanos = System.nanoTime();
+            event.begin();
+        }
+        
+        /**
+         * Offer the execution to the slow query log once the execute call returned
+         */
+        void executed() {
+            SlowQueryLog.getInstance().offer(sql, parameters, System.nanoTime() - startNanos, rows);
+        }
+        
+        /**
+         * Commit the Flight Recorder event
+         */
+        void finish() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sql = sql;
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+}
@@ -1 +1,226 @@
- 
\ No newline at end of file
+package com.library.database;
+
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.User;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the users table
+ */
+public class UserDAO {
+    private static final OperationMetrics AUTHENTICATE = MetricsRegistry.getInstance().operation("UserDAO.authenticate");
+    private static final OperationMetrics GET_ALL_USERS = MetricsRegistry.getInstance().operation("UserDAO.getAllUsers");
+    private static final OperationMetrics USERNAME_EXISTS = MetricsRegistry.getInstance().operation("UserDAO.usernameExists");
+    private static final OperationMetrics ADD_USER = MetricsRegistry.getInstance().operation("UserDAO.addUser");
+    private static final OperationMetrics UPDATE_USER = MetricsRegistry.getInstance().operation("UserDAO.updateUser");
+    private static final OperationMetrics DELETE_USER = MetricsRegistry.getInstance().operation("UserDAO.deleteUser");
+    
+    /**
+     * Authenticate a user and record the login time
+     * @param username Username
+     * @param password Password
+     * @return The user if the credentials match, null otherwise
+     */
+    public User authenticate(String username, String password) {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, username);
+            pstmt.setString(2, password);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    User user = extractUserFromResultSet(rs);
+                    updateLastLogin(conn, user.getUserId());
+                    AUTHENTICATE.record(start, 1);
+                    return user;
+                }
+            }
+            AUTHENTICATE.record(start, 0);
+        } catch (SQLException e) {
+            AUTHENTICATE.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get all users
+     * @return List of all users
+     */
+    public List<User> getAllUsers() {
+        long start = System.nanoTime();
+        List<User> users = new ArrayList<>();
+        String sql = "SELECT * FROM users ORDER BY username";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                users.add(extractUserFromResultSet(rs));
+            }
+            GET_ALL_USERS.record(start, users.size());
+        } catch (SQLException e) {
+            GET_ALL_USERS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return users;
+    }
+    
+    /**
+     * Check whether a username is already taken
+     * @param username Username to check
+     * @return true if the username exists, false otherwise
+     */
+    public boolean usernameExists(String username) {
+        long start = System.nanoTime();
+        String sql = "SELECT 1 FROM users WHERE username = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, username);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean exists = rs.next();
+                USERNAME_EXISTS.record(start, exists ? 1 : 0);
+                return exists;
+            }
+        } catch (SQLException e) {
+            USERNAME_EXISTS.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Add a new user
+     * @param user User to add
+     * @return true if successful, false otherwise
+     */
+    public boolean addUser(User user) {
+        long start = System.nanoTime();
+        String sql = "INSERT INTO users (username, password, full_name, email, role) VALUES (?, ?, ?, ?, ?)";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, user.getUsername());
+            pstmt.setString(2, user.getPassword());
+            pstmt.setString(3, user.getFullName());
+            pstmt.setString(4, user.getEmail());
+            pstmt.setString(5, user.getRole());
+            
+            int rows = pstmt.executeUpdate();
+            ADD_USER.record(start, rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            ADD_USER.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Update an existing user
+     * @param user User with updated values
+     * @return true if successful, false otherwise
+     */
+    public boolean updateUser(User user) {
+        long start = System.nanoTime();
+        String sql = "UPDATE users SET password = ?, full_name = ?, email = ?, role = ? WHERE user_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, user.getPassword());
+            pstmt.setString(2, user.getFullName());
+            pstmt.setString(3, user.getEmail());
+            pstmt.setString(4, user.getRole());
+            pstmt.setInt(5, user.getUserId());
+            
+            int rows = pstmt.executeUpdate();
+            UPDATE_USER.record(start, rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            UPDATE_USER.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Delete a user
+     * @param userId ID of the user to delete
+     * @return true if successful, false otherwise
+     */
+    public boolean deleteUser(int userId) {
+        long start = System.nanoTime();
+        String sql = "DELETE FROM users WHERE user_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            
+            int rows = pstmt.executeUpdate();
+            DELETE_USER.record(start, rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            DELETE_USER.recordError(start);
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Record the current time as a user's last login
+     * @param conn Open connection
+     * @param userId User ID
+     * @throws SQLException if the update fails
+     */
+    private void updateLastLogin(Connection conn, int userId) throws SQLException {
+        String sql = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE user_id = ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Create a User object from the current row of a result set
+     * @param rs Result set positioned on a users row
+     * @return User object
+     * @throws SQLException if a column cannot be read
+     */
+    private User extractUserFromResultSet(ResultSet rs) throws SQLException {
+        User user = new User(
+            rs.getString("username"),
+            rs.getString("password"),
+            rs.getString("full_name"),
+            rs.getString("email"),
+            rs.getString("role")
+        );
+        user.setUserId(rs.getInt("user_id"));
+        user.setLastLogin(rs.getTimestamp("last_login"));
+        return user;
+    }
+}
@@ -4,7 +4,8 @@
 CREATE DATABASE IF NOT EXISTS `library_management_system`;
 USE `library_management_system`;
 
--- Books table
+-- Books table (search_key is the case- and accent-folded title, author, publisher,
+-- ISBN and category, written by BookDAO and compared byte for byte by searches)
 DROP TABLE IF EXISTS `books`;
 CREATE TABLE IF NOT EXISTS `books` (
   `book_id` INT(11) NOT NULL AUTO_INCREMENT,
@@ -16,10 +17,13 @@ CREATE TABLE IF NOT EXISTS `books` (
   `quantity` INT(11) NOT NULL,
   `available` INT(11) NOT NULL,
   `added_date` DATE NOT NULL,
-  PRIMARY KEY (`book_id`)
+  `search_key` VARCHAR(2048) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL DEFAULT '',
+  PRIMARY KEY (`book_id`),
+  KEY `idx_books_title` (`title`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
--- Members table
+-- Members table (search_key is the case- and accent-folded name, email and phone,
+-- written by MemberDAO)
 DROP TABLE IF EXISTS `members`;
 CREATE TABLE IF NOT EXISTS `members` (
   `member_id` INT(11) NOT NULL AUTO_INCREMENT,
@@ -30,7 +34,9 @@ CREATE TABLE IF NOT EXISTS `members` (
   `member_type` ENUM('Student', 'Faculty', 'Staff') NOT NULL,
   `join_date` DATE NOT NULL,
   `status` ENUM('Active', 'Inactive') NOT NULL DEFAULT 'Active',
-  PRIMARY KEY (`member_id`)
+  `search_key` VARCHAR(1024) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL DEFAULT '',
+  PRIMARY KEY (`member_id`),
+  KEY `idx_members_status_name` (`status`, `name`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Book Issues table
@@ -45,6 +51,8 @@ CREATE TABLE IF NOT EXISTS `book_issues` (
   `fine_amount` DECIMAL(10,2) DEFAULT 0.00,
   `status` ENUM('Issued', 'Returned', 'Overdue') NOT NULL DEFAULT 'Issued',
   PRIMARY KEY (`issue_id`),
+  KEY `idx_book_issues_issue_date` (`issue_date`),
+  KEY `idx_book_issues_return_date` (`return_date`),
   FOREIGN KEY (`book_id`) REFERENCES `books`(`book_id`) ON DELETE CASCADE,
   FOREIGN KEY (`member_id`) REFERENCES `members`(`member_id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -63,6 +71,39 @@ CREATE TABLE IF NOT EXISTS `users` (
   UNIQUE KEY `username` (`username`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Change log (feed of entity changes polled by every running client to invalidate its views;
+-- each row is written in the transaction of the change it records)
+DROP TABLE IF EXISTS `change_log`;
+CREATE TABLE IF NOT EXISTS `change_log` (
+  `change_id` BIGINT NOT NULL AUTO_INCREMENT,
+  `event_type` ENUM('Book', 'Member', 'LoanIssued', 'LoanReturned') NOT NULL,
+  `entity_id` INT(11) NOT NULL,
+  `book_id` INT(11) DEFAULT NULL,
+  `member_id` INT(11) DEFAULT NULL,
+  `change_type` ENUM('ADDED', 'UPDATED', 'DELETED') DEFAULT NULL,
+  `origin` VARCHAR(36) NOT NULL,
+  `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (`change_id`),
+  KEY `idx_change_log_created` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Daily circulation rollup (one row per day, book category and member type; kept
+-- current by the issue/return transactions, rebuilt with RollupBackfill).
+-- overdue_change is the day's change in loans overdue at the end of the day: loans
+-- falling overdue, recorded ahead for the day after the due date, less late returns
+DROP TABLE IF EXISTS `circulation_daily`;
+CREATE TABLE IF NOT EXISTS `circulation_daily` (
+  `day` DATE NOT NULL,
+  `category` VARCHAR(100) NOT NULL,
+  `member_type` ENUM('Student', 'Faculty', 'Staff') NOT NULL,
+  `issues` INT(11) NOT NULL DEFAULT 0,
+  `returns` INT(11) NOT NULL DEFAULT 0,
+  `late_returns` INT(11) NOT NULL DEFAULT 0,
+  `fines` DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+  `overdue_change` INT(11) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`day`, `category`, `member_type`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- Insert default admin user
 INSERT INTO `users` (`username`, `password`, `full_name`, `email`, `role`) 
 VALUES ('admin', 'admin123', 'System Administrator', 'admin@library.com', 'Administrator');
@@ -79,4 +120,9 @@ INSERT INTO `books` (`title`, `author`, `publisher`, `isbn`, `category`, `quanti
 INSERT INTO `members` (`name`, `email`, `phone`, `address`, `member_type`, `join_date`, `status`) VALUES
 ('John Smith', 'john.smith@example.com', '555-123-4567', '123 Main St, Anytown, USA', 'Student', CURDATE(), 'Active'),
 ('Jane Doe', 'jane.doe@example.com', '555-234-5678', '456 Oak Ave, Anytown, USA', 'Faculty', CURDATE(), 'Active'),
-('Mike Johnson', 'mike.johnson@example.com', '555-345-6789', '789 Pine Blvd, Anytown, USA', 'Student', CURDATE(), 'Active'); 
\ No newline at end of file
+('Mike Johnson', 'mike.johnson@example.com', '555-345-6789', '789 Pine Blvd, Anytown, USA', 'Student', CURDATE(), 'Active');
+
+-- Search keys of the sample rows; they are plain ASCII, so lower case is their folded
+-- form. Run com.library.tools.SearchKeyBackfill to compute the keys of other data.
+UPDATE `books` SET `search_key` = LOWER(CONCAT_WS(CHAR(31 USING utf8mb4), `title`, `author`, `publisher`, `isbn`, `category`));
+UPDATE `members` SET `search_key` = LOWER(CONCAT_WS(CHAR(31 USING utf8mb4), `name`, `email`, `phone`)); 
\ No newline at end of file
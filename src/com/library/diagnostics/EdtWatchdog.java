@@ -0,0 +1,245 @@
+package com.library.diagnostics;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects stalls of the Event Dispatch Thread. A heartbeat is posted to the
+ * event queue; while it waits longer than the threshold the EDT is sampled,
+ * and the samples are aggregated into hot stacks and the UI methods they were
+ * called from. A report is appended to a log file periodically.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.edt.stallMs - stall threshold, default 200</li>
+ *   <li>library.edt.log - report file, default edt-stalls.log</li>
+ *   <li>library.edt.reportSeconds - seconds between reports, default 60</li>
+ * </ul>
+ */
+public class EdtWatchdog {
+    private static final EdtWatchdog INSTANCE = new EdtWatchdog();
+    
+    private static final long SAMPLE_INTERVAL_MS = 20;
+    private static final int STACK_DEPTH = 16;
+    private static final int HOT_STACKS_REPORTED = 10;
+    private static final String UI_PACKAGE = "com.library.ui.";
+    
+    private final long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("library.edt.stallMs", 200));
+    private final long reportIntervalNanos = TimeUnit.SECONDS.toNanos(Long.getLong("library.edt.reportSeconds", 60));
+    private final String logFile = System.getProperty("library.edt.log", "edt-stalls.log");
+    
+    private ScheduledExecutorService sampler;
+    private volatile Thread edt;
+    private volatile long heartbeatPostedAt;
+    private volatile long heartbeatDoneAt;
+    private long stallStartedAt;
+    private boolean stalled;
+    private long nextReportAt;
+    
+    // Totals since start, read by the diagnostics view
+    private volatile long stallCount;
+    private volatile long totalStallNanos;
+    private volatile long longestStallNanos;
+    private volatile long lastStallNanos;
+    
+    // Aggregates for the current report window, guarded by this
+    private final Map<List<StackTraceElement>, Integer> stackSamples = new HashMap<>();
+    private final Map<String, Integer> uiMethodSamples = new HashMap<>();
+    private int sampleCount;
+    private int windowStalls;
+    private long windowStallNanos;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private EdtWatchdog() {
+    }
+    
+    /**
+     * Get the watchdog for this process
+     * @return The watchdog
+     */
+    public static EdtWatchdog getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Start watching the EDT. Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+        
+        nextReportAt = System.nanoTime() + reportIntervalNanos;
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-edt-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::tick, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::writeReport, "library-edt-report"));
+    }
+    
+    /**
+     * One watchdog tick: close a finished stall, sample an ongoing one, or post a new heartbeat
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        long postedAt = heartbeatPostedAt;
+        
+        if (postedAt == 0) {
+            if (stalled) {
+                endStall(heartbeatDoneAt - stallStartedAt);
+            }
+            heartbeatPostedAt = now;
+            EventQueue.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    edt = Thread.currentThread();
+                    heartbeatDoneAt = System.nanoTime();
+                    heartbeatPostedAt = 0;
+                }
+            });
+        } else if (now - postedAt >= thresholdNanos && edt != null) {
+            if (!stalled) {
+                stalled = true;
+                stallStartedAt = postedAt;
+            }
+            sample(edt.getStackTrace());
+        }
+        
+        if (now >= nextReportAt) {
+            nextReportAt = now + reportIntervalNanos;
+            writeReport();
+        }
+    }
+    
+    /**
+     * Add one EDT stack sample to the current window
+     * @param stack Stack of the EDT
+     */
+    private synchronized void sample(StackTraceElement[] stack) {
+        if (stack.length == 0) {
+            return;
+        }
+        List<StackTraceElement> key = Arrays.asList(Arrays.copyOf(stack, Math.min(STACK_DEPTH, stack.length)));
+        stackSamples.merge(key, 1, Integer::sum);
+        uiMethodSamples.merge(innermostUiFrame(stack), 1, Integer::sum);
+        sampleCount++;
+    }
+    
+    /**
+     * Find the UI method closest to the top of the stack, i.e. the panel code that made the blocking call
+     * @param stack Stack of the EDT
+     * @return Class and method name, or "(outside com.library.ui)"
+     */
+    private static String innermostUiFrame(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(UI_PACKAGE)) {
+                return frame.getClassName() + "." + frame.getMethodName();
+            }
+        }
+        return "(outside com.library.ui)";
+    }
+    
+    private synchronized void endStall(long nanos) {
+        stalled = false;
+        stallCount++;
+        totalStallNanos += nanos;
+        lastStallNanos = nanos;
+        longestStallNanos = Math.max(longestStallNanos, nanos);
+        windowStalls++;
+        windowStallNanos += nanos;
+    }
+    
+    /**
+     * Append the aggregated samples of the current window to the log and start a new window
+     */
+    private synchronized void writeReport() {
+        if (sampleCount == 0) {
+            return;
+        }
+        
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(logFile), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            
+            out.printf("=== EDT stall report %s ===%n", LocalDateTime.now());
+            out.printf("%d stalls, %d ms stalled, longest so far %d ms, %d samples every %d ms%n%n",
+                windowStalls, TimeUnit.NANOSECONDS.toMillis(windowStallNanos),
+                TimeUnit.NANOSECONDS.toMillis(longestStallNanos), sampleCount, SAMPLE_INTERVAL_MS);
+            
+            out.println("Blocking UI methods:");
+            for (Map.Entry<String, Integer> entry : sortByCount(uiMethodSamples)) {
+                out.printf("  %5.1f%%  %s%n", 100.0 * entry.getValue() / sampleCount, entry.getKey());
+            }
+            
+            out.println();
+            out.println("Hot stacks:");
+            List<Map.Entry<List<StackTraceElement>, Integer>> stacks = sortByCount(stackSamples);
+            for (Map.Entry<List<StackTraceElement>, Integer> entry : stacks.subList(0, Math.min(HOT_STACKS_REPORTED, stacks.size()))) {
+                out.printf("  %5.1f%% (%d samples)%n", 100.0 * entry.getValue() / sampleCount, entry.getValue());
+                for (StackTraceElement frame : entry.getKey()) {
+                    out.println("      at " + frame);
+                }
+            }
+            out.println();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        stackSamples.clear();
+        uiMethodSamples.clear();
+        sampleCount = 0;
+        windowStalls = 0;
+        windowStallNanos = 0;
+    }
+    
+    private static <K> List<Map.Entry<K, Integer>> sortByCount(Map<K, Integer> counts) {
+        List<Map.Entry<K, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> b.getValue() - a.getValue());
+        return entries;
+    }
+    
+    /**
+     * @return Number of stalls since start
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+    
+    /**
+     * @return Total time the EDT was stalled, in milliseconds
+     */
+    public long getTotalStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalStallNanos);
+    }
+    
+    /**
+     * @return Longest stall, in milliseconds
+     */
+    public long getLongestStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(longestStallNanos);
+    }
+    
+    /**
+     * @return Most recent stall, in milliseconds
+     */
+    public long getLastStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastStallNanos);
+    }
+}
@@ -0,0 +1,34 @@
+package com.library.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a full reload of a panel's data
+ */
+@Name("com.library.PanelRefresh")
+@Label("Panel Refresh")
+@Category({"Library", "UI"})
+@Description("A panel's refreshData() reloading its tables or selections")
+@StackTrace(false)
+public class PanelRefreshEvent extends Event {
+    
+    @Label("Panel")
+    public String panel;
+    
+    /**
+     * Create and begin an event; call {@link #commit()} when the refresh is done
+     * @param panel Panel being refreshed
+     * @return Started event
+     */
+    public static PanelRefreshEvent start(String panel) {
+        PanelRefreshEvent event = new PanelRefreshEvent();
+        event.panel = panel;
+        event.begin();
+        return event;
+    }
+}
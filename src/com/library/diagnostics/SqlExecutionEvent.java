@@ -0,0 +1,29 @@
+package com.library.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one SQL statement execution. For queries the
+ * duration covers both executing the statement and reading the result set.
+ * The stack trace shows which DAO method issued the statement.
+ */
+@Name("com.library.SqlExecution")
+@Label("SQL Execution")
+@Category({"Library", "Database"})
+@Description("A JDBC statement executed by the data access layer")
+public class SqlExecutionEvent extends Event {
+    
+    @Label("SQL")
+    public String sql;
+    
+    @Label("Rows")
+    @Description("Rows read for a query, rows changed for an update; -1 if unknown")
+    public long rows = -1;
+    
+    @Label("Failed")
+    public boolean failed;
+}
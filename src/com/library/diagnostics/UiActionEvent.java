@@ -0,0 +1,55 @@
+package com.library.diagnostics;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a button action, measured from the start to the
+ * end of its action listener on the event dispatch thread
+ */
+@Name("com.library.UiAction")
+@Label("UI Action")
+@Category({"Library", "UI"})
+@Description("An action listener run in response to a button press")
+@StackTrace(false)
+public class UiActionEvent extends Event {
+    
+    @Label("Panel")
+    public String panel;
+    
+    @Label("Action")
+    public String action;
+    
+    /**
+     * Wrap an action listener so every invocation is recorded
+     * @param panel Panel owning the button
+     * @param action Name of the action, usually the button label
+     * @param listener Listener doing the work
+     * @return Listener that records a UiActionEvent around the original
+     */
+    public static ActionListener traced(final String panel, final String action, final ActionListener listener) {
+        return new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                UiActionEvent event = new UiActionEvent();
+                event.begin();
+                try {
+                    listener.actionPerformed(e);
+                } finally {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.panel = panel;
+                        event.action = action;
+                        event.commit();
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.library.events;
+
+/**
+ * Published when a book is added, edited, deleted or its availability changes
+ */
+public class BookChangedEvent extends LibraryEvent {
+    private final int bookId;
+    private final ChangeType changeType;
+    
+    /**
+     * Constructor
+     * @param bookId ID of the changed book
+     * @param changeType Kind of change
+     */
+    public BookChangedEvent(int bookId, ChangeType changeType) {
+        this.bookId = bookId;
+        this.changeType = changeType;
+    }
+    
+    public int getBookId() {
+        return bookId;
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    @Override
+    public String toString() {
+        return "BookChanged[" + bookId + ", " + changeType + "]";
+    }
+}
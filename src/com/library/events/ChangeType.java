@@ -0,0 +1,10 @@
+package com.library.events;
+
+/**
+ * Kind of change applied to a catalog or member record
+ */
+public enum ChangeType {
+    ADDED,
+    UPDATED,
+    DELETED
+}
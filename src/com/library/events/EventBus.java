@@ -0,0 +1,87 @@
+package com.library.events;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process publish/subscribe bus for domain events.
+ * Events are delivered asynchronously on a single dispatch thread, in the
+ * order they were published, so a slow listener never blocks the publisher.
+ */
+public class EventBus {
+    private static final EventBus INSTANCE = new EventBus();
+    
+    private final Map<Class<?>, List<EventListener<?>>> listeners = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private EventBus() {
+        dispatcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "library-event-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Get the application-wide event bus
+     * @return The event bus
+     */
+    public static EventBus getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Subscribe to events of a type and its subtypes
+     * @param eventType Type of event to receive
+     * @param listener Listener to call
+     * @param <T> Type of event
+     */
+    public <T extends LibraryEvent> void subscribe(Class<T> eventType, EventListener<? super T> listener) {
+        listeners.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+    
+    /**
+     * Remove a listener from every event type it was subscribed to
+     * @param listener Listener to remove
+     */
+    public void unsubscribe(EventListener<?> listener) {
+        for (List<EventListener<?>> list : listeners.values()) {
+            list.remove(listener);
+        }
+    }
+    
+    /**
+     * Publish an event. Returns immediately; listeners run on the dispatch thread.
+     * @param event Event to publish
+     */
+    public void publish(LibraryEvent event) {
+        dispatcher.execute(() -> dispatch(event));
+    }
+    
+    /**
+     * Deliver an event to every listener registered for its type or a supertype
+     * @param event Event to deliver
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatch(LibraryEvent event) {
+        for (Map.Entry<Class<?>, List<EventListener<?>>> entry : listeners.entrySet()) {
+            if (!entry.getKey().isInstance(event)) {
+                continue;
+            }
+            for (EventListener<?> listener : entry.getValue()) {
+                try {
+                    ((EventListener<LibraryEvent>) listener).onEvent(event);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
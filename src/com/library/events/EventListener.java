@@ -0,0 +1,13 @@
+package com.library.events;
+
+/**
+ * Callback for events delivered by the {@link EventBus}
+ * @param <T> Type of event handled
+ */
+public interface EventListener<T extends LibraryEvent> {
+    /**
+     * Handle an event. Called on the event bus dispatch thread.
+     * @param event The published event
+     */
+    void onEvent(T event);
+}
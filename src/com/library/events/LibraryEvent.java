@@ -0,0 +1,23 @@
+package com.library.events;
+
+/**
+ * Base class for domain events published on the {@link EventBus}
+ */
+public abstract class LibraryEvent {
+    private final long timestamp;
+    
+    /**
+     * Constructor stamping the event with the current time
+     */
+    protected LibraryEvent() {
+        this.timestamp = System.currentTimeMillis();
+    }
+    
+    /**
+     * Get the time the event was created
+     * @return Milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
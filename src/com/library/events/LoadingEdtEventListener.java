@@ -0,0 +1,81 @@
+package com.library.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingWorker;
+
+/**
+ * Listener that loads what a batch of events changed on a background thread
+ * and then hands the events and the loaded data to Swing code on the Event
+ * Dispatch Thread, so refreshing the changed rows never blocks the EDT on a
+ * query. Events arriving while a batch is loading are coalesced into the
+ * next batch, and only one batch is in flight at a time, so batches are
+ * applied in publication order.
+ * @param <T> Type of event handled
+ * @param <R> Data loaded for a batch
+ */
+public abstract class LoadingEdtEventListener<T extends LibraryEvent, R> implements EventListener<T> {
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    
+    @Override
+    public final void onEvent(T event) {
+        pending.add(event);
+        schedule();
+    }
+    
+    /**
+     * Start loading the pending events unless a batch is already in flight
+     */
+    private void schedule() {
+        if (pending.isEmpty() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        
+        new SwingWorker<R, Void>() {
+            private final List<T> batch = new ArrayList<>();
+            
+            @Override
+            protected R doInBackground() {
+                T event;
+                while ((event = pending.poll()) != null) {
+                    batch.add(event);
+                }
+                return batch.isEmpty() ? null : load(batch);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    if (!batch.isEmpty()) {
+                        handleEvents(batch, get());
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                } finally {
+                    scheduled.set(false);
+                    // Pick up events that arrived while this batch was loading
+                    schedule();
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Load the data a batch of events changed. Called on a background thread,
+     * so it must not touch Swing components.
+     * @param events Events in publication order
+     * @return Data for {@link #handleEvents}
+     */
+    protected abstract R load(List<T> events);
+    
+    /**
+     * Apply a batch of events. Called on the Event Dispatch Thread.
+     * @param events Events in publication order
+     * @param loaded Data returned by {@link #load}
+     */
+    protected abstract void handleEvents(List<T> events, R loaded);
+}
@@ -0,0 +1,39 @@
+package com.library.events;
+
+/**
+ * Published when a book is issued to a member
+ */
+public class LoanIssuedEvent extends LibraryEvent {
+    private final int issueId;
+    private final int bookId;
+    private final int memberId;
+    
+    /**
+     * Constructor
+     * @param issueId ID of the new book issue
+     * @param bookId ID of the issued book
+     * @param memberId ID of the borrowing member
+     */
+    public LoanIssuedEvent(int issueId, int bookId, int memberId) {
+        this.issueId = issueId;
+        this.bookId = bookId;
+        this.memberId = memberId;
+    }
+    
+    public int getIssueId() {
+        return issueId;
+    }
+    
+    public int getBookId() {
+        return bookId;
+    }
+    
+    public int getMemberId() {
+        return memberId;
+    }
+    
+    @Override
+    public String toString() {
+        return "LoanIssued[" + issueId + ", book " + bookId + ", member " + memberId + "]";
+    }
+}
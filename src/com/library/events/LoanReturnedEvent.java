@@ -0,0 +1,39 @@
+package com.library.events;
+
+/**
+ * Published when an issued book is returned
+ */
+public class LoanReturnedEvent extends LibraryEvent {
+    private final int issueId;
+    private final int bookId;
+    private final int memberId;
+    
+    /**
+     * Constructor
+     * @param issueId ID of the returned book issue
+     * @param bookId ID of the returned book
+     * @param memberId ID of the member returning the book
+     */
+    public LoanReturnedEvent(int issueId, int bookId, int memberId) {
+        this.issueId = issueId;
+        this.bookId = bookId;
+        this.memberId = memberId;
+    }
+    
+    public int getIssueId() {
+        return issueId;
+    }
+    
+    public int getBookId() {
+        return bookId;
+    }
+    
+    public int getMemberId() {
+        return memberId;
+    }
+    
+    @Override
+    public String toString() {
+        return "LoanReturned[" + issueId + ", book " + bookId + ", member " + memberId + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package com.library.events;
+
+/**
+ * Published when a member is added, edited or deleted
+ */
+public class MemberChangedEvent extends LibraryEvent {
+    private final int memberId;
+    private final ChangeType changeType;
+    
+    /**
+     * Constructor
+     * @param memberId ID of the changed member
+     * @param changeType Kind of change
+     */
+    public MemberChangedEvent(int memberId, ChangeType changeType) {
+        this.memberId = memberId;
+        this.changeType = changeType;
+    }
+    
+    public int getMemberId() {
+        return memberId;
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    @Override
+    public String toString() {
+        return "MemberChanged[" + memberId + ", " + changeType + "]";
+    }
+}
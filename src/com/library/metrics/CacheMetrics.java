@@ -0,0 +1,49 @@
+package com.library.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counts for one in-process cache
+ */
+public class CacheMetrics {
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param name Cache name
+     */
+    CacheMetrics(String name) {
+        this.name = name;
+    }
+    
+    public void recordHit() {
+        hits.increment();
+    }
+    
+    public void recordMiss() {
+        misses.increment();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * @return Fraction of lookups that hit, 0 if there were none
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+}
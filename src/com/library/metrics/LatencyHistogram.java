@@ -0,0 +1,133 @@
+package com.library.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free log-linear latency histogram in the style of HdrHistogram.
+ * Values are grouped into power-of-two ranges, each split into 32 linear
+ * sub-buckets, giving about 3% relative precision over the full long range
+ * with a fixed 15 KB footprint. Recording is a couple of atomic adds.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+    
+    /**
+     * Record a value
+     * @param value Value to record, typically nanoseconds; negative values count as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(v));
+        totalCount.increment();
+        totalValue.add(v);
+        maxValue.accumulate(v);
+    }
+    
+    /**
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+    
+    /**
+     * @return Largest recorded value
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+    
+    /**
+     * @return Mean of the recorded values, 0 if empty
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+    
+    /**
+     * Value at a percentile
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket containing the percentile, 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+    
+    /**
+     * Clear all recorded values. Not atomic with respect to concurrent recording.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.reset();
+    }
+    
+    /**
+     * Add every value recorded in another histogram to this one
+     * @param other Histogram to merge in
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalValue.add(other.totalValue.sum());
+        maxValue.accumulate(other.getMax());
+    }
+    
+    /**
+     * Bucket holding a value
+     * @param value Non-negative value
+     * @return Bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+    
+    /**
+     * Largest value that falls into a bucket
+     * @param index Bucket index
+     * @return Upper bound of the bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long mantissa = index - (long) shift * SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,110 @@
+package com.library.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link MetricsRegistry} in the Prometheus text format.
+ * Controlled by system properties:
+ * <ul>
+ *   <li>library.metrics.port - serve GET /metrics on localhost at this port</li>
+ *   <li>library.metrics.file - rewrite this file periodically (e.g. for node_exporter's textfile collector)</li>
+ *   <li>library.metrics.interval - seconds between file dumps, default 15</li>
+ * </ul>
+ * The JMX view needs no configuration; it is registered as operations are created.
+ */
+public class MetricsExporter {
+    private static final long DEFAULT_INTERVAL_SECONDS = 15;
+    
+    private static HttpServer server;
+    private static ScheduledExecutorService fileWriter;
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MetricsExporter() {
+    }
+    
+    /**
+     * Start whichever exporters are configured. Calling it again has no effect.
+     */
+    public static synchronized void startFromSystemProperties() {
+        Integer port = Integer.getInteger("library.metrics.port");
+        if (port != null && server == null) {
+            try {
+                startHttp(port);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        
+        String file = System.getProperty("library.metrics.file");
+        if (file != null && fileWriter == null) {
+            long interval = Long.getLong("library.metrics.interval", DEFAULT_INTERVAL_SECONDS);
+            startFileDump(Paths.get(file), interval);
+        }
+    }
+    
+    /**
+     * Serve the metrics on the loopback interface
+     * @param port Port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    private static void startHttp(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            StringBuilder body = new StringBuilder();
+            MetricsRegistry.getInstance().writePrometheus(body);
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+    
+    /**
+     * Rewrite a file with the current metrics at a fixed interval
+     * @param file Destination file
+     * @param intervalSeconds Seconds between writes
+     */
+    private static void startFileDump(Path file, long intervalSeconds) {
+        fileWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-metrics-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fileWriter.scheduleWithFixedDelay(() -> writeFile(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Write the metrics to a file. The text goes to a temporary file first so
+     * readers never see a partial dump.
+     * @param file Destination file
+     */
+    public static void writeFile(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                MetricsRegistry.getInstance().writePrometheus(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.library.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * In-process registry of operation metrics, cache counters and gauges. Every
+ * operation is also registered as an MBean under com.library:type=Operation,
+ * and the whole registry can be rendered in the Prometheus text format.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Map<String, CacheMetrics> caches = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private MetricsRegistry() {
+    }
+    
+    /**
+     * Get the registry for this process
+     * @return The registry
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Get the metrics for an operation, creating and registering them on first use.
+     * Look this up once and keep it in a field; recording on it is lock-free.
+     * @param name Operation name, e.g. BookDAO.getAllBooks
+     * @return Metrics for the operation
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, n -> {
+            OperationMetrics metrics = new OperationMetrics(n);
+            registerMBean("com.library:type=Operation,name=" + ObjectName.quote(n), metrics);
+            return metrics;
+        });
+    }
+    
+    /**
+     * Get the hit/miss counters for a cache, creating them on first use
+     * @param name Cache name, e.g. books.titleIndex
+     * @return Counters for the cache
+     */
+    public CacheMetrics cache(String name) {
+        return caches.computeIfAbsent(name, CacheMetrics::new);
+    }
+    
+    /**
+     * Get all caches, sorted by name
+     * @return Snapshot of the registered caches
+     */
+    public List<CacheMetrics> getCaches() {
+        return new ArrayList<>(caches.values());
+    }
+    
+    /**
+     * Register a gauge sampled whenever metrics are exported
+     * @param name Metric name, e.g. library_db_pool_active
+     * @param help One-line description
+     * @param supplier Source of the current value
+     */
+    public void registerGauge(String name, String help, LongSupplier supplier) {
+        gauges.put(name, new Gauge(help, supplier));
+    }
+    
+    /**
+     * Get all operations, sorted by name
+     * @return Snapshot of the registered operations
+     */
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> list = new ArrayList<>(operations.values());
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+    
+    /**
+     * Write every metric in the Prometheus text exposition format
+     * @param out Destination
+     * @throws IOException if writing fails
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        List<OperationMetrics> list = getOperations();
+        
+        out.append("# HELP library_operation_duration_seconds Latency of timed operations\n");
+        out.append("# TYPE library_operation_duration_seconds summary\n");
+        for (OperationMetrics metrics : list) {
+            LatencyHistogram latency = metrics.getLatency();
+            String label = "operation=\"" + metrics.getName() + "\"";
+            for (double quantile : QUANTILES) {
+                out.append("library_operation_duration_seconds{").append(label)
+                   .append(",quantile=\"").append(String.valueOf(quantile)).append("\"} ")
+                   .append(seconds(latency.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append("library_operation_duration_seconds_sum{").append(label).append("} ")
+               .append(seconds((long) (latency.getMean() * latency.getCount()))).append('\n');
+            out.append("library_operation_duration_seconds_count{").append(label).append("} ")
+               .append(String.valueOf(latency.getCount())).append('\n');
+        }
+        
+        out.append("# HELP library_operation_errors_total Failed calls of timed operations\n");
+        out.append("# TYPE library_operation_errors_total counter\n");
+        for (OperationMetrics metrics : list) {
+            out.append("library_operation_errors_total{operation=\"").append(metrics.getName()).append("\"} ")
+               .append(String.valueOf(metrics.getErrorCount())).append('\n');
+        }
+        
+        out.append("# HELP library_operation_rows_total Rows read or written by timed operations\n");
+        out.append("# TYPE library_operation_rows_total counter\n");
+        for (OperationMetrics metrics : list) {
+            out.append("library_operation_rows_total{operation=\"").append(metrics.getName()).append("\"} ")
+               .append(String.valueOf(metrics.getRowCount())).append('\n');
+        }
+        
+        if (!caches.isEmpty()) {
+            out.append("# HELP library_cache_lookups_total Lookups in in-process caches\n");
+            out.append("# TYPE library_cache_lookups_total counter\n");
+            for (CacheMetrics cache : caches.values()) {
+                out.append("library_cache_lookups_total{cache=\"").append(cache.getName()).append("\",result=\"hit\"} ")
+                   .append(String.valueOf(cache.getHits())).append('\n');
+                out.append("library_cache_lookups_total{cache=\"").append(cache.getName()).append("\",result=\"miss\"} ")
+                   .append(String.valueOf(cache.getMisses())).append('\n');
+            }
+        }
+        
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            out.append("# HELP ").append(entry.getKey()).append(' ').append(entry.getValue().help).append('\n');
+            out.append("# TYPE ").append(entry.getKey()).append(" gauge\n");
+            out.append(entry.getKey()).append(' ')
+               .append(String.valueOf(entry.getValue().supplier.getAsLong())).append('\n');
+        }
+    }
+    
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+    
+    private static void registerMBean(String objectName, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * A named value sampled on export
+     */
+    private static class Gauge {
+        private final String help;
+        private final LongSupplier supplier;
+        
+        Gauge(String help, LongSupplier supplier) {
+            this.help = help;
+            this.supplier = supplier;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.library.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, row and error counts for one timed operation, such as a DAO method.
+ * Callers take a start time with {@link System#nanoTime()} and pass it to
+ * {@link #record(long, int)} or {@link #recordError(long)} when the call ends.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    
+    /**
+     * Constructor
+     * @param name Operation name, e.g. BookDAO.getAllBooks
+     */
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Record a successful call
+     * @param startNanos Value of System.nanoTime() when the call began
+     * @param rowCount Rows read or written by the call
+     */
+    public void record(long startNanos, int rowCount) {
+        latency.record(System.nanoTime() - startNanos);
+        rows.add(rowCount);
+    }
+    
+    /**
+     * Record a failed call
+     * @param startNanos Value of System.nanoTime() when the call began
+     */
+    public void recordError(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        errors.increment();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * @return Latency histogram in nanoseconds, covering successful and failed calls
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+    
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+    
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+    
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+    
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double getMedianMillis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double get99thPercentileMillis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+    }
+}
@@ -0,0 +1,23 @@
+package com.library.metrics;
+
+/**
+ * JMX view of the metrics recorded for one operation
+ */
+public interface OperationMetricsMBean {
+    
+    long getCount();
+    
+    long getErrorCount();
+    
+    long getRowCount();
+    
+    double getMeanMillis();
+    
+    double getMedianMillis();
+    
+    double get99thPercentileMillis();
+    
+    double getMaxMillis();
+    
+    void reset();
+}
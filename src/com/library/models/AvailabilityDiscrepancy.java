@@ -0,0 +1,62 @@
+package com.library.models;
+
+/**
+ * Model class representing a book whose available count does not match its
+ * quantity minus its open loans
+ */
+public class AvailabilityDiscrepancy {
+    private final int bookId;
+    private final String title;
+    private final int quantity;
+    private final int available;
+    private final int openLoans;
+    
+    /**
+     * Constructor
+     * @param bookId Book ID
+     * @param title Book title
+     * @param quantity Copies owned
+     * @param available Available copies as recorded in books
+     * @param openLoans Loans of the book not yet returned
+     */
+    public AvailabilityDiscrepancy(int bookId, String title, int quantity, int available, int openLoans) {
+        this.bookId = bookId;
+        this.title = title;
+        this.quantity = quantity;
+        this.available = available;
+        this.openLoans = openLoans;
+    }
+    
+    public int getBookId() {
+        return bookId;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public int getAvailable() {
+        return available;
+    }
+    
+    public int getOpenLoans() {
+        return openLoans;
+    }
+    
+    /**
+     * @return Available copies implied by the open loans, never below zero
+     */
+    public int getExpectedAvailable() {
+        return Math.max(quantity - openLoans, 0);
+    }
+    
+    @Override
+    public String toString() {
+        return "Book " + bookId + " (" + title + "): available " + available + ", expected " + getExpectedAvailable() +
+               " (" + quantity + " copies, " + openLoans + " on loan)";
+    }
+}
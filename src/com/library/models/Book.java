@@ -1 +1,142 @@
- 
\ No newline at end of file
+package com.library.models;
+
+import java.sql.Date;
+
+/**
+ * Model class representing a book in the library
+ */
+public class Book {
+    private int bookId;
+    private String title;
+    private String author;
+    private String publisher;
+    private String isbn;
+    private String category;
+    private int quantity;
+    private int available;
+    private Date addedDate;
+    
+    /**
+     * Default constructor
+     */
+    public Book() {
+    }
+    
+    /**
+     * Constructor for a new book (without ID)
+     * @param title Book title
+     * @param author Book author
+     * @param publisher Book publisher
+     * @param isbn Book ISBN
+     * @param category Book category
+     * @param quantity Total number of copies
+     * @param available Number of copies available for issue
+     * @param addedDate Date the book was added
+     */
+    public Book(String title, String author, String publisher, String isbn, String category,
+                int quantity, int available, Date addedDate) {
+        this.title = title;
+        this.author = author;
+        this.publisher = publisher;
+        this.isbn = isbn;
+        this.category = category;
+        this.quantity = quantity;
+        this.available = available;
+        this.addedDate = addedDate;
+    }
+    
+    /**
+     * Constructor for an existing book
+     * @param bookId Book ID
+     * @param title Book title
+     * @param author Book author
+     * @param publisher Book publisher
+     * @param isbn Book ISBN
+     * @param category Book category
+     * @param quantity Total number of copies
+     * @param available Number of copies available for issue
+     * @param addedDate Date the book was added
+     */
+    public Book(int bookId, String title, String author, String publisher, String isbn, String category,
+                int quantity, int available, Date addedDate) {
+        this(title, author, publisher, isbn, category, quantity, available, addedDate);
+        this.bookId = bookId;
+    }
+    
+    public int getBookId() {
+        return bookId;
+    }
+    
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+    
+    public String getPublisher() {
+        return publisher;
+    }
+    
+    public void setPublisher(String publisher) {
+        this.publisher = publisher;
+    }
+    
+    public String getIsbn() {
+        return isbn;
+    }
+    
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+    
+    public int getAvailable() {
+        return available;
+    }
+    
+    public void setAvailable(int available) {
+        this.available = available;
+    }
+    
+    public Date getAddedDate() {
+        return addedDate;
+    }
+    
+    public void setAddedDate(Date addedDate) {
+        this.addedDate = addedDate;
+    }
+    
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -1 +1,123 @@
- 
\ No newline at end of file
+package com.library.models;
+
+import java.sql.Date;
+
+/**
+ * Model class representing a book issued to a member
+ */
+public class BookIssue {
+    private int issueId;
+    private int bookId;
+    private int memberId;
+    private Date issueDate;
+    private Date dueDate;
+    private Date returnDate;
+    private double fineAmount;
+    private String status;
+    
+    // Display fields filled in by joins
+    private String bookTitle;
+    private String memberName;
+    
+    /**
+     * Default constructor
+     */
+    public BookIssue() {
+    }
+    
+    /**
+     * Constructor for a new book issue (without ID)
+     * @param bookId Book ID
+     * @param memberId Member ID
+     * @param issueDate Date the book was issued
+     * @param dueDate Date the book is due
+     * @param status Issue status (Issued, Returned, Overdue)
+     */
+    public BookIssue(int bookId, int memberId, Date issueDate, Date dueDate, String status) {
+        this.bookId = bookId;
+        this.memberId = memberId;
+        this.issueDate = issueDate;
+        this.dueDate = dueDate;
+        this.status = status;
+    }
+    
+    public int getIssueId() {
+        return issueId;
+    }
+    
+    public void setIssueId(int issueId) {
+        this.issueId = issueId;
+    }
+    
+    public int getBookId() {
+        return bookId;
+    }
+    
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+    
+    public int getMemberId() {
+        return memberId;
+    }
+    
+    public void setMemberId(int memberId) {
+        this.memberId = memberId;
+    }
+    
+    public Date getIssueDate() {
+        return issueDate;
+    }
+    
+    public void setIssueDate(Date issueDate) {
+        this.issueDate = issueDate;
+    }
+    
+    public Date getDueDate() {
+        return dueDate;
+    }
+    
+    public void setDueDate(Date dueDate) {
+        this.dueDate = dueDate;
+    }
+    
+    public Date getReturnDate() {
+        return returnDate;
+    }
+    
+    public void setReturnDate(Date returnDate) {
+        this.returnDate = returnDate;
+    }
+    
+    public double getFineAmount() {
+        return fineAmount;
+    }
+    
+    public void setFineAmount(double fineAmount) {
+        this.fineAmount = fineAmount;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getBookTitle() {
+        return bookTitle;
+    }
+    
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+    
+    public String getMemberName() {
+        return memberName;
+    }
+    
+    public void setMemberName(String memberName) {
+        this.memberName = memberName;
+    }
+}
@@ -0,0 +1,112 @@
+package com.library.models;
+
+import java.sql.Date;
+
+/**
+ * Model class representing circulation totals for one day, book category and
+ * member type. Totals summed over several days, categories or member types
+ * leave the summed-over fields null.
+ */
+public class CirculationRollup {
+    private Date day;
+    private String category;
+    private String memberType;
+    private int issues;
+    private int returns;
+    private int lateReturns;
+    private double fines;
+    private int overdueChange;
+    
+    /**
+     * Default constructor
+     */
+    public CirculationRollup() {
+    }
+    
+    /**
+     * Constructor
+     * @param day Day, or null for totals over a range
+     * @param category Book category, or null for all categories
+     * @param memberType Member type, or null for all member types
+     * @param issues Books issued
+     * @param returns Books returned
+     * @param lateReturns Books returned after their due date
+     * @param fines Fines charged on returns
+     * @param overdueChange Loans that fell overdue less late loans returned
+     */
+    public CirculationRollup(Date day, String category, String memberType, int issues, int returns,
+                             int lateReturns, double fines, int overdueChange) {
+        this.day = day;
+        this.category = category;
+        this.memberType = memberType;
+        this.issues = issues;
+        this.returns = returns;
+        this.lateReturns = lateReturns;
+        this.fines = fines;
+        this.overdueChange = overdueChange;
+    }
+    
+    public Date getDay() {
+        return day;
+    }
+    
+    public void setDay(Date day) {
+        this.day = day;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getMemberType() {
+        return memberType;
+    }
+    
+    public void setMemberType(String memberType) {
+        this.memberType = memberType;
+    }
+    
+    public int getIssues() {
+        return issues;
+    }
+    
+    public void setIssues(int issues) {
+        this.issues = issues;
+    }
+    
+    public int getReturns() {
+        return returns;
+    }
+    
+    public void setReturns(int returns) {
+        this.returns = returns;
+    }
+    
+    public int getLateReturns() {
+        return lateReturns;
+    }
+    
+    public void setLateReturns(int lateReturns) {
+        this.lateReturns = lateReturns;
+    }
+    
+    public double getFines() {
+        return fines;
+    }
+    
+    public void setFines(double fines) {
+        this.fines = fines;
+    }
+    
+    public int getOverdueChange() {
+        return overdueChange;
+    }
+    
+    public void setOverdueChange(int overdueChange) {
+        this.overdueChange = overdueChange;
+    }
+}
@@ -1 +1,130 @@
- 
\ No newline at end of file
+package com.library.models;
+
+import java.sql.Date;
+
+/**
+ * Model class representing a library member
+ */
+public class Member {
+    private int memberId;
+    private String name;
+    private String email;
+    private String phone;
+    private String address;
+    private String memberType;
+    private Date joinDate;
+    private String status;
+    
+    /**
+     * Default constructor
+     */
+    public Member() {
+    }
+    
+    /**
+     * Constructor for a new member (without ID)
+     * @param name Member name
+     * @param email Member email
+     * @param phone Member phone number
+     * @param address Member address
+     * @param memberType Member type (Student, Faculty, Staff)
+     * @param joinDate Date the member joined
+     * @param status Member status (Active, Inactive)
+     */
+    public Member(String name, String email, String phone, String address, String memberType,
+                  Date joinDate, String status) {
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.address = address;
+        this.memberType = memberType;
+        this.joinDate = joinDate;
+        this.status = status;
+    }
+    
+    /**
+     * Constructor for an existing member
+     * @param memberId Member ID
+     * @param name Member name
+     * @param email Member email
+     * @param phone Member phone number
+     * @param address Member address
+     * @param memberType Member type (Student, Faculty, Staff)
+     * @param joinDate Date the member joined
+     * @param status Member status (Active, Inactive)
+     */
+    public Member(int memberId, String name, String email, String phone, String address, String memberType,
+                  Date joinDate, String status) {
+        this(name, email, phone, address, memberType, joinDate, status);
+        this.memberId = memberId;
+    }
+    
+    public int getMemberId() {
+        return memberId;
+    }
+    
+    public void setMemberId(int memberId) {
+        this.memberId = memberId;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    public void setAddress(String address) {
+        this.address = address;
+    }
+    
+    public String getMemberType() {
+        return memberType;
+    }
+    
+    public void setMemberType(String memberType) {
+        this.memberType = memberType;
+    }
+    
+    public Date getJoinDate() {
+        return joinDate;
+    }
+    
+    public void setJoinDate(Date joinDate) {
+        this.joinDate = joinDate;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1 +1,94 @@
- 
\ No newline at end of file
+package com.library.models;
+
+import java.sql.Timestamp;
+
+/**
+ * Model class representing a staff user of the system
+ */
+public class User {
+    private int userId;
+    private String username;
+    private String password;
+    private String fullName;
+    private String email;
+    private String role;
+    private Timestamp lastLogin;
+    
+    /**
+     * Default constructor
+     */
+    public User() {
+    }
+    
+    /**
+     * Constructor for a new user (without ID)
+     * @param username Login name
+     * @param password Password
+     * @param fullName Full name
+     * @param email Email address
+     * @param role User role (Administrator, Librarian)
+     */
+    public User(String username, String password, String fullName, String email, String role) {
+        this.username = username;
+        this.password = password;
+        this.fullName = fullName;
+        this.email = email;
+        this.role = role;
+    }
+    
+    public int getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public void setUsername(String username) {
+        this.username = username;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public void setPassword(String password) {
+        this.password = password;
+    }
+    
+    public String getFullName() {
+        return fullName;
+    }
+    
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public Timestamp getLastLogin() {
+        return lastLogin;
+    }
+    
+    public void setLastLogin(Timestamp lastLogin) {
+        this.lastLogin = lastLogin;
+    }
+}
@@ -0,0 +1,222 @@
+package com.library.reports;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Result of a circulation analysis over a date range
+ */
+public class CirculationReport {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long loansScanned;
+    private final long elapsedMillis;
+    private final double averageLoanDays;
+    private final List<TitleStat> topTitles;
+    private final List<CategoryStat> categories;
+    private final List<MemberTypeStat> memberTypes;
+    
+    /**
+     * Constructor
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param loansScanned Loans read from the database
+     * @param elapsedMillis Time taken to compute the report
+     * @param averageLoanDays Average days between issue and return of loans returned in the range
+     * @param topTitles Most issued titles, most issued first
+     * @param categories Statistics per book category
+     * @param memberTypes Statistics per member type
+     */
+    public CirculationReport(LocalDate from, LocalDate to, long loansScanned, long elapsedMillis,
+                             double averageLoanDays, List<TitleStat> topTitles,
+                             List<CategoryStat> categories, List<MemberTypeStat> memberTypes) {
+        this.from = from;
+        this.to = to;
+        this.loansScanned = loansScanned;
+        this.elapsedMillis = elapsedMillis;
+        this.averageLoanDays = averageLoanDays;
+        this.topTitles = topTitles;
+        this.categories = categories;
+        this.memberTypes = memberTypes;
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    public long getLoansScanned() {
+        return loansScanned;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public double getAverageLoanDays() {
+        return averageLoanDays;
+    }
+    
+    public List<TitleStat> getTopTitles() {
+        return topTitles;
+    }
+    
+    public List<CategoryStat> getCategories() {
+        return categories;
+    }
+    
+    public List<MemberTypeStat> getMemberTypes() {
+        return memberTypes;
+    }
+    
+    /**
+     * Issue count of one title
+     */
+    public static class TitleStat {
+        private final int bookId;
+        private final String title;
+        private final String author;
+        private final String category;
+        private final long issues;
+        
+        public TitleStat(int bookId, String title, String author, String category, long issues) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.issues = issues;
+        }
+        
+        public int getBookId() {
+            return bookId;
+        }
+        
+        public String getTitle() {
+            return title;
+        }
+        
+        public String getAuthor() {
+            return author;
+        }
+        
+        public String getCategory() {
+            return category;
+        }
+        
+        public long getIssues() {
+            return issues;
+        }
+    }
+    
+    /**
+     * Utilization and loan statistics of one book category
+     */
+    public static class CategoryStat {
+        private final String category;
+        private final int copies;
+        private final long issues;
+        private final double utilization;
+        private final double averageLoanDays;
+        
+        /**
+         * Constructor
+         * @param category Category name
+         * @param copies Copies owned (sum of quantity)
+         * @param issues Loans issued in the range
+         * @param utilization Average fraction of copies out on loan over the range
+         * @param averageLoanDays Average loan length of returns in the range
+         */
+        public CategoryStat(String category, int copies, long issues, double utilization, double averageLoanDays) {
+            this.category = category;
+            this.copies = copies;
+            this.issues = issues;
+            this.utilization = utilization;
+            this.averageLoanDays = averageLoanDays;
+        }
+        
+        public String getCategory() {
+            return category;
+        }
+        
+        public int getCopies() {
+            return copies;
+        }
+        
+        public long getIssues() {
+            return issues;
+        }
+        
+        public double getUtilization() {
+            return utilization;
+        }
+        
+        public double getAverageLoanDays() {
+            return averageLoanDays;
+        }
+    }
+    
+    /**
+     * Borrowing activity of one member type
+     */
+    public static class MemberTypeStat {
+        private final String memberType;
+        private final int members;
+        private final int activeMembers;
+        private final long issues;
+        private final long returns;
+        private final long lateReturns;
+        
+        /**
+         * Constructor
+         * @param memberType Member type
+         * @param members Members of this type
+         * @param activeMembers Members who borrowed in the range
+         * @param issues Loans issued in the range
+         * @param returns Loans returned in the range
+         * @param lateReturns Returns after the due date
+         */
+        public MemberTypeStat(String memberType, int members, int activeMembers, long issues, long returns,
+                              long lateReturns) {
+            this.memberType = memberType;
+            this.members = members;
+            this.activeMembers = activeMembers;
+            this.issues = issues;
+            this.returns = returns;
+            this.lateReturns = lateReturns;
+        }
+        
+        public String getMemberType() {
+            return memberType;
+        }
+        
+        public int getMembers() {
+            return members;
+        }
+        
+        public int getActiveMembers() {
+            return activeMembers;
+        }
+        
+        public long getIssues() {
+            return issues;
+        }
+        
+        public long getReturns() {
+            return returns;
+        }
+        
+        public long getLateReturns() {
+            return lateReturns;
+        }
+        
+        /**
+         * @return Loans per active member, 0 if none were active
+         */
+        public double getIssuesPerActiveMember() {
+            return activeMembers == 0 ? 0 : (double) issues / activeMembers;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.library.reports;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Daily circulation series for the dashboard charts. Index 0 of every series is
+ * the first day.
+ */
+public class CirculationTrends {
+    private final LocalDate firstDay;
+    private final int[] issues;
+    private final int[] returns;
+    private final int[] overdue;
+    private final double[] utilization;
+    
+    /**
+     * Constructor
+     * @param firstDay Day of index 0
+     * @param issues Books issued per day
+     * @param returns Books returned per day
+     * @param overdue Loans overdue at the end of each day
+     * @param utilization Fraction of all copies on loan at the end of each day
+     */
+    public CirculationTrends(LocalDate firstDay, int[] issues, int[] returns, int[] overdue, double[] utilization) {
+        this.firstDay = firstDay;
+        this.issues = issues;
+        this.returns = returns;
+        this.overdue = overdue;
+        this.utilization = utilization;
+    }
+    
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+    
+    public int getDays() {
+        return issues.length;
+    }
+    
+    public int[] getIssues() {
+        return issues;
+    }
+    
+    public int[] getReturns() {
+        return returns;
+    }
+    
+    public int[] getOverdue() {
+        return overdue;
+    }
+    
+    public double[] getUtilization() {
+        return utilization;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CirculationTrends)) {
+            return false;
+        }
+        CirculationTrends other = (CirculationTrends) o;
+        return firstDay.equals(other.firstDay)
+            && Arrays.equals(issues, other.issues)
+            && Arrays.equals(returns, other.returns)
+            && Arrays.equals(overdue, other.overdue)
+            && Arrays.equals(utilization, other.utilization);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * firstDay.hashCode() + Arrays.hashCode(issues);
+    }
+}
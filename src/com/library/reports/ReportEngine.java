@@ -0,0 +1,471 @@
+package com.library.reports;
+
+import com.library.database.BookDAO;
+import com.library.database.BookIssueDAO;
+import com.library.database.CirculationRollupDAO;
+import com.library.database.LoanRowHandler;
+import com.library.database.MemberDAO;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Book;
+import com.library.models.CirculationRollup;
+import com.library.models.Member;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes circulation reports by streaming book_issues once. Loans are copied
+ * into column batches of primitive arrays; while the cursor fills the next batch,
+ * the previous one is aggregated on the fork-join pool. Every slice of a batch
+ * has its own accumulator, so workers never share counters and the accumulators
+ * are merged only once at the end.
+ */
+public class ReportEngine {
+    private static final OperationMetrics GENERATE = MetricsRegistry.getInstance().operation("ReportEngine.generate");
+    
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final String NO_CATEGORY = "Uncategorized";
+    
+    private final BookDAO bookDAO = new BookDAO();
+    private final MemberDAO memberDAO = new MemberDAO();
+    private final BookIssueDAO bookIssueDAO = new BookIssueDAO();
+    private final CirculationRollupDAO rollupDAO = new CirculationRollupDAO();
+    private final ForkJoinPool pool;
+    
+    /**
+     * Constructor using the common fork-join pool
+     */
+    public ReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Constructor
+     * @param pool Pool that aggregates batches
+     */
+    public ReportEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Generate a circulation report
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @param topTitles Number of most issued titles to include
+     * @return Report, or null if the loans could not be read
+     */
+    public CirculationReport generate(LocalDate from, LocalDate to, int topTitles) {
+        long start = System.nanoTime();
+        Catalog catalog = new Catalog(bookDAO.getAllBooks(), memberDAO.getAllMembers());
+        
+        Scan scan = new Scan(catalog, (int) from.toEpochDay(), (int) to.toEpochDay(), pool);
+        long rows = bookIssueDAO.scanLoans(Date.valueOf(from), Date.valueOf(to), scan);
+        Accumulator total = scan.finish();
+        if (rows < 0) {
+            GENERATE.recordError(start);
+            return null;
+        }
+        
+        CirculationReport report = catalog.report(total, from, to, rows, topTitles,
+                                                  (System.nanoTime() - start) / 1_000_000);
+        GENERATE.record(start, (int) Math.min(rows, Integer.MAX_VALUE));
+        return report;
+    }
+    
+    /**
+     * Get the daily trends of the last days up to today. Issues, returns and the
+     * daily change in overdue loans come from the rollup table; the numbers of
+     * loans out and overdue on each day are worked back from today's open and
+     * overdue loans, so no pass over book_issues is needed.
+     * @param days Number of days, including today
+     * @return Trends, oldest day first
+     */
+    public CirculationTrends trends(int days) {
+        LocalDate today = LocalDate.now();
+        LocalDate first = today.minusDays(days - 1);
+        int[] issues = new int[days];
+        int[] returns = new int[days];
+        int[] overdueChange = new int[days];
+        for (CirculationRollup rollup : rollupDAO.getDailyTotals(Date.valueOf(first), Date.valueOf(today))) {
+            int i = (int) (rollup.getDay().toLocalDate().toEpochDay() - first.toEpochDay());
+            if (i >= 0 && i < days) {
+                issues[i] = rollup.getIssues();
+                returns[i] = rollup.getReturns();
+                overdueChange[i] = rollup.getOverdueChange();
+            }
+        }
+        
+        double copies = bookDAO.countCopies();
+        double[] utilization = new double[days];
+        int[] overdue = new int[days];
+        int onLoan = bookIssueDAO.countIssuedBooks();
+        int overdueLoans = bookIssueDAO.countOverdueBooks();
+        for (int i = days - 1; i >= 0; i--) {
+            utilization[i] = copies == 0 ? 0 : Math.max(onLoan, 0) / copies;
+            overdue[i] = Math.max(overdueLoans, 0);
+            onLoan += returns[i] - issues[i];
+            overdueLoans -= overdueChange[i];
+        }
+        
+        return new CirculationTrends(first, issues, returns, overdue, utilization);
+    }
+    
+    /**
+     * Dense indexes for the books, categories, members and member types. Loans refer
+     * to books and members by ID; these arrays turn the IDs into array slots.
+     */
+    private static class Catalog {
+        final List<Book> books;
+        final int[] bookSlot;
+        final int[] bookCategory;
+        final List<String> categories = new ArrayList<>();
+        final int[] categoryCopies;
+        final int[] memberSlot;
+        final int[] memberType;
+        final List<String> memberTypes = new ArrayList<>();
+        final int[] membersPerType;
+        
+        Catalog(List<Book> books, List<Member> members) {
+            this.books = books;
+            
+            Map<String, Integer> categoryIndex = new LinkedHashMap<>();
+            int maxBookId = 0;
+            for (Book book : books) {
+                maxBookId = Math.max(maxBookId, book.getBookId());
+            }
+            bookSlot = filled(maxBookId + 1);
+            bookCategory = new int[books.size()];
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                bookSlot[book.getBookId()] = i;
+                bookCategory[i] = indexOf(categoryIndex, categories, categoryOf(book));
+            }
+            categoryCopies = new int[categories.size()];
+            for (int i = 0; i < books.size(); i++) {
+                categoryCopies[bookCategory[i]] += books.get(i).getQuantity();
+            }
+            
+            Map<String, Integer> typeIndex = new LinkedHashMap<>();
+            int maxMemberId = 0;
+            for (Member member : members) {
+                maxMemberId = Math.max(maxMemberId, member.getMemberId());
+            }
+            memberSlot = filled(maxMemberId + 1);
+            memberType = new int[members.size()];
+            for (int i = 0; i < members.size(); i++) {
+                Member member = members.get(i);
+                memberSlot[member.getMemberId()] = i;
+                memberType[i] = indexOf(typeIndex, memberTypes, member.getMemberType());
+            }
+            membersPerType = new int[memberTypes.size()];
+            for (int type : memberType) {
+                membersPerType[type]++;
+            }
+        }
+        
+        /**
+         * Turn merged counters into the report
+         * @param total Merged counters
+         * @param from First day of the range
+         * @param to Last day of the range
+         * @param rows Loans scanned
+         * @param topTitles Number of titles to keep
+         * @param elapsedMillis Time taken so far
+         * @return Report
+         */
+        CirculationReport report(Accumulator total, LocalDate from, LocalDate to, long rows, int topTitles,
+                                 long elapsedMillis) {
+            PriorityQueue<Integer> top = new PriorityQueue<>(
+                (a, b) -> Long.compare(total.bookIssues[a], total.bookIssues[b]));
+            for (int i = 0; i < books.size(); i++) {
+                if (total.bookIssues[i] == 0) {
+                    continue;
+                }
+                if (top.size() < topTitles) {
+                    top.add(i);
+                } else if (topTitles > 0 && total.bookIssues[i] > total.bookIssues[top.peek()]) {
+                    top.poll();
+                    top.add(i);
+                }
+            }
+            List<CirculationReport.TitleStat> titles = new ArrayList<>();
+            while (!top.isEmpty()) {
+                int i = top.poll();
+                Book book = books.get(i);
+                titles.add(new CirculationReport.TitleStat(book.getBookId(), book.getTitle(), book.getAuthor(),
+                                                           categoryOf(book), total.bookIssues[i]));
+            }
+            Collections.reverse(titles);
+            
+            long days = to.toEpochDay() - from.toEpochDay() + 1;
+            List<CirculationReport.CategoryStat> categoryStats = new ArrayList<>();
+            for (int c = 0; c < categories.size(); c++) {
+                double capacity = (double) categoryCopies[c] * days;
+                categoryStats.add(new CirculationReport.CategoryStat(
+                    categories.get(c), categoryCopies[c], total.categoryIssues[c],
+                    capacity == 0 ? 0 : total.categoryLoanDays[c] / capacity,
+                    average(total.categoryReturnedDays[c], total.categoryReturns[c])));
+            }
+            categoryStats.sort((a, b) -> Double.compare(b.getUtilization(), a.getUtilization()));
+            
+            int[] activePerType = new int[memberTypes.size()];
+            for (int m = total.activeMembers.nextSetBit(0); m >= 0; m = total.activeMembers.nextSetBit(m + 1)) {
+                activePerType[memberType[m]]++;
+            }
+            List<CirculationReport.MemberTypeStat> typeStats = new ArrayList<>();
+            for (int t = 0; t < memberTypes.size(); t++) {
+                typeStats.add(new CirculationReport.MemberTypeStat(
+                    memberTypes.get(t), membersPerType[t], activePerType[t], total.typeIssues[t],
+                    total.typeReturns[t], total.typeLateReturns[t]));
+            }
+            long returnedDays = 0;
+            long returns = 0;
+            for (int c = 0; c < categories.size(); c++) {
+                returnedDays += total.categoryReturnedDays[c];
+                returns += total.categoryReturns[c];
+            }
+            
+            return new CirculationReport(from, to, rows, elapsedMillis, average(returnedDays, returns),
+                                         titles, categoryStats, typeStats);
+        }
+        
+        private static double average(long sum, long count) {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+        
+        private static String categoryOf(Book book) {
+            String category = book.getCategory();
+            return category == null || category.trim().isEmpty() ? NO_CATEGORY : category;
+        }
+        
+        private static int indexOf(Map<String, Integer> index, List<String> names, String name) {
+            Integer slot = index.get(name);
+            if (slot == null) {
+                slot = names.size();
+                index.put(name, slot);
+                names.add(name);
+            }
+            return slot;
+        }
+        
+        private static int[] filled(int size) {
+            int[] slots = new int[size];
+            Arrays.fill(slots, -1);
+            return slots;
+        }
+    }
+    
+    /**
+     * Primitive counters for one slice of every batch
+     */
+    private static class Accumulator {
+        final long[] bookIssues;
+        final long[] categoryIssues;
+        final long[] categoryLoanDays;
+        final long[] categoryReturns;
+        final long[] categoryReturnedDays;
+        final long[] typeIssues;
+        final long[] typeReturns;
+        final long[] typeLateReturns;
+        final BitSet activeMembers;
+        
+        Accumulator(Catalog catalog) {
+            bookIssues = new long[catalog.books.size()];
+            categoryIssues = new long[catalog.categories.size()];
+            categoryLoanDays = new long[catalog.categories.size()];
+            categoryReturns = new long[catalog.categories.size()];
+            categoryReturnedDays = new long[catalog.categories.size()];
+            typeIssues = new long[catalog.memberTypes.size()];
+            typeReturns = new long[catalog.memberTypes.size()];
+            typeLateReturns = new long[catalog.memberTypes.size()];
+            activeMembers = new BitSet(catalog.memberType.length);
+        }
+        
+        void merge(Accumulator other) {
+            add(bookIssues, other.bookIssues);
+            add(categoryIssues, other.categoryIssues);
+            add(categoryLoanDays, other.categoryLoanDays);
+            add(categoryReturns, other.categoryReturns);
+            add(categoryReturnedDays, other.categoryReturnedDays);
+            add(typeIssues, other.typeIssues);
+            add(typeReturns, other.typeReturns);
+            add(typeLateReturns, other.typeLateReturns);
+            activeMembers.or(other.activeMembers);
+        }
+        
+        private static void add(long[] target, long[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+    }
+    
+    /**
+     * One batch of loans stored column by column. Book and member columns already
+     * hold catalog slots rather than IDs.
+     */
+    private static class Batch {
+        final int[] book = new int[BATCH_SIZE];
+        final int[] member = new int[BATCH_SIZE];
+        final int[] issueDay = new int[BATCH_SIZE];
+        final int[] dueDay = new int[BATCH_SIZE];
+        final int[] returnDay = new int[BATCH_SIZE];
+        int size;
+    }
+    
+    /**
+     * Receives rows from the cursor and keeps one batch aggregating while the next fills
+     */
+    private static class Scan implements LoanRowHandler {
+        private final Catalog catalog;
+        private final ForkJoinPool pool;
+        private final int fromDay;
+        private final int toDay;
+        private final Accumulator[] slices;
+        private Batch filling = new Batch();
+        private Batch spare = new Batch();
+        private ForkJoinTask<?> running;
+        
+        Scan(Catalog catalog, int fromDay, int toDay, ForkJoinPool pool) {
+            this.catalog = catalog;
+            this.pool = pool;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.slices = new Accumulator[Math.max(1, pool.getParallelism())];
+            for (int i = 0; i < slices.length; i++) {
+                slices[i] = new Accumulator(catalog);
+            }
+        }
+        
+        @Override
+        public void loan(int bookId, int memberId, int issueDay, int dueDay, int returnDay) {
+            int book = bookId < catalog.bookSlot.length ? catalog.bookSlot[bookId] : -1;
+            int member = memberId < catalog.memberSlot.length ? catalog.memberSlot[memberId] : -1;
+            if (book < 0 || member < 0) {
+                // Added after the catalog was loaded
+                return;
+            }
+            Batch batch = filling;
+            int i = batch.size++;
+            batch.book[i] = book;
+            batch.member[i] = member;
+            batch.issueDay[i] = issueDay;
+            batch.dueDay[i] = dueDay;
+            batch.returnDay[i] = returnDay;
+            if (batch.size == BATCH_SIZE) {
+                submit();
+            }
+        }
+        
+        /**
+         * Hand the full batch to the pool once the previous one is done. Waiting
+         * here keeps each accumulator owned by a single task at a time.
+         */
+        private void submit() {
+            if (running != null) {
+                running.join();
+            }
+            Batch full = filling;
+            filling = spare;
+            filling.size = 0;
+            spare = full;
+            running = pool.submit(new SliceTask(this, full, 0, slices.length));
+        }
+        
+        /**
+         * Aggregate what is left and merge every slice
+         * @return Totals over all loans
+         */
+        Accumulator finish() {
+            if (filling.size > 0) {
+                submit();
+            }
+            if (running != null) {
+                running.join();
+                running = null;
+            }
+            Accumulator total = slices[0];
+            for (int i = 1; i < slices.length; i++) {
+                total.merge(slices[i]);
+            }
+            return total;
+        }
+        
+        /**
+         * Add rows [from, to) of a batch to an accumulator
+         */
+        void aggregate(Batch batch, int from, int to, Accumulator acc) {
+            int[] bookCategory = catalog.bookCategory;
+            int[] memberType = catalog.memberType;
+            for (int i = from; i < to; i++) {
+                int book = batch.book[i];
+                int category = bookCategory[book];
+                int type = memberType[batch.member[i]];
+                int issued = batch.issueDay[i];
+                int returned = batch.returnDay[i];
+                
+                if (issued >= fromDay) {
+                    acc.bookIssues[book]++;
+                    acc.categoryIssues[category]++;
+                    acc.typeIssues[type]++;
+                    acc.activeMembers.set(batch.member[i]);
+                }
+                if (returned >= fromDay && returned <= toDay) {
+                    acc.typeReturns[type]++;
+                    acc.categoryReturns[category]++;
+                    acc.categoryReturnedDays[category] += returned - issued;
+                    if (returned > batch.dueDay[i]) {
+                        acc.typeLateReturns[type]++;
+                    }
+                }
+                
+                int first = Math.max(issued, fromDay);
+                int last = returned < 0 ? toDay : Math.min(returned, toDay);
+                if (last >= first) {
+                    acc.categoryLoanDays[category] += last - first + 1;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Splits a batch into one contiguous slice per accumulator
+     */
+    private static class SliceTask extends RecursiveAction {
+        private final Scan scan;
+        private final Batch batch;
+        private final int firstSlice;
+        private final int lastSlice;
+        
+        SliceTask(Scan scan, Batch batch, int firstSlice, int lastSlice) {
+            this.scan = scan;
+            this.batch = batch;
+            this.firstSlice = firstSlice;
+            this.lastSlice = lastSlice;
+        }
+        
+        @Override
+        protected void compute() {
+            if (lastSlice - firstSlice > 1) {
+                int mid = (firstSlice + lastSlice) >>> 1;
+                invokeAll(new SliceTask(scan, batch, firstSlice, mid), new SliceTask(scan, batch, mid, lastSlice));
+                return;
+            }
+            int slices = scan.slices.length;
+            int from = (int) ((long) batch.size * firstSlice / slices);
+            int to = (int) ((long) batch.size * (firstSlice + 1) / slices);
+            scan.aggregate(batch, from, to, scan.slices[firstSlice]);
+        }
+    }
+}
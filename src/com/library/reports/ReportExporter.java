@@ -0,0 +1,76 @@
+package com.library.reports;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Writes circulation reports as CSV, one section per table
+ */
+public class ReportExporter {
+    
+    private ReportExporter() {
+    }
+    
+    /**
+     * Write a report to a file, replacing it if it exists
+     * @param report Report to write
+     * @param file Target file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCsv(CirculationReport report, Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(report, out);
+        }
+    }
+    
+    /**
+     * Write a report as CSV
+     * @param report Report to write
+     * @param out Destination
+     * @throws IOException if writing fails
+     */
+    public static void writeCsv(CirculationReport report, Writer out) throws IOException {
+        out.write("Circulation report," + report.getFrom() + "," + report.getTo() + "\n");
+        out.write("Loans scanned," + report.getLoansScanned() + "\n");
+        out.write("Average loan days," + decimal(report.getAverageLoanDays()) + "\n");
+        
+        out.write("\nRank,Book ID,Title,Author,Category,Issues\n");
+        int rank = 1;
+        for (CirculationReport.TitleStat title : report.getTopTitles()) {
+            out.write(rank++ + "," + title.getBookId() + "," + quote(title.getTitle()) + "," +
+                      quote(title.getAuthor()) + "," + quote(title.getCategory()) + "," + title.getIssues() + "\n");
+        }
+        
+        out.write("\nCategory,Copies,Issues,Utilization,Average loan days\n");
+        for (CirculationReport.CategoryStat category : report.getCategories()) {
+            out.write(quote(category.getCategory()) + "," + category.getCopies() + "," + category.getIssues() + "," +
+                      decimal(category.getUtilization()) + "," + decimal(category.getAverageLoanDays()) + "\n");
+        }
+        
+        out.write("\nMember type,Members,Active members,Issues,Issues per active member,Returns,Late returns\n");
+        for (CirculationReport.MemberTypeStat type : report.getMemberTypes()) {
+            out.write(quote(type.getMemberType()) + "," + type.getMembers() + "," + type.getActiveMembers() + "," +
+                      type.getIssues() + "," + decimal(type.getIssuesPerActiveMember()) + "," +
+                      type.getReturns() + "," + type.getLateReturns() + "\n");
+        }
+    }
+    
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+    
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
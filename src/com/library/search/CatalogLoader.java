@@ -0,0 +1,375 @@
+package com.library.search;
+
+import com.library.database.BookDAO;
+import com.library.database.BookIssueDAO;
+import com.library.database.MemberDAO;
+import com.library.database.RowHandler;
+import com.library.events.BookChangedEvent;
+import com.library.events.ChangeType;
+import com.library.events.EventBus;
+import com.library.events.EventListener;
+import com.library.events.LibraryEvent;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.events.MemberChangedEvent;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Loads the in-memory indexes and keeps them current. Every table an index
+ * needs is streamed once, whatever the number of indexes, and each row is
+ * handed to all of them. After the load, changes published on the
+ * {@link EventBus} are applied in order; the changed book or member is
+ * re-read once per event and shared by the indexes. Loading and updates run
+ * on one background thread, so changes published while loading are applied
+ * after it. If a scan fails, the load is repeated after a pause, and the
+ * indexes are only told the catalog is loaded once every scan succeeded.
+ */
+public class CatalogLoader {
+    private static final CatalogLoader INSTANCE = new CatalogLoader();
+    private static final long LOAD_RETRY_MILLIS = 30000;
+    
+    /**
+     * Tables an index is loaded from
+     */
+    public enum Table {
+        BOOKS, MEMBERS, LOANS
+    }
+    
+    /**
+     * Receives the catalog and its changes, on the loader thread. Every
+     * method does nothing unless overridden. A load that fails part way is
+     * repeated, so rows may be handed over again before
+     * {@link #catalogLoaded}.
+     */
+    public interface Listener {
+        
+        /**
+         * Called for every book during the load
+         * @param book Book
+         * @param loans Times the book has been issued, if loans are loaded
+         */
+        default void bookLoaded(Book book, int loans) {
+        }
+        
+        /**
+         * Called for every member during the load
+         * @param member Member
+         * @param loans Books the member has borrowed, if loans are loaded
+         */
+        default void memberLoaded(Member member, int loans) {
+        }
+        
+        /**
+         * Called for every loan not yet returned during the load
+         * @param issueId Issue ID
+         * @param memberId Member holding the book
+         */
+        default void openLoanLoaded(int issueId, int memberId) {
+        }
+        
+        /**
+         * Called once the whole catalog has been loaded
+         */
+        default void catalogLoaded() {
+        }
+        
+        /**
+         * Called when a book was added, updated or deleted
+         * @param bookId Book ID
+         * @param book Book as it is now, or null if it was deleted
+         */
+        default void bookChanged(int bookId, Book book) {
+        }
+        
+        /**
+         * Called when a member was added, updated or deleted
+         * @param memberId Member ID
+         * @param member Member as it is now, or null if it was deleted
+         */
+        default void memberChanged(int memberId, Member member) {
+        }
+        
+        /**
+         * Called when a book was issued
+         * @param event Published event
+         * @param book Reads the book with its new availability, once for all
+         *        listeners; null if it no longer exists
+         */
+        default void loanIssued(LoanIssuedEvent event, Supplier<Book> book) {
+        }
+        
+        /**
+         * Called when a book was returned
+         * @param event Published event
+         * @param book Reads the book with its new availability, once for all
+         *        listeners; null if it no longer exists
+         */
+        default void loanReturned(LoanReturnedEvent event, Supplier<Book> book) {
+        }
+    }
+    
+    private final Map<Listener, Set<Table>> listeners = new LinkedHashMap<>();
+    private final Set<Table> tables = EnumSet.noneOf(Table.class);
+    private final BookDAO bookDAO = new BookDAO();
+    private final MemberDAO memberDAO = new MemberDAO();
+    private final BookIssueDAO bookIssueDAO = new BookIssueDAO();
+    
+    private ScheduledExecutorService updater;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private CatalogLoader() {
+    }
+    
+    /**
+     * Get the loader for this process
+     * @return The loader
+     */
+    public static CatalogLoader getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add an index to load. Book and member changes reach it only for the
+     * tables it is loaded from; loan events reach every index.
+     * @param listener Receives the catalog and its changes
+     * @param tables Tables the index is loaded from
+     * @throws IllegalStateException if the loader has already started
+     */
+    public synchronized void addListener(Listener listener, Table... tables) {
+        if (updater != null) {
+            throw new IllegalStateException("Indexes must be added before the catalog is loaded");
+        }
+        Set<Table> listenerTables = EnumSet.noneOf(Table.class);
+        for (Table table : tables) {
+            listenerTables.add(table);
+        }
+        listeners.put(listener, listenerTables);
+        this.tables.addAll(listenerTables);
+    }
+    
+    /**
+     * Load the catalog into the added indexes in the background and keep them
+     * current. Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (updater != null) {
+            return;
+        }
+        
+        updater = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-catalog-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        updater.execute(this::loadOrRetry);
+        EventBus.getInstance().subscribe(LibraryEvent.class, new EventListener<LibraryEvent>() {
+            @Override
+            public void onEvent(LibraryEvent event) {
+                updater.execute(() -> apply(event));
+            }
+        });
+    }
+    
+    /**
+     * Load the catalog and tell the indexes, or report the failure and try
+     * again later. Until then the indexes stay unloaded; events keep being
+     * applied in between.
+     */
+    private void loadOrRetry() {
+        boolean complete;
+        try {
+            complete = load();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            complete = false;
+        }
+        
+        if (complete) {
+            for (Listener listener : listenersOf(null)) {
+                listener.catalogLoaded();
+            }
+        } else {
+            System.err.println("Could not load the catalog indexes; retrying in " + LOAD_RETRY_MILLIS / 1000 +
+                               " s. Searches fall back to the database and borrowing limits are not enforced until then");
+            updater.schedule(this::loadOrRetry, LOAD_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Stream the tables the indexes need. Loans go first, so every book and
+     * member is handed over with its loan count.
+     * @return true if every scan read its whole table
+     */
+    private boolean load() {
+        final Map<Integer, Integer> bookLoans = new HashMap<>();
+        final Map<Integer, Integer> memberLoans = new HashMap<>();
+        final List<Listener> loanListeners = listenersOf(Table.LOANS);
+        if (tables.contains(Table.LOANS)) {
+            int loans = bookIssueDAO.scanIssueKeys(new RowHandler<BookIssue>() {
+                @Override
+                public void row(BookIssue issue) {
+                    bookLoans.merge(issue.getBookId(), 1, Integer::sum);
+                    memberLoans.merge(issue.getMemberId(), 1, Integer::sum);
+                    if (issue.getReturnDate() == null) {
+                        for (Listener listener : loanListeners) {
+                            listener.openLoanLoaded(issue.getIssueId(), issue.getMemberId());
+                        }
+                    }
+                }
+            });
+            if (loans < 0) {
+                return false;
+            }
+        }
+        
+        final List<Listener> bookListeners = listenersOf(Table.BOOKS);
+        if (!bookListeners.isEmpty()) {
+            int books = bookDAO.scanBooks(new RowHandler<Book>() {
+                @Override
+                public void row(Book book) {
+                    int loans = bookLoans.getOrDefault(book.getBookId(), 0);
+                    for (Listener listener : bookListeners) {
+                        listener.bookLoaded(book, loans);
+                    }
+                }
+            });
+            if (books < 0) {
+                return false;
+            }
+        }
+        
+        final List<Listener> memberListeners = listenersOf(Table.MEMBERS);
+        if (!memberListeners.isEmpty()) {
+            int members = memberDAO.scanMembers(new RowHandler<Member>() {
+                @Override
+                public void row(Member member) {
+                    int loans = memberLoans.getOrDefault(member.getMemberId(), 0);
+                    for (Listener listener : memberListeners) {
+                        listener.memberLoaded(member, loans);
+                    }
+                }
+            });
+            if (members < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Hand one event to the indexes. Runs on the loader thread.
+     * @param event Published event
+     */
+    private void apply(LibraryEvent event) {
+        if (event instanceof BookChangedEvent) {
+            BookChangedEvent bookEvent = (BookChangedEvent) event;
+            List<Listener> bookListeners = listenersOf(Table.BOOKS);
+            if (bookListeners.isEmpty()) {
+                return;
+            }
+            Book book = null;
+            if (bookEvent.getChangeType() != ChangeType.DELETED) {
+                book = bookDAO.getBookById(bookEvent.getBookId());
+                if (book == null) {
+                    // Not readable now; a delete publishes its own event
+                    return;
+                }
+            }
+            for (Listener listener : bookListeners) {
+                try {
+                    listener.bookChanged(bookEvent.getBookId(), book);
+                } catch (RuntimeException e) {
+                    // Keep the other indexes and later events going
+                    e.printStackTrace();
+                }
+            }
+        } else if (event instanceof MemberChangedEvent) {
+            MemberChangedEvent memberEvent = (MemberChangedEvent) event;
+            List<Listener> memberListeners = listenersOf(Table.MEMBERS);
+            if (memberListeners.isEmpty()) {
+                return;
+            }
+            Member member = null;
+            if (memberEvent.getChangeType() != ChangeType.DELETED) {
+                member = memberDAO.getMemberById(memberEvent.getMemberId());
+                if (member == null) {
+                    return;
+                }
+            }
+            for (Listener listener : memberListeners) {
+                try {
+                    listener.memberChanged(memberEvent.getMemberId(), member);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } else if (event instanceof LoanIssuedEvent || event instanceof LoanReturnedEvent) {
+            int bookId = event instanceof LoanIssuedEvent
+                ? ((LoanIssuedEvent) event).getBookId() : ((LoanReturnedEvent) event).getBookId();
+            BookReader book = new BookReader(bookId);
+            for (Listener listener : listenersOf(null)) {
+                try {
+                    if (event instanceof LoanIssuedEvent) {
+                        listener.loanIssued((LoanIssuedEvent) event, book);
+                    } else {
+                        listener.loanReturned((LoanReturnedEvent) event, book);
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the indexes loaded from a table
+     * @param table Table, or null for every index
+     * @return Listeners in the order they were added
+     */
+    private synchronized List<Listener> listenersOf(Table table) {
+        List<Listener> result = new ArrayList<>();
+        for (Map.Entry<Listener, Set<Table>> entry : listeners.entrySet()) {
+            if (table == null || entry.getValue().contains(table)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Reads a book the first time a listener asks for it
+     */
+    private class BookReader implements Supplier<Book> {
+        private final int bookId;
+        private boolean read;
+        private Book book;
+        
+        BookReader(int bookId) {
+            this.bookId = bookId;
+        }
+        
+        @Override
+        public Book get() {
+            if (!read) {
+                book = bookDAO.getBookById(bookId);
+                read = true;
+            }
+            return book;
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package com.library.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a Roaring bitmap. Values
+ * are split by their high 16 bits into chunks of 65536. A chunk holding few
+ * values keeps them as a sorted array; a chunk holding more than
+ * {@value #ARRAY_MAX} keeps a plain bitmap of 1024 longs. Sparse and dense
+ * sets therefore both stay small, and AND, OR and their cardinalities run a
+ * chunk at a time over arrays and machine words.
+ *
+ * Not thread-safe; callers that share a bitmap must lock around it.
+ */
+public class CompressedBitmap {
+    /** Most values an array chunk holds before it becomes a bitmap chunk */
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+    
+    private char[] keys = new char[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int size;
+    
+    /**
+     * Add a value
+     * @param value Non-negative value
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int i = find(key);
+        if (i >= 0) {
+            chunks[i] = chunks[i].add((char) value);
+            return;
+        }
+        
+        i = -i - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = new ArrayChunk().add((char) value);
+        size++;
+    }
+    
+    /**
+     * Remove a value if present
+     * @param value Value to remove
+     */
+    public void remove(int value) {
+        int i = find((char) (value >>> 16));
+        if (i < 0) {
+            return;
+        }
+        
+        Chunk chunk = chunks[i].remove((char) value);
+        if (chunk.cardinality() > 0) {
+            chunks[i] = chunk;
+            return;
+        }
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+        size--;
+        chunks[size] = null;
+    }
+    
+    /**
+     * Check whether a value is in the set
+     * @param value Value to look for
+     * @return true if present
+     */
+    public boolean contains(int value) {
+        int i = find((char) (value >>> 16));
+        return i >= 0 && chunks[i].contains((char) value);
+    }
+    
+    /**
+     * Count the values in the set
+     * @return Number of values
+     */
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += chunks[i].cardinality();
+        }
+        return count;
+    }
+    
+    /**
+     * Check whether the set is empty
+     * @return true if it holds no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Intersect with another set
+     * @param other Other set
+     * @return New set of the values in both
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = chunks[i].and(other.chunks[j]);
+                if (chunk.cardinality() > 0) {
+                    result.append(keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Count the values in both this and another set, without building the
+     * intersection
+     * @param other Other set
+     * @return Size of the intersection
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += chunks[i].andCardinality(other.chunks[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Unite with another set
+     * @param other Other set
+     * @return New set of the values in either
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = copy();
+        result.orWith(other);
+        return result;
+    }
+    
+    /**
+     * Add every value of another set to this one. Dense chunks are updated in
+     * place, so folding many sets into one does not copy the result each time.
+     * @param other Other set, left unchanged
+     */
+    public void orWith(CompressedBitmap other) {
+        char[] newKeys = new char[Math.max(4, size + other.size)];
+        Chunk[] newChunks = new Chunk[newKeys.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                newKeys[n] = keys[i];
+                newChunks[n++] = chunks[i++];
+            } else if (i == size || keys[i] > other.keys[j]) {
+                newKeys[n] = other.keys[j];
+                newChunks[n++] = other.chunks[j++].copy();
+            } else {
+                newKeys[n] = keys[i];
+                newChunks[n++] = chunks[i++].orWith(other.chunks[j++]);
+            }
+        }
+        keys = newKeys;
+        chunks = newChunks;
+        size = n;
+    }
+    
+    /**
+     * Copy the set
+     * @return Independent copy
+     */
+    public CompressedBitmap copy() {
+        CompressedBitmap result = new CompressedBitmap();
+        for (int i = 0; i < size; i++) {
+            result.append(keys[i], chunks[i].copy());
+        }
+        return result;
+    }
+    
+    /**
+     * Visit the values in ascending order
+     * @param action Receives each value
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+    
+    /**
+     * Get the smallest values in ascending order
+     * @param limit Most values to return
+     * @return Values
+     */
+    public int[] toArray(int limit) {
+        int[] values = new int[Math.min(limit, cardinality())];
+        int n = 0;
+        for (int i = 0; i < size && n < values.length; i++) {
+            n = chunks[i].copyTo(keys[i] << 16, values, n);
+        }
+        return values;
+    }
+    
+    /**
+     * Find the chunk for a key
+     * @param key High 16 bits of a value
+     * @return Index of the chunk, or -(insertion point) - 1 if there is none
+     */
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+    
+    /**
+     * Append a chunk whose key is above every existing key
+     * @param key High 16 bits of its values
+     * @param chunk Non-empty chunk
+     */
+    private void append(char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        keys[size] = key;
+        chunks[size] = chunk;
+        size++;
+    }
+    
+    /**
+     * The low 16 bits of the values sharing one key. Mutators return the chunk
+     * to keep, which is a different kind when the chunk crosses {@value #ARRAY_MAX}.
+     */
+    private abstract static class Chunk {
+        abstract Chunk add(char value);
+        
+        abstract Chunk remove(char value);
+        
+        abstract boolean contains(char value);
+        
+        abstract int cardinality();
+        
+        abstract Chunk and(Chunk other);
+        
+        abstract int andCardinality(Chunk other);
+        
+        /**
+         * Unite with another chunk, reusing this one where possible
+         * @param other Other chunk, left unchanged
+         * @return Chunk holding the values of both
+         */
+        abstract Chunk orWith(Chunk other);
+        
+        abstract Chunk copy();
+        
+        abstract void forEach(int high, IntConsumer action);
+        
+        /**
+         * Copy values into an array until it is full
+         * @param high Key shifted into the high 16 bits
+         * @param out Destination
+         * @param n Next free index in the destination
+         * @return Next free index after copying
+         */
+        abstract int copyTo(int high, int[] out, int n);
+    }
+    
+    /**
+     * Sorted array of at most {@value #ARRAY_MAX} values
+     */
+    private static class ArrayChunk extends Chunk {
+        private char[] values;
+        private int count;
+        
+        ArrayChunk() {
+            this(new char[4], 0);
+        }
+        
+        ArrayChunk(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+        
+        @Override
+        Chunk add(char value) {
+            int i = Arrays.binarySearch(values, 0, count, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (count == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            
+            i = -i - 1;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(count * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, i, values, i + 1, count - i);
+            values[i] = value;
+            count++;
+            return this;
+        }
+        
+        @Override
+        Chunk remove(char value) {
+            int i = Arrays.binarySearch(values, 0, count, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, count - i - 1);
+                count--;
+            }
+            return this;
+        }
+        
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, count, value) >= 0;
+        }
+        
+        @Override
+        int cardinality() {
+            return count;
+        }
+        
+        @Override
+        Chunk and(Chunk other) {
+            char[] out = new char[count];
+            int n = 0;
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                int i = 0;
+                int j = 0;
+                while (i < count && j < array.count) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        out[n++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (other.contains(values[i])) {
+                        out[n++] = values[i];
+                    }
+                }
+            }
+            return new ArrayChunk(out, n);
+        }
+        
+        @Override
+        int andCardinality(Chunk other) {
+            if (!(other instanceof ArrayChunk)) {
+                return other.andCardinality(this);
+            }
+            
+            ArrayChunk array = (ArrayChunk) other;
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < count && j < array.count) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    n++;
+                    i++;
+                    j++;
+                }
+            }
+            return n;
+        }
+        
+        @Override
+        Chunk orWith(Chunk other) {
+            if (!(other instanceof ArrayChunk) || count + other.cardinality() > ARRAY_MAX) {
+                return toBitmap().orWith(other);
+            }
+            
+            ArrayChunk array = (ArrayChunk) other;
+            char[] out = new char[count + array.count];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < count || j < array.count) {
+                if (j == array.count || (i < count && values[i] < array.values[j])) {
+                    out[n++] = values[i++];
+                } else if (i == count || values[i] > array.values[j]) {
+                    out[n++] = array.values[j++];
+                } else {
+                    out[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayChunk(out, n);
+        }
+        
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(Arrays.copyOf(values, Math.max(count, 1)), count);
+        }
+        
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < count; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+        
+        @Override
+        int copyTo(int high, int[] out, int n) {
+            for (int i = 0; i < count && n < out.length; i++) {
+                out[n++] = high | values[i];
+            }
+            return n;
+        }
+        
+        /**
+         * Convert to a bitmap chunk
+         * @return Bitmap chunk with the same values
+         */
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk(new long[WORDS], count);
+            for (int i = 0; i < count; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bitmap;
+        }
+    }
+    
+    /**
+     * Bitmap of all 65536 possible values, used above {@value #ARRAY_MAX} values
+     */
+    private static class BitmapChunk extends Chunk {
+        private final long[] words;
+        private int count;
+        
+        BitmapChunk(long[] words, int count) {
+            this.words = words;
+            this.count = count;
+        }
+        
+        @Override
+        Chunk add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                count++;
+            }
+            return this;
+        }
+        
+        @Override
+        Chunk remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                count--;
+            }
+            return count > ARRAY_MAX ? this : toArray();
+        }
+        
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+        
+        @Override
+        int cardinality() {
+            return count;
+        }
+        
+        @Override
+        Chunk and(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.and(this);
+            }
+            
+            long[] otherWords = ((BitmapChunk) other).words;
+            long[] out = new long[WORDS];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                out[i] = words[i] & otherWords[i];
+                n += Long.bitCount(out[i]);
+            }
+            BitmapChunk bitmap = new BitmapChunk(out, n);
+            return n > ARRAY_MAX ? bitmap : bitmap.toArray();
+        }
+        
+        @Override
+        int andCardinality(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                int n = 0;
+                for (int i = 0; i < array.count; i++) {
+                    if (contains(array.values[i])) {
+                        n++;
+                    }
+                }
+                return n;
+            }
+            
+            long[] otherWords = ((BitmapChunk) other).words;
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                n += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return n;
+        }
+        
+        @Override
+        Chunk orWith(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                for (int i = 0; i < array.count; i++) {
+                    add(array.values[i]);
+                }
+                return this;
+            }
+            
+            long[] otherWords = ((BitmapChunk) other).words;
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                words[i] |= otherWords[i];
+                n += Long.bitCount(words[i]);
+            }
+            count = n;
+            return this;
+        }
+        
+        @Override
+        Chunk copy() {
+            return new BitmapChunk(words.clone(), count);
+        }
+        
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+        
+        @Override
+        int copyTo(int high, int[] out, int n) {
+            for (int i = 0; i < WORDS && n < out.length; i++) {
+                long word = words[i];
+                while (word != 0 && n < out.length) {
+                    out[n++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return n;
+        }
+        
+        /**
+         * Convert to an array chunk
+         * @return Array chunk with the same values
+         */
+        ArrayChunk toArray() {
+            char[] values = new char[Math.max(count, 1)];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values, n);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.library.search;
+
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Book;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facets for browsing the catalog: category, publisher, availability and
+ * added date. Each facet value keeps a {@link CompressedBitmap} of the IDs of
+ * its books, so narrowing the catalog is an AND of the selected facets (an OR
+ * within one facet), and the count next to every value is the cardinality of
+ * its bitmap ANDed with the other selected facets. No query reaches the
+ * database until the matching books are shown.
+ *
+ * The {@link CatalogLoader} loads the books and passes on every change that
+ * can move a book between facet values, loans included.
+ */
+public class FacetIndex {
+    private static final FacetIndex INSTANCE = new FacetIndex();
+    private static final OperationMetrics QUERY = MetricsRegistry.getInstance().operation("FacetIndex.query");
+    
+    private final Map<String, CompressedBitmap> byCategory = new HashMap<>();
+    private final Map<String, CompressedBitmap> byPublisher = new HashMap<>();
+    private final TreeMap<Integer, CompressedBitmap> byAddedDay = new TreeMap<>();
+    private final CompressedBitmap allBooks = new CompressedBitmap();
+    private final CompressedBitmap availableBooks = new CompressedBitmap();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+    
+    private boolean registered;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private FacetIndex() {
+    }
+    
+    /**
+     * Get the index for this process
+     * @return The index
+     */
+    public static FacetIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add the index to the {@link CatalogLoader}, which loads it once started.
+     * Calling it again has no effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        
+        CatalogLoader.getInstance().addListener(new CatalogLoader.Listener() {
+            @Override
+            public void bookLoaded(Book book, int loans) {
+                put(book.getBookId(), entryOf(book));
+            }
+            
+            @Override
+            public void catalogLoaded() {
+                loaded = true;
+                version.incrementAndGet();
+            }
+            
+            @Override
+            public void bookChanged(int bookId, Book book) {
+                put(bookId, entryOf(book));
+            }
+            
+            @Override
+            public void loanIssued(LoanIssuedEvent event, Supplier<Book> book) {
+                put(event.getBookId(), entryOf(book.get()));
+            }
+            
+            @Override
+            public void loanReturned(LoanReturnedEvent event, Supplier<Book> book) {
+                put(event.getBookId(), entryOf(book.get()));
+            }
+        }, CatalogLoader.Table.BOOKS);
+    }
+    
+    /**
+     * Check whether the initial load has finished
+     * @return true once every book is indexed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Get a number that changes whenever the facets may have changed. Views
+     * compare it with the last value they showed to skip needless updates.
+     * @return Change version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * Find the books matching a selection and count every facet value.
+     * Values are counted against the other facets' selections, so choosing a
+     * category narrows the publisher counts but not the other categories.
+     * @param selection Selected facet values
+     * @return Matching books and facet counts
+     */
+    public Result query(Selection selection) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            CompressedBitmap category = union(byCategory, selection.getCategories());
+            CompressedBitmap publisher = union(byPublisher, selection.getPublishers());
+            CompressedBitmap available = selection.isAvailableOnly() ? availableBooks : null;
+            CompressedBitmap added = addedBetween(selection.getAddedFrom(), selection.getAddedTo());
+            
+            CompressedBitmap matches = intersect(category, publisher, available, added);
+            if (matches == allBooks) {
+                matches = allBooks.copy();
+            }
+            Map<String, Integer> categoryCounts = count(byCategory, selection.getCategories(),
+                                                        intersect(publisher, available, added));
+            Map<String, Integer> publisherCounts = count(byPublisher, selection.getPublishers(),
+                                                         intersect(category, available, added));
+            int availableCount = intersect(category, publisher, added).andCardinality(availableBooks);
+            
+            Result result = new Result(matches, categoryCounts, publisherCounts, availableCount);
+            QUERY.record(start, result.getTotal());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the facet values of a book
+     * @param book Book, or null if it was deleted
+     * @return Entry, or null to drop the book
+     */
+    private static Entry entryOf(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new Entry(book.getCategory(), book.getPublisher(), book.getAvailable() > 0,
+                         (int) book.getAddedDate().toLocalDate().toEpochDay());
+    }
+    
+    /**
+     * Index a book, replacing its earlier facets
+     * @param bookId Book ID
+     * @param entry Facets of the book, or null to remove it
+     */
+    private void put(int bookId, Entry entry) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entry != null ? entries.put(bookId, entry) : entries.remove(bookId);
+            if (old != null) {
+                removeValue(byCategory, old.category, bookId);
+                removeValue(byPublisher, old.publisher, bookId);
+                removeValue(byAddedDay, old.addedDay, bookId);
+                availableBooks.remove(bookId);
+                allBooks.remove(bookId);
+            }
+            if (entry != null) {
+                byCategory.computeIfAbsent(entry.category, k -> new CompressedBitmap()).add(bookId);
+                byPublisher.computeIfAbsent(entry.publisher, k -> new CompressedBitmap()).add(bookId);
+                byAddedDay.computeIfAbsent(entry.addedDay, k -> new CompressedBitmap()).add(bookId);
+                if (entry.available) {
+                    availableBooks.add(bookId);
+                }
+                allBooks.add(bookId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        version.incrementAndGet();
+    }
+    
+    /**
+     * Remove a book from the bitmap of one facet value, dropping the value
+     * once no book has it
+     * @param facet Bitmaps by value
+     * @param value Value the book had
+     * @param bookId Book ID
+     */
+    private static <K> void removeValue(Map<K, CompressedBitmap> facet, K value, int bookId) {
+        CompressedBitmap books = facet.get(value);
+        if (books != null) {
+            books.remove(bookId);
+            if (books.isEmpty()) {
+                facet.remove(value);
+            }
+        }
+    }
+    
+    /**
+     * Unite the bitmaps of the selected values of one facet
+     * @param facet Bitmaps by value
+     * @param selected Selected values; empty means the facet is not filtered
+     * @return Books with any selected value, or null if the facet is not filtered
+     */
+    private static CompressedBitmap union(Map<String, CompressedBitmap> facet, Set<String> selected) {
+        if (selected.isEmpty()) {
+            return null;
+        }
+        CompressedBitmap books = new CompressedBitmap();
+        for (String value : selected) {
+            CompressedBitmap valueBooks = facet.get(value);
+            if (valueBooks != null) {
+                books.orWith(valueBooks);
+            }
+        }
+        return books;
+    }
+    
+    /**
+     * Unite the bitmaps of the days in a date range
+     * @param from First day, inclusive, or null for no lower bound
+     * @param to Last day, inclusive, or null for no upper bound
+     * @return Books added in the range, or null if neither bound is set
+     */
+    private CompressedBitmap addedBetween(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+        int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+        CompressedBitmap books = new CompressedBitmap();
+        if (fromDay <= toDay) {
+            for (CompressedBitmap dayBooks : byAddedDay.subMap(fromDay, true, toDay, true).values()) {
+                books.orWith(dayBooks);
+            }
+        }
+        return books;
+    }
+    
+    /**
+     * Intersect the filters that are set
+     * @param filters Bitmaps, null for a facet that is not filtered
+     * @return Books passing every filter; the index's own bitmap of all books
+     *         when no filter is set
+     */
+    private CompressedBitmap intersect(CompressedBitmap... filters) {
+        CompressedBitmap books = allBooks;
+        for (CompressedBitmap filter : filters) {
+            if (filter != null) {
+                books = books.and(filter);
+            }
+        }
+        return books;
+    }
+    
+    /**
+     * Count the books of each value of one facet within a set of books
+     * @param facet Bitmaps by value
+     * @param selected Selected values, always listed even when their count is 0
+     * @param within Books passing the other facets' filters
+     * @return Counts by value, sorted by value
+     */
+    private static Map<String, Integer> count(Map<String, CompressedBitmap> facet, Set<String> selected,
+                                              CompressedBitmap within) {
+        Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder()));
+        for (Map.Entry<String, CompressedBitmap> value : facet.entrySet()) {
+            int count = within.andCardinality(value.getValue());
+            if (count > 0) {
+                counts.put(value.getKey(), count);
+            }
+        }
+        for (String value : selected) {
+            counts.putIfAbsent(value, 0);
+        }
+        return counts;
+    }
+    
+    /**
+     * Facet values of one indexed book
+     */
+    private static class Entry {
+        final String category;
+        final String publisher;
+        final boolean available;
+        final int addedDay;
+        
+        Entry(String category, String publisher, boolean available, int addedDay) {
+            this.category = category;
+            this.publisher = publisher;
+            this.available = available;
+            this.addedDay = addedDay;
+        }
+    }
+    
+    /**
+     * Facet values chosen by the user. Values within a facet are alternatives;
+     * the facets must all hold.
+     */
+    public static class Selection {
+        private final Set<String> categories;
+        private final Set<String> publishers;
+        private final boolean availableOnly;
+        private final LocalDate addedFrom;
+        private final LocalDate addedTo;
+        
+        /**
+         * Constructor
+         * @param categories Categories to include; empty for any
+         * @param publishers Publishers to include; empty for any
+         * @param availableOnly Whether to include only books with a copy available
+         * @param addedFrom First added date, or null for no lower bound
+         * @param addedTo Last added date, or null for no upper bound
+         */
+        public Selection(Set<String> categories, Set<String> publishers, boolean availableOnly,
+                         LocalDate addedFrom, LocalDate addedTo) {
+            this.categories = Collections.unmodifiableSet(categories);
+            this.publishers = Collections.unmodifiableSet(publishers);
+            this.availableOnly = availableOnly;
+            this.addedFrom = addedFrom;
+            this.addedTo = addedTo;
+        }
+        
+        public Set<String> getCategories() {
+            return categories;
+        }
+        
+        public Set<String> getPublishers() {
+            return publishers;
+        }
+        
+        public boolean isAvailableOnly() {
+            return availableOnly;
+        }
+        
+        public LocalDate getAddedFrom() {
+            return addedFrom;
+        }
+        
+        public LocalDate getAddedTo() {
+            return addedTo;
+        }
+        
+        /**
+         * Check whether the selection filters anything
+         * @return true if no facet is filtered
+         */
+        public boolean isEmpty() {
+            return categories.isEmpty() && publishers.isEmpty() && !availableOnly
+                && addedFrom == null && addedTo == null;
+        }
+    }
+    
+    /**
+     * Books matching a selection, with the count of every facet value
+     */
+    public static class Result {
+        private final CompressedBitmap matches;
+        private final Map<String, Integer> categoryCounts;
+        private final Map<String, Integer> publisherCounts;
+        private final int availableCount;
+        private final int total;
+        
+        Result(CompressedBitmap matches, Map<String, Integer> categoryCounts,
+               Map<String, Integer> publisherCounts, int availableCount) {
+            this.matches = matches;
+            this.categoryCounts = categoryCounts;
+            this.publisherCounts = publisherCounts;
+            this.availableCount = availableCount;
+            this.total = matches.cardinality();
+        }
+        
+        /**
+         * Check whether a book matches the selection
+         * @param bookId Book ID
+         * @return true if it matches
+         */
+        public boolean matches(int bookId) {
+            return matches.contains(bookId);
+        }
+        
+        /**
+         * Get the IDs of the first matching books
+         * @param limit Most IDs to return
+         * @return Book IDs in ascending order
+         */
+        public int[] getBookIds(int limit) {
+            return matches.toArray(limit);
+        }
+        
+        public Map<String, Integer> getCategoryCounts() {
+            return categoryCounts;
+        }
+        
+        public Map<String, Integer> getPublisherCounts() {
+            return publisherCounts;
+        }
+        
+        public int getAvailableCount() {
+            return availableCount;
+        }
+        
+        public int getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.library.search;
+
+import com.library.database.SearchKeys;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Book;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant search over the words of book titles, authors and publishers.
+ * Every distinct word is indexed by its trigrams; a query word is matched
+ * against the words sharing enough trigrams with it, and those candidates are
+ * verified with a Levenshtein distance that gives up as soon as it exceeds the
+ * allowed number of edits. A book matches when every query word matches one
+ * of its words, and books are ranked by the total number of edits.
+ *
+ * The books are fed in by the {@link CatalogLoader}.
+ */
+public class FuzzyBookIndex {
+    private static final FuzzyBookIndex INSTANCE = new FuzzyBookIndex();
+    private static final OperationMetrics SEARCH = MetricsRegistry.getInstance().operation("FuzzyBookIndex.search");
+    private static final int[] NO_TERMS = new int[0];
+    
+    /** Books collected for the rarest query word before the rest are checked */
+    private static final int MAX_CANDIDATES = 20000;
+    
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<IntList> postings = new ArrayList<>();
+    private final Map<String, IntList> grams = new HashMap<>();
+    private int[][] bookTerms = new int[1024][];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private boolean registered;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private FuzzyBookIndex() {
+    }
+    
+    /**
+     * Get the index for this process
+     * @return The index
+     */
+    public static FuzzyBookIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add the index to the {@link CatalogLoader}, which loads it once started.
+     * Calling it again has no effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        
+        CatalogLoader.getInstance().addListener(new CatalogLoader.Listener() {
+            @Override
+            public void bookLoaded(Book book, int loans) {
+                putBook(book.getBookId(), book.getTitle(), book.getAuthor(), book.getPublisher());
+            }
+            
+            @Override
+            public void catalogLoaded() {
+                loaded = true;
+            }
+            
+            @Override
+            public void bookChanged(int bookId, Book book) {
+                if (book == null) {
+                    putBook(bookId, null, null, null);
+                } else {
+                    putBook(bookId, book.getTitle(), book.getAuthor(), book.getPublisher());
+                }
+            }
+        }, CatalogLoader.Table.BOOKS);
+    }
+    
+    /**
+     * Check whether the initial load has finished
+     * @return true once the whole catalog is searchable
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Find the books whose words match every word of a query, allowing a few
+     * typos per word
+     * @param query Words to look for
+     * @param limit Most books to return
+     * @return Book IDs, closest matches first
+     */
+    public List<Integer> search(String query, int limit) {
+        long start = System.nanoTime();
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        List<Integer> result = new ArrayList<>();
+        if (words.isEmpty()) {
+            SEARCH.record(start, 0);
+            return result;
+        }
+        
+        lock.readLock().lock();
+        try {
+            // Edits needed to reach each matching indexed word, per query word
+            List<Map<Integer, Integer>> matches = new ArrayList<>();
+            int rarest = 0;
+            long rarestBooks = Long.MAX_VALUE;
+            for (int i = 0; i < words.size(); i++) {
+                Map<Integer, Integer> wordMatches = matchTerms(words.get(i));
+                if (wordMatches.isEmpty()) {
+                    SEARCH.record(start, 0);
+                    return result;
+                }
+                long books = 0;
+                for (int termId : wordMatches.keySet()) {
+                    books += postings.get(termId).size;
+                }
+                if (books < rarestBooks) {
+                    rarest = i;
+                    rarestBooks = books;
+                }
+                matches.add(wordMatches);
+            }
+            
+            // Collect books from the rarest word, closest words first
+            Map<Integer, Integer> candidates = new HashMap<>();
+            List<Map.Entry<Integer, Integer>> closest = new ArrayList<>(matches.get(rarest).entrySet());
+            closest.sort(Map.Entry.comparingByValue());
+            collect:
+            for (Map.Entry<Integer, Integer> match : closest) {
+                IntList books = postings.get(match.getKey());
+                for (int i = 0; i < books.size; i++) {
+                    candidates.merge(books.values[i], match.getValue(), Math::min);
+                    if (candidates.size() >= MAX_CANDIDATES) {
+                        break collect;
+                    }
+                }
+            }
+            
+            // Keep the books that also match every other word, adding up the edits
+            List<long[]> ranked = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> candidate : candidates.entrySet()) {
+                int bookId = candidate.getKey();
+                long edits = candidate.getValue();
+                for (int i = 0; i < matches.size() && edits >= 0; i++) {
+                    if (i != rarest) {
+                        int best = closestTerm(bookId, matches.get(i));
+                        edits = best < 0 ? -1 : edits + best;
+                    }
+                }
+                if (edits >= 0) {
+                    ranked.add(new long[] {edits, bookId});
+                }
+            }
+            ranked.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                result.add((int) ranked.get(i)[1]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        SEARCH.record(start, result.size());
+        return result;
+    }
+    
+    /**
+     * Split text into case- and accent-folded words
+     * @param text Text to split
+     * @return Words, in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        String key = SearchKeys.fold(text);
+        int from = -1;
+        for (int i = 0; i <= key.length(); i++) {
+            boolean wordChar = i < key.length() && Character.isLetterOrDigit(key.charAt(i));
+            if (wordChar && from < 0) {
+                from = i;
+            } else if (!wordChar && from >= 0) {
+                words.add(key.substring(from, i));
+                from = -1;
+            }
+        }
+        return words;
+    }
+    
+    /**
+     * Get the number of edits allowed for a word: none for short words, where
+     * one edit would match too much, then one, then two
+     * @param length Word length
+     * @return Allowed edits
+     */
+    static int allowedEdits(int length) {
+        return length <= 3 ? 0 : length <= 7 ? 1 : 2;
+    }
+    
+    /**
+     * Compute the Levenshtein distance between two words, giving up once it
+     * is certain to exceed a bound
+     * @param a First word
+     * @param b Second word
+     * @param max Largest distance of interest
+     * @return Distance, or max + 1 if it is larger than max
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+    
+    /**
+     * Find the indexed words within the allowed edits of a query word
+     * @param word Normalized query word
+     * @return Term ID to number of edits
+     */
+    private Map<Integer, Integer> matchTerms(String word) {
+        Map<Integer, Integer> matches = new HashMap<>();
+        int maxEdits = allowedEdits(word.length());
+        if (maxEdits == 0) {
+            Integer termId = termIds.get(word);
+            if (termId != null) {
+                matches.put(termId, 0);
+            }
+            return matches;
+        }
+        
+        // Each edit changes at most three trigrams, so a match shares at least this many
+        Set<String> wordGrams = trigrams(word);
+        int needed = Math.max(1, wordGrams.size() - 3 * maxEdits);
+        int[] shared = new int[terms.size()];
+        for (String gram : wordGrams) {
+            IntList gramTerms = grams.get(gram);
+            if (gramTerms == null) {
+                continue;
+            }
+            for (int i = 0; i < gramTerms.size; i++) {
+                int termId = gramTerms.values[i];
+                if (++shared[termId] == needed) {
+                    int edits = distance(word, terms.get(termId), maxEdits);
+                    if (edits <= maxEdits) {
+                        matches.put(termId, edits);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Find the fewest edits between any word of a book and a query word
+     * @param bookId Book ID
+     * @param wordMatches Matches of the query word
+     * @return Fewest edits, or -1 if no word of the book matches
+     */
+    private int closestTerm(int bookId, Map<Integer, Integer> wordMatches) {
+        int best = -1;
+        for (int termId : termsOf(bookId)) {
+            Integer edits = wordMatches.get(termId);
+            if (edits != null && (best < 0 || edits < best)) {
+                best = edits;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Get the trigrams of a word padded with a boundary marker
+     * @param word Word
+     * @return Distinct trigrams
+     */
+    private static Set<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+    
+    /**
+     * Index the words of a book, replacing its earlier words
+     * @param bookId Book ID
+     * @param title Title, or null to remove the book
+     * @param author Author
+     * @param publisher Publisher
+     */
+    private void putBook(int bookId, String title, String author, String publisher) {
+        int[] newTerms = NO_TERMS;
+        lock.writeLock().lock();
+        try {
+            if (title != null) {
+                Set<Integer> ids = new LinkedHashSet<>();
+                for (String text : new String[] {title, author, publisher}) {
+                    for (String word : tokenize(text)) {
+                        ids.add(termId(word));
+                    }
+                }
+                newTerms = new int[ids.size()];
+                int i = 0;
+                for (int id : ids) {
+                    newTerms[i++] = id;
+                }
+                Arrays.sort(newTerms);
+            }
+            
+            int[] oldTerms = termsOf(bookId);
+            if (Arrays.equals(oldTerms, newTerms)) {
+                return;
+            }
+            for (int termId : oldTerms) {
+                postings.get(termId).remove(bookId);
+            }
+            for (int termId : newTerms) {
+                postings.get(termId).add(bookId);
+            }
+            if (bookId >= bookTerms.length) {
+                bookTerms = Arrays.copyOf(bookTerms, Math.max(bookId + 1, bookTerms.length * 2));
+            }
+            bookTerms[bookId] = newTerms.length > 0 ? newTerms : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the term IDs of a book
+     * @param bookId Book ID
+     * @return Sorted term IDs, empty if the book is not indexed
+     */
+    private int[] termsOf(int bookId) {
+        int[] ids = bookId >= 0 && bookId < bookTerms.length ? bookTerms[bookId] : null;
+        return ids != null ? ids : NO_TERMS;
+    }
+    
+    /**
+     * Get the ID of a word, adding it to the vocabulary if it is new
+     * @param word Normalized word
+     * @return Term ID
+     */
+    private int termId(String word) {
+        Integer id = termIds.get(word);
+        if (id == null) {
+            id = terms.size();
+            termIds.put(word, id);
+            terms.add(word);
+            postings.add(new IntList());
+            for (String gram : trigrams(word)) {
+                grams.computeIfAbsent(gram, k -> new IntList()).add(id);
+            }
+        }
+        return id;
+    }
+    
+    /**
+     * Growable sorted set of ints backed by an array
+     */
+    private static class IntList {
+        private int[] values = new int[2];
+        private int size;
+        
+        void add(int value) {
+            int index = size > 0 && values[size - 1] < value ? -(size + 1) : Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+        
+        void remove(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+}
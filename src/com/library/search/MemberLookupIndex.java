@@ -0,0 +1,275 @@
+package com.library.search;
+
+import com.library.database.SearchKeys;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Member;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Desk lookup of members by exact email, by the last digits of their phone
+ * number, or by the words of their name. Emails are keyed by their folded
+ * form in a hash map. Phone numbers are reduced to their digits and kept
+ * reversed in a sorted map, so a suffix such as "4567" is a prefix range of
+ * the reversed keys. Name words are keyed in a hash map. Each key holds a
+ * {@link CompressedBitmap} of member IDs, so the members of several name
+ * words are intersected a chunk at a time and come out in ID order.
+ *
+ * Members are loaded and updated through the {@link CatalogLoader}.
+ */
+public class MemberLookupIndex {
+    private static final MemberLookupIndex INSTANCE = new MemberLookupIndex();
+    private static final OperationMetrics FIND = MetricsRegistry.getInstance().operation("MemberLookupIndex.find");
+    
+    /** Fewest digits treated as a phone number suffix rather than a name */
+    private static final int MIN_PHONE_DIGITS = 4;
+    
+    private final Map<String, CompressedBitmap> byEmail = new HashMap<>();
+    private final TreeMap<String, CompressedBitmap> byReversedPhone = new TreeMap<>();
+    private final Map<String, CompressedBitmap> byNameWord = new HashMap<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private boolean registered;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private MemberLookupIndex() {
+    }
+    
+    /**
+     * Get the index for this process
+     * @return The index
+     */
+    public static MemberLookupIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add the index to the {@link CatalogLoader}, which loads it once started.
+     * Calling it again has no effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        
+        CatalogLoader.getInstance().addListener(new CatalogLoader.Listener() {
+            @Override
+            public void memberLoaded(Member member, int loans) {
+                memberChanged(member.getMemberId(), member);
+            }
+            
+            @Override
+            public void catalogLoaded() {
+                loaded = true;
+            }
+            
+            @Override
+            public void memberChanged(int memberId, Member member) {
+                put(memberId, member != null
+                    ? new Entry(member.getName(), member.getEmail(), member.getPhone()) : null);
+            }
+        }, CatalogLoader.Table.MEMBERS);
+    }
+    
+    /**
+     * Check whether the initial load has finished
+     * @return true once every member is indexed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Find members as looked up at the desk. A query containing "@" is an
+     * exact email; a query of at least {@value #MIN_PHONE_DIGITS} digits,
+     * with any spaces, dashes or brackets, is the end of a phone number;
+     * anything else must match whole words of the name, in any order.
+     * @param query Email, phone digits or name words
+     * @param limit Most members to return
+     * @return Member IDs in ascending order
+     */
+    public List<Integer> find(String query, int limit) {
+        long start = System.nanoTime();
+        String digits = digitsOf(query);
+        int[] found;
+        
+        lock.readLock().lock();
+        try {
+            CompressedBitmap members;
+            if (query.indexOf('@') >= 0) {
+                members = byEmail.get(SearchKeys.fold(query));
+            } else if (digits.length() >= MIN_PHONE_DIGITS && !hasLetter(query)) {
+                String reversed = new StringBuilder(digits).reverse().toString();
+                members = new CompressedBitmap();
+                // ':' sorts just after '9', so the range holds every key starting with the digits
+                for (CompressedBitmap phoneMembers : byReversedPhone.subMap(reversed, true, reversed + ':', false).values()) {
+                    members.orWith(phoneMembers);
+                }
+            } else {
+                members = findByName(FuzzyBookIndex.tokenize(query));
+            }
+            found = members != null ? members.toArray(limit) : new int[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Integer> ids = new ArrayList<>(found.length);
+        for (int id : found) {
+            ids.add(id);
+        }
+        FIND.record(start, ids.size());
+        return ids;
+    }
+    
+    /**
+     * Reduce a phone number to its digits
+     * @param phone Phone number in any format
+     * @return Digits only, in order
+     */
+    public static String digitsOf(String phone) {
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+    
+    /**
+     * Index a member, replacing the earlier entry
+     * @param memberId Member ID
+     * @param entry Keys of the member, or null to remove it
+     */
+    private void put(int memberId, Entry entry) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entry != null ? entries.put(memberId, entry) : entries.remove(memberId);
+            if (old != null) {
+                removeKey(byEmail, old.email, memberId);
+                removeKey(byReversedPhone, old.reversedPhone, memberId);
+                for (String word : old.nameWords) {
+                    removeKey(byNameWord, word, memberId);
+                }
+            }
+            if (entry != null) {
+                addKey(byEmail, entry.email, memberId);
+                addKey(byReversedPhone, entry.reversedPhone, memberId);
+                for (String word : entry.nameWords) {
+                    addKey(byNameWord, word, memberId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Find the members whose name has every one of some words, intersecting
+     * the smallest sets first
+     * @param words Folded query words
+     * @return Matching members, or null if there are none
+     */
+    private CompressedBitmap findByName(List<String> words) {
+        List<CompressedBitmap> sets = new ArrayList<>();
+        for (String word : new LinkedHashSet<>(words)) {
+            CompressedBitmap members = byNameWord.get(word);
+            if (members == null) {
+                return null;
+            }
+            sets.add(members);
+        }
+        if (sets.isEmpty()) {
+            return null;
+        }
+        
+        sets.sort((x, y) -> Integer.compare(x.cardinality(), y.cardinality()));
+        CompressedBitmap members = sets.get(0);
+        for (int i = 1; i < sets.size() && !members.isEmpty(); i++) {
+            members = members.and(sets.get(i));
+        }
+        return members;
+    }
+    
+    /**
+     * Check whether a query is an email or a phone number ending rather than
+     * words of a name
+     * @param query Desk query
+     * @return true if {@link #find} looks the query up as an email or phone
+     */
+    public static boolean isContactQuery(String query) {
+        return query.indexOf('@') >= 0 || (digitsOf(query).length() >= MIN_PHONE_DIGITS && !hasLetter(query));
+    }
+    
+    /**
+     * Check whether text has a letter, so it is not a phone number
+     * @param text Query
+     * @return true if any character is a letter
+     */
+    private static boolean hasLetter(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Add a member to the set of a key
+     * @param map Sets by key
+     * @param key Key; empty keys are not indexed
+     * @param memberId Member ID
+     */
+    private static void addKey(Map<String, CompressedBitmap> map, String key, int memberId) {
+        if (!key.isEmpty()) {
+            map.computeIfAbsent(key, k -> new CompressedBitmap()).add(memberId);
+        }
+    }
+    
+    /**
+     * Remove a member from the set of a key, dropping the key once it is empty
+     * @param map Sets by key
+     * @param key Key
+     * @param memberId Member ID
+     */
+    private static void removeKey(Map<String, CompressedBitmap> map, String key, int memberId) {
+        CompressedBitmap members = map.get(key);
+        if (members != null) {
+            members.remove(memberId);
+            if (members.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+    
+    /**
+     * Lookup keys of one indexed member
+     */
+    private static class Entry {
+        final String email;
+        final String reversedPhone;
+        final Set<String> nameWords;
+        
+        Entry(String name, String email, String phone) {
+            this.email = email != null ? SearchKeys.fold(email) : "";
+            this.reversedPhone = phone != null ? new StringBuilder(digitsOf(phone)).reverse().toString() : "";
+            this.nameWords = new HashSet<>(FuzzyBookIndex.tokenize(name != null ? name : ""));
+        }
+    }
+}
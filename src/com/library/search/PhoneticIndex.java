@@ -0,0 +1,260 @@
+package com.library.search;
+
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Book;
+import com.library.models.Member;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Sounds like" lookup of member names and book authors. Every word of a
+ * name is reduced to its Soundex code, so "Jon Smyth" and "John Smith" share
+ * the keys J500 and S530. The codes are kept in a hash multimap from code to
+ * IDs, and a lookup is one hash probe per word of the query followed by an
+ * intersection, with no table scan.
+ *
+ * Authors and names come from the {@link CatalogLoader}.
+ */
+public class PhoneticIndex {
+    private static final PhoneticIndex INSTANCE = new PhoneticIndex();
+    private static final OperationMetrics FIND_MEMBERS = MetricsRegistry.getInstance().operation("PhoneticIndex.findMembers");
+    private static final OperationMetrics FIND_AUTHORS = MetricsRegistry.getInstance().operation("PhoneticIndex.findBooksByAuthor");
+    
+    /** Soundex digit for each letter A-Z; 0 for vowels, H, W and Y */
+    private static final String CODES = "01230120022455012623010202";
+    
+    private final CodeMap memberNames = new CodeMap();
+    private final CodeMap bookAuthors = new CodeMap();
+    
+    private boolean registered;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private PhoneticIndex() {
+    }
+    
+    /**
+     * Get the index for this process
+     * @return The index
+     */
+    public static PhoneticIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add the index to the {@link CatalogLoader}, which loads it once started.
+     * Calling it again has no effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        
+        CatalogLoader.getInstance().addListener(new CatalogLoader.Listener() {
+            @Override
+            public void bookLoaded(Book book, int loans) {
+                bookAuthors.put(book.getBookId(), book.getAuthor());
+            }
+            
+            @Override
+            public void memberLoaded(Member member, int loans) {
+                memberNames.put(member.getMemberId(), member.getName());
+            }
+            
+            @Override
+            public void catalogLoaded() {
+                loaded = true;
+            }
+            
+            @Override
+            public void bookChanged(int bookId, Book book) {
+                bookAuthors.put(bookId, book != null ? book.getAuthor() : null);
+            }
+            
+            @Override
+            public void memberChanged(int memberId, Member member) {
+                memberNames.put(memberId, member != null ? member.getName() : null);
+            }
+        }, CatalogLoader.Table.BOOKS, CatalogLoader.Table.MEMBERS);
+    }
+    
+    /**
+     * Check whether the initial load has finished
+     * @return true once every member and book is indexed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Find the members whose name sounds like a spoken name. Every word of the
+     * query must sound like a word of the name, in any order.
+     * @param name Name as heard
+     * @param limit Most members to return
+     * @return Member IDs in ascending order
+     */
+    public List<Integer> findMembers(String name, int limit) {
+        long start = System.nanoTime();
+        List<Integer> ids = memberNames.find(name, limit);
+        FIND_MEMBERS.record(start, ids.size());
+        return ids;
+    }
+    
+    /**
+     * Find the books whose author sounds like a spoken name
+     * @param author Author as heard
+     * @param limit Most books to return
+     * @return Book IDs in ascending order
+     */
+    public List<Integer> findBooksByAuthor(String author, int limit) {
+        long start = System.nanoTime();
+        List<Integer> ids = bookAuthors.find(author, limit);
+        FIND_AUTHORS.record(start, ids.size());
+        return ids;
+    }
+    
+    /**
+     * Compute the American Soundex code of a word: its first letter followed
+     * by three digits for the consonant groups that follow
+     * @param word Word; characters other than the letters A-Z are ignored
+     * @return Code such as S530, or null if the word has no letters
+     */
+    public static String soundex(String word) {
+        String upper = word.toUpperCase(Locale.ROOT);
+        StringBuilder code = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < upper.length() && code.length() < 4; i++) {
+            char c = upper.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                continue;
+            }
+            char digit = CODES.charAt(c - 'A');
+            if (code.length() == 0) {
+                code.append(c);
+            } else if (digit != '0' && digit != last) {
+                code.append(digit);
+            }
+            // H and W do not separate letters with the same code; vowels do
+            if (c != 'H' && c != 'W') {
+                last = digit;
+            }
+        }
+        if (code.length() == 0) {
+            return null;
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+    
+    /**
+     * Get the distinct Soundex codes of the words of a name
+     * @param text Name
+     * @return Codes, in order of first appearance
+     */
+    private static Set<String> codesOf(String text) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (String word : FuzzyBookIndex.tokenize(text)) {
+            String code = soundex(word);
+            if (code != null) {
+                codes.add(code);
+            }
+        }
+        return codes;
+    }
+    
+    /**
+     * Multimap from Soundex code to the IDs of the records with a word of
+     * that sound, plus the codes of each record so it can be updated
+     */
+    private static class CodeMap {
+        private final Map<String, Set<Integer>> idsByCode = new HashMap<>();
+        private final Map<Integer, Set<String>> codesById = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        
+        /**
+         * Index a record's text, replacing its earlier text
+         * @param id Record ID
+         * @param text Text, or null to remove the record
+         */
+        void put(int id, String text) {
+            Set<String> codes = text != null ? codesOf(text) : Collections.<String>emptySet();
+            lock.writeLock().lock();
+            try {
+                Set<String> old = codesById.remove(id);
+                if (old != null) {
+                    for (String code : old) {
+                        Set<Integer> ids = idsByCode.get(code);
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            idsByCode.remove(code);
+                        }
+                    }
+                }
+                if (!codes.isEmpty()) {
+                    codesById.put(id, codes);
+                    for (String code : codes) {
+                        idsByCode.computeIfAbsent(code, k -> new HashSet<>()).add(id);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        /**
+         * Find the records with a word sounding like each word of a query
+         * @param query Spoken text
+         * @param limit Most IDs to return
+         * @return Matching IDs in ascending order
+         */
+        List<Integer> find(String query, int limit) {
+            Set<String> codes = codesOf(query);
+            List<Integer> result = new ArrayList<>();
+            if (codes.isEmpty()) {
+                return result;
+            }
+            
+            lock.readLock().lock();
+            try {
+                // Walk the smallest set and probe the others
+                List<Set<Integer>> sets = new ArrayList<>();
+                for (String code : codes) {
+                    Set<Integer> ids = idsByCode.get(code);
+                    if (ids == null) {
+                        return result;
+                    }
+                    sets.add(ids);
+                }
+                sets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+                for (int id : sets.get(0)) {
+                    boolean all = true;
+                    for (int i = 1; i < sets.size() && all; i++) {
+                        all = sets.get(i).contains(id);
+                    }
+                    if (all) {
+                        result.add(id);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Collections.sort(result);
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.library.search;
+
+import com.library.events.LoanIssuedEvent;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import com.library.models.Book;
+import com.library.models.Member;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory autocomplete over book titles, authors, publishers and member
+ * names. The tries are filled and kept current by the {@link CatalogLoader},
+ * so suggestions never query the database. Suggestions are ranked by
+ * popularity: one plus the number of loans of the book or member, summed
+ * over records sharing a text.
+ */
+public class SuggestionIndex {
+    private static final SuggestionIndex INSTANCE = new SuggestionIndex();
+    private static final OperationMetrics SUGGEST = MetricsRegistry.getInstance().operation("SuggestionIndex.suggest");
+    
+    /**
+     * Text that can be suggested
+     */
+    public enum Field {
+        TITLE, AUTHOR, PUBLISHER, MEMBER_NAME
+    }
+    
+    private final Map<Field, SuggestionTrie> tries = new EnumMap<>(Field.class);
+    private final Map<Integer, BookTerms> books = new ConcurrentHashMap<>();
+    private final Map<Integer, MemberTerms> members = new ConcurrentHashMap<>();
+    
+    private boolean registered;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private SuggestionIndex() {
+        for (Field field : Field.values()) {
+            tries.put(field, new SuggestionTrie());
+        }
+    }
+    
+    /**
+     * Get the index for this process
+     * @return The index
+     */
+    public static SuggestionIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add the index to the {@link CatalogLoader}, which loads it once started.
+     * Loans are loaded too, to rank the suggestions. Calling it again has no
+     * effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        
+        CatalogLoader.getInstance().addListener(new CatalogLoader.Listener() {
+            @Override
+            public void bookLoaded(Book book, int loans) {
+                putBook(new BookTerms(book.getBookId(), book.getTitle(), book.getAuthor(), book.getPublisher(), 1 + loans));
+            }
+            
+            @Override
+            public void memberLoaded(Member member, int loans) {
+                putMember(new MemberTerms(member.getMemberId(), member.getName(), 1 + loans));
+            }
+            
+            @Override
+            public void catalogLoaded() {
+                loaded = true;
+            }
+            
+            @Override
+            public void bookChanged(int bookId, Book book) {
+                updateBook(bookId, book);
+            }
+            
+            @Override
+            public void memberChanged(int memberId, Member member) {
+                updateMember(memberId, member);
+            }
+            
+            @Override
+            public void loanIssued(LoanIssuedEvent event, Supplier<Book> book) {
+                countLoan(event);
+            }
+        }, CatalogLoader.Table.BOOKS, CatalogLoader.Table.MEMBERS, CatalogLoader.Table.LOANS);
+    }
+    
+    /**
+     * Check whether the initial load has finished
+     * @return true once suggestions cover the whole catalog
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Get the most popular texts of some fields starting with a prefix
+     * @param prefix Typed text
+     * @param limit Most suggestions to return
+     * @param fields Fields to suggest from
+     * @return Distinct suggestions, most popular first
+     */
+    public List<String> suggest(String prefix, int limit, Field... fields) {
+        long start = System.nanoTime();
+        List<SuggestionTrie.Suggestion> candidates = new ArrayList<>();
+        for (Field field : fields) {
+            candidates.addAll(tries.get(field).suggest(prefix, limit));
+        }
+        candidates.sort((a, b) -> Long.compare(b.getWeight(), a.getWeight()));
+        
+        Set<String> texts = new LinkedHashSet<>();
+        for (SuggestionTrie.Suggestion candidate : candidates) {
+            if (texts.size() == limit) {
+                break;
+            }
+            texts.add(candidate.getText());
+        }
+        SUGGEST.record(start, texts.size());
+        return new ArrayList<>(texts);
+    }
+    
+    /**
+     * Update a book's texts. Availability changes publish updates too, so the
+     * tries are only touched when the text differs.
+     * @param bookId Book ID
+     * @param book Book as it is now, or null if it was deleted
+     */
+    private void updateBook(int bookId, Book book) {
+        if (book == null) {
+            removeBook(bookId);
+            return;
+        }
+        BookTerms old = books.get(bookId);
+        if (old == null || !old.sameText(book)) {
+            putBook(new BookTerms(bookId, book.getTitle(), book.getAuthor(), book.getPublisher(),
+                                  old != null ? old.weight : 1));
+        }
+    }
+    
+    /**
+     * Update a member's name
+     * @param memberId Member ID
+     * @param member Member as it is now, or null if it was deleted
+     */
+    private void updateMember(int memberId, Member member) {
+        if (member == null) {
+            removeMember(memberId);
+            return;
+        }
+        MemberTerms old = members.get(memberId);
+        if (old == null || !old.name.equals(member.getName())) {
+            putMember(new MemberTerms(memberId, member.getName(), old != null ? old.weight : 1));
+        }
+    }
+    
+    /**
+     * Raise the weight of the texts of a loan's book and member
+     * @param loan Published loan event
+     */
+    private void countLoan(LoanIssuedEvent loan) {
+        BookTerms book = books.get(loan.getBookId());
+        if (book != null) {
+            book.weight++;
+            tries.get(Field.TITLE).adjust(book.title, 1);
+            tries.get(Field.AUTHOR).adjust(book.author, 1);
+            tries.get(Field.PUBLISHER).adjust(book.publisher, 1);
+        }
+        MemberTerms member = members.get(loan.getMemberId());
+        if (member != null) {
+            member.weight++;
+            tries.get(Field.MEMBER_NAME).adjust(member.name, 1);
+        }
+    }
+    
+    /**
+     * Add a book's texts, replacing any earlier version of the book
+     * @param terms Book texts and weight
+     */
+    private void putBook(BookTerms terms) {
+        removeBook(terms.bookId);
+        books.put(terms.bookId, terms);
+        tries.get(Field.TITLE).add(terms.title, terms.weight);
+        tries.get(Field.AUTHOR).add(terms.author, terms.weight);
+        tries.get(Field.PUBLISHER).add(terms.publisher, terms.weight);
+    }
+    
+    /**
+     * Remove a book's texts
+     * @param bookId Book ID
+     */
+    private void removeBook(int bookId) {
+        BookTerms old = books.remove(bookId);
+        if (old != null) {
+            tries.get(Field.TITLE).remove(old.title, old.weight);
+            tries.get(Field.AUTHOR).remove(old.author, old.weight);
+            tries.get(Field.PUBLISHER).remove(old.publisher, old.weight);
+        }
+    }
+    
+    /**
+     * Add a member's name, replacing any earlier version of the member
+     * @param terms Member name and weight
+     */
+    private void putMember(MemberTerms terms) {
+        removeMember(terms.memberId);
+        members.put(terms.memberId, terms);
+        tries.get(Field.MEMBER_NAME).add(terms.name, terms.weight);
+    }
+    
+    /**
+     * Remove a member's name
+     * @param memberId Member ID
+     */
+    private void removeMember(int memberId) {
+        MemberTerms old = members.remove(memberId);
+        if (old != null) {
+            tries.get(Field.MEMBER_NAME).remove(old.name, old.weight);
+        }
+    }
+    
+    /**
+     * Indexed texts of a book and the weight they were added with
+     */
+    private static class BookTerms {
+        private final int bookId;
+        private final String title;
+        private final String author;
+        private final String publisher;
+        private long weight;
+        
+        BookTerms(int bookId, String title, String author, String publisher, long weight) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.publisher = publisher;
+            this.weight = weight;
+        }
+        
+        boolean sameText(Book book) {
+            return title.equals(book.getTitle()) && author.equals(book.getAuthor())
+                && publisher.equals(book.getPublisher());
+        }
+    }
+    
+    /**
+     * Indexed name of a member and the weight it was added with
+     */
+    private static class MemberTerms {
+        private final int memberId;
+        private final String name;
+        private long weight;
+        
+        MemberTerms(int memberId, String name, long weight) {
+            this.memberId = memberId;
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.library.search;
+
+import com.library.database.SearchKeys;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed prefix trie (radix tree) of suggestion texts ranked by weight.
+ * Texts are keyed by their folded form ({@link SearchKeys#fold}), so
+ * "The  Hobbit" and "the hobbit" are one entry and "cafe" finds "Café"; the
+ * same text may be added by several records, and its weight is the sum of
+ * theirs. Every node keeps the highest weight in its subtree, so the top
+ * suggestions for a prefix are found best-first without visiting the rest of
+ * the subtree.
+ *
+ * Reads may run concurrently; writes take an exclusive lock.
+ */
+public class SuggestionTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    
+    private final Node root = new Node("");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+    
+    /**
+     * Add a record's text, or add weight to it if it is already present
+     * @param text Text to suggest
+     * @param weight Popularity of the record
+     */
+    public void add(String text, long weight) {
+        String key = SearchKeys.fold(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            insert(root, key, 0, text, weight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove a record's text and weight, dropping the text once no record has it
+     * @param text Text previously added
+     * @param weight Weight it was added with, including later adjustments
+     */
+    public void remove(String text, long weight) {
+        String key = SearchKeys.fold(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(root, key, 0, weight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Change the weight of a text without changing its record count, e.g.
+     * when a book is issued again
+     * @param text Text previously added
+     * @param delta Weight to add
+     */
+    public void adjust(String text, long delta) {
+        String key = SearchKeys.fold(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            reweigh(root, key, 0, delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the highest weighted texts starting with a prefix
+     * @param prefix Typed text; matched after normalization
+     * @param limit Most suggestions to return
+     * @return Suggestions, highest weight first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = SearchKeys.fold(prefix);
+        List<Suggestion> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        
+        lock.readLock().lock();
+        try {
+            Node start = find(key);
+            if (start == null) {
+                return result;
+            }
+            
+            // Best-first: nodes are queued by the best weight below them, texts by their own
+            PriorityQueue<Object[]> queue = new PriorityQueue<>((a, b) -> Long.compare((long) b[1], (long) a[1]));
+            queue.add(new Object[] {start, start.best});
+            while (!queue.isEmpty() && result.size() < limit) {
+                Object[] head = queue.poll();
+                if (head[0] instanceof Suggestion) {
+                    result.add((Suggestion) head[0]);
+                    continue;
+                }
+                Node node = (Node) head[0];
+                if (node.text != null) {
+                    queue.add(new Object[] {new Suggestion(node.text, node.weight), node.weight});
+                }
+                for (Node child : node.children) {
+                    queue.add(new Object[] {child, child.best});
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    
+    /**
+     * Get the number of distinct texts
+     * @return Number of texts
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove every text
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children = NO_CHILDREN;
+            root.text = null;
+            root.weight = 0;
+            root.records = 0;
+            root.best = 0;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Find the node whose subtree holds every key starting with a prefix
+     * @param key Normalized prefix
+     * @return Subtree root, or null if no key has the prefix
+     */
+    private Node find(String key) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.edge, key, depth);
+            if (depth + common == key.length()) {
+                // The prefix ends on or inside this edge
+                return child;
+            }
+            if (common < child.edge.length()) {
+                return null;
+            }
+            depth += common;
+            node = child;
+        }
+        return node;
+    }
+    
+    /**
+     * Add a text below a node, splitting edges as needed
+     * @param node Node reached so far
+     * @param key Normalized text
+     * @param depth Characters of the key consumed by the path to the node
+     * @param text Text to show
+     * @param weight Weight to add
+     */
+    private void insert(Node node, String key, int depth, String text, long weight) {
+        if (depth == key.length()) {
+            if (node.text == null) {
+                size++;
+            }
+            node.text = text;
+            node.records++;
+            node.weight += weight;
+        } else {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                child = new Node(key.substring(depth));
+                node.addChild(child);
+                insert(child, key, key.length(), text, weight);
+            } else {
+                int common = commonPrefix(child.edge, key, depth);
+                if (common < child.edge.length()) {
+                    child = node.split(child, common);
+                }
+                insert(child, key, depth + common, text, weight);
+            }
+        }
+        node.updateBest();
+    }
+    
+    /**
+     * Remove a record of a text below a node, pruning and merging emptied nodes
+     * @param node Node reached so far
+     * @param key Normalized text
+     * @param depth Characters of the key consumed by the path to the node
+     * @param weight Weight to subtract
+     */
+    private void delete(Node node, String key, int depth, long weight) {
+        if (depth == key.length()) {
+            if (node.text != null) {
+                node.weight -= weight;
+                if (--node.records <= 0) {
+                    node.text = null;
+                    node.weight = 0;
+                    node.records = 0;
+                    size--;
+                }
+            }
+        } else {
+            Node child = node.child(key.charAt(depth));
+            if (child == null || !key.startsWith(child.edge, depth)) {
+                return;
+            }
+            delete(child, key, depth + child.edge.length(), weight);
+            if (child.text == null && child.children.length == 0) {
+                node.removeChild(child);
+            } else if (child.text == null && child.children.length == 1) {
+                node.replaceChild(child, child.merge());
+            }
+        }
+        node.updateBest();
+    }
+    
+    /**
+     * Change the weight of a text below a node
+     * @param node Node reached so far
+     * @param key Normalized text
+     * @param depth Characters of the key consumed by the path to the node
+     * @param delta Weight to add
+     */
+    private void reweigh(Node node, String key, int depth, long delta) {
+        if (depth == key.length()) {
+            if (node.text != null) {
+                node.weight += delta;
+            }
+        } else {
+            Node child = node.child(key.charAt(depth));
+            if (child == null || !key.startsWith(child.edge, depth)) {
+                return;
+            }
+            reweigh(child, key, depth + child.edge.length(), delta);
+        }
+        node.updateBest();
+    }
+    
+    /**
+     * Count the leading characters an edge shares with a key
+     * @param edge Edge label
+     * @param key Key
+     * @param offset Position in the key where the edge starts
+     * @return Number of matching characters
+     */
+    private static int commonPrefix(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && edge.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * A suggested text and its weight
+     */
+    public static class Suggestion {
+        private final String text;
+        private final long weight;
+        
+        Suggestion(String text, long weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        public long getWeight() {
+            return weight;
+        }
+        
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+    
+    /**
+     * Trie node. Children are kept sorted by the first character of their
+     * edge, which is unique among siblings.
+     */
+    private static class Node {
+        private String edge;
+        private Node[] children = NO_CHILDREN;
+        private String text;
+        private long weight;
+        private int records;
+        private long best;
+        
+        Node(String edge) {
+            this.edge = edge;
+        }
+        
+        Node child(char c) {
+            int index = indexOf(c);
+            return index >= 0 ? children[index] : null;
+        }
+        
+        void addChild(Node child) {
+            int index = -indexOf(child.edge.charAt(0)) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+        
+        void removeChild(Node child) {
+            int index = indexOf(child.edge.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, shrunk.length - index);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+        
+        void replaceChild(Node child, Node replacement) {
+            children[indexOf(child.edge.charAt(0))] = replacement;
+        }
+        
+        /**
+         * Split a child's edge so its first characters become a node of their own
+         * @param child Child to split
+         * @param at Length of the new upper edge
+         * @return The new node between this node and the child
+         */
+        Node split(Node child, int at) {
+            int index = indexOf(child.edge.charAt(0));
+            Node upper = new Node(child.edge.substring(0, at));
+            child.edge = child.edge.substring(at);
+            upper.children = new Node[] {child};
+            upper.best = child.best;
+            children[index] = upper;
+            return upper;
+        }
+        
+        /**
+         * Join this textless node with its only child
+         * @return The merged node
+         */
+        Node merge() {
+            Node only = children[0];
+            only.edge = edge + only.edge;
+            return only;
+        }
+        
+        void updateBest() {
+            long max = text != null ? weight : Long.MIN_VALUE;
+            for (Node child : children) {
+                max = Math.max(max, child.best);
+            }
+            best = max;
+        }
+        
+        private int indexOf(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children[mid].edge.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.library.service;
+
+import com.library.database.InvalidationRelay;
+import com.library.events.EventBus;
+import com.library.events.EventListener;
+import com.library.events.LibraryEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recent changes seen on this process's {@link EventBus}, numbered in the
+ * order they were published, for API clients to poll. Desks running against
+ * the API have no database connection to read the change log from, so the
+ * server passes on every change it sees: its own, and through the
+ * {@link InvalidationRelay} those of desks using the database directly.
+ * Only the newest changes are kept; a client that falls further behind is
+ * told that it missed some.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.api.changeBuffer - changes kept for polling clients, default 10000</li>
+ * </ul>
+ */
+public class ChangeFeed {
+    private final LibraryEvent[] buffer = new LibraryEvent[Math.max(1, Integer.getInteger("library.api.changeBuffer", 10000))];
+    
+    // Waiting pollers park on a Condition rather than Object.wait(), which
+    // would pin the carrier of a virtual thread for the whole poll
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    
+    private long lastSequence;
+    private boolean started;
+    
+    /**
+     * Start recording changes. Calling it again has no effect.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (started) {
+                return;
+            }
+            started = true;
+        } finally {
+            lock.unlock();
+        }
+        
+        EventBus.getInstance().subscribe(LibraryEvent.class, new EventListener<LibraryEvent>() {
+            @Override
+            public void onEvent(LibraryEvent event) {
+                append(event);
+            }
+        });
+    }
+    
+    /**
+     * Get the changes after a sequence number, waiting for one if there are
+     * none yet
+     * @param afterSequence Last sequence number the client has seen, or a
+     *        negative number to start from now
+     * @param limit Most changes to return
+     * @param waitMillis Longest time to wait for a change
+     * @return Changes in publication order
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Batch poll(long afterSequence, int limit, long waitMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        
+        lock.lock();
+        try {
+            if (afterSequence < 0) {
+                return new Batch(lastSequence, false, Collections.<LibraryEvent>emptyList());
+            }
+            // Ahead of this server after a restart, or behind the oldest change kept
+            if (afterSequence > lastSequence || lastSequence - afterSequence > buffer.length) {
+                return new Batch(lastSequence, true, Collections.<LibraryEvent>emptyList());
+            }
+            
+            long remaining = deadline - System.nanoTime();
+            while (afterSequence == lastSequence && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+            
+            List<LibraryEvent> events = new ArrayList<>();
+            long sequence = afterSequence;
+            while (sequence < lastSequence && events.size() < limit) {
+                sequence++;
+                events.add(buffer[(int) (sequence % buffer.length)]);
+            }
+            return new Batch(sequence, false, events);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Record one change and wake the waiting pollers. Runs on the event bus
+     * dispatch thread.
+     * @param event Published event
+     */
+    private void append(LibraryEvent event) {
+        lock.lock();
+        try {
+            lastSequence++;
+            buffer[(int) (lastSequence % buffer.length)] = event;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Changes returned by one poll
+     */
+    public static class Batch {
+        private final long lastSequence;
+        private final boolean reset;
+        private final List<LibraryEvent> events;
+        
+        /**
+         * Constructor
+         * @param lastSequence Sequence number of the last change returned, to
+         *        poll after next
+         * @param reset true if changes the client had not seen were dropped
+         * @param events Changes in publication order
+         */
+        public Batch(long lastSequence, boolean reset, List<LibraryEvent> events) {
+            this.lastSequence = lastSequence;
+            this.reset = reset;
+            this.events = events;
+        }
+        
+        public long getLastSequence() {
+            return lastSequence;
+        }
+        
+        public boolean isReset() {
+            return reset;
+        }
+        
+        public List<LibraryEvent> getEvents() {
+            return events;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.library.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Fine rules for late returns
+ */
+public final class FineCalculator {
+    /** Fine charged per day a book is late */
+    public static final double FINE_PER_DAY = 2.50;
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private FineCalculator() {
+    }
+    
+    /**
+     * Number of days a book is late on a given date
+     * @param dueDate Date the book was due
+     * @param onDate Date of the return (or today)
+     * @return Days late, 0 if not late
+     */
+    public static long daysLate(Date dueDate, LocalDate onDate) {
+        LocalDate due = dueDate.toLocalDate();
+        return onDate.isAfter(due) ? ChronoUnit.DAYS.between(due, onDate) : 0;
+    }
+    
+    /**
+     * Fine for a number of days late
+     * @param daysLate Days late
+     * @return Fine amount
+     */
+    public static double fineFor(long daysLate) {
+        return daysLate * FINE_PER_DAY;
+    }
+    
+    /**
+     * Fine for returning a book on a given date
+     * @param dueDate Date the book was due
+     * @param onDate Date of the return (or today)
+     * @return Fine amount, 0 if not late
+     */
+    public static double calculateFine(Date dueDate, LocalDate onDate) {
+        return fineFor(daysLate(dueDate, onDate));
+    }
+}
@@ -0,0 +1,596 @@
+package com.library.service;
+
+import com.library.database.InvalidationRelay;
+import com.library.events.LibraryEvent;
+import com.library.metrics.MetricsExporter;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import com.library.search.CatalogLoader;
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP/JSON server exposing the {@link LibraryService}.
+ * Each request runs on its own virtual thread, so blocking JDBC calls and
+ * long polls do not tie up a fixed worker pool; this needs Java 21.
+ * Every request must carry the shared token as {@code Authorization: Bearer <token>}.
+ *
+ * Endpoints:
+ * <ul>
+ *   <li>GET /api/books?q=term - catalog search</li>
+ *   <li>GET /api/books?ids=1,2,3 - books by ID</li>
+ *   <li>GET /api/books/available?prefix=text&amp;limit=n - available books by title prefix</li>
+ *   <li>GET /api/books/lookup?code=isbn - book by ISBN or ID; 404 if none matches</li>
+ *   <li>GET /api/members?ids=1,2,3 - members by ID</li>
+ *   <li>GET /api/members/active?prefix=text&amp;limit=n - active members by name prefix</li>
+ *   <li>GET /api/members/{id}/allowance - open loans and borrowing limit</li>
+ *   <li>GET /api/issues?q=term - open loans matching a title or member name</li>
+ *   <li>GET /api/issues?ids=1,2,3 - book issues by ID</li>
+ *   <li>GET /api/issues/overdue - loans past their due date</li>
+ *   <li>POST /api/issues - issue a book (JSON body with bookId, memberId, issueDate, dueDate);
+ *       409 if the book has no copy left or the member is at their borrowing limit</li>
+ *   <li>POST /api/issues/batch - issue several books in one transaction (JSON array of issues);
+ *       responds with the issued loans and the IDs of any unavailable books; 409 if a member
+ *       would go over their borrowing limit</li>
+ *   <li>POST /api/issues/returns - return several books in one transaction (JSON array of
+ *       issue IDs); responds with the loans that were returned</li>
+ *   <li>POST /api/issues/{id}/return - return a book</li>
+ *   <li>GET /api/stats - dashboard statistics</li>
+ *   <li>GET /api/trends?days=n - daily circulation series</li>
+ *   <li>GET /api/changes?after=n - changes after sequence number n, waiting up to
+ *       {@value #CHANGE_POLL_MILLIS} ms for one; after=-1 returns the current sequence number</li>
+ * </ul>
+ *
+ * Settings (system properties, read by {@link #main}):
+ * <ul>
+ *   <li>library.api.bind - address to listen on, default 127.0.0.1 (this machine only)</li>
+ *   <li>library.api.token - shared token clients must send; required</li>
+ * </ul>
+ */
+public class LibraryApiServer {
+    static final long CHANGE_POLL_MILLIS = 25000;
+    
+    private static final int MAX_LIMIT = 1000;
+    
+    private final LibraryService service;
+    private final ChangeFeed changeFeed;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    
+    /**
+     * Constructor
+     * @param service Service handling the requests
+     * @param changeFeed Changes offered to polling clients
+     * @param address Address and port to listen on
+     * @param token Shared token clients must send
+     * @throws IOException if the address cannot be bound
+     */
+    public LibraryApiServer(LibraryService service, ChangeFeed changeFeed, InetSocketAddress address,
+                            String token) throws IOException {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("An API token is required");
+        }
+        this.service = service;
+        this.changeFeed = changeFeed;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        
+        server.setExecutor(executor);
+        Authenticator authenticator = new TokenAuthenticator(token);
+        server.createContext("/api/books", guarded(this::handleBooks)).setAuthenticator(authenticator);
+        server.createContext("/api/members", guarded(this::handleMembers)).setAuthenticator(authenticator);
+        server.createContext("/api/issues", guarded(this::handleIssues)).setAuthenticator(authenticator);
+        server.createContext("/api/stats", guarded(this::handleStats)).setAuthenticator(authenticator);
+        server.createContext("/api/trends", guarded(this::handleTrends)).setAuthenticator(authenticator);
+        server.createContext("/api/changes", guarded(this::handleChanges)).setAuthenticator(authenticator);
+    }
+    
+    /**
+     * Start accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stop the server
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+    
+    /**
+     * Wrap a handler so that a malformed request gets a 400 and any other
+     * failure a 500, rather than the connection being dropped
+     * @param handler Request handler
+     * @return Guarded handler
+     */
+    private HttpHandler guarded(HttpHandler handler) {
+        return new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handler.handle(exchange);
+                } catch (IllegalArgumentException e) {
+                    sendError(exchange, 400, e.getMessage());
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    sendError(exchange, 500, "Internal error");
+                } finally {
+                    exchange.close();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Handle GET /api/books, GET /api/books/available and GET /api/books/lookup
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleBooks(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        List<Book> books;
+        if (parts.length == 3) {
+            String ids = queryParameter(exchange, "ids");
+            books = !ids.isEmpty() ? service.getBooksByIds(idList(ids)) : service.searchBooks(queryParameter(exchange, "q"));
+        } else if (parts.length == 4 && parts[3].equals("available")) {
+            books = service.findAvailableBooks(queryParameter(exchange, "prefix"), limitParameter(exchange));
+        } else if (parts.length == 4 && parts[3].equals("lookup")) {
+            Book book = service.findBookByCode(queryParameter(exchange, "code").trim());
+            if (book == null) {
+                sendError(exchange, 404, "No book with that ISBN or ID");
+            } else {
+                sendJson(exchange, 200, ModelMapper.toMap(book));
+            }
+            return;
+        } else {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        
+        List<Object> result = new ArrayList<>();
+        for (Book book : books) {
+            result.add(ModelMapper.toMap(book));
+        }
+        sendJson(exchange, 200, result);
+    }
+    
+    /**
+     * Handle GET /api/members, GET /api/members/active and
+     * GET /api/members/{id}/allowance
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleMembers(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        List<Member> members;
+        if (parts.length == 3) {
+            members = service.getMembersByIds(idList(queryParameter(exchange, "ids")));
+        } else if (parts.length == 4 && parts[3].equals("active")) {
+            members = service.findActiveMembers(queryParameter(exchange, "prefix"), limitParameter(exchange));
+        } else if (parts.length == 5 && parts[4].equals("allowance")) {
+            sendJson(exchange, 200, ModelMapper.toMap(service.getLoanAllowance(Integer.parseInt(parts[3]))));
+            return;
+        } else {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        
+        List<Object> result = new ArrayList<>();
+        for (Member member : members) {
+            result.add(ModelMapper.toMap(member));
+        }
+        sendJson(exchange, 200, result);
+    }
+    
+    /**
+     * Handle GET /api/issues and GET /api/issues/overdue
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleIssueQueries(HttpExchange exchange) throws IOException {
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        List<BookIssue> issues;
+        if (parts.length == 3) {
+            String ids = queryParameter(exchange, "ids");
+            issues = !ids.isEmpty() ? service.getBookIssuesByIds(idList(ids)) : service.searchOpenIssues(queryParameter(exchange, "q"));
+        } else if (parts.length == 4 && parts[3].equals("overdue")) {
+            issues = service.getOverdueIssues();
+        } else {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        
+        List<Object> result = new ArrayList<>();
+        for (BookIssue issue : issues) {
+            result.add(ModelMapper.toMap(issue));
+        }
+        sendJson(exchange, 200, result);
+    }
+    
+    /**
+     * Handle the GET requests listed under {@link #handleIssueQueries}, and
+     * POST /api/issues, POST /api/issues/batch, POST /api/issues/returns and
+     * POST /api/issues/{id}/return
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleIssues(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("GET")) {
+            handleIssueQueries(exchange);
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        if (parts.length == 3) {
+            // POST /api/issues
+            Object body = readJson(exchange);
+            if (!(body instanceof Map)) {
+                sendError(exchange, 400, "Expected a JSON object");
+                return;
+            }
+            BookIssue issue = readBookIssue((Map<?, ?>) body);
+            if (issue.getIssueDate() == null || issue.getDueDate() == null
+                    || !issue.getDueDate().after(issue.getIssueDate())) {
+                sendError(exchange, 400, "Due date must be after the issue date");
+                return;
+            }
+            issue.setStatus("Issued");
+            try {
+                if (service.issueBook(issue)) {
+                    sendJson(exchange, 201, ModelMapper.toMap(issue));
+                } else {
+                    sendError(exchange, 409, "Book could not be issued");
+                }
+            } catch (LoanLimitExceededException e) {
+                sendLimitError(exchange, e);
+            }
+        } else if (parts.length == 4 && parts[3].equals("batch")) {
+            // POST /api/issues/batch
+            Object body = readJson(exchange);
+            if (!(body instanceof List)) {
+                sendError(exchange, 400, "Expected a JSON array");
+                return;
+            }
+            List<BookIssue> issues = new ArrayList<>();
+            for (Object item : (List<?>) body) {
+                if (!(item instanceof Map)) {
+                    sendError(exchange, 400, "Expected an array of JSON objects");
+                    return;
+                }
+                BookIssue issue = readBookIssue((Map<?, ?>) item);
+                if (issue.getIssueDate() == null || issue.getDueDate() == null
+                        || !issue.getDueDate().after(issue.getIssueDate())) {
+                    sendError(exchange, 400, "Due date must be after the issue date");
+                    return;
+                }
+                issue.setStatus("Issued");
+                issues.add(issue);
+            }
+            List<Integer> unavailable;
+            try {
+                unavailable = service.issueBooks(issues);
+            } catch (LoanLimitExceededException e) {
+                sendLimitError(exchange, e);
+                return;
+            }
+            if (unavailable == null) {
+                sendError(exchange, 500, "Books could not be issued");
+                return;
+            }
+            List<Object> issued = new ArrayList<>();
+            if (unavailable.isEmpty()) {
+                for (BookIssue issue : issues) {
+                    issued.add(ModelMapper.toMap(issue));
+                }
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("issues", issued);
+            result.put("unavailable", unavailable);
+            sendJson(exchange, unavailable.isEmpty() ? 201 : 200, result);
+        } else if (parts.length == 4 && parts[3].equals("returns")) {
+            // POST /api/issues/returns
+            Object body = readJson(exchange);
+            if (!(body instanceof List)) {
+                sendError(exchange, 400, "Expected a JSON array");
+                return;
+            }
+            List<Integer> issueIds = new ArrayList<>();
+            for (Object item : (List<?>) body) {
+                if (!(item instanceof Number)) {
+                    sendError(exchange, 400, "Expected an array of issue IDs");
+                    return;
+                }
+                issueIds.add(((Number) item).intValue());
+            }
+            List<BookIssue> returned = service.returnBooks(issueIds);
+            if (returned == null) {
+                sendError(exchange, 500, "Books could not be returned");
+                return;
+            }
+            List<Object> result = new ArrayList<>();
+            for (BookIssue issue : returned) {
+                result.add(ModelMapper.toMap(issue));
+            }
+            sendJson(exchange, 200, result);
+        } else if (parts.length == 5 && parts[4].equals("return")) {
+            // POST /api/issues/{id}/return
+            BookIssue issue = service.returnBook(Integer.parseInt(parts[3]));
+            if (issue != null) {
+                sendJson(exchange, 200, ModelMapper.toMap(issue));
+            } else {
+                sendError(exchange, 409, "Book issue not found or already returned");
+            }
+        } else {
+            sendError(exchange, 404, "Not found");
+        }
+    }
+    
+    /**
+     * Handle GET /api/stats
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        
+        sendJson(exchange, 200, ModelMapper.toMap(service.getStatistics()));
+    }
+    
+    /**
+     * Handle GET /api/trends
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleTrends(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        
+        String days = queryParameter(exchange, "days");
+        int dayCount = days.isEmpty() ? 30 : Math.max(1, Math.min(366, Integer.parseInt(days)));
+        sendJson(exchange, 200, ModelMapper.toMap(service.getTrends(dayCount)));
+    }
+    
+    /**
+     * Handle GET /api/changes. The request waits for the next change, so a
+     * client sees changes as they happen while polling only once per change
+     * or per {@value #CHANGE_POLL_MILLIS} ms.
+     * @param exchange HTTP exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handleChanges(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        
+        String after = queryParameter(exchange, "after");
+        ChangeFeed.Batch batch;
+        try {
+            batch = changeFeed.poll(after.isEmpty() ? -1 : Long.parseLong(after), MAX_LIMIT, CHANGE_POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server is stopping");
+            return;
+        }
+        
+        List<Object> changes = new ArrayList<>();
+        for (LibraryEvent event : batch.getEvents()) {
+            Map<String, Object> change = ModelMapper.toMap(event);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("last", batch.getLastSequence());
+        result.put("reset", batch.isReset());
+        result.put("changes", changes);
+        sendJson(exchange, 200, result);
+    }
+    
+    /**
+     * Read a query string parameter
+     * @param exchange HTTP exchange
+     * @param name Parameter name
+     * @return Decoded value, or an empty string if absent
+     */
+    private String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                    return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return "";
+    }
+    
+    /**
+     * Read the limit query parameter
+     * @param exchange HTTP exchange
+     * @return Limit between 1 and {@value #MAX_LIMIT}, default 20
+     */
+    private int limitParameter(HttpExchange exchange) {
+        String limit = queryParameter(exchange, "limit");
+        return limit.isEmpty() ? 20 : Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limit)));
+    }
+    
+    /**
+     * Parse a comma-separated list of IDs
+     * @param ids IDs, e.g. 1,2,3
+     * @return Parsed IDs, at most {@value #MAX_LIMIT}
+     * @throws IllegalArgumentException if an ID is not a number or there are too many
+     */
+    private List<Integer> idList(String ids) {
+        List<Integer> result = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        for (String id : ids.split(",")) {
+            result.add(Integer.parseInt(id.trim()));
+        }
+        if (result.size() > MAX_LIMIT) {
+            throw new IllegalArgumentException("At most " + MAX_LIMIT + " IDs per request");
+        }
+        return result;
+    }
+    
+    /**
+     * Read and parse the JSON request body
+     * @param exchange HTTP exchange
+     * @return Parsed value
+     * @throws IOException if the body cannot be read
+     * @throws IllegalArgumentException if the body is not valid JSON
+     */
+    private Object readJson(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try {
+            return Json.parse(body);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Convert a JSON object to a book issue
+     * @param map JSON object
+     * @return Book issue
+     * @throws IllegalArgumentException if a field is missing or has the wrong type
+     */
+    private BookIssue readBookIssue(Map<?, ?> map) {
+        try {
+            return ModelMapper.toBookIssue(map);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed book issue: IDs must be numbers and dates yyyy-MM-dd", e);
+        }
+    }
+    
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        sendJson(exchange, status, error);
+    }
+    
+    /**
+     * Refuse an issue that would take a member over their borrowing limit.
+     * The member is named in the body so clients can tell this from a book
+     * with no copy left.
+     * @param exchange HTTP exchange
+     * @param e Refusal from the service
+     * @throws IOException if the response cannot be written
+     */
+    private void sendLimitError(HttpExchange exchange, LoanLimitExceededException e) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", e.getMessage());
+        error.put("memberOverLimit", e.getMemberId());
+        sendJson(exchange, 409, error);
+    }
+    
+    private void sendJson(HttpExchange exchange, int status, Object value) throws IOException {
+        byte[] bytes = Json.write(value).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Checks the shared token sent as {@code Authorization: Bearer <token>}
+     */
+    private static class TokenAuthenticator extends Authenticator {
+        private final byte[] token;
+        
+        /**
+         * Constructor
+         * @param token Shared token
+         */
+        TokenAuthenticator(String token) {
+            this.token = token.getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public Result authenticate(HttpExchange exchange) {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            // Constant-time comparison, so the response time does not reveal the token
+            if (header != null && header.startsWith("Bearer ")
+                    && MessageDigest.isEqual(token, header.substring(7).getBytes(StandardCharsets.UTF_8))) {
+                return new Success(new HttpPrincipal("desk", "library"));
+            }
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer realm=\"library\"");
+            return new Failure(401);
+        }
+    }
+    
+    /**
+     * Run the API server on its own
+     * @param args Optional port number (default 8080)
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String bind = System.getProperty("library.api.bind", "127.0.0.1");
+        String token = System.getProperty("library.api.token", "").trim();
+        if (token.isEmpty()) {
+            System.err.println("Set library.api.token to the shared token the desks send");
+            System.exit(1);
+        }
+        
+        // Pass changes on to API clients, including those other desks make directly
+        ChangeFeed changeFeed = new ChangeFeed();
+        changeFeed.start();
+        InvalidationRelay.getInstance().start();
+        MetricsExporter.startFromSystemProperties();
+        LoanLimitIndex.getInstance().register();
+        CatalogLoader.getInstance().start();
+        
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(bind), port);
+        LibraryApiServer server = new LibraryApiServer(new LocalLibraryService(), changeFeed, address, token);
+        server.start();
+        System.out.println("Library API listening on " + bind + ":" + port);
+    }
+}
@@ -0,0 +1,134 @@
+package com.library.service;
+
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import com.library.reports.CirculationTrends;
+import java.util.List;
+
+/**
+ * Circulation operations shared by the Swing client and the HTTP API.
+ * Implementations either call the DAOs directly or a remote API server.
+ * Everything the circulation desk shows goes through this interface, so a
+ * desk running against the API needs no database connection.
+ */
+public interface LibraryService {
+    
+    /**
+     * Search the catalog
+     * @param searchTerm Text to search for; empty to list every book
+     * @return Matching books
+     */
+    List<Book> searchBooks(String searchTerm);
+    
+    /**
+     * Get several books by ID
+     * @param bookIds Book IDs
+     * @return Books found, in no particular order
+     */
+    List<Book> getBooksByIds(List<Integer> bookIds);
+    
+    /**
+     * Find a book by its ISBN, or by its ID if no ISBN matches
+     * @param code Scanned ISBN or book ID
+     * @return Book, or null if none matches
+     */
+    Book findBookByCode(String code);
+    
+    /**
+     * Find available books whose title starts with a prefix
+     * @param titlePrefix Title prefix; empty to list the first titles
+     * @param limit Maximum number of books
+     * @return Books with a copy available, ordered by title
+     */
+    List<Book> findAvailableBooks(String titlePrefix, int limit);
+    
+    /**
+     * Get several members by ID
+     * @param memberIds Member IDs
+     * @return Members found, in no particular order
+     */
+    List<Member> getMembersByIds(List<Integer> memberIds);
+    
+    /**
+     * Find active members whose name starts with a prefix
+     * @param namePrefix Name prefix; empty to list the first names
+     * @param limit Maximum number of members
+     * @return Active members, ordered by name
+     */
+    List<Member> findActiveMembers(String namePrefix, int limit);
+    
+    /**
+     * Get how many more books a member may borrow
+     * @param memberId Member ID
+     * @return Member's open loans and limit
+     */
+    LoanAllowance getLoanAllowance(int memberId);
+    
+    /**
+     * Issue a book to a member
+     * @param bookIssue Issue to record; its ID is set on success
+     * @return true if successful, false if no copy is available or the issue
+     *         failed
+     * @throws LoanLimitExceededException if the member is at their borrowing limit
+     */
+    boolean issueBook(BookIssue bookIssue);
+    
+    /**
+     * Issue several books in one transaction, all or none
+     * @param bookIssues Issues to record; their IDs are set on success
+     * @return IDs of the books with no copy available (nothing was issued), an
+     *         empty list if every book was issued, or null if the issue failed
+     * @throws LoanLimitExceededException if a member would go over their
+     *         borrowing limit (nothing was issued)
+     */
+    List<Integer> issueBooks(List<BookIssue> bookIssues);
+    
+    /**
+     * Return an issued book today, charging any late fine
+     * @param issueId Issue ID
+     * @return The returned issue with its return date and fine, or null on failure
+     */
+    BookIssue returnBook(int issueId);
+    
+    /**
+     * Return several issued books today in one transaction, charging any late
+     * fines. Issues that are unknown or already returned are skipped.
+     * @param issueIds Issue IDs
+     * @return The issues returned, with their return dates and fines, or null on failure
+     */
+    List<BookIssue> returnBooks(List<Integer> issueIds);
+    
+    /**
+     * Search the books currently on loan
+     * @param searchTerm Book title or member name; empty to list every open loan
+     * @return Matching open issues with book titles and member names
+     */
+    List<BookIssue> searchOpenIssues(String searchTerm);
+    
+    /**
+     * Get several book issues by ID
+     * @param issueIds Issue IDs
+     * @return Issues found with book titles and member names, in no particular order
+     */
+    List<BookIssue> getBookIssuesByIds(List<Integer> issueIds);
+    
+    /**
+     * Get the loans past their due date
+     * @return Overdue issues with book titles and member names
+     */
+    List<BookIssue> getOverdueIssues();
+    
+    /**
+     * Get the dashboard statistics
+     * @return Current statistics
+     */
+    LibraryStatistics getStatistics();
+    
+    /**
+     * Get the daily circulation series for the dashboard charts
+     * @param days Number of days up to and including today
+     * @return Trend series
+     */
+    CirculationTrends getTrends(int days);
+}
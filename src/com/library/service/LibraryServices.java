@@ -0,0 +1,60 @@
+package com.library.service;
+
+import com.library.database.InvalidationRelay;
+
+/**
+ * Provides the library service used by the Swing client. Setting the system
+ * property {@code library.api.url} (for example http://server:8080) makes the
+ * client go through the HTTP API instead of calling the DAOs directly; the
+ * property {@code library.api.token} then gives the server's shared token.
+ * A client using the API has no database connection, so it offers only the
+ * circulation desk; managing members, users and reports needs a direct
+ * connection.
+ */
+public final class LibraryServices {
+    private static LibraryService service;
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private LibraryServices() {
+    }
+    
+    /**
+     * Get the configured library service
+     * @return Library service
+     */
+    public static synchronized LibraryService getLibraryService() {
+        if (service == null) {
+            if (isRemote()) {
+                service = new RemoteLibraryService(System.getProperty("library.api.url").trim(),
+                    System.getProperty("library.api.token", "").trim());
+            } else {
+                service = new LocalLibraryService();
+            }
+        }
+        return service;
+    }
+    
+    /**
+     * Check whether the client goes through the HTTP API
+     * @return true if {@code library.api.url} is set
+     */
+    public static boolean isRemote() {
+        String apiUrl = System.getProperty("library.api.url");
+        return apiUrl != null && !apiUrl.trim().isEmpty();
+    }
+    
+    /**
+     * Start picking up changes made by other clients: from the server's change
+     * feed when going through the API, otherwise from the database change log
+     */
+    public static void startChangeFeed() {
+        LibraryService libraryService = getLibraryService();
+        if (libraryService instanceof RemoteLibraryService) {
+            ((RemoteLibraryService) libraryService).startChangeFeed();
+        } else {
+            InvalidationRelay.getInstance().start();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.library.service;
+
+/**
+ * Headline numbers shown on the dashboard
+ */
+public class LibraryStatistics {
+    private final int totalBooks;
+    private final int totalMembers;
+    private final int booksIssued;
+    private final int overdueBooks;
+    
+    /**
+     * Constructor
+     * @param totalBooks Number of titles in the catalog
+     * @param totalMembers Number of members
+     * @param booksIssued Number of books currently issued
+     * @param overdueBooks Number of issued books past their due date
+     */
+    public LibraryStatistics(int totalBooks, int totalMembers, int booksIssued, int overdueBooks) {
+        this.totalBooks = totalBooks;
+        this.totalMembers = totalMembers;
+        this.booksIssued = booksIssued;
+        this.overdueBooks = overdueBooks;
+    }
+    
+    public int getTotalBooks() {
+        return totalBooks;
+    }
+    
+    public int getTotalMembers() {
+        return totalMembers;
+    }
+    
+    public int getBooksIssued() {
+        return booksIssued;
+    }
+    
+    public int getOverdueBooks() {
+        return overdueBooks;
+    }
+}
@@ -0,0 +1,209 @@
+package com.library.service;
+
+import com.library.events.BookChangedEvent;
+import com.library.events.ChangeType;
+import com.library.events.EventBus;
+import com.library.events.EventListener;
+import com.library.events.LibraryEvent;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.events.MemberChangedEvent;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dashboard counters kept current in memory. Each counter is a base value
+ * loaded from the database plus a LongAdder of the changes seen on the
+ * {@link EventBus} since then. The base is reloaded periodically, which also
+ * corrects drift from changes that publish no event, such as loans becoming
+ * overdue as the date passes.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.dashboard.reconcileSeconds - seconds between reloads, default 60</li>
+ * </ul>
+ */
+public class LiveStatistics {
+    private static final LiveStatistics INSTANCE = new LiveStatistics();
+    
+    private static final long RETURN_RECONCILE_DELAY_MS = 2000;
+    
+    private final long reconcileSeconds = Long.getLong("library.dashboard.reconcileSeconds", 60);
+    
+    private final Counter totalBooks = new Counter();
+    private final Counter totalMembers = new Counter();
+    private final Counter booksIssued = new Counter();
+    private final Counter overdueBooks = new Counter();
+    private final AtomicLong version = new AtomicLong();
+    
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> pendingReconcile;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private LiveStatistics() {
+    }
+    
+    /**
+     * Get the counters for this process
+     * @return The counters
+     */
+    public static LiveStatistics getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Subscribe to changes and load the counters in the background. Calling it
+     * again has no effect.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "library-live-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        EventBus.getInstance().subscribe(LibraryEvent.class, new EventListener<LibraryEvent>() {
+            @Override
+            public void onEvent(LibraryEvent event) {
+                apply(event);
+            }
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, 0, reconcileSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Check whether the counters have been loaded from the database yet
+     * @return true once the first reload has finished
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Get a number that changes whenever any counter may have changed. Views
+     * compare it with the last value they showed to skip needless updates.
+     * @return Change version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    public long getTotalBooks() {
+        return totalBooks.get();
+    }
+    
+    public long getTotalMembers() {
+        return totalMembers.get();
+    }
+    
+    public long getBooksIssued() {
+        return booksIssued.get();
+    }
+    
+    public long getOverdueBooks() {
+        return overdueBooks.get();
+    }
+    
+    /**
+     * Update the counters for one event. Runs on the event bus dispatch thread.
+     * @param event Published event
+     */
+    private void apply(LibraryEvent event) {
+        if (event instanceof BookChangedEvent) {
+            ChangeType type = ((BookChangedEvent) event).getChangeType();
+            if (type == ChangeType.ADDED) {
+                totalBooks.add(1);
+            } else if (type == ChangeType.DELETED) {
+                totalBooks.add(-1);
+            } else {
+                return;
+            }
+        } else if (event instanceof MemberChangedEvent) {
+            ChangeType type = ((MemberChangedEvent) event).getChangeType();
+            if (type == ChangeType.ADDED) {
+                totalMembers.add(1);
+            } else if (type == ChangeType.DELETED) {
+                totalMembers.add(-1);
+            } else {
+                return;
+            }
+        } else if (event instanceof LoanIssuedEvent) {
+            booksIssued.add(1);
+        } else if (event instanceof LoanReturnedEvent) {
+            booksIssued.add(-1);
+            // The event does not say whether the loan was overdue
+            scheduleReconcile();
+        } else {
+            return;
+        }
+        version.incrementAndGet();
+    }
+    
+    /**
+     * Reload the counters soon, coalescing requests that arrive before it runs
+     */
+    private synchronized void scheduleReconcile() {
+        if (pendingReconcile == null || pendingReconcile.isDone()) {
+            pendingReconcile = scheduler.schedule(this::reconcile, RETURN_RECONCILE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Reload the base values from the database
+     */
+    private void reconcile() {
+        try {
+            long[] seen = {totalBooks.delta(), totalMembers.delta(), booksIssued.delta(), overdueBooks.delta()};
+            LibraryStatistics stats = LibraryServices.getLibraryService().getStatistics();
+            totalBooks.rebase(stats.getTotalBooks(), seen[0]);
+            totalMembers.rebase(stats.getTotalMembers(), seen[1]);
+            booksIssued.rebase(stats.getBooksIssued(), seen[2]);
+            overdueBooks.rebase(stats.getOverdueBooks(), seen[3]);
+            loaded = true;
+            version.incrementAndGet();
+        } catch (RuntimeException e) {
+            // Keep the scheduled reloads running
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * A database value plus the changes counted since it was read
+     */
+    private static class Counter {
+        private final LongAdder changes = new LongAdder();
+        private volatile long base;
+        
+        void add(long change) {
+            changes.add(change);
+        }
+        
+        long delta() {
+            return changes.sum();
+        }
+        
+        long get() {
+            return base + changes.sum();
+        }
+        
+        /**
+         * Take a freshly read value as the new base. Changes counted before the
+         * read are already part of the value, so they are subtracted out.
+         * @param value Value read from the database
+         * @param seenBefore Sum of the changes when the read started
+         */
+        void rebase(long value, long seenBefore) {
+            base = value - seenBefore;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.service;
+
+/**
+ * How many books a member holds against their borrowing limit
+ */
+public class LoanAllowance {
+    private final int openLoans;
+    private final int limit;
+    private final int remaining;
+    
+    /**
+     * Constructor
+     * @param openLoans Books the member holds
+     * @param limit Books the member's type may hold, or -1 for no limit
+     * @param remaining Further books the member may borrow, or Integer.MAX_VALUE
+     *        if the limit is not known yet or the member has none
+     */
+    public LoanAllowance(int openLoans, int limit, int remaining) {
+        this.openLoans = openLoans;
+        this.limit = limit;
+        this.remaining = remaining;
+    }
+    
+    public int getOpenLoans() {
+        return openLoans;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public int getRemaining() {
+        return remaining;
+    }
+}
@@ -0,0 +1,22 @@
+package com.library.service;
+
+/**
+ * Thrown when issuing books would take a member over their borrowing limit.
+ * Nothing is issued.
+ */
+public class LoanLimitExceededException extends RuntimeException {
+    private final int memberId;
+    
+    /**
+     * Constructor
+     * @param memberId Member who would go over their limit
+     */
+    public LoanLimitExceededException(int memberId) {
+        super("Member " + memberId + " would go over their borrowing limit");
+        this.memberId = memberId;
+    }
+    
+    public int getMemberId() {
+        return memberId;
+    }
+}
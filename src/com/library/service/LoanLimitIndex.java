@@ -0,0 +1,352 @@
+package com.library.service;
+
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import com.library.search.CatalogLoader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Borrowing limits by membership type, checked against an in-memory count of
+ * each member's open loans so the issue path needs no extra query. The
+ * {@link CatalogLoader} fills in the member types and open loans and applies
+ * later changes. Loans are tracked by issue ID, so a loan seen both by the
+ * initial load and in an event, or confirmed by {@link #confirm} before its
+ * event arrives, is only counted once. Issues are counted by
+ * {@link #reserve} before they are recorded, so concurrent issues for the
+ * same member cannot both take their last place.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.loans.limit.Student - books a student may hold, default 5</li>
+ *   <li>library.loans.limit.Faculty - books a faculty member may hold, default 20</li>
+ *   <li>library.loans.limit.Staff - books a staff member may hold, default 10</li>
+ * </ul>
+ */
+public class LoanLimitIndex {
+    private static final LoanLimitIndex INSTANCE = new LoanLimitIndex();
+    
+    private final Map<String, Integer> limits = new HashMap<>();
+    private final Map<Integer, Integer> memberByOpenIssue = new HashMap<>();
+    private final Map<Integer, Integer> openLoans = new HashMap<>();
+    private final Map<Integer, String> memberTypes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private boolean registered;
+    private volatile boolean loaded;
+    
+    /**
+     * Private constructor, use {@link #getInstance()}
+     */
+    private LoanLimitIndex() {
+        limits.put("Student", Integer.getInteger("library.loans.limit.Student", 5));
+        limits.put("Faculty", Integer.getInteger("library.loans.limit.Faculty", 20));
+        limits.put("Staff", Integer.getInteger("library.loans.limit.Staff", 10));
+    }
+    
+    /**
+     * Get the index for this process
+     * @return The index
+     */
+    public static LoanLimitIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Add the index to the {@link CatalogLoader}, which loads it once started.
+     * Calling it again has no effect.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        
+        CatalogLoader.getInstance().addListener(new CatalogLoader.Listener() {
+            @Override
+            public void memberLoaded(Member member, int loans) {
+                setMemberType(member.getMemberId(), member.getMemberType());
+            }
+            
+            @Override
+            public void openLoanLoaded(int issueId, int memberId) {
+                addLoan(issueId, memberId);
+            }
+            
+            @Override
+            public void catalogLoaded() {
+                loaded = true;
+            }
+            
+            @Override
+            public void memberChanged(int memberId, Member member) {
+                if (member == null) {
+                    removeMember(memberId);
+                } else {
+                    setMemberType(memberId, member.getMemberType());
+                }
+            }
+            
+            @Override
+            public void loanIssued(LoanIssuedEvent event, Supplier<Book> book) {
+                addLoan(event.getIssueId(), event.getMemberId());
+            }
+            
+            @Override
+            public void loanReturned(LoanReturnedEvent event, Supplier<Book> book) {
+                removeLoan(event.getIssueId());
+            }
+        }, CatalogLoader.Table.MEMBERS, CatalogLoader.Table.LOANS);
+    }
+    
+    /**
+     * Check whether the initial load has finished
+     * @return true once every member and open loan is indexed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Get the number of books a type of member may hold at once
+     * @param memberType Membership type (Student, Faculty, Staff)
+     * @return Limit, or -1 if the type has none
+     */
+    public int getLimit(String memberType) {
+        Integer limit = limits.get(memberType);
+        return limit != null ? limit : -1;
+    }
+    
+    /**
+     * Get the number of further books a member may borrow
+     * @param memberId Member ID
+     * @return Books left under the member's limit, never below zero, or
+     *         Integer.MAX_VALUE if the index is still loading or the member
+     *         has no known limit
+     */
+    public int getRemaining(int memberId) {
+        lock.readLock().lock();
+        try {
+            return remaining(memberId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get a member's open loans and limit in one read
+     * @param memberId Member ID
+     * @return Allowance; the remaining count is Integer.MAX_VALUE while the
+     *         index is loading or if the member has no known limit
+     */
+    public LoanAllowance getAllowance(int memberId) {
+        lock.readLock().lock();
+        try {
+            int open = openLoans.getOrDefault(memberId, 0);
+            return new LoanAllowance(open, getLimit(memberTypes.get(memberId)), remaining(memberId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Count some issues against their members' limits before they are
+     * recorded. The check and the count are made under one lock, so two
+     * issues racing for a member's last place cannot both get it. Follow with
+     * {@link #confirm} once the issues are recorded, or {@link #release} if
+     * they are not.
+     * @param bookIssues Issues about to be recorded
+     * @return Reservation to confirm or release
+     * @throws LoanLimitExceededException if a member would go over their
+     *         limit; nothing is reserved
+     */
+    public Reservation reserve(List<BookIssue> bookIssues) {
+        Map<Integer, Integer> requested = new HashMap<>();
+        for (BookIssue bookIssue : bookIssues) {
+            requested.merge(bookIssue.getMemberId(), 1, Integer::sum);
+        }
+        
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                if (entry.getValue() > remaining(entry.getKey())) {
+                    throw new LoanLimitExceededException(entry.getKey());
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                openLoans.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Reservation(requested);
+    }
+    
+    /**
+     * Turn a reservation into the issues it was made for, so their events are
+     * not counted again
+     * @param reservation Reservation for the issues
+     * @param bookIssues Issues recorded, with their IDs set
+     */
+    public void confirm(Reservation reservation, List<BookIssue> bookIssues) {
+        lock.writeLock().lock();
+        try {
+            reservation.settle();
+            for (BookIssue bookIssue : bookIssues) {
+                if (memberByOpenIssue.putIfAbsent(bookIssue.getIssueId(), bookIssue.getMemberId()) != null) {
+                    // Its event arrived first and counted it already
+                    subtractLoans(bookIssue.getMemberId(), 1);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Give back the places of issues that were not recorded
+     * @param reservation Reservation for the issues
+     */
+    public void release(Reservation reservation) {
+        lock.writeLock().lock();
+        try {
+            reservation.settle();
+            for (Map.Entry<Integer, Integer> entry : reservation.loans.entrySet()) {
+                subtractLoans(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the number of further books a member may borrow. The caller holds
+     * the lock.
+     * @param memberId Member ID
+     * @return Books left under the member's limit, never below zero, or
+     *         Integer.MAX_VALUE if the index is still loading or the member
+     *         has no known limit
+     */
+    private int remaining(int memberId) {
+        int limit = getLimit(memberTypes.get(memberId));
+        if (!loaded || limit < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, limit - openLoans.getOrDefault(memberId, 0));
+    }
+    
+    /**
+     * Set the membership type of a member
+     * @param memberId Member ID
+     * @param memberType Membership type
+     */
+    private void setMemberType(int memberId, String memberType) {
+        lock.writeLock().lock();
+        try {
+            // Share the key strings of the limits map rather than one string per member
+            for (String type : limits.keySet()) {
+                if (type.equals(memberType)) {
+                    memberType = type;
+                    break;
+                }
+            }
+            memberTypes.put(memberId, memberType);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Count an open loan unless it is already counted
+     * @param issueId Issue ID
+     * @param memberId Member holding the book
+     */
+    private void addLoan(int issueId, int memberId) {
+        lock.writeLock().lock();
+        try {
+            if (memberByOpenIssue.putIfAbsent(issueId, memberId) == null) {
+                openLoans.merge(memberId, 1, Integer::sum);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Stop counting a returned loan
+     * @param issueId Issue ID
+     */
+    private void removeLoan(int issueId) {
+        lock.writeLock().lock();
+        try {
+            Integer memberId = memberByOpenIssue.remove(issueId);
+            if (memberId != null) {
+                subtractLoans(memberId, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Take loans off a member's count. The caller holds the write lock.
+     * @param memberId Member ID
+     * @param loans Loans to take off
+     */
+    private void subtractLoans(int memberId, int loans) {
+        if (openLoans.merge(memberId, -loans, Integer::sum) <= 0) {
+            openLoans.remove(memberId);
+        }
+    }
+    
+    /**
+     * Drop a deleted member and the loans removed with them
+     * @param memberId Member ID
+     */
+    private void removeMember(int memberId) {
+        lock.writeLock().lock();
+        try {
+            memberTypes.remove(memberId);
+            if (openLoans.remove(memberId) != null) {
+                memberByOpenIssue.values().removeIf(id -> id == memberId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Places taken by issues that are being recorded, until they are
+     * confirmed or released
+     */
+    public static class Reservation {
+        private final Map<Integer, Integer> loans;
+        private boolean settled;
+        
+        /**
+         * Constructor
+         * @param loans Places taken, by member ID
+         */
+        private Reservation(Map<Integer, Integer> loans) {
+            this.loans = loans;
+        }
+        
+        /**
+         * Mark the reservation confirmed or released
+         * @throws IllegalStateException if it already was
+         */
+        private void settle() {
+            if (settled) {
+                throw new IllegalStateException("Reservation already confirmed or released");
+            }
+            settled = true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.library.service;
+
+import com.library.database.BookDAO;
+import com.library.database.BookIssueDAO;
+import com.library.database.MemberDAO;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import com.library.reports.CirculationTrends;
+import com.library.reports.ReportEngine;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Library service that talks to the database through the DAOs. Issues that
+ * would take a member over their borrowing limit are refused with a
+ * {@link LoanLimitExceededException}. Their places are reserved in the
+ * {@link LoanLimitIndex} before they are recorded.
+ */
+public class LocalLibraryService implements LibraryService {
+    private BookDAO bookDAO;
+    private MemberDAO memberDAO;
+    private BookIssueDAO bookIssueDAO;
+    private LoanLimitIndex loanLimits;
+    private ReportEngine reportEngine;
+    
+    /**
+     * Constructor
+     */
+    public LocalLibraryService() {
+        bookDAO = new BookDAO();
+        memberDAO = new MemberDAO();
+        bookIssueDAO = new BookIssueDAO();
+        loanLimits = LoanLimitIndex.getInstance();
+        reportEngine = new ReportEngine();
+    }
+    
+    @Override
+    public List<Book> searchBooks(String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return bookDAO.getAllBooks();
+        }
+        return bookDAO.searchBooks(searchTerm.trim());
+    }
+    
+    @Override
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        return bookDAO.getBooksByIds(bookIds);
+    }
+    
+    @Override
+    public Book findBookByCode(String code) {
+        Book book = bookDAO.getBookByIsbn(code);
+        if (book == null && code.matches("\\d{1,9}")) {
+            book = bookDAO.getBookById(Integer.parseInt(code));
+        }
+        return book;
+    }
+    
+    @Override
+    public List<Book> findAvailableBooks(String titlePrefix, int limit) {
+        return bookDAO.findAvailableByTitlePrefix(titlePrefix, limit);
+    }
+    
+    @Override
+    public List<Member> getMembersByIds(List<Integer> memberIds) {
+        return memberDAO.getMembersByIds(memberIds);
+    }
+    
+    @Override
+    public List<Member> findActiveMembers(String namePrefix, int limit) {
+        return memberDAO.findActiveByNamePrefix(namePrefix, limit);
+    }
+    
+    @Override
+    public LoanAllowance getLoanAllowance(int memberId) {
+        return loanLimits.getAllowance(memberId);
+    }
+    
+    @Override
+    public boolean issueBook(BookIssue bookIssue) {
+        List<BookIssue> bookIssues = Collections.singletonList(bookIssue);
+        LoanLimitIndex.Reservation reservation = loanLimits.reserve(bookIssues);
+        boolean issued = false;
+        try {
+            issued = bookIssueDAO.addBookIssue(bookIssue);
+        } finally {
+            if (issued) {
+                loanLimits.confirm(reservation, bookIssues);
+            } else {
+                loanLimits.release(reservation);
+            }
+        }
+        return issued;
+    }
+    
+    @Override
+    public List<Integer> issueBooks(List<BookIssue> bookIssues) {
+        LoanLimitIndex.Reservation reservation = loanLimits.reserve(bookIssues);
+        List<Integer> unavailable = null;
+        try {
+            unavailable = bookIssueDAO.addBookIssues(bookIssues);
+        } finally {
+            if (unavailable != null && unavailable.isEmpty()) {
+                loanLimits.confirm(reservation, bookIssues);
+            } else {
+                loanLimits.release(reservation);
+            }
+        }
+        return unavailable;
+    }
+    
+    @Override
+    public BookIssue returnBook(int issueId) {
+        BookIssue issue = bookIssueDAO.getBookIssueById(issueId);
+        if (issue == null || issue.getReturnDate() != null) {
+            return null;
+        }
+        
+        LocalDate today = LocalDate.now();
+        double fine = FineCalculator.calculateFine(issue.getDueDate(), today);
+        
+        if (!bookIssueDAO.returnBookIssue(issueId, Date.valueOf(today), fine)) {
+            return null;
+        }
+        
+        issue.setStatus("Returned");
+        issue.setReturnDate(Date.valueOf(today));
+        issue.setFineAmount(fine);
+        return issue;
+    }
+    
+    @Override
+    public List<BookIssue> returnBooks(List<Integer> issueIds) {
+        LocalDate today = LocalDate.now();
+        List<BookIssue> open = new ArrayList<>();
+        for (BookIssue issue : bookIssueDAO.getBookIssuesByIds(issueIds)) {
+            if (issue.getReturnDate() == null) {
+                issue.setFineAmount(FineCalculator.calculateFine(issue.getDueDate(), today));
+                open.add(issue);
+            }
+        }
+        
+        List<Integer> returnedIds = bookIssueDAO.returnBookIssues(open, Date.valueOf(today));
+        if (returnedIds == null) {
+            return null;
+        }
+        
+        Set<Integer> returnedSet = new HashSet<>(returnedIds);
+        List<BookIssue> returned = new ArrayList<>();
+        for (BookIssue issue : open) {
+            if (returnedSet.contains(issue.getIssueId())) {
+                issue.setStatus("Returned");
+                issue.setReturnDate(Date.valueOf(today));
+                returned.add(issue);
+            }
+        }
+        return returned;
+    }
+    
+    @Override
+    public List<BookIssue> searchOpenIssues(String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return bookIssueDAO.getOpenBookIssues();
+        }
+        return bookIssueDAO.searchOpenBookIssues(searchTerm.trim());
+    }
+    
+    @Override
+    public List<BookIssue> getBookIssuesByIds(List<Integer> issueIds) {
+        return bookIssueDAO.getBookIssuesByIds(issueIds);
+    }
+    
+    @Override
+    public List<BookIssue> getOverdueIssues() {
+        return bookIssueDAO.getOverdueBooks();
+    }
+    
+    @Override
+    public LibraryStatistics getStatistics() {
+        return new LibraryStatistics(
+            bookDAO.countBooks(),
+            memberDAO.countMembers(),
+            bookIssueDAO.countIssuedBooks(),
+            bookIssueDAO.countOverdueBooks()
+        );
+    }
+    
+    @Override
+    public CirculationTrends getTrends(int days) {
+        return reportEngine.trends(days);
+    }
+}
@@ -0,0 +1,245 @@
+package com.library.service;
+
+import com.library.events.BookChangedEvent;
+import com.library.events.ChangeType;
+import com.library.events.LibraryEvent;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.events.MemberChangedEvent;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import com.library.reports.CirculationTrends;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts models to and from the JSON objects used by the HTTP API
+ */
+final class ModelMapper {
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private ModelMapper() {
+    }
+    
+    static Map<String, Object> toMap(Book book) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("bookId", book.getBookId());
+        map.put("title", book.getTitle());
+        map.put("author", book.getAuthor());
+        map.put("publisher", book.getPublisher());
+        map.put("isbn", book.getIsbn());
+        map.put("category", book.getCategory());
+        map.put("quantity", book.getQuantity());
+        map.put("available", book.getAvailable());
+        map.put("addedDate", book.getAddedDate());
+        return map;
+    }
+    
+    static Book toBook(Map<?, ?> map) {
+        return new Book(
+            intValue(map.get("bookId")),
+            (String) map.get("title"),
+            (String) map.get("author"),
+            (String) map.get("publisher"),
+            (String) map.get("isbn"),
+            (String) map.get("category"),
+            intValue(map.get("quantity")),
+            intValue(map.get("available")),
+            dateValue(map.get("addedDate"))
+        );
+    }
+    
+    static Map<String, Object> toMap(BookIssue issue) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("issueId", issue.getIssueId());
+        map.put("bookId", issue.getBookId());
+        map.put("memberId", issue.getMemberId());
+        map.put("issueDate", issue.getIssueDate());
+        map.put("dueDate", issue.getDueDate());
+        map.put("returnDate", issue.getReturnDate());
+        map.put("fineAmount", issue.getFineAmount());
+        map.put("status", issue.getStatus());
+        map.put("bookTitle", issue.getBookTitle());
+        map.put("memberName", issue.getMemberName());
+        return map;
+    }
+    
+    static BookIssue toBookIssue(Map<?, ?> map) {
+        BookIssue issue = new BookIssue(
+            intValue(map.get("bookId")),
+            intValue(map.get("memberId")),
+            dateValue(map.get("issueDate")),
+            dateValue(map.get("dueDate")),
+            map.containsKey("status") ? (String) map.get("status") : "Issued"
+        );
+        issue.setIssueId(intValue(map.get("issueId")));
+        issue.setReturnDate(dateValue(map.get("returnDate")));
+        issue.setFineAmount(map.get("fineAmount") != null ? ((Number) map.get("fineAmount")).doubleValue() : 0);
+        issue.setBookTitle((String) map.get("bookTitle"));
+        issue.setMemberName((String) map.get("memberName"));
+        return issue;
+    }
+    
+    static Map<String, Object> toMap(Member member) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("memberId", member.getMemberId());
+        map.put("name", member.getName());
+        map.put("email", member.getEmail());
+        map.put("phone", member.getPhone());
+        map.put("address", member.getAddress());
+        map.put("memberType", member.getMemberType());
+        map.put("joinDate", member.getJoinDate());
+        map.put("status", member.getStatus());
+        return map;
+    }
+    
+    static Member toMember(Map<?, ?> map) {
+        return new Member(
+            intValue(map.get("memberId")),
+            (String) map.get("name"),
+            (String) map.get("email"),
+            (String) map.get("phone"),
+            (String) map.get("address"),
+            (String) map.get("memberType"),
+            dateValue(map.get("joinDate")),
+            (String) map.get("status")
+        );
+    }
+    
+    static Map<String, Object> toMap(LoanAllowance allowance) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("openLoans", allowance.getOpenLoans());
+        map.put("limit", allowance.getLimit());
+        map.put("remaining", allowance.getRemaining());
+        return map;
+    }
+    
+    static LoanAllowance toLoanAllowance(Map<?, ?> map) {
+        return new LoanAllowance(
+            intValue(map.get("openLoans")),
+            intValue(map.get("limit")),
+            intValue(map.get("remaining"))
+        );
+    }
+    
+    static Map<String, Object> toMap(CirculationTrends trends) {
+        List<Object> issues = new ArrayList<>();
+        List<Object> returns = new ArrayList<>();
+        List<Object> overdue = new ArrayList<>();
+        List<Object> utilization = new ArrayList<>();
+        for (int day = 0; day < trends.getDays(); day++) {
+            issues.add(trends.getIssues()[day]);
+            returns.add(trends.getReturns()[day]);
+            overdue.add(trends.getOverdue()[day]);
+            utilization.add(trends.getUtilization()[day]);
+        }
+        
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("firstDay", trends.getFirstDay());
+        map.put("issues", issues);
+        map.put("returns", returns);
+        map.put("overdue", overdue);
+        map.put("utilization", utilization);
+        return map;
+    }
+    
+    static CirculationTrends toTrends(Map<?, ?> map) {
+        List<?> issues = (List<?>) map.get("issues");
+        List<?> returns = (List<?>) map.get("returns");
+        List<?> overdue = (List<?>) map.get("overdue");
+        List<?> utilization = (List<?>) map.get("utilization");
+        int days = issues.size();
+        
+        CirculationTrends trends = new CirculationTrends(LocalDate.parse((String) map.get("firstDay")),
+            new int[days], new int[days], new int[days], new double[days]);
+        for (int day = 0; day < days; day++) {
+            trends.getIssues()[day] = intValue(issues.get(day));
+            trends.getReturns()[day] = intValue(returns.get(day));
+            trends.getOverdue()[day] = intValue(overdue.get(day));
+            trends.getUtilization()[day] = ((Number) utilization.get(day)).doubleValue();
+        }
+        return trends;
+    }
+    
+    /**
+     * Convert an event, using the same type names as the change_log table
+     * @param event Event
+     * @return JSON object, or null for an event type clients do not receive
+     */
+    static Map<String, Object> toMap(LibraryEvent event) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (event instanceof BookChangedEvent) {
+            map.put("type", "Book");
+            map.put("id", ((BookChangedEvent) event).getBookId());
+            map.put("changeType", ((BookChangedEvent) event).getChangeType().name());
+        } else if (event instanceof MemberChangedEvent) {
+            map.put("type", "Member");
+            map.put("id", ((MemberChangedEvent) event).getMemberId());
+            map.put("changeType", ((MemberChangedEvent) event).getChangeType().name());
+        } else if (event instanceof LoanIssuedEvent) {
+            LoanIssuedEvent loanEvent = (LoanIssuedEvent) event;
+            map.put("type", "LoanIssued");
+            map.put("id", loanEvent.getIssueId());
+            map.put("bookId", loanEvent.getBookId());
+            map.put("memberId", loanEvent.getMemberId());
+        } else if (event instanceof LoanReturnedEvent) {
+            LoanReturnedEvent loanEvent = (LoanReturnedEvent) event;
+            map.put("type", "LoanReturned");
+            map.put("id", loanEvent.getIssueId());
+            map.put("bookId", loanEvent.getBookId());
+            map.put("memberId", loanEvent.getMemberId());
+        } else {
+            return null;
+        }
+        return map;
+    }
+    
+    static LibraryEvent toEvent(Map<?, ?> map) {
+        int id = intValue(map.get("id"));
+        switch ((String) map.get("type")) {
+            case "Book":
+                return new BookChangedEvent(id, ChangeType.valueOf((String) map.get("changeType")));
+            case "Member":
+                return new MemberChangedEvent(id, ChangeType.valueOf((String) map.get("changeType")));
+            case "LoanIssued":
+                return new LoanIssuedEvent(id, intValue(map.get("bookId")), intValue(map.get("memberId")));
+            case "LoanReturned":
+                return new LoanReturnedEvent(id, intValue(map.get("bookId")), intValue(map.get("memberId")));
+            default:
+                throw new IllegalArgumentException("Unknown event type " + map.get("type"));
+        }
+    }
+    
+    static Map<String, Object> toMap(LibraryStatistics stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("totalBooks", stats.getTotalBooks());
+        map.put("totalMembers", stats.getTotalMembers());
+        map.put("booksIssued", stats.getBooksIssued());
+        map.put("overdueBooks", stats.getOverdueBooks());
+        return map;
+    }
+    
+    static LibraryStatistics toStatistics(Map<?, ?> map) {
+        return new LibraryStatistics(
+            intValue(map.get("totalBooks")),
+            intValue(map.get("totalMembers")),
+            intValue(map.get("booksIssued")),
+            intValue(map.get("overdueBooks"))
+        );
+    }
+    
+    private static int intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+    
+    private static Date dateValue(Object value) {
+        return value != null ? Date.valueOf((String) value) : null;
+    }
+}
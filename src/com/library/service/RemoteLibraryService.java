@@ -0,0 +1,458 @@
+package com.library.service;
+
+import com.library.events.EventBus;
+import com.library.events.LibraryEvent;
+import com.library.models.Book;
+import com.library.models.BookIssue;
+import com.library.models.Member;
+import com.library.reports.CirculationTrends;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Library service that calls a {@link LibraryApiServer} over HTTP. Changes
+ * made by other clients are picked up by polling the server's change feed,
+ * so the client needs no database connection at all.
+ */
+public class RemoteLibraryService implements LibraryService {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration CHANGE_POLL_TIMEOUT = TIMEOUT.plusMillis(LibraryApiServer.CHANGE_POLL_MILLIS);
+    private static final long CHANGE_RETRY_MILLIS = 5000;
+    
+    private final String baseUrl;
+    private final String token;
+    private final HttpClient client;
+    
+    private Thread changePoller;
+    
+    /**
+     * Constructor
+     * @param baseUrl Base URL of the API server, e.g. http://localhost:8080
+     * @param token Shared token the server requires
+     */
+    public RemoteLibraryService(String baseUrl, String token) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.token = token;
+        this.client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    }
+    
+    /**
+     * Start republishing the server's changes on this client's
+     * {@link EventBus}. Calling it again has no effect.
+     */
+    public synchronized void startChangeFeed() {
+        if (changePoller != null) {
+            return;
+        }
+        
+        changePoller = new Thread(this::pollChanges, "library-change-feed");
+        changePoller.setDaemon(true);
+        changePoller.start();
+    }
+    
+    @Override
+    public List<Book> searchBooks(String searchTerm) {
+        List<Book> books = new ArrayList<>();
+        String query = searchTerm == null ? "" : URLEncoder.encode(searchTerm.trim(), StandardCharsets.UTF_8);
+        
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/books?q=" + query)).GET());
+            if (result instanceof List) {
+                for (Object item : (List<?>) result) {
+                    books.add(ModelMapper.toBook((Map<?, ?>) item));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return books;
+    }
+    
+    @Override
+    public List<Book> getBooksByIds(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getBooks("/api/books?ids=" + joinIds(bookIds));
+    }
+    
+    @Override
+    public Book findBookByCode(String code) {
+        try {
+            Object result = send(HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/books/lookup?code=" + encode(code))).GET());
+            if (result instanceof Map) {
+                return ModelMapper.toBook((Map<?, ?>) result);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public List<Book> findAvailableBooks(String titlePrefix, int limit) {
+        return getBooks("/api/books/available?prefix=" + encode(titlePrefix) + "&limit=" + limit);
+    }
+    
+    @Override
+    public List<Member> getMembersByIds(List<Integer> memberIds) {
+        if (memberIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getMembers("/api/members?ids=" + joinIds(memberIds));
+    }
+    
+    @Override
+    public List<Member> findActiveMembers(String namePrefix, int limit) {
+        return getMembers("/api/members/active?prefix=" + encode(namePrefix) + "&limit=" + limit);
+    }
+    
+    @Override
+    public LoanAllowance getLoanAllowance(int memberId) {
+        try {
+            Object result = send(HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/members/" + memberId + "/allowance")).GET());
+            if (result instanceof Map) {
+                return ModelMapper.toLoanAllowance((Map<?, ?>) result);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        // Unknown; the server still enforces the limit when the books are issued
+        return new LoanAllowance(0, -1, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public boolean issueBook(BookIssue bookIssue) {
+        String body = Json.write(ModelMapper.toMap(bookIssue));
+        
+        try {
+            Object result = sendIssues(HttpRequest.newBuilder(URI.create(baseUrl + "/api/issues"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+            if (result instanceof Map) {
+                bookIssue.setIssueId(ModelMapper.toBookIssue((Map<?, ?>) result).getIssueId());
+                return true;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return false;
+    }
+    
+    @Override
+    public List<Integer> issueBooks(List<BookIssue> bookIssues) {
+        List<Object> issues = new ArrayList<>();
+        for (BookIssue bookIssue : bookIssues) {
+            issues.add(ModelMapper.toMap(bookIssue));
+        }
+        
+        try {
+            Object result = sendIssues(HttpRequest.newBuilder(URI.create(baseUrl + "/api/issues/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(issues))));
+            if (result instanceof Map) {
+                List<Integer> unavailable = new ArrayList<>();
+                for (Object bookId : (List<?>) ((Map<?, ?>) result).get("unavailable")) {
+                    unavailable.add(((Number) bookId).intValue());
+                }
+                List<?> issued = (List<?>) ((Map<?, ?>) result).get("issues");
+                for (int i = 0; i < issued.size() && i < bookIssues.size(); i++) {
+                    bookIssues.get(i).setIssueId(ModelMapper.toBookIssue((Map<?, ?>) issued.get(i)).getIssueId());
+                }
+                return unavailable;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public BookIssue returnBook(int issueId) {
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/issues/" + issueId + "/return"))
+                .POST(HttpRequest.BodyPublishers.noBody()));
+            if (result instanceof Map) {
+                return ModelMapper.toBookIssue((Map<?, ?>) result);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public List<BookIssue> returnBooks(List<Integer> issueIds) {
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/issues/returns"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(new ArrayList<Object>(issueIds)))));
+            if (result instanceof List) {
+                List<BookIssue> returned = new ArrayList<>();
+                for (Object item : (List<?>) result) {
+                    returned.add(ModelMapper.toBookIssue((Map<?, ?>) item));
+                }
+                return returned;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public List<BookIssue> searchOpenIssues(String searchTerm) {
+        return getBookIssues("/api/issues?q=" + encode(searchTerm));
+    }
+    
+    @Override
+    public List<BookIssue> getBookIssuesByIds(List<Integer> issueIds) {
+        if (issueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getBookIssues("/api/issues?ids=" + joinIds(issueIds));
+    }
+    
+    @Override
+    public List<BookIssue> getOverdueIssues() {
+        return getBookIssues("/api/issues/overdue");
+    }
+    
+    @Override
+    public LibraryStatistics getStatistics() {
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/stats")).GET());
+            if (result instanceof Map) {
+                return ModelMapper.toStatistics((Map<?, ?>) result);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return new LibraryStatistics(0, 0, 0, 0);
+    }
+    
+    @Override
+    public CirculationTrends getTrends(int days) {
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/trends?days=" + days)).GET());
+            if (result instanceof Map) {
+                return ModelMapper.toTrends((Map<?, ?>) result);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Poll the server's change feed until the process exits, publishing each
+     * change as a remote event. Runs on its own thread.
+     */
+    private void pollChanges() {
+        long last = -1;
+        while (true) {
+            try {
+                Object result = send(HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/api/changes?after=" + last)).GET(), CHANGE_POLL_TIMEOUT);
+                if (!(result instanceof Map)) {
+                    Thread.sleep(CHANGE_RETRY_MILLIS);
+                    continue;
+                }
+                
+                Map<?, ?> batch = (Map<?, ?>) result;
+                if (Boolean.TRUE.equals(batch.get("reset")) && last >= 0) {
+                    // Views pick up what was missed the next time they are shown
+                    System.err.println("Missed changes from the library server; open views may be out of date");
+                }
+                for (Object change : (List<?>) batch.get("changes")) {
+                    LibraryEvent event = ModelMapper.toEvent((Map<?, ?>) change);
+                    EventBus.getInstance().publish(event);
+                }
+                last = ((Number) batch.get("last")).longValue();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Keep polling once the server is back
+                e.printStackTrace();
+                try {
+                    Thread.sleep(CHANGE_RETRY_MILLIS);
+                } catch (InterruptedException stop) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get a list of books
+     * @param path Path and query of the request
+     * @return Books, or an empty list on failure
+     */
+    private List<Book> getBooks(String path) {
+        List<Book> books = new ArrayList<>();
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+            if (result instanceof List) {
+                for (Object item : (List<?>) result) {
+                    books.add(ModelMapper.toBook((Map<?, ?>) item));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return books;
+    }
+    
+    /**
+     * Get a list of members
+     * @param path Path and query of the request
+     * @return Members, or an empty list on failure
+     */
+    private List<Member> getMembers(String path) {
+        List<Member> members = new ArrayList<>();
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+            if (result instanceof List) {
+                for (Object item : (List<?>) result) {
+                    members.add(ModelMapper.toMember((Map<?, ?>) item));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return members;
+    }
+    
+    /**
+     * Get a list of book issues
+     * @param path Path and query of the request
+     * @return Book issues, or an empty list on failure
+     */
+    private List<BookIssue> getBookIssues(String path) {
+        List<BookIssue> issues = new ArrayList<>();
+        try {
+            Object result = send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+            if (result instanceof List) {
+                for (Object item : (List<?>) result) {
+                    issues.add(ModelMapper.toBookIssue((Map<?, ?>) item));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return issues;
+    }
+    
+    /**
+     * Encode a query parameter value
+     * @param value Value, may be null
+     * @return URL-encoded value
+     */
+    private static String encode(String value) {
+        return value == null ? "" : URLEncoder.encode(value.trim(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Join IDs for an ids query parameter
+     * @param ids IDs
+     * @return Comma-separated IDs
+     */
+    private static String joinIds(List<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer id : ids) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Send a request and parse the JSON response
+     * @param builder Request to send
+     * @return Parsed body of a 2xx response, or null for any other status
+     * @throws IOException if the request fails
+     */
+    private Object send(HttpRequest.Builder builder) throws IOException {
+        return send(builder, TIMEOUT);
+    }
+    
+    /**
+     * Send a request with the shared token and parse the JSON response
+     * @param builder Request to send
+     * @param timeout Longest time to wait for the response
+     * @return Parsed body of a 2xx response, or null for any other status
+     * @throws IOException if the request fails
+     */
+    private Object send(HttpRequest.Builder builder, Duration timeout) throws IOException {
+        HttpResponse<String> response = request(builder, timeout);
+        if (response.statusCode() / 100 != 2) {
+            return null;
+        }
+        return Json.parse(response.body());
+    }
+    
+    /**
+     * Send an issue request, turning the server's borrowing limit refusal
+     * back into the exception the local service throws
+     * @param builder Request to send
+     * @return Parsed body of a 2xx response, or null for any other status
+     * @throws IOException if the request fails
+     * @throws LoanLimitExceededException if a member would go over their limit
+     */
+    private Object sendIssues(HttpRequest.Builder builder) throws IOException {
+        HttpResponse<String> response = request(builder, TIMEOUT);
+        if (response.statusCode() == 409) {
+            Object error = Json.parse(response.body());
+            if (error instanceof Map && ((Map<?, ?>) error).get("memberOverLimit") instanceof Number) {
+                throw new LoanLimitExceededException(((Number) ((Map<?, ?>) error).get("memberOverLimit")).intValue());
+            }
+        }
+        if (response.statusCode() / 100 != 2) {
+            return null;
+        }
+        return Json.parse(response.body());
+    }
+    
+    /**
+     * Send a request with the shared token
+     * @param builder Request to send
+     * @param timeout Longest time to wait for the response
+     * @return Response, whatever its status
+     * @throws IOException if the request fails
+     */
+    private HttpResponse<String> request(HttpRequest.Builder builder, Duration timeout) throws IOException {
+        try {
+            return client.send(
+                builder.timeout(timeout)
+                    .header("Accept", "application/json")
+                    .header("Authorization", "Bearer " + token)
+                    .build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.library.service;
+
+import com.library.models.BookIssue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of scanned returns applied in the background. Scanning only enqueues
+ * the issue ID, so the desk can keep scanning while earlier items are
+ * processed. A worker thread takes the first waiting ID, waits briefly for
+ * more scans to arrive, and returns everything queued so far through
+ * {@link LibraryService#returnBooks(List)} in one transaction.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.returns.batchSize - most returns applied per transaction, default 50</li>
+ *   <li>library.returns.lingerMillis - time to wait for more scans before a batch, default 50</li>
+ * </ul>
+ */
+public class ReturnPipeline {
+    
+    /**
+     * Receives the outcome of each batch, on the pipeline thread
+     */
+    public interface Listener {
+        
+        /**
+         * Called after a batch has been applied
+         * @param returned Issues returned, with their fines
+         * @param failed Issue IDs that were not returned because they are
+         *        unknown, already returned, or the batch failed
+         */
+        void batchProcessed(List<BookIssue> returned, List<Integer> failed);
+    }
+    
+    private final int batchSize = Integer.getInteger("library.returns.batchSize", 50);
+    private final long lingerMillis = Long.getLong("library.returns.lingerMillis", 50);
+    
+    private final LibraryService service;
+    private final Listener listener;
+    private final BlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private Thread worker;
+    
+    /**
+     * Constructor
+     * @param service Service used to apply the returns
+     * @param listener Receives the outcome of each batch
+     */
+    public ReturnPipeline(LibraryService service, Listener listener) {
+        this.service = service;
+        this.listener = listener;
+    }
+    
+    /**
+     * Start the worker thread. Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        
+        worker = new Thread(this::run, "library-return-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Stop the worker thread. Returns still queued are not applied.
+     */
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        pending.addAndGet(-queue.size());
+        queue.clear();
+    }
+    
+    /**
+     * Queue a scanned issue for return
+     * @param issueId Issue ID
+     */
+    public void submit(int issueId) {
+        pending.incrementAndGet();
+        queue.add(issueId);
+    }
+    
+    /**
+     * Get the number of scans not yet applied
+     * @return Scans queued or in the batch being applied
+     */
+    public int getPending() {
+        return pending.get();
+    }
+    
+    /**
+     * Worker loop: collect a batch, apply it, report it
+     */
+    private void run() {
+        List<Integer> drained = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                drained.add(queue.take());
+                Thread.sleep(lingerMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(drained, batchSize - drained.size());
+            
+            // The same item scanned twice in a batch is returned once
+            Set<Integer> issueIds = new LinkedHashSet<>(drained);
+            List<BookIssue> returned = null;
+            try {
+                returned = service.returnBooks(new ArrayList<>(issueIds));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            if (returned == null) {
+                returned = new ArrayList<>();
+            }
+            
+            Set<Integer> returnedIds = new HashSet<>();
+            for (BookIssue issue : returned) {
+                returnedIds.add(issue.getIssueId());
+            }
+            List<Integer> failed = new ArrayList<>();
+            for (Integer issueId : issueIds) {
+                if (!returnedIds.contains(issueId)) {
+                    failed.add(issueId);
+                }
+            }
+            
+            pending.addAndGet(-drained.size());
+            drained.clear();
+            listener.batchProcessed(returned, failed);
+        }
+    }
+}
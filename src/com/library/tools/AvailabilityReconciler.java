@@ -0,0 +1,145 @@
+package com.library.tools;
+
+import com.library.database.BookDAO;
+import com.library.database.DatabaseConnection;
+import com.library.models.AvailabilityDiscrepancy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks books.available against quantity minus open loans for every book and
+ * optionally corrects it. The book ID range is split into chunks checked in
+ * parallel. Checking takes no locks; a fix locks one book and its loans at a
+ * time, so the job can run while the desks are issuing and returning books.
+ * Fixes go through the change log, so running desks pick them up.
+ *
+ * Arguments are key=value pairs:
+ * <pre>
+ * fix=false        correct the discrepancies found (default: report only)
+ * chunkSize=10000  book IDs per chunk
+ * threads=4        parallel chunks (default: half the connection pool)
+ * show=50          discrepancies to print
+ * </pre>
+ */
+public class AvailabilityReconciler {
+    
+    /**
+     * Entry point
+     * @param args key=value options
+     * @throws Exception if the job cannot run
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        
+        BookDAO bookDAO = new BookDAO();
+        int[] range = bookDAO.getBookIdRange();
+        if (range == null) {
+            System.out.println("No books to reconcile");
+            return;
+        }
+        
+        final boolean fix = Boolean.parseBoolean(options.getOrDefault("fix", "false"));
+        int chunkSize = Integer.parseInt(options.getOrDefault("chunkSize", "10000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Math.max(1, DatabaseConnection.getPool().getMaxSize() / 2))));
+        int show = Integer.parseInt(options.getOrDefault("show", "50"));
+        
+        System.out.printf("%s book IDs %d to %d in chunks of %d on %d threads%n",
+            fix ? "Reconciling" : "Checking", range[0], range[1], chunkSize, threads);
+        long start = System.nanoTime();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<int[]> chunks = new ArrayList<>();
+        List<Future<ChunkResult>> results = new ArrayList<>();
+        for (long first = range[0]; first <= range[1]; first += chunkSize) {
+            final int fromId = (int) first;
+            final int toId = (int) Math.min(first + chunkSize - 1, range[1]);
+            chunks.add(new int[] {fromId, toId});
+            results.add(executor.submit(() -> reconcileChunk(bookDAO, fromId, toId, fix)));
+        }
+        executor.shutdown();
+        
+        int failed = 0;
+        int found = 0;
+        int fixed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                ChunkResult result = results.get(i).get();
+                if (result == null) {
+                    failed++;
+                    System.out.println("Chunk " + chunks.get(i)[0] + "-" + chunks.get(i)[1] + " failed");
+                    continue;
+                }
+                for (AvailabilityDiscrepancy discrepancy : result.discrepancies) {
+                    if (found++ < show) {
+                        System.out.println(discrepancy);
+                    }
+                }
+                fixed += result.fixed;
+            } catch (ExecutionException e) {
+                failed++;
+                e.getCause().printStackTrace();
+            }
+        }
+        if (found > show) {
+            System.out.println("... and " + (found - show) + " more");
+        }
+        
+        System.out.printf("Checked %d chunks (%d failed) in %.1fs: %d discrepancies, %d fixed%n",
+            results.size(), failed, (System.nanoTime() - start) / 1e9, found, fixed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Check one chunk and fix it if requested
+     * @param bookDAO Book DAO
+     * @param fromId First book ID, inclusive
+     * @param toId Last book ID, inclusive
+     * @param fix true to correct the discrepancies
+     * @return Result, or null if the chunk could not be checked or fixed
+     */
+    private static ChunkResult reconcileChunk(BookDAO bookDAO, int fromId, int toId, boolean fix) {
+        List<AvailabilityDiscrepancy> discrepancies = bookDAO.findAvailabilityDrift(fromId, toId);
+        if (discrepancies == null) {
+            return null;
+        }
+        
+        int fixed = 0;
+        if (fix && !discrepancies.isEmpty()) {
+            List<Integer> bookIds = new ArrayList<>();
+            for (AvailabilityDiscrepancy discrepancy : discrepancies) {
+                bookIds.add(discrepancy.getBookId());
+            }
+            fixed = bookDAO.fixAvailability(bookIds);
+            if (fixed < 0) {
+                return null;
+            }
+        }
+        return new ChunkResult(discrepancies, fixed);
+    }
+    
+    /**
+     * Outcome of one chunk
+     */
+    private static class ChunkResult {
+        final List<AvailabilityDiscrepancy> discrepancies;
+        final int fixed;
+        
+        ChunkResult(List<AvailabilityDiscrepancy> discrepancies, int fixed) {
+            this.discrepancies = discrepancies;
+            this.fixed = fixed;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.library.tools;
+
+import com.library.database.BookDAO;
+import com.library.database.DatabaseConnection;
+import com.library.database.MemberDAO;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Fills the books, members and book_issues tables with a synthetic but
+ * realistic dataset. Used by the load generator and the benchmarks; the same
+ * random seed always produces the same data.
+ */
+public class DatasetSeeder {
+    private static final String[] CATEGORIES = {
+        "Programming", "Database", "Software Engineering", "Networking", "Mathematics",
+        "Physics", "History", "Literature", "Economics", "Biology"
+    };
+    private static final String[] PUBLISHERS = {
+        "Pearson", "McGraw Hill", "Prentice Hall", "Addison-Wesley", "O'Reilly",
+        "Springer", "Wiley", "Cambridge University Press", "MIT Press", "Elsevier"
+    };
+    private static final String[] TITLE_WORDS = {
+        "Introduction", "Principles", "Advanced", "Modern", "Applied", "Concepts", "Systems",
+        "Design", "Analysis", "Theory", "Practice", "Patterns", "Algorithms", "Data", "Networks",
+        "Programming", "Engineering", "History", "Foundations", "Handbook", "Essentials", "Guide"
+    };
+    private static final String[] FIRST_NAMES = {
+        "John", "Jane", "Mike", "Sarah", "David", "Emma", "Robert", "Olivia", "James", "Sophia",
+        "William", "Ava", "Daniel", "Mia", "Joseph", "Isabella", "Andrew", "Grace", "Erich", "Abraham"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Doe", "Johnson", "Brown", "Williams", "Jones", "Garcia", "Miller", "Davis", "Martin",
+        "Liang", "Silberschatz", "Gamma", "Hunt", "Wilson", "Moore", "Taylor", "Anderson", "Thomas", "Lee"
+    };
+    private static final int BATCH_SIZE = 1000;
+    
+    private final Random random;
+    
+    /**
+     * Constructor
+     * @param seed Random seed; equal seeds produce equal datasets
+     */
+    public DatasetSeeder(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Pick a word that occurs in generated titles, for driving searches
+     * @param random Random source
+     * @return Search term
+     */
+    public static String randomSearchTerm(Random random) {
+        return TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+    }
+    
+    /**
+     * Insert a synthetic catalog, member list and loan history in batches
+     * @param bookCount Number of books
+     * @param memberCount Number of members
+     * @param loanCount Number of loans; about one in ten is still open
+     * @throws SQLException if an insert fails
+     */
+    public void seed(int bookCount, int memberCount, int loanCount) throws SQLException {
+        long start = System.nanoTime();
+        
+        // Plan copies and loans first so that open loans never exceed a book's quantity
+        int[] quantity = new int[bookCount];
+        int[] available = new int[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            quantity[i] = 1 + random.nextInt(10);
+            available[i] = quantity[i];
+        }
+        
+        int[] loanBook = new int[loanCount];
+        boolean[] loanOpen = new boolean[loanCount];
+        for (int i = 0; i < loanCount; i++) {
+            int book = random.nextInt(bookCount);
+            boolean open = random.nextInt(10) == 0 && available[book] > 0;
+            if (open) {
+                available[book]--;
+            }
+            loanBook[i] = book;
+            loanOpen[i] = open;
+        }
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            int[] bookIds = new int[bookCount];
+            String bookSql = "INSERT INTO books (title, author, publisher, isbn, category, quantity, available, added_date, " +
+                             "search_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(bookSql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < bookCount; i++) {
+                    String title = randomTitle();
+                    String author = randomName();
+                    String publisher = PUBLISHERS[random.nextInt(PUBLISHERS.length)];
+                    String isbn = String.format("978-%010d", (long) (random.nextDouble() * 10_000_000_000L));
+                    String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                    pstmt.setString(1, title);
+                    pstmt.setString(2, author);
+                    pstmt.setString(3, publisher);
+                    pstmt.setString(4, isbn);
+                    pstmt.setString(5, category);
+                    pstmt.setInt(6, quantity[i]);
+                    pstmt.setInt(7, available[i]);
+                    pstmt.setDate(8, Date.valueOf(LocalDate.now().minusDays(random.nextInt(3650))));
+                    pstmt.setString(9, BookDAO.searchKey(title, author, publisher, isbn, category));
+                    pstmt.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0 || i == bookCount - 1) {
+                        pstmt.executeBatch();
+                        collectKeys(pstmt, bookIds, i / BATCH_SIZE * BATCH_SIZE);
+                    }
+                }
+            }
+            
+            int[] memberIds = new int[memberCount];
+            String memberSql = "INSERT INTO members (name, email, phone, address, member_type, join_date, status, search_key) " +
+                               "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(memberSql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < memberCount; i++) {
+                    String name = randomName();
+                    String email = name.toLowerCase().replace(' ', '.') + i + "@example.com";
+                    String phone = String.format("555-%03d-%04d", random.nextInt(1000), random.nextInt(10000));
+                    int typeRoll = random.nextInt(100);
+                    pstmt.setString(1, name);
+                    pstmt.setString(2, email);
+                    pstmt.setString(3, phone);
+                    pstmt.setString(4, (1 + random.nextInt(999)) + " Main St, Anytown, USA");
+                    pstmt.setString(5, typeRoll < 70 ? "Student" : typeRoll < 85 ? "Faculty" : "Staff");
+                    pstmt.setDate(6, Date.valueOf(LocalDate.now().minusDays(random.nextInt(1500))));
+                    pstmt.setString(7, random.nextInt(20) == 0 ? "Inactive" : "Active");
+                    pstmt.setString(8, MemberDAO.searchKey(name, email, phone));
+                    pstmt.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0 || i == memberCount - 1) {
+                        pstmt.executeBatch();
+                        collectKeys(pstmt, memberIds, i / BATCH_SIZE * BATCH_SIZE);
+                    }
+                }
+            }
+            
+            String loanSql = "INSERT INTO book_issues (book_id, member_id, issue_date, due_date, return_date, fine_amount, status) " +
+                             "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(loanSql)) {
+                LocalDate today = LocalDate.now();
+                for (int i = 0; i < loanCount; i++) {
+                    LocalDate issued = today.minusDays(loanOpen[i] ? random.nextInt(30) : 30 + random.nextInt(700));
+                    LocalDate due = issued.plusDays(14);
+                    pstmt.setInt(1, bookIds[loanBook[i]]);
+                    pstmt.setInt(2, memberIds[random.nextInt(memberCount)]);
+                    pstmt.setDate(3, Date.valueOf(issued));
+                    pstmt.setDate(4, Date.valueOf(due));
+                    if (loanOpen[i]) {
+                        pstmt.setDate(5, null);
+                        pstmt.setDouble(6, 0);
+                        pstmt.setString(7, "Issued");
+                    } else {
+                        LocalDate returned = issued.plusDays(1 + random.nextInt(21));
+                        pstmt.setDate(5, Date.valueOf(returned));
+                        pstmt.setDouble(6, returned.isAfter(due) ? (returned.toEpochDay() - due.toEpochDay()) * 2.50 : 0);
+                        pstmt.setString(7, "Returned");
+                    }
+                    pstmt.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0 || i == loanCount - 1) {
+                        pstmt.executeBatch();
+                    }
+                }
+            }
+            
+            conn.commit();
+        }
+        
+        System.out.printf("Seeded %d books, %d members, %d loans in %.1fs%n",
+            bookCount, memberCount, loanCount, (System.nanoTime() - start) / 1e9);
+    }
+    
+    /**
+     * Copy the generated keys of the last batch into an ID array
+     * @param pstmt Statement that executed the batch
+     * @param ids Array receiving the IDs
+     * @param offset Index of the first row of the batch
+     * @throws SQLException if the keys cannot be read
+     */
+    private void collectKeys(PreparedStatement pstmt, int[] ids, int offset) throws SQLException {
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            int i = offset;
+            while (keys.next()) {
+                ids[i++] = keys.getInt(1);
+            }
+        }
+    }
+    
+    private String randomTitle() {
+        int words = 2 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return title.toString();
+    }
+    
+    private String randomName() {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+}
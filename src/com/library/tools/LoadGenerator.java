@@ -0,0 +1,325 @@
+package com.library.tools;
+
+import com.library.database.BookDAO;
+import com.library.database.DatabaseConnection;
+import com.library.metrics.LatencyHistogram;
+import com.library.models.BookIssue;
+import com.library.service.LibraryService;
+import com.library.service.LoanLimitExceededException;
+import com.library.service.LocalLibraryService;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-desk load generator for the DAO layer.
+ *
+ * Optionally seeds a realistic dataset with {@link DatasetSeeder}, then runs a
+ * weighted mix of issue, return, search and dashboard operations from many
+ * virtual threads and reports throughput and latency percentiles per operation.
+ * Issues refused for the member's borrowing limit are counted apart from
+ * errors and left out of the latencies, and a return drawn while no loan is
+ * open is skipped rather than timed.
+ * Point it at a scratch database with -Dlibrary.db.url and size the pool with
+ * -Dlibrary.db.poolSize.
+ *
+ * Arguments are key=value pairs, for example:
+ * <pre>
+ * seed=true books=20000 members=10000 loans=50000 threads=2000 duration=60
+ * mix=issue:20,return:20,search:50,dashboard:10
+ * </pre>
+ */
+public class LoadGenerator {
+    
+    private final Map<String, String> options;
+    private final LibraryService service = new LocalLibraryService();
+    private final BookDAO bookDAO = new BookDAO();
+    private final Map<String, OperationStats> stats = new LinkedHashMap<>();
+    private final ConcurrentLinkedQueue<Integer> openIssueIds = new ConcurrentLinkedQueue<>();
+    private int minBookId;
+    private int maxBookId;
+    private int minMemberId;
+    private int maxMemberId;
+    
+    /**
+     * Constructor
+     * @param options Parsed key=value options
+     */
+    public LoadGenerator(Map<String, String> options) {
+        this.options = options;
+    }
+    
+    /**
+     * Seed the database if requested, run the load and print the report
+     * @throws Exception if seeding or the run fails
+     */
+    public void run() throws Exception {
+        if (Boolean.parseBoolean(option("seed", "false"))) {
+            new DatasetSeeder(intOption("randomSeed", 42)).seed(
+                intOption("books", 20000), intOption("members", 10000), intOption("loans", 50000));
+        }
+        loadIdRanges();
+        
+        int threads = intOption("threads", 1000);
+        int durationSeconds = intOption("duration", 60);
+        int warmupSeconds = intOption("warmup", 5);
+        Map<String, Integer> mix = parseMix(option("mix", "issue:20,return:20,search:50,dashboard:10"));
+        String[] schedule = buildSchedule(mix);
+        for (String operation : mix.keySet()) {
+            stats.put(operation, new OperationStats());
+        }
+        
+        System.out.printf("Running %d virtual threads for %ds (+%ds warm-up), mix %s, pool size %d%n",
+            threads, durationSeconds, warmupSeconds, mix, DatabaseConnection.getPool().getMaxSize());
+        
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < threads; i++) {
+                executor.submit(() -> deskLoop(schedule, warmupEnd, end));
+            }
+        }
+        
+        printReport(durationSeconds);
+    }
+    
+    /**
+     * Body of one simulated desk: pick operations from the mix until the end time
+     * @param schedule Operation names repeated by weight
+     * @param warmupEnd Time before which results are discarded
+     * @param end Time at which the desk stops
+     */
+    private void deskLoop(String[] schedule, long warmupEnd, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            String operation = schedule[random.nextInt(schedule.length)];
+            Outcome outcome;
+            try {
+                outcome = execute(operation, random);
+            } catch (RuntimeException e) {
+                outcome = Outcome.ERROR;
+            }
+            long elapsed = System.nanoTime() - now;
+            if (now >= warmupEnd && outcome != Outcome.SKIPPED) {
+                stats.get(operation).record(elapsed, outcome);
+            }
+        }
+    }
+    
+    /**
+     * Execute one operation
+     * @param operation Operation name
+     * @param random Random source
+     * @return What came of it
+     */
+    private Outcome execute(String operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case "issue": {
+                LocalDate today = LocalDate.now();
+                BookIssue issue = new BookIssue(
+                    random.nextInt(minBookId, maxBookId + 1),
+                    random.nextInt(minMemberId, maxMemberId + 1),
+                    Date.valueOf(today),
+                    Date.valueOf(today.plusDays(14)),
+                    "Issued"
+                );
+                try {
+                    if (!service.issueBook(issue)) {
+                        return Outcome.ERROR;
+                    }
+                } catch (LoanLimitExceededException e) {
+                    return Outcome.REFUSED;
+                }
+                openIssueIds.add(issue.getIssueId());
+                return Outcome.OK;
+            }
+            case "return": {
+                Integer issueId = openIssueIds.poll();
+                if (issueId == null) {
+                    // Nothing to return; the desk picks another operation
+                    return Outcome.SKIPPED;
+                }
+                return service.returnBook(issueId) != null ? Outcome.OK : Outcome.ERROR;
+            }
+            case "search":
+                bookDAO.searchBooks(DatasetSeeder.randomSearchTerm(random));
+                return Outcome.OK;
+            case "dashboard":
+                service.getStatistics();
+                return Outcome.OK;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+    
+    /**
+     * Read the ID ranges to draw from and the currently open issues
+     * @throws SQLException if the queries fail
+     */
+    private void loadIdRanges() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            try (ResultSet rs = stmt.executeQuery("SELECT MIN(book_id), MAX(book_id) FROM books")) {
+                rs.next();
+                minBookId = rs.getInt(1);
+                maxBookId = rs.getInt(2);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT MIN(member_id), MAX(member_id) FROM members")) {
+                rs.next();
+                minMemberId = rs.getInt(1);
+                maxMemberId = rs.getInt(2);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT issue_id FROM book_issues WHERE return_date IS NULL")) {
+                while (rs.next()) {
+                    openIssueIds.add(rs.getInt(1));
+                }
+            }
+        }
+        
+        if (maxBookId == 0 || maxMemberId == 0) {
+            throw new IllegalStateException("No books or members to run against; use seed=true");
+        }
+    }
+    
+    /**
+     * Expand a weighted mix into a lookup array for constant-time picks
+     * @param mix Operation weights
+     * @return Operation names repeated by weight
+     */
+    private String[] buildSchedule(Map<String, Integer> mix) {
+        List<String> schedule = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                schedule.add(entry.getKey());
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty");
+        }
+        return schedule.toArray(new String[0]);
+    }
+    
+    private Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            weights.put(kv[0], Integer.parseInt(kv[1]));
+        }
+        return weights;
+    }
+    
+    /**
+     * Print throughput and latency percentiles per operation
+     * @param durationSeconds Measured duration
+     */
+    private void printReport(int durationSeconds) {
+        System.out.println();
+        System.out.printf("%-10s %10s %8s %8s %10s %9s %9s %9s %9s %9s%n",
+            "operation", "count", "errors", "refused", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms");
+        
+        LatencyHistogram all = new LatencyHistogram();
+        long totalErrors = 0;
+        long totalRefused = 0;
+        for (Map.Entry<String, OperationStats> entry : stats.entrySet()) {
+            OperationStats op = entry.getValue();
+            printLine(entry.getKey(), op.histogram, op.errors.sum(), op.refused.sum(), durationSeconds);
+            all.add(op.histogram);
+            totalErrors += op.errors.sum();
+            totalRefused += op.refused.sum();
+        }
+        printLine("total", all, totalErrors, totalRefused, durationSeconds);
+        
+        System.out.printf("%nConnection pool: %d borrows, %d timeouts%n",
+            DatabaseConnection.getPool().getBorrowCount(), DatabaseConnection.getPool().getTimeoutCount());
+    }
+    
+    private void printLine(String name, LatencyHistogram histogram, long errors, long refused, int durationSeconds) {
+        System.out.printf("%-10s %10d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            name,
+            histogram.getCount(),
+            errors,
+            refused,
+            (double) histogram.getCount() / durationSeconds,
+            histogram.getValueAtPercentile(50) / 1e6,
+            histogram.getValueAtPercentile(90) / 1e6,
+            histogram.getValueAtPercentile(99) / 1e6,
+            histogram.getValueAtPercentile(99.9) / 1e6,
+            histogram.getMax() / 1e6);
+    }
+    
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+    
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+    
+    /**
+     * What came of one operation
+     */
+    private enum Outcome {
+        /** Completed */
+        OK,
+        /** Failed */
+        ERROR,
+        /** Issue refused because the member is at their borrowing limit */
+        REFUSED,
+        /** Nothing to do, such as a return with no loan open; not recorded */
+        SKIPPED
+    }
+    
+    /**
+     * Latency, error and refusal counts for one operation
+     */
+    private static class OperationStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder refused = new LongAdder();
+        
+        void record(long nanos, Outcome outcome) {
+            if (outcome == Outcome.REFUSED) {
+                // Turned away by the in-memory limit check before any query
+                refused.increment();
+                return;
+            }
+            histogram.record(nanos);
+            if (outcome == Outcome.ERROR) {
+                errors.increment();
+            }
+        }
+    }
+    
+    /**
+     * Entry point
+     * @param args key=value options
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        new LoadGenerator(options).run();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.library.tools;
+
+import com.library.database.CirculationRollupDAO;
+import com.library.database.DatabaseConnection;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds the circulation_daily rollups from book_issues. The date range is
+ * split into chunks that are rebuilt in parallel, each in its own transaction.
+ * Run it once after creating the table (or after seeding test data), and
+ * again whenever the rollups are suspected to have drifted. Loans still out
+ * fall overdue on days after the range, so the overdue changes of those days
+ * are recomputed as well.
+ *
+ * Arguments are key=value pairs:
+ * <pre>
+ * from=2024-01-01  first day (default: first day with activity)
+ * to=2026-10-18    last day (default: yesterday, so today's live updates are not disturbed)
+ * chunkDays=7      days per transaction
+ * threads=4        parallel chunks (default: half the connection pool)
+ * </pre>
+ */
+public class RollupBackfill {
+    
+    /**
+     * Entry point
+     * @param args key=value options
+     * @throws Exception if the backfill cannot run
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        
+        CirculationRollupDAO rollupDAO = new CirculationRollupDAO();
+        Date[] activity = rollupDAO.getActivityRange();
+        if (activity == null && !options.containsKey("from")) {
+            System.out.println("No circulation activity to backfill");
+            return;
+        }
+        
+        LocalDate from = options.containsKey("from") ? LocalDate.parse(options.get("from")) : activity[0].toLocalDate();
+        LocalDate to = options.containsKey("to") ? LocalDate.parse(options.get("to")) : LocalDate.now().minusDays(1);
+        int chunkDays = Integer.parseInt(options.getOrDefault("chunkDays", "7"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Math.max(1, DatabaseConnection.getPool().getMaxSize() / 2))));
+        
+        System.out.printf("Rebuilding rollups %s to %s in %d-day chunks on %d threads%n", from, to, chunkDays, threads);
+        long start = System.nanoTime();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<LocalDate> chunkStarts = new ArrayList<>();
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (LocalDate chunk = from; !chunk.isAfter(to); chunk = chunk.plusDays(chunkDays)) {
+            final Date chunkFrom = Date.valueOf(chunk);
+            LocalDate last = chunk.plusDays(chunkDays - 1);
+            final Date chunkTo = Date.valueOf(last.isAfter(to) ? to : last);
+            chunkStarts.add(chunk);
+            results.add(executor.submit(() -> rollupDAO.rebuildRange(chunkFrom, chunkTo)));
+        }
+        executor.shutdown();
+        
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                if (!results.get(i).get()) {
+                    failed++;
+                    System.out.println("Chunk starting " + chunkStarts.get(i) + " failed");
+                }
+            } catch (ExecutionException e) {
+                failed++;
+                e.getCause().printStackTrace();
+            }
+        }
+        
+        if (!rollupDAO.rebuildOverdueFrom(Date.valueOf(to.plusDays(1)))) {
+            failed++;
+            System.out.println("Overdue changes after " + to + " failed");
+        }
+        
+        System.out.printf("Rebuilt %d chunks (%d failed) in %.1fs%n",
+            results.size(), failed, (System.nanoTime() - start) / 1e9);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,39 @@
+package com.library.tools;
+
+import com.library.database.BookDAO;
+import com.library.database.MemberDAO;
+
+/**
+ * Recomputes the search_key column of every book and member. Run it once
+ * after adding the column to an existing database, and again whenever the
+ * folding rules in SearchKeys change. Rows written by the application keep
+ * their keys current on their own.
+ *
+ * Arguments are key=value pairs:
+ * <pre>
+ * pageSize=1000   rows read and updated per round trip
+ * </pre>
+ */
+public class SearchKeyBackfill {
+    
+    /**
+     * Entry point
+     * @param args key=value options
+     */
+    public static void main(String[] args) {
+        int pageSize = 1000;
+        for (String arg : args) {
+            if (arg.startsWith("pageSize=")) {
+                pageSize = Integer.parseInt(arg.substring("pageSize=".length()));
+            }
+        }
+        
+        long start = System.nanoTime();
+        int books = new BookDAO().rebuildSearchKeys(pageSize);
+        int members = new MemberDAO().rebuildSearchKeys(pageSize);
+        
+        System.out.printf("Rebuilt search keys of %d books and %d members in %.1fs%n",
+            books, members, (System.nanoTime() - start) / 1e9);
+        System.exit(books >= 0 && members >= 0 ? 0 : 1);
+    }
+}
@@ -1,38 +1,97 @@
 package com.library.ui;
 
 import com.library.database.BookDAO;
+import com.library.diagnostics.PanelRefreshEvent;
+import com.library.diagnostics.UiActionEvent;
+import com.library.events.BookChangedEvent;
+import com.library.events.EventBus;
+import com.library.events.LibraryEvent;
+import com.library.events.LoadingEdtEventListener;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
 import com.library.models.Book;
+import com.library.search.FacetIndex;
+import com.library.search.FuzzyBookIndex;
+import com.library.search.PhoneticIndex;
+import com.library.search.SuggestionIndex;
+import com.library.service.LibraryService;
+import com.library.service.LibraryServices;
 import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Panel for managing books in the library
+ * Panel for managing books in the library. A client going through the HTTP
+ * API shows the catalog read-only: editing books, the facet filters and the
+ * fuzzy and sounds-like searches work from the database and its in-memory
+ * indexes.
  */
 public class BookPanel extends JPanel {
+    private static final int INDEX_SEARCH_LIMIT = 500;
+    private static final String MODE_EXACT = "Exact";
+    private static final String MODE_FUZZY = "Fuzzy";
+    private static final String MODE_SOUNDS_LIKE = "Author sounds like";
+    private static final int FACET_TABLE_LIMIT = 1000;
+    private static final int FACET_REFRESH_MS = 1000;
+    
     private JTable bookTable;
     private DefaultTableModel tableModel;
     private JTextField searchField;
     private JButton searchButton;
+    private JComboBox<String> searchModeCombo;
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
     private JButton refreshButton;
+    private DefaultListModel<String> categoryModel;
+    private JList<String> categoryList;
+    private DefaultListModel<String> publisherModel;
+    private JList<String> publisherList;
+    private JCheckBox availableCheck;
+    private JTextField addedFromField;
+    private JTextField addedToField;
+    private JLabel facetTotalLabel;
+    private Timer facetTimer;
+    
+    private FacetIndex.Selection facetSelection = new FacetIndex.Selection(
+        Collections.<String>emptySet(), Collections.<String>emptySet(), false, null, null);
+    private FacetIndex.Result facetResult;
+    private long shownFacetVersion = -1;
+    private boolean updatingFacets;
     
     private BookDAO bookDAO;
+    private LibraryService libraryService;
+    private boolean remote;
+    private LoadingEdtEventListener<LibraryEvent, Map<Integer, Book>> eventListener;
+    private boolean detached;
     
     /**
      * Constructor to initialize the panel
      */
     public BookPanel() {
-        bookDAO = new BookDAO();
+        libraryService = LibraryServices.getLibraryService();
+        remote = LibraryServices.isRemote();
+        if (!remote) {
+            bookDAO = new BookDAO();
+        }
         initComponents();
         loadBookData();
+        createEventListener();
     }
     
     /**
@@ -52,16 +111,29 @@ public class BookPanel extends JPanel {
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         searchField = new JTextField(15);
         searchButton = new JButton("Search");
-        searchButton.addActionListener(new ActionListener() {
+        searchButton.addActionListener(UiActionEvent.traced("BookPanel", "Search", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 searchBooks();
             }
-        });
+        }));
+        
+        SuggestionPopup.attach(searchField, new Runnable() {
+            @Override
+            public void run() {
+                searchBooks();
+            }
+        }, SuggestionIndex.Field.TITLE, SuggestionIndex.Field.AUTHOR, SuggestionIndex.Field.PUBLISHER);
         
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        searchModeCombo = new JComboBox<>(new String[] {MODE_EXACT, MODE_FUZZY, MODE_SOUNDS_LIKE});
+        searchModeCombo.setToolTipText("Fuzzy allows a typo or two per word, e.g. Silbershatz; "
+            + "Author sounds like matches names spelled by ear, e.g. Jon Smyth");
+        if (!remote) {
+            searchPanel.add(searchModeCombo);
+        }
         
         titlePanel.add(searchPanel, BorderLayout.EAST);
         add(titlePanel, BorderLayout.NORTH);
@@ -70,50 +142,274 @@ public class BookPanel extends JPanel {
         initTable();
         JScrollPane scrollPane = new JScrollPane(bookTable);
         add(scrollPane, BorderLayout.CENTER);
+        JPanel facetPanel = createFacetPanel();
+        if (!remote) {
+            add(facetPanel, BorderLayout.WEST);
+        }
+        
+        facetTimer = new Timer(FACET_REFRESH_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (FacetIndex.getInstance().isLoaded() && FacetIndex.getInstance().getVersion() != shownFacetVersion) {
+                    updateFacetCounts();
+                }
+            }
+        });
         
         // Create button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         
         addButton = new JButton("Add Book");
-        addButton.addActionListener(new ActionListener() {
+        addButton.addActionListener(UiActionEvent.traced("BookPanel", "Add", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 addBook();
             }
-        });
+        }));
         
         editButton = new JButton("Edit Book");
-        editButton.addActionListener(new ActionListener() {
+        editButton.addActionListener(UiActionEvent.traced("BookPanel", "Edit", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 editBook();
             }
-        });
+        }));
         
         deleteButton = new JButton("Delete Book");
-        deleteButton.addActionListener(new ActionListener() {
+        deleteButton.addActionListener(UiActionEvent.traced("BookPanel", "Delete", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 deleteBook();
             }
-        });
+        }));
         
         refreshButton = new JButton("Refresh");
-        refreshButton.addActionListener(new ActionListener() {
+        refreshButton.addActionListener(UiActionEvent.traced("BookPanel", "Refresh", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 refreshData();
             }
-        });
+        }));
         
-        buttonPanel.add(addButton);
-        buttonPanel.add(editButton);
-        buttonPanel.add(deleteButton);
+        if (!remote) {
+            buttonPanel.add(addButton);
+            buttonPanel.add(editButton);
+            buttonPanel.add(deleteButton);
+        }
         buttonPanel.add(refreshButton);
         
         add(buttonPanel, BorderLayout.SOUTH);
     }
     
+    /**
+     * Create the facet filters shown beside the table
+     * @return Facet panel
+     */
+    private JPanel createFacetPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createTitledBorder("Refine"));
+        panel.setPreferredSize(new Dimension(220, 0));
+        
+        categoryModel = new DefaultListModel<>();
+        categoryList = createFacetList(categoryModel, true);
+        publisherModel = new DefaultListModel<>();
+        publisherList = createFacetList(publisherModel, false);
+        
+        ActionListener applyListener = UiActionEvent.traced("BookPanel", "Refine", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                applyFacets();
+            }
+        });
+        availableCheck = new JCheckBox("Available only");
+        availableCheck.addActionListener(applyListener);
+        addedFromField = new JTextField(10);
+        addedFromField.addActionListener(applyListener);
+        addedToField = new JTextField(10);
+        addedToField.addActionListener(applyListener);
+        
+        JButton clearButton = new JButton("Clear Filters");
+        clearButton.addActionListener(UiActionEvent.traced("BookPanel", "Clear Filters", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                clearFacets();
+            }
+        }));
+        facetTotalLabel = new JLabel("Loading filters...");
+        
+        addFacetRow(panel, new JLabel("Category"));
+        addFacetRow(panel, new JScrollPane(categoryList));
+        addFacetRow(panel, new JLabel("Publisher"));
+        addFacetRow(panel, new JScrollPane(publisherList));
+        addFacetRow(panel, availableCheck);
+        addFacetRow(panel, new JLabel("Added from (yyyy-MM-dd)"));
+        addFacetRow(panel, addedFromField);
+        addFacetRow(panel, new JLabel("Added to (yyyy-MM-dd)"));
+        addFacetRow(panel, addedToField);
+        addFacetRow(panel, clearButton);
+        addFacetRow(panel, facetTotalLabel);
+        return panel;
+    }
+    
+    /**
+     * Create a multi-select list of facet values that shows each value's count
+     * @param model List model holding the values
+     * @param categories true for the category facet, false for publishers
+     * @return Facet list
+     */
+    private JList<String> createFacetList(DefaultListModel<String> model, final boolean categories) {
+        JList<String> list = new JList<>(model);
+        list.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        list.setVisibleRowCount(8);
+        list.setToolTipText("Ctrl-click to choose several");
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                Integer count = null;
+                if (facetResult != null) {
+                    count = (categories ? facetResult.getCategoryCounts() : facetResult.getPublisherCounts()).get(value);
+                }
+                String text = count != null ? value + " (" + count + ")" : String.valueOf(value);
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        list.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                if (!e.getValueIsAdjusting() && !updatingFacets) {
+                    applyFacets();
+                }
+            }
+        });
+        return list;
+    }
+    
+    /**
+     * Add a left-aligned component to the facet panel
+     * @param panel Facet panel
+     * @param component Component to add
+     */
+    private void addFacetRow(JPanel panel, JComponent component) {
+        component.setAlignmentX(Component.LEFT_ALIGNMENT);
+        if (!(component instanceof JScrollPane)) {
+            component.setMaximumSize(new Dimension(Integer.MAX_VALUE, component.getPreferredSize().height));
+        }
+        panel.add(component);
+        panel.add(Box.createVerticalStrut(4));
+    }
+    
+    /**
+     * Read the facet filters, recount the facets and show the matching books
+     */
+    private void applyFacets() {
+        LocalDate addedFrom;
+        LocalDate addedTo;
+        try {
+            addedFrom = parseDate(addedFromField);
+            addedTo = parseDate(addedToField);
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this,
+                "Invalid date format. Please use yyyy-MM-dd",
+                "Date Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        facetSelection = new FacetIndex.Selection(
+            new LinkedHashSet<>(categoryList.getSelectedValuesList()),
+            new LinkedHashSet<>(publisherList.getSelectedValuesList()),
+            availableCheck.isSelected(), addedFrom, addedTo);
+        updateFacetCounts();
+        searchBooks();
+    }
+    
+    /**
+     * Parse an optional date field
+     * @param field Field holding a yyyy-MM-dd date or nothing
+     * @return Date, or null if the field is empty
+     */
+    private LocalDate parseDate(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : LocalDate.parse(text);
+    }
+    
+    /**
+     * Clear every facet filter and show the whole catalog again
+     */
+    private void clearFacets() {
+        updatingFacets = true;
+        try {
+            categoryList.clearSelection();
+            publisherList.clearSelection();
+        } finally {
+            updatingFacets = false;
+        }
+        availableCheck.setSelected(false);
+        addedFromField.setText("");
+        addedToField.setText("");
+        applyFacets();
+    }
+    
+    /**
+     * Query the facet index for the current selection and show the new counts.
+     * Does nothing until the index has loaded.
+     */
+    private void updateFacetCounts() {
+        FacetIndex index = FacetIndex.getInstance();
+        if (!index.isLoaded()) {
+            return;
+        }
+        shownFacetVersion = index.getVersion();
+        facetResult = index.query(facetSelection);
+        
+        updatingFacets = true;
+        try {
+            fillFacetList(categoryList, categoryModel, facetResult.getCategoryCounts(), facetSelection.getCategories());
+            fillFacetList(publisherList, publisherModel, facetResult.getPublisherCounts(), facetSelection.getPublishers());
+        } finally {
+            updatingFacets = false;
+        }
+        availableCheck.setText("Available only (" + facetResult.getAvailableCount() + ")");
+        if (facetResult.getTotal() > FACET_TABLE_LIMIT && facetsActive()) {
+            facetTotalLabel.setText(facetResult.getTotal() + " books, first " + FACET_TABLE_LIMIT + " listed");
+        } else {
+            facetTotalLabel.setText(facetResult.getTotal() + " books");
+        }
+    }
+    
+    /**
+     * Show a facet's values, keeping the list as it is when only counts changed
+     * @param list Facet list
+     * @param model Its model
+     * @param counts Counts by value
+     * @param selected Values to keep selected
+     */
+    private void fillFacetList(JList<String> list, DefaultListModel<String> model,
+                               Map<String, Integer> counts, Set<String> selected) {
+        if (Collections.list(model.elements()).equals(new ArrayList<>(counts.keySet()))) {
+            list.repaint();
+            return;
+        }
+        
+        model.clear();
+        for (String value : counts.keySet()) {
+            model.addElement(value);
+            if (selected.contains(value)) {
+                list.addSelectionInterval(model.size() - 1, model.size() - 1);
+            }
+        }
+    }
+    
+    /**
+     * Check whether the facet filters narrow the catalog
+     * @return true if a facet is filtered and the index has answered
+     */
+    private boolean facetsActive() {
+        return facetResult != null && !facetSelection.isEmpty();
+    }
+    
     /**
      * Initialize the table
      */
@@ -149,23 +445,22 @@ public class BookPanel extends JPanel {
         // Clear existing data
         tableModel.setRowCount(0);
         
-        // Get all books from the database
-        List<Book> books = bookDAO.getAllBooks();
+        // Get all books from the database, or the books matching the facet filters
+        List<Book> books;
+        if (facetsActive()) {
+            List<Integer> bookIds = new ArrayList<>();
+            for (int bookId : facetResult.getBookIds(FACET_TABLE_LIMIT)) {
+                bookIds.add(bookId);
+            }
+            books = libraryService.getBooksByIds(bookIds);
+            books.sort(Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER));
+        } else {
+            books = libraryService.searchBooks("");
+        }
         
         // Add books to the table model
         for (Book book : books) {
-            Object[] rowData = {
-                book.getBookId(),
-                book.getTitle(),
-                book.getAuthor(),
-                book.getPublisher(),
-                book.getIsbn(),
-                book.getCategory(),
-                book.getQuantity(),
-                book.getAvailable(),
-                book.getAddedDate()
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(createRowData(book));
         }
     }
     
@@ -183,23 +478,23 @@ public class BookPanel extends JPanel {
         // Clear existing data
         tableModel.setRowCount(0);
         
-        // Search for books
-        List<Book> books = bookDAO.searchBooks(searchTerm);
+        // Search for books; the in-memory searches need their index to have finished loading
+        List<Book> books;
+        Object mode = searchModeCombo.getSelectedItem();
+        if (MODE_FUZZY.equals(mode) && FuzzyBookIndex.getInstance().isLoaded()) {
+            books = libraryService.getBooksByIds(FuzzyBookIndex.getInstance().search(searchTerm, INDEX_SEARCH_LIMIT));
+        } else if (MODE_SOUNDS_LIKE.equals(mode) && PhoneticIndex.getInstance().isLoaded()) {
+            books = libraryService.getBooksByIds(PhoneticIndex.getInstance().findBooksByAuthor(searchTerm, INDEX_SEARCH_LIMIT));
+        } else {
+            books = libraryService.searchBooks(searchTerm);
+        }
         
         // Add matching books to the table model
+        boolean faceted = facetsActive();
         for (Book book : books) {
-            Object[] rowData = {
-                book.getBookId(),
-                book.getTitle(),
-                book.getAuthor(),
-                book.getPublisher(),
-                book.getIsbn(),
-                book.getCategory(),
-                book.getQuantity(),
-                book.getAvailable(),
-                book.getAddedDate()
-            };
-            tableModel.addRow(rowData);
+            if (!faceted || facetResult.matches(book.getBookId())) {
+                tableModel.addRow(createRowData(book));
+            }
         }
     }
     
@@ -211,10 +506,7 @@ public class BookPanel extends JPanel {
         BookDialog dialog = new BookDialog(SwingUtilities.getWindowAncestor(this), null);
         dialog.setVisible(true);
         
-        // If a book was added, refresh the table
-        if (dialog.isBookSaved()) {
-            refreshData();
-        }
+        // A saved book reaches the table through its BookChangedEvent
     }
     
     /**
@@ -241,11 +533,6 @@ public class BookPanel extends JPanel {
             // Create and show the book dialog
             BookDialog dialog = new BookDialog(SwingUtilities.getWindowAncestor(this), book);
             dialog.setVisible(true);
-            
-            // If a book was edited, refresh the table
-            if (dialog.isBookSaved()) {
-                refreshData();
-            }
         }
     }
     
@@ -281,7 +568,6 @@ public class BookPanel extends JPanel {
                     "Book deleted successfully", 
                     "Success", 
                     JOptionPane.INFORMATION_MESSAGE);
-                refreshData();
             } else {
                 JOptionPane.showMessageDialog(this, 
                     "Failed to delete book. The book may be currently issued to a member.", 
@@ -295,7 +581,140 @@ public class BookPanel extends JPanel {
      * Refresh the book data
      */
     public void refreshData() {
+        PanelRefreshEvent event = PanelRefreshEvent.start("BookPanel");
         loadBookData();
+        event.commit();
+    }
+    
+    /**
+     * Create a table row for a book
+     * @param book Book to display
+     * @return Row data in column order
+     */
+    private Object[] createRowData(Book book) {
+        return new Object[] {
+            book.getBookId(),
+            book.getTitle(),
+            book.getAuthor(),
+            book.getPublisher(),
+            book.getIsbn(),
+            book.getCategory(),
+            book.getQuantity(),
+            book.getAvailable(),
+            book.getAddedDate()
+        };
+    }
+    
+    /**
+     * Find the table row showing a book
+     * @param bookId Book ID
+     * @return Row index, or -1 if the book is not shown
+     */
+    private int findRow(int bookId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((int) tableModel.getValueAt(row, 0) == bookId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Create the listener that keeps the table current from book and loan
+     * events without full reloads. It is subscribed while the panel is shown.
+     */
+    private void createEventListener() {
+        eventListener = new LoadingEdtEventListener<LibraryEvent, Map<Integer, Book>>() {
+            @Override
+            protected Map<Integer, Book> load(List<LibraryEvent> events) {
+                return loadChangedBooks(events);
+            }
+            
+            @Override
+            protected void handleEvents(List<LibraryEvent> events, Map<Integer, Book> books) {
+                applyBookChanges(books);
+            }
+        };
+    }
+    
+    /**
+     * Start receiving events and polling the facets when the panel is shown.
+     * Changes missed while it was removed are picked up by a reload.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus.getInstance().subscribe(LibraryEvent.class, eventListener);
+        facetTimer.start();
+        if (detached) {
+            detached = false;
+            loadBookData();
+        }
+    }
+    
+    /**
+     * Stop receiving events once the panel is removed from its frame
+     */
+    @Override
+    public void removeNotify() {
+        facetTimer.stop();
+        super.removeNotify();
+        EventBus.getInstance().unsubscribe(eventListener);
+        detached = true;
+    }
+    
+    /**
+     * Read the books touched by a batch of events in one query. Runs on a
+     * background thread.
+     * @param events Coalesced events
+     * @return Changed books by ID; books missing from the map were deleted
+     */
+    private Map<Integer, Book> loadChangedBooks(List<LibraryEvent> events) {
+        Set<Integer> changedBookIds = new LinkedHashSet<>();
+        for (LibraryEvent event : events) {
+            if (event instanceof BookChangedEvent) {
+                changedBookIds.add(((BookChangedEvent) event).getBookId());
+            } else if (event instanceof LoanIssuedEvent) {
+                changedBookIds.add(((LoanIssuedEvent) event).getBookId());
+            } else if (event instanceof LoanReturnedEvent) {
+                changedBookIds.add(((LoanReturnedEvent) event).getBookId());
+            }
+        }
+        
+        Map<Integer, Book> books = new LinkedHashMap<>();
+        for (int bookId : changedBookIds) {
+            books.put(bookId, null);
+        }
+        for (Book book : libraryService.getBooksByIds(new ArrayList<>(changedBookIds))) {
+            books.put(book.getBookId(), book);
+        }
+        return books;
+    }
+    
+    /**
+     * Update only the rows of books touched by a batch of events
+     * @param changedBooks Changed books by ID, mapped to null if deleted
+     */
+    private void applyBookChanges(Map<Integer, Book> changedBooks) {
+        boolean filtered = !searchField.getText().trim().isEmpty() || facetsActive();
+        for (Map.Entry<Integer, Book> entry : changedBooks.entrySet()) {
+            int row = findRow(entry.getKey());
+            Book book = entry.getValue();
+            
+            if (book == null) {
+                // Book was deleted
+                if (row != -1) {
+                    tableModel.removeRow(row);
+                }
+            } else if (row != -1) {
+                Object[] rowData = createRowData(book);
+                for (int column = 0; column < rowData.length; column++) {
+                    tableModel.setValueAt(rowData[column], row, column);
+                }
+            } else if (!filtered) {
+                tableModel.addRow(createRowData(book));
+            }
+        }
     }
     
     /**
@@ -390,12 +809,12 @@ public class BookPanel extends JPanel {
             
             // Buttons
             JButton saveButton = new JButton("Save");
-            saveButton.addActionListener(new ActionListener() {
+            saveButton.addActionListener(UiActionEvent.traced("BookPanel", "Save", new ActionListener() {
                 @Override
                 public void actionPerformed(ActionEvent e) {
                     saveBook();
                 }
-            });
+            }));
             
             JButton cancelButton = new JButton("Cancel");
             cancelButton.addActionListener(new ActionListener() {
@@ -1,14 +1,18 @@
 package com.library.ui;
 
-import com.library.database.BookDAO;
-import com.library.database.BookIssueDAO;
-import com.library.database.MemberDAO;
 import com.library.models.User;
+import com.library.reports.CirculationTrends;
+import com.library.service.LibraryService;
+import com.library.service.LibraryServices;
+import com.library.service.LibraryStatistics;
+import com.library.service.LiveStatistics;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.sql.Date;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -17,13 +21,32 @@ import java.time.LocalDate;
  * Dashboard panel to show system statistics
  */
 public class DashboardPanel extends JPanel {
+    private static final int TREND_DAYS = 30;
+    
+    // Counters change with every loan; show them at most four times a second
+    private static final int REFRESH_INTERVAL_MS = 250;
+    
+    // Without live counters, ask the API server this often instead
+    private static final int REMOTE_REFRESH_INTERVAL_MS = 5000;
+    
     private User currentUser;
+    private LibraryService libraryService;
+    private boolean remote;
+    private long nextRemoteRefresh;
+    private boolean loadingStatistics;
     
     // Statistics labels
     private JLabel lblTotalBooks;
     private JLabel lblTotalMembers;
     private JLabel lblBooksIssued;
     private JLabel lblOverdueBooks;
+    private Timer refreshTimer;
+    private long shownVersion = -1;
+    
+    // Trend charts
+    private TrendChart circulationChart;
+    private TrendChart overdueChart;
+    private TrendChart utilizationChart;
     
     /**
      * Constructor to initialize the dashboard
@@ -31,8 +54,27 @@ public class DashboardPanel extends JPanel {
      */
     public DashboardPanel(User user) {
         this.currentUser = user;
+        this.libraryService = LibraryServices.getLibraryService();
+        this.remote = LibraryServices.isRemote();
         initComponents();
-        loadStatistics();
+        loadTrends();
+        
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (isShowing()) {
+                    updateStatistics();
+                }
+            }
+        });
+        
+        // Rollups change as loans are issued and returned; reload when shown again
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                loadTrends();
+            }
+        });
     }
     
     /**
@@ -46,9 +88,11 @@ public class DashboardPanel extends JPanel {
         JPanel welcomePanel = createWelcomePanel();
         add(welcomePanel, BorderLayout.NORTH);
         
-        // Statistics panel in the center
-        JPanel statsPanel = createStatisticsPanel();
-        add(statsPanel, BorderLayout.CENTER);
+        // Statistics cards and trend charts in the center
+        JPanel centerPanel = new JPanel(new BorderLayout(15, 15));
+        centerPanel.add(createStatisticsPanel(), BorderLayout.NORTH);
+        centerPanel.add(createTrendsPanel(), BorderLayout.CENTER);
+        add(centerPanel, BorderLayout.CENTER);
         
         // Quick actions panel at the bottom
         JPanel actionsPanel = createQuickActionsPanel();
@@ -81,7 +125,7 @@ public class DashboardPanel extends JPanel {
      * @return Statistics panel
      */
     private JPanel createStatisticsPanel() {
-        JPanel panel = new JPanel(new GridLayout(2, 2, 15, 15));
+        JPanel panel = new JPanel(new GridLayout(1, 4, 15, 15));
         
         // Total Books
         JPanel booksPanel = createStatsCard("Total Books", "0", new Color(41, 128, 185));
@@ -106,6 +150,35 @@ public class DashboardPanel extends JPanel {
         return panel;
     }
     
+    /**
+     * Create the panel with the trend charts
+     * @return Trends panel
+     */
+    private JPanel createTrendsPanel() {
+        JPanel panel = new JPanel(new GridLayout(1, 3, 15, 15));
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(),
+            "Last " + TREND_DAYS + " Days",
+            TitledBorder.LEFT,
+            TitledBorder.TOP,
+            new Font("Arial", Font.BOLD, 14)
+        ));
+        
+        circulationChart = new TrendChart("Issues and Returns", new String[] {"Issues", "Returns"},
+                                          new Color[] {new Color(142, 68, 173), new Color(39, 174, 96)});
+        overdueChart = new TrendChart("Overdue Loans", new String[] {"Overdue"},
+                                      new Color[] {new Color(231, 76, 60)});
+        utilizationChart = new TrendChart("Copies on Loan", new String[] {"Utilization"},
+                                          new Color[] {new Color(41, 128, 185)});
+        utilizationChart.setPercent(true);
+        
+        panel.add(circulationChart);
+        panel.add(overdueChart);
+        panel.add(utilizationChart);
+        
+        return panel;
+    }
+    
     /**
      * Create a statistics card
      * @param title Title of the card
@@ -192,43 +265,101 @@ public class DashboardPanel extends JPanel {
     }
     
     /**
-     * Load statistics from the database
+     * Show the live counters if they changed since they were last shown
      */
-    private void loadStatistics() {
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            private int totalBooks = 0;
-            private int totalMembers = 0;
-            private int booksIssued = 0;
-            private int overdueBooks = 0;
+    private void updateStatistics() {
+        if (remote) {
+            loadRemoteStatistics();
+            return;
+        }
+        
+        LiveStatistics stats = LiveStatistics.getInstance();
+        long version = stats.getVersion();
+        if (!stats.isLoaded() || version == shownVersion) {
+            return;
+        }
+        shownVersion = version;
+        
+        lblTotalBooks.setText(String.valueOf(stats.getTotalBooks()));
+        lblTotalMembers.setText(String.valueOf(stats.getTotalMembers()));
+        lblBooksIssued.setText(String.valueOf(stats.getBooksIssued()));
+        lblOverdueBooks.setText(String.valueOf(stats.getOverdueBooks()));
+    }
+    
+    /**
+     * Fetch the counters from the API server in the background, since a
+     * client using the API keeps no live counters of its own
+     */
+    private void loadRemoteStatistics() {
+        long now = System.currentTimeMillis();
+        if (loadingStatistics || now < nextRemoteRefresh) {
+            return;
+        }
+        loadingStatistics = true;
+        nextRemoteRefresh = now + REMOTE_REFRESH_INTERVAL_MS;
+        
+        new SwingWorker<LibraryStatistics, Void>() {
+            @Override
+            protected LibraryStatistics doInBackground() {
+                return libraryService.getStatistics();
+            }
             
             @Override
-            protected Void doInBackground() throws Exception {
-                // Get total books
-                BookDAO bookDAO = new BookDAO();
-                totalBooks = bookDAO.getAllBooks().size();
-                
-                // Get total members
-                MemberDAO memberDAO = new MemberDAO();
-                totalMembers = memberDAO.getAllMembers().size();
-                
-                // Get books issued and overdue
-                BookIssueDAO issueDAO = new BookIssueDAO();
-                booksIssued = issueDAO.getAllBookIssues().size();
-                overdueBooks = issueDAO.getOverdueBooks().size();
-                
-                return null;
+            protected void done() {
+                try {
+                    LibraryStatistics stats = get();
+                    lblTotalBooks.setText(String.valueOf(stats.getTotalBooks()));
+                    lblTotalMembers.setText(String.valueOf(stats.getTotalMembers()));
+                    lblBooksIssued.setText(String.valueOf(stats.getBooksIssued()));
+                    lblOverdueBooks.setText(String.valueOf(stats.getOverdueBooks()));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    loadingStatistics = false;
+                }
+            }
+        }.execute();
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+    
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+    
+    /**
+     * Load the trend data in the background. Charts whose data did not change
+     * keep their rendered image.
+     */
+    private void loadTrends() {
+        SwingWorker<CirculationTrends, Void> worker = new SwingWorker<CirculationTrends, Void>() {
+            @Override
+            protected CirculationTrends doInBackground() throws Exception {
+                return libraryService.getTrends(TREND_DAYS);
             }
             
             @Override
             protected void done() {
-                // Update the UI
-                lblTotalBooks.setText(String.valueOf(totalBooks));
-                lblTotalMembers.setText(String.valueOf(totalMembers));
-                lblBooksIssued.setText(String.valueOf(booksIssued));
-                lblOverdueBooks.setText(String.valueOf(overdueBooks));
+                try {
+                    CirculationTrends trends = get();
+                    if (trends == null) {
+                        return;
+                    }
+                    circulationChart.setData(trends.getFirstDay(), trends.getIssues(), trends.getReturns());
+                    overdueChart.setData(trends.getFirstDay(), trends.getOverdue());
+                    utilizationChart.setData(trends.getFirstDay(), trends.getUtilization());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
             }
         };
         
         worker.execute();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package com.library.ui;
+
+import com.library.database.ConnectionPool;
+import com.library.database.DatabaseConnection;
+import com.library.database.SlowQueryLog;
+import com.library.diagnostics.EdtWatchdog;
+import com.library.metrics.CacheMetrics;
+import com.library.metrics.MetricsRegistry;
+import com.library.metrics.OperationMetrics;
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+/**
+ * Panel showing system health for administrators: connection pool usage,
+ * cache hit rates, DAO latency percentiles, EDT stalls and heap usage.
+ * Everything comes from in-process metrics, so refreshing never touches the
+ * database; it refreshes once a second while the panel is visible.
+ */
+public class DiagnosticsPanel extends JPanel {
+    private static final int REFRESH_INTERVAL_MS = 1000;
+    private static final long MB = 1024 * 1024;
+    
+    private JLabel lblPool;
+    private JLabel lblPoolWaits;
+    private JLabel lblEdt;
+    private JLabel lblSlowQueries;
+    private JLabel lblHeap;
+    private JProgressBar heapBar;
+    private JProgressBar poolBar;
+    private DefaultTableModel operationModel;
+    private DefaultTableModel cacheModel;
+    private Timer refreshTimer;
+    
+    /**
+     * Constructor to initialize the panel
+     */
+    public DiagnosticsPanel() {
+        initComponents();
+        refreshData();
+        
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (isShowing()) {
+                    refreshData();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Initialize UI components
+     */
+    private void initComponents() {
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        
+        // Title
+        JLabel titleLabel = new JLabel("System Diagnostics");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        
+        // Summary
+        JPanel summaryPanel = new JPanel(new GridLayout(0, 2, 10, 5));
+        summaryPanel.setBorder(BorderFactory.createTitledBorder("Runtime"));
+        
+        poolBar = new JProgressBar();
+        poolBar.setStringPainted(true);
+        lblPool = new JLabel();
+        lblPoolWaits = new JLabel();
+        heapBar = new JProgressBar(0, 100);
+        heapBar.setStringPainted(true);
+        lblHeap = new JLabel();
+        lblEdt = new JLabel();
+        lblSlowQueries = new JLabel();
+        
+        summaryPanel.add(new JLabel("Connection pool:"));
+        summaryPanel.add(poolBar);
+        summaryPanel.add(new JLabel("Connections:"));
+        summaryPanel.add(lblPool);
+        summaryPanel.add(new JLabel("Waits:"));
+        summaryPanel.add(lblPoolWaits);
+        summaryPanel.add(new JLabel("Heap:"));
+        summaryPanel.add(heapBar);
+        summaryPanel.add(new JLabel("Heap detail:"));
+        summaryPanel.add(lblHeap);
+        summaryPanel.add(new JLabel("EDT stalls:"));
+        summaryPanel.add(lblEdt);
+        summaryPanel.add(new JLabel("Slow queries:"));
+        summaryPanel.add(lblSlowQueries);
+        
+        JPanel northPanel = new JPanel(new BorderLayout(10, 10));
+        northPanel.add(titleLabel, BorderLayout.NORTH);
+        northPanel.add(summaryPanel, BorderLayout.CENTER);
+        add(northPanel, BorderLayout.NORTH);
+        
+        // DAO latency table
+        String[] operationColumns = {"Operation", "Calls", "Errors", "Rows", "Mean ms", "p50 ms", "p99 ms", "Max ms"};
+        operationModel = new DefaultTableModel(operationColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable operationTable = new JTable(operationModel);
+        operationTable.getTableHeader().setReorderingAllowed(false);
+        operationTable.getColumnModel().getColumn(0).setPreferredWidth(250);
+        
+        // Cache table
+        String[] cacheColumns = {"Cache", "Hits", "Misses", "Hit Rate"};
+        cacheModel = new DefaultTableModel(cacheColumns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable cacheTable = new JTable(cacheModel);
+        cacheTable.getTableHeader().setReorderingAllowed(false);
+        
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("DAO Latency", new JScrollPane(operationTable));
+        tabs.addTab("Caches", new JScrollPane(cacheTable));
+        add(tabs, BorderLayout.CENTER);
+    }
+    
+    /**
+     * Read the current metrics into the labels and tables
+     */
+    public void refreshData() {
+        ConnectionPool pool = DatabaseConnection.getPool();
+        poolBar.setMaximum(pool.getMaxSize());
+        poolBar.setValue(pool.getActiveConnections());
+        poolBar.setString(pool.getActiveConnections() + " / " + pool.getMaxSize() + " in use");
+        lblPool.setText(pool.getOpenConnections() + " open, " + pool.getBorrowCount() + " borrows");
+        lblPoolWaits.setText(pool.getWaitingThreads() + " waiting now, " + pool.getTimeoutCount() + " timeouts");
+        
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        heapBar.setValue((int) (100 * heap.getUsed() / Math.max(1, max)));
+        heapBar.setString(heap.getUsed() / MB + " MB / " + max / MB + " MB");
+        lblHeap.setText(heap.getCommitted() / MB + " MB committed");
+        
+        EdtWatchdog watchdog = EdtWatchdog.getInstance();
+        lblEdt.setText(watchdog.getStallCount() + " stalls, " + watchdog.getTotalStallMillis() + " ms total, longest "
+            + watchdog.getLongestStallMillis() + " ms, last " + watchdog.getLastStallMillis() + " ms");
+        
+        SlowQueryLog slowQueries = SlowQueryLog.getInstance();
+        lblSlowQueries.setText(slowQueries.isEnabled()
+            ? slowQueries.getLoggedCount() + " logged, " + slowQueries.getDroppedCount() + " dropped"
+            : "Logging disabled");
+        
+        List<OperationMetrics> operations = MetricsRegistry.getInstance().getOperations();
+        operationModel.setRowCount(operations.size());
+        for (int row = 0; row < operations.size(); row++) {
+            OperationMetrics op = operations.get(row);
+            setRow(operationModel, row,
+                op.getName(),
+                op.getCount(),
+                op.getErrorCount(),
+                op.getRowCount(),
+                String.format("%.2f", op.getMeanMillis()),
+                String.format("%.2f", op.getMedianMillis()),
+                String.format("%.2f", op.get99thPercentileMillis()),
+                String.format("%.2f", op.getMaxMillis()));
+        }
+        
+        List<CacheMetrics> caches = MetricsRegistry.getInstance().getCaches();
+        cacheModel.setRowCount(caches.size());
+        for (int row = 0; row < caches.size(); row++) {
+            CacheMetrics cache = caches.get(row);
+            setRow(cacheModel, row,
+                cache.getName(),
+                cache.getHits(),
+                cache.getMisses(),
+                String.format("%.1f%%", 100 * cache.getHitRate()));
+        }
+    }
+    
+    /**
+     * Update a table row in place, only firing events for cells that changed
+     * @param model Table model
+     * @param row Row index
+     * @param values New cell values in column order
+     */
+    private void setRow(DefaultTableModel model, int row, Object... values) {
+        for (int column = 0; column < values.length; column++) {
+            if (!values[column].equals(model.getValueAt(row, column))) {
+                model.setValueAt(values[column], row, column);
+            }
+        }
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+    
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+}
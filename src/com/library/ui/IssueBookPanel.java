@@ -1,25 +1,41 @@
 package com.library.ui;
 
-import com.library.database.BookDAO;
-import com.library.database.BookIssueDAO;
-import com.library.database.MemberDAO;
+import com.library.diagnostics.PanelRefreshEvent;
+import com.library.diagnostics.UiActionEvent;
+import com.library.events.BookChangedEvent;
+import com.library.events.EventBus;
+import com.library.events.LibraryEvent;
+import com.library.events.LoadingEdtEventListener;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.events.MemberChangedEvent;
 import com.library.models.Book;
 import com.library.models.BookIssue;
 import com.library.models.Member;
+import com.library.service.LibraryService;
+import com.library.service.LibraryServices;
+import com.library.service.LoanAllowance;
+import com.library.service.LoanLimitExceededException;
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Panel for issuing books to members
  */
 public class IssueBookPanel extends JPanel {
-    private JComboBox<ComboItem<Book>> bookCombo;
-    private JComboBox<ComboItem<Member>> memberCombo;
+    private TypeAheadComboBox<Book> bookCombo;
+    private TypeAheadComboBox<Member> memberCombo;
     private JLabel lblBookId;
     private JLabel lblBookTitle;
     private JLabel lblBookAuthor;
@@ -33,19 +49,25 @@ public class IssueBookPanel extends JPanel {
     private JButton issueButton;
     private JButton clearButton;
     
-    private BookDAO bookDAO;
-    private MemberDAO memberDAO;
-    private BookIssueDAO bookIssueDAO;
+    // Checkout cart
+    private JTextField txtScan;
+    private DefaultTableModel cartModel;
+    private JTable cartTable;
+    private JLabel lblCartCount;
+    private JButton checkoutButton;
+    private List<Book> cartBooks = new ArrayList<>();
+    
+    private LibraryService libraryService;
+    private LoadingEdtEventListener<LibraryEvent, Changes> eventListener;
+    private boolean detached;
     
     /**
      * Constructor to initialize the panel
      */
     public IssueBookPanel() {
-        bookDAO = new BookDAO();
-        memberDAO = new MemberDAO();
-        bookIssueDAO = new BookIssueDAO();
+        libraryService = LibraryServices.getLibraryService();
         initComponents();
-        loadBookAndMemberData();
+        createEventListener();
     }
     
     /**
@@ -74,7 +96,17 @@ public class IssueBookPanel extends JPanel {
         
         // Book selection
         selectionPanel.add(new JLabel("Select Book:"));
-        bookCombo = new JComboBox<>();
+        bookCombo = new TypeAheadComboBox<>(new TypeAheadComboBox.Source<Book>() {
+            @Override
+            public List<Book> find(String prefix, int limit) {
+                return libraryService.findAvailableBooks(prefix, limit);
+            }
+            
+            @Override
+            public String getLabel(Book book) {
+                return book.getTitle();
+            }
+        });
         bookCombo.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -85,7 +117,17 @@ public class IssueBookPanel extends JPanel {
         
         // Member selection
         selectionPanel.add(new JLabel("Select Member:"));
-        memberCombo = new JComboBox<>();
+        memberCombo = new TypeAheadComboBox<>(new TypeAheadComboBox.Source<Member>() {
+            @Override
+            public List<Member> find(String prefix, int limit) {
+                return libraryService.findActiveMembers(prefix, limit);
+            }
+            
+            @Override
+            public String getLabel(Member member) {
+                return member.getName();
+            }
+        });
         memberCombo.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -108,20 +150,20 @@ public class IssueBookPanel extends JPanel {
         // Buttons
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         issueButton = new JButton("Issue Book");
-        issueButton.addActionListener(new ActionListener() {
+        issueButton.addActionListener(UiActionEvent.traced("IssueBookPanel", "Issue", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 issueBook();
             }
-        });
+        }));
         
         clearButton = new JButton("Clear");
-        clearButton.addActionListener(new ActionListener() {
+        clearButton.addActionListener(UiActionEvent.traced("IssueBookPanel", "Clear", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 clearForm();
             }
-        });
+        }));
         
         buttonPanel.add(issueButton);
         buttonPanel.add(clearButton);
@@ -185,51 +227,96 @@ public class IssueBookPanel extends JPanel {
         mainPanel.add(rightPanel);
         
         add(mainPanel, BorderLayout.CENTER);
+        add(createCartPanel(), BorderLayout.SOUTH);
     }
     
     /**
-     * Load book and member data for combo boxes
+     * Create the checkout cart, where books are scanned by ISBN or ID and then
+     * issued to the selected member together
+     * @return Cart panel
      */
-    private void loadBookAndMemberData() {
-        // Clear existing data
-        bookCombo.removeAllItems();
-        memberCombo.removeAllItems();
-        
-        // Load books
-        List<Book> books = bookDAO.getAllBooks();
-        for (Book book : books) {
-            // Only add books that are available
-            if (book.getAvailable() > 0) {
-                bookCombo.addItem(new ComboItem<>(book, book.getTitle()));
+    private JPanel createCartPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createTitledBorder("Checkout Cart"));
+        
+        JPanel scanPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        scanPanel.add(new JLabel("Scan ISBN or Book ID:"));
+        txtScan = new JTextField(18);
+        // Barcode scanners end each code with Enter
+        txtScan.addActionListener(UiActionEvent.traced("IssueBookPanel", "Scan", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                addToCart();
             }
-        }
+        }));
+        scanPanel.add(txtScan);
         
-        // Load members
-        List<Member> members = memberDAO.getAllMembers();
-        for (Member member : members) {
-            // Only add active members
-            if (member.getStatus().equals("Active")) {
-                memberCombo.addItem(new ComboItem<>(member, member.getName()));
+        JButton addButton = new JButton("Add");
+        addButton.addActionListener(UiActionEvent.traced("IssueBookPanel", "Scan", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                addToCart();
             }
-        }
+        }));
+        scanPanel.add(addButton);
         
-        // Update details if items are available
-        if (bookCombo.getItemCount() > 0) {
-            updateBookDetails();
-        }
+        lblCartCount = new JLabel("Cart is empty");
+        scanPanel.add(lblCartCount);
+        panel.add(scanPanel, BorderLayout.NORTH);
         
-        if (memberCombo.getItemCount() > 0) {
-            updateMemberDetails();
-        }
+        String[] columnNames = {"Book ID", "ISBN", "Title", "Author"};
+        cartModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        cartTable = new JTable(cartModel);
+        cartTable.getTableHeader().setReorderingAllowed(false);
+        JScrollPane scrollPane = new JScrollPane(cartTable);
+        scrollPane.setPreferredSize(new Dimension(0, 140));
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton removeButton = new JButton("Remove Selected");
+        removeButton.addActionListener(UiActionEvent.traced("IssueBookPanel", "Remove Selected", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                removeFromCart();
+            }
+        }));
+        
+        JButton clearCartButton = new JButton("Clear Cart");
+        clearCartButton.addActionListener(UiActionEvent.traced("IssueBookPanel", "Clear Cart", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                clearCart();
+            }
+        }));
+        
+        checkoutButton = new JButton("Check Out Cart");
+        checkoutButton.setEnabled(false);
+        checkoutButton.addActionListener(UiActionEvent.traced("IssueBookPanel", "Checkout", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                checkoutCart();
+            }
+        }));
+        
+        buttonPanel.add(removeButton);
+        buttonPanel.add(clearCartButton);
+        buttonPanel.add(checkoutButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        return panel;
     }
     
     /**
      * Update book details when a book is selected
      */
     private void updateBookDetails() {
-        ComboItem<Book> selectedItem = (ComboItem<Book>) bookCombo.getSelectedItem();
-        if (selectedItem != null) {
-            Book book = selectedItem.getValue();
+        Book book = bookCombo.getSelectedValue();
+        if (book != null) {
             lblBookId.setText(String.valueOf(book.getBookId()));
             lblBookTitle.setText(book.getTitle());
             lblBookAuthor.setText(book.getAuthor());
@@ -246,9 +333,8 @@ public class IssueBookPanel extends JPanel {
      * Update member details when a member is selected
      */
     private void updateMemberDetails() {
-        ComboItem<Member> selectedItem = (ComboItem<Member>) memberCombo.getSelectedItem();
-        if (selectedItem != null) {
-            Member member = selectedItem.getValue();
+        Member member = memberCombo.getSelectedValue();
+        if (member != null) {
             lblMemberId.setText(String.valueOf(member.getMemberId()));
             lblMemberName.setText(member.getName());
             lblMemberType.setText(member.getMemberType());
@@ -266,10 +352,10 @@ public class IssueBookPanel extends JPanel {
      */
     private void issueBook() {
         // Validate selections
-        ComboItem<Book> selectedBook = (ComboItem<Book>) bookCombo.getSelectedItem();
-        ComboItem<Member> selectedMember = (ComboItem<Member>) memberCombo.getSelectedItem();
+        Book book = bookCombo.getSelectedValue();
+        Member member = memberCombo.getSelectedValue();
         
-        if (selectedBook == null || selectedMember == null) {
+        if (book == null || member == null) {
             JOptionPane.showMessageDialog(this,
                 "Please select both a book and a member",
                 "Selection Error",
@@ -277,32 +363,17 @@ public class IssueBookPanel extends JPanel {
             return;
         }
         
+        if (!checkBorrowingLimit(member, 1)) {
+            return;
+        }
+        
         // Validate due date
-        Date dueDate;
-        try {
-            dueDate = Date.valueOf(txtDueDate.getText());
-            LocalDate issueDateLocal = LocalDate.parse(txtIssueDate.getText());
-            LocalDate dueDateLocal = dueDate.toLocalDate();
-            
-            if (dueDateLocal.isBefore(issueDateLocal) || dueDateLocal.isEqual(issueDateLocal)) {
-                JOptionPane.showMessageDialog(this,
-                    "Due date must be after the issue date",
-                    "Date Error",
-                    JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Invalid due date format. Please use yyyy-MM-dd",
-                "Date Error",
-                JOptionPane.ERROR_MESSAGE);
+        Date dueDate = readDueDate();
+        if (dueDate == null) {
             return;
         }
         
         // Create book issue
-        Book book = selectedBook.getValue();
-        Member member = selectedMember.getValue();
-        
         BookIssue bookIssue = new BookIssue(
             book.getBookId(),
             member.getMemberId(),
@@ -312,14 +383,22 @@ public class IssueBookPanel extends JPanel {
         );
         
         // Save to database
-        boolean success = bookIssueDAO.addBookIssue(bookIssue);
+        boolean success;
+        try {
+            success = libraryService.issueBook(bookIssue);
+        } catch (LoanLimitExceededException e) {
+            // Another desk issued to the member since the check above
+            showLimitReached(member);
+            return;
+        }
         
         if (success) {
             JOptionPane.showMessageDialog(this,
                 "Book issued successfully",
                 "Success",
                 JOptionPane.INFORMATION_MESSAGE);
-            refreshData();
+            // The book's availability is updated when the LoanIssuedEvent arrives
+            clearForm();
         } else {
             JOptionPane.showMessageDialog(this,
                 "Error issuing book. Please try again.",
@@ -328,6 +407,203 @@ public class IssueBookPanel extends JPanel {
         }
     }
     
+    /**
+     * Check that a member may borrow some more books, telling the user if not
+     * @param member Member borrowing
+     * @param books Number of books to issue
+     * @return true if the books stay within the member's borrowing limit
+     */
+    private boolean checkBorrowingLimit(Member member, int books) {
+        LoanAllowance allowance = libraryService.getLoanAllowance(member.getMemberId());
+        int remaining = allowance.getRemaining();
+        if (books <= remaining) {
+            return true;
+        }
+        
+        String message = member.getName() + " has " + allowance.getOpenLoans() +
+            " of the " + allowance.getLimit() + " books a " + member.getMemberType() + " member may hold";
+        if (remaining > 0) {
+            message += ", so only " + remaining + " more can be issued";
+        }
+        JOptionPane.showMessageDialog(this,
+            message + ".",
+            "Borrowing Limit",
+            JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+    
+    /**
+     * Tell the user the service refused to issue because the member reached
+     * their borrowing limit
+     * @param member Member borrowing
+     */
+    private void showLimitReached(Member member) {
+        JOptionPane.showMessageDialog(this,
+            "No books were issued. " + member.getName() + " has reached the borrowing limit for a " +
+            member.getMemberType() + " member.",
+            "Borrowing Limit",
+            JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Read and validate the due date field, telling the user what is wrong
+     * @return Due date, or null if it is invalid
+     */
+    private Date readDueDate() {
+        try {
+            Date dueDate = Date.valueOf(txtDueDate.getText());
+            LocalDate issueDateLocal = LocalDate.parse(txtIssueDate.getText());
+            LocalDate dueDateLocal = dueDate.toLocalDate();
+            
+            if (dueDateLocal.isBefore(issueDateLocal) || dueDateLocal.isEqual(issueDateLocal)) {
+                JOptionPane.showMessageDialog(this,
+                    "Due date must be after the issue date",
+                    "Date Error",
+                    JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+            return dueDate;
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this,
+                "Invalid due date format. Please use yyyy-MM-dd",
+                "Date Error",
+                JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+    
+    /**
+     * Look up the scanned ISBN or book ID and add the book to the cart
+     */
+    private void addToCart() {
+        String code = txtScan.getText().trim();
+        if (code.isEmpty()) {
+            return;
+        }
+        
+        Book book = libraryService.findBookByCode(code);
+        if (book == null) {
+            JOptionPane.showMessageDialog(this,
+                "No book found with ISBN or ID " + code,
+                "Not Found",
+                JOptionPane.WARNING_MESSAGE);
+            txtScan.selectAll();
+            return;
+        }
+        
+        // Check availability against the copies already in the cart
+        int inCart = 0;
+        for (Book cartBook : cartBooks) {
+            if (cartBook.getBookId() == book.getBookId()) {
+                inCart++;
+            }
+        }
+        if (inCart >= book.getAvailable()) {
+            JOptionPane.showMessageDialog(this,
+                "No more copies of \"" + book.getTitle() + "\" are available",
+                "Not Available",
+                JOptionPane.WARNING_MESSAGE);
+            txtScan.selectAll();
+            return;
+        }
+        
+        cartBooks.add(book);
+        cartModel.addRow(new Object[] {book.getBookId(), book.getIsbn(), book.getTitle(), book.getAuthor()});
+        txtScan.setText("");
+        updateCartCount();
+    }
+    
+    /**
+     * Remove the selected books from the cart
+     */
+    private void removeFromCart() {
+        int[] rows = cartTable.getSelectedRows();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            cartBooks.remove(rows[i]);
+            cartModel.removeRow(rows[i]);
+        }
+        updateCartCount();
+    }
+    
+    /**
+     * Empty the cart
+     */
+    private void clearCart() {
+        cartBooks.clear();
+        cartModel.setRowCount(0);
+        updateCartCount();
+    }
+    
+    /**
+     * Show the number of books in the cart
+     */
+    private void updateCartCount() {
+        int count = cartBooks.size();
+        lblCartCount.setText(count == 0 ? "Cart is empty" : count + (count == 1 ? " book" : " books") + " in cart");
+        checkoutButton.setEnabled(count > 0);
+    }
+    
+    /**
+     * Issue every book in the cart to the selected member in one transaction.
+     * Open views update from the resulting events in a single batch.
+     */
+    private void checkoutCart() {
+        Member member = memberCombo.getSelectedValue();
+        if (member == null) {
+            JOptionPane.showMessageDialog(this,
+                "Please select a member",
+                "Selection Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (cartBooks.isEmpty() || !checkBorrowingLimit(member, cartBooks.size())) {
+            return;
+        }
+        
+        Date dueDate = readDueDate();
+        if (dueDate == null) {
+            return;
+        }
+        
+        Date issueDate = Date.valueOf(txtIssueDate.getText());
+        List<BookIssue> issues = new ArrayList<>();
+        for (Book book : cartBooks) {
+            issues.add(new BookIssue(book.getBookId(), member.getMemberId(), issueDate, dueDate, "Issued"));
+        }
+        
+        List<Integer> unavailable;
+        try {
+            unavailable = libraryService.issueBooks(issues);
+        } catch (LoanLimitExceededException e) {
+            showLimitReached(member);
+            return;
+        }
+        if (unavailable == null) {
+            JOptionPane.showMessageDialog(this,
+                "Error issuing books. Please try again.",
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        } else if (!unavailable.isEmpty()) {
+            StringBuilder titles = new StringBuilder();
+            for (Book book : cartBooks) {
+                if (unavailable.contains(book.getBookId()) && titles.indexOf(book.getTitle() + "\n") < 0) {
+                    titles.append(book.getTitle()).append("\n");
+                }
+            }
+            JOptionPane.showMessageDialog(this,
+                "No books were issued. These books have no copy left:\n" + titles +
+                "Remove them from the cart and check out again.",
+                "Not Available",
+                JOptionPane.WARNING_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this,
+                issues.size() + (issues.size() == 1 ? " book" : " books") + " issued to " + member.getName(),
+                "Success",
+                JOptionPane.INFORMATION_MESSAGE);
+            clearCart();
+        }
+    }
+    
     /**
      * Clear the form
      */
@@ -342,30 +618,127 @@ public class IssueBookPanel extends JPanel {
      * Refresh the data
      */
     public void refreshData() {
-        loadBookAndMemberData();
+        PanelRefreshEvent event = PanelRefreshEvent.start("IssueBookPanel");
+        bookCombo.reload();
+        memberCombo.reload();
         clearForm();
+        event.commit();
     }
     
     /**
-     * Utility class for combo box items with value and display text
-     * @param <T> Type of the value
+     * Create the listener that keeps the selections current from book, member
+     * and loan events without full reloads. It is subscribed while the panel
+     * is shown.
      */
-    private class ComboItem<T> {
-        private T value;
-        private String displayText;
-        
-        public ComboItem(T value, String displayText) {
-            this.value = value;
-            this.displayText = displayText;
+    private void createEventListener() {
+        eventListener = new LoadingEdtEventListener<LibraryEvent, Changes>() {
+            @Override
+            protected Changes load(List<LibraryEvent> events) {
+                return loadChanges(events);
+            }
+            
+            @Override
+            protected void handleEvents(List<LibraryEvent> events, Changes changes) {
+                applyChanges(changes);
+            }
+        };
+    }
+    
+    /**
+     * Start receiving events when the panel is shown. Changes missed while it
+     * was removed are picked up by reloading the selectors.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus.getInstance().subscribe(LibraryEvent.class, eventListener);
+        if (detached) {
+            detached = false;
+            bookCombo.reload();
+            memberCombo.reload();
+        }
+    }
+    
+    /**
+     * Stop receiving events once the panel is removed from its frame
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        EventBus.getInstance().unsubscribe(eventListener);
+        detached = true;
+    }
+    
+    /**
+     * Read the books and members touched by a batch of events, one query for
+     * each. Runs on a background thread.
+     * @param events Coalesced events
+     * @return Changed books and members
+     */
+    private Changes loadChanges(List<LibraryEvent> events) {
+        Set<Integer> changedBookIds = new LinkedHashSet<>();
+        Set<Integer> changedMemberIds = new LinkedHashSet<>();
+        for (LibraryEvent event : events) {
+            if (event instanceof BookChangedEvent) {
+                changedBookIds.add(((BookChangedEvent) event).getBookId());
+            } else if (event instanceof LoanIssuedEvent) {
+                changedBookIds.add(((LoanIssuedEvent) event).getBookId());
+            } else if (event instanceof LoanReturnedEvent) {
+                changedBookIds.add(((LoanReturnedEvent) event).getBookId());
+            } else if (event instanceof MemberChangedEvent) {
+                changedMemberIds.add(((MemberChangedEvent) event).getMemberId());
+            }
         }
         
-        public T getValue() {
-            return value;
+        Changes changes = new Changes();
+        for (int bookId : changedBookIds) {
+            changes.books.put(bookId, null);
+        }
+        for (Book book : libraryService.getBooksByIds(new ArrayList<>(changedBookIds))) {
+            changes.books.put(book.getBookId(), book);
+        }
+        for (int memberId : changedMemberIds) {
+            changes.members.put(memberId, null);
+        }
+        for (Member member : libraryService.getMembersByIds(new ArrayList<>(changedMemberIds))) {
+            changes.members.put(member.getMemberId(), member);
+        }
+        return changes;
+    }
+    
+    /**
+     * Update only the listed or selected entries touched by a batch of events
+     * @param changes Changed books and members
+     */
+    private void applyChanges(Changes changes) {
+        // Books and members not on the current page are picked up by the next query
+        for (Map.Entry<Integer, Book> entry : changes.books.entrySet()) {
+            int bookId = entry.getKey();
+            Book book = entry.getValue();
+            if (bookCombo.containsValue(b -> b.getBookId() == bookId)) {
+                bookCombo.replaceValue(b -> b.getBookId() == bookId,
+                    book != null && book.getAvailable() > 0 ? book : null);
+            }
         }
         
-        @Override
-        public String toString() {
-            return displayText;
+        for (Map.Entry<Integer, Member> entry : changes.members.entrySet()) {
+            int memberId = entry.getKey();
+            Member member = entry.getValue();
+            if (memberCombo.containsValue(m -> m.getMemberId() == memberId)) {
+                memberCombo.replaceValue(m -> m.getMemberId() == memberId,
+                    member != null && member.getStatus().equals("Active") ? member : null);
+            }
         }
+        
+        updateBookDetails();
+        updateMemberDetails();
+    }
+    
+    /**
+     * Books and members read for a batch of events, mapped to null if deleted
+     */
+    private static class Changes {
+        final Map<Integer, Book> books = new HashMap<>();
+        final Map<Integer, Member> members = new HashMap<>();
     }
-} 
\ No newline at end of file
+}
@@ -1,16 +1,30 @@
 package com.library.ui;
 
+import com.library.diagnostics.EdtWatchdog;
+import com.library.metrics.MetricsExporter;
 import com.library.models.User;
+import com.library.search.CatalogLoader;
+import com.library.search.FacetIndex;
+import com.library.search.FuzzyBookIndex;
+import com.library.search.MemberLookupIndex;
+import com.library.search.PhoneticIndex;
+import com.library.search.SuggestionIndex;
+import com.library.service.LibraryServices;
+import com.library.service.LiveStatistics;
+import com.library.service.LoanLimitIndex;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 /**
- * Main application frame with menu and content area
+ * Main application frame with menu and content area. A client going through
+ * the HTTP API shows only the circulation desk, since member, user and report
+ * management read the database directly.
  */
 public class MainFrame extends JFrame {
     private User currentUser;
+    private boolean remote;
     private JPanel contentPanel;
     
     // Menu items
@@ -19,7 +33,9 @@ public class MainFrame extends JFrame {
     private JMenuItem miIssueBook;
     private JMenuItem miReturnBook;
     private JMenuItem miOverdueBooks;
+    private JMenuItem miReports;
     private JMenuItem miUserManagement;
+    private JMenuItem miDiagnostics;
     private JMenuItem miLogout;
     private JMenuItem miExit;
     
@@ -29,7 +45,9 @@ public class MainFrame extends JFrame {
     private IssueBookPanel issueBookPanel;
     private ReturnBookPanel returnBookPanel;
     private OverdueBookPanel overdueBookPanel;
+    private ReportsPanel reportsPanel;
     private UserPanel userPanel;
+    private DiagnosticsPanel diagnosticsPanel;
     
     /**
      * Constructor to initialize the main frame
@@ -37,8 +55,25 @@ public class MainFrame extends JFrame {
      */
     public MainFrame(User user) {
         this.currentUser = user;
+        this.remote = LibraryServices.isRemote();
         initComponents();
         showDashboard();
+        
+        // Pick up changes made on other desks
+        LibraryServices.startChangeFeed();
+        MetricsExporter.startFromSystemProperties();
+        EdtWatchdog.getInstance().start();
+        if (!remote) {
+            // In-memory views of the database; the API server keeps its own
+            LiveStatistics.getInstance().start();
+            SuggestionIndex.getInstance().register();
+            FuzzyBookIndex.getInstance().register();
+            PhoneticIndex.getInstance().register();
+            FacetIndex.getInstance().register();
+            MemberLookupIndex.getInstance().register();
+            LoanLimitIndex.getInstance().register();
+            CatalogLoader.getInstance().start();
+        }
     }
     
     /**
@@ -59,27 +94,41 @@ public class MainFrame extends JFrame {
         
         // Initialize panels but don't add them yet
         bookPanel = new BookPanel();
-        memberPanel = new MemberPanel();
         issueBookPanel = new IssueBookPanel();
         returnBookPanel = new ReturnBookPanel();
         overdueBookPanel = new OverdueBookPanel();
+        if (!remote) {
+            memberPanel = new MemberPanel();
+            reportsPanel = new ReportsPanel();
+        }
         
-        // Only add user management panel if user is Administrator
+        // Only add user management and diagnostics panels if user is Administrator
         if (currentUser.getRole().equals("Administrator")) {
-            userPanel = new UserPanel();
+            if (!remote) {
+                userPanel = new UserPanel();
+            }
+            diagnosticsPanel = new DiagnosticsPanel();
         }
         
         // Add panels to content panel
         contentPanel.add(new DashboardPanel(currentUser), "dashboard");
         contentPanel.add(bookPanel, "books");
-        contentPanel.add(memberPanel, "members");
         contentPanel.add(issueBookPanel, "issueBook");
         contentPanel.add(returnBookPanel, "returnBook");
         contentPanel.add(overdueBookPanel, "overdueBooks");
         
+        if (memberPanel != null) {
+            contentPanel.add(memberPanel, "members");
+        }
+        if (reportsPanel != null) {
+            contentPanel.add(reportsPanel, "reports");
+        }
         if (userPanel != null) {
             contentPanel.add(userPanel, "users");
         }
+        if (diagnosticsPanel != null) {
+            contentPanel.add(diagnosticsPanel, "diagnostics");
+        }
         
         // Add content panel to the frame
         getContentPane().add(contentPanel, BorderLayout.CENTER);
@@ -161,12 +210,26 @@ public class MainFrame extends JFrame {
             }
         });
         
+        miReports = new JMenuItem("Circulation Reports");
+        miReports.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showReportsPanel();
+            }
+        });
+        
         operationsMenu.add(miBooks);
-        operationsMenu.add(miMembers);
+        if (!remote) {
+            operationsMenu.add(miMembers);
+        }
         operationsMenu.addSeparator();
         operationsMenu.add(miIssueBook);
         operationsMenu.add(miReturnBook);
         operationsMenu.add(miOverdueBooks);
+        if (!remote) {
+            operationsMenu.addSeparator();
+            operationsMenu.add(miReports);
+        }
         
         // Admin Menu (only for administrators)
         JMenu adminMenu = null;
@@ -181,7 +244,18 @@ public class MainFrame extends JFrame {
                 }
             });
             
-            adminMenu.add(miUserManagement);
+            miDiagnostics = new JMenuItem("System Diagnostics");
+            miDiagnostics.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    showDiagnosticsPanel();
+                }
+            });
+            
+            if (!remote) {
+                adminMenu.add(miUserManagement);
+            }
+            adminMenu.add(miDiagnostics);
         }
         
         // Help Menu
@@ -238,7 +312,6 @@ public class MainFrame extends JFrame {
      * Show the books management panel
      */
     private void showBooksPanel() {
-        bookPanel.refreshData();
         CardLayout cl = (CardLayout) contentPanel.getLayout();
         cl.show(contentPanel, "books");
     }
@@ -247,7 +320,6 @@ public class MainFrame extends JFrame {
      * Show the members management panel
      */
     private void showMembersPanel() {
-        memberPanel.refreshData();
         CardLayout cl = (CardLayout) contentPanel.getLayout();
         cl.show(contentPanel, "members");
     }
@@ -256,7 +328,6 @@ public class MainFrame extends JFrame {
      * Show the issue book panel
      */
     private void showIssueBookPanel() {
-        issueBookPanel.refreshData();
         CardLayout cl = (CardLayout) contentPanel.getLayout();
         cl.show(contentPanel, "issueBook");
     }
@@ -265,7 +336,6 @@ public class MainFrame extends JFrame {
      * Show the return book panel
      */
     private void showReturnBookPanel() {
-        returnBookPanel.refreshData();
         CardLayout cl = (CardLayout) contentPanel.getLayout();
         cl.show(contentPanel, "returnBook");
     }
@@ -279,6 +349,14 @@ public class MainFrame extends JFrame {
         cl.show(contentPanel, "overdueBooks");
     }
     
+    /**
+     * Show the circulation reports panel
+     */
+    private void showReportsPanel() {
+        CardLayout cl = (CardLayout) contentPanel.getLayout();
+        cl.show(contentPanel, "reports");
+    }
+    
     /**
      * Show the user management panel (admin only)
      */
@@ -290,6 +368,17 @@ public class MainFrame extends JFrame {
         }
     }
     
+    /**
+     * Show the system diagnostics panel (admin only)
+     */
+    private void showDiagnosticsPanel() {
+        if (diagnosticsPanel != null) {
+            diagnosticsPanel.refreshData();
+            CardLayout cl = (CardLayout) contentPanel.getLayout();
+            cl.show(contentPanel, "diagnostics");
+        }
+    }
+    
     /**
      * Show the about dialog
      */
@@ -1,7 +1,14 @@
 package com.library.ui;
 
 import com.library.database.MemberDAO;
+import com.library.diagnostics.PanelRefreshEvent;
+import com.library.events.EventBus;
+import com.library.events.LoadingEdtEventListener;
+import com.library.events.MemberChangedEvent;
 import com.library.models.Member;
+import com.library.search.MemberLookupIndex;
+import com.library.search.PhoneticIndex;
+import com.library.search.SuggestionIndex;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -9,22 +16,35 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Panel for managing library members
  */
 public class MemberPanel extends JPanel {
+    private static final int SEARCH_LIMIT = 500;
+    
     private JTable memberTable;
     private DefaultTableModel tableModel;
     private JTextField searchField;
     private JButton searchButton;
+    private JCheckBox soundsLikeCheck;
+    private JLabel resultLabel;
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
     private JButton refreshButton;
     
     private MemberDAO memberDAO;
+    private LoadingEdtEventListener<MemberChangedEvent, Map<Integer, Member>> eventListener;
+    private boolean detached;
     
     /**
      * Constructor to initialize the panel
@@ -33,6 +53,7 @@ public class MemberPanel extends JPanel {
         memberDAO = new MemberDAO();
         initComponents();
         loadMemberData();
+        createEventListener();
     }
     
     /**
@@ -59,9 +80,19 @@ public class MemberPanel extends JPanel {
             }
         });
         
+        SuggestionPopup.attach(searchField, new Runnable() {
+            @Override
+            public void run() {
+                searchMembers();
+            }
+        }, SuggestionIndex.Field.MEMBER_NAME);
+        
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
+        soundsLikeCheck = new JCheckBox("Sounds like");
+        soundsLikeCheck.setToolTipText("Match names spelled by ear, e.g. Jon Smyth for John Smith");
+        searchPanel.add(soundsLikeCheck);
         
         titlePanel.add(searchPanel, BorderLayout.EAST);
         add(titlePanel, BorderLayout.NORTH);
@@ -111,6 +142,11 @@ public class MemberPanel extends JPanel {
         buttonPanel.add(deleteButton);
         buttonPanel.add(refreshButton);
         
+        // Says when a search found more members than are shown
+        resultLabel = new JLabel();
+        buttonPanel.add(Box.createHorizontalStrut(20));
+        buttonPanel.add(resultLabel);
+        
         add(buttonPanel, BorderLayout.SOUTH);
     }
     
@@ -147,28 +183,20 @@ public class MemberPanel extends JPanel {
     private void loadMemberData() {
         // Clear existing data
         tableModel.setRowCount(0);
+        resultLabel.setText("");
         
         // Get all members from the database
         List<Member> members = memberDAO.getAllMembers();
         
         // Add members to the table model
         for (Member member : members) {
-            Object[] rowData = {
-                member.getMemberId(),
-                member.getName(),
-                member.getEmail(),
-                member.getPhone(),
-                member.getAddress(),
-                member.getMemberType(),
-                member.getJoinDate(),
-                member.getStatus()
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(createRowData(member));
         }
     }
     
     /**
-     * Search for members
+     * Search for members. At most {@link #SEARCH_LIMIT} members are shown, with
+     * a note under the table when there are more.
      */
     private void searchMembers() {
         String searchTerm = searchField.getText().trim();
@@ -181,25 +209,69 @@ public class MemberPanel extends JPanel {
         // Clear existing data
         tableModel.setRowCount(0);
         
-        // Search for members
-        List<Member> members = memberDAO.searchMembers(searchTerm);
+        // Search for members, asking for one more than is shown to tell whether there are more
+        List<Member> members;
+        if (soundsLikeCheck.isSelected() && PhoneticIndex.getInstance().isLoaded()) {
+            members = memberDAO.getMembersByIds(PhoneticIndex.getInstance().findMembers(searchTerm, SEARCH_LIMIT + 1));
+        } else {
+            members = findMembers(searchTerm);
+        }
+        
+        boolean truncated = members.size() > SEARCH_LIMIT;
+        if (truncated) {
+            members = members.subList(0, SEARCH_LIMIT);
+        }
+        resultLabel.setText(truncated
+            ? "Showing the first " + SEARCH_LIMIT + " matches; refine the search to see the rest" : "");
         
         // Add matching members to the table model
         for (Member member : members) {
-            Object[] rowData = {
-                member.getMemberId(),
-                member.getName(),
-                member.getEmail(),
-                member.getPhone(),
-                member.getAddress(),
-                member.getMemberType(),
-                member.getJoinDate(),
-                member.getStatus()
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(createRowData(member));
         }
     }
     
+    /**
+     * Find members by lookup and, when needed, by substring. An email or
+     * phone number found in the index is answered from it alone. Name words
+     * are followed by members whose name, email or phone merely contains the
+     * text, so "John" still finds "Johnson". The substring search scans the
+     * members table, so it also covers lookups that found nothing or could not
+     * run because the index is still loading.
+     * @param searchTerm Text to look up
+     * @return Up to one more than {@link #SEARCH_LIMIT} members, without duplicates
+     */
+    private List<Member> findMembers(String searchTerm) {
+        List<Member> members = new ArrayList<>();
+        Set<Integer> memberIds = new HashSet<>();
+        
+        // The in-memory lookup needs its index to have finished loading
+        MemberLookupIndex index = MemberLookupIndex.getInstance();
+        if (index.isLoaded()) {
+            List<Integer> lookupIds = index.find(searchTerm, SEARCH_LIMIT + 1);
+            if (!lookupIds.isEmpty()) {
+                members.addAll(memberDAO.getMembersByIds(lookupIds));
+                members.sort(Comparator.comparing(Member::getName, String.CASE_INSENSITIVE_ORDER));
+                for (Member member : members) {
+                    memberIds.add(member.getMemberId());
+                }
+            }
+        }
+        
+        boolean answered = !members.isEmpty() && MemberLookupIndex.isContactQuery(searchTerm);
+        if (!answered && members.size() <= SEARCH_LIMIT) {
+            // Room for every lookup match to appear again, so more than the limit is still noticed
+            for (Member member : memberDAO.searchMembers(searchTerm, SEARCH_LIMIT + 1 + members.size())) {
+                if (members.size() > SEARCH_LIMIT) {
+                    break;
+                }
+                if (memberIds.add(member.getMemberId())) {
+                    members.add(member);
+                }
+            }
+        }
+        return members;
+    }
+    
     /**
      * Add a new member
      */
@@ -208,10 +280,7 @@ public class MemberPanel extends JPanel {
         MemberDialog dialog = new MemberDialog(SwingUtilities.getWindowAncestor(this), null);
         dialog.setVisible(true);
         
-        // If a member was added, refresh the table
-        if (dialog.isMemberSaved()) {
-            refreshData();
-        }
+        // A saved member reaches the table through its MemberChangedEvent
     }
     
     /**
@@ -238,11 +307,6 @@ public class MemberPanel extends JPanel {
             // Create and show the member dialog
             MemberDialog dialog = new MemberDialog(SwingUtilities.getWindowAncestor(this), member);
             dialog.setVisible(true);
-            
-            // If a member was edited, refresh the table
-            if (dialog.isMemberSaved()) {
-                refreshData();
-            }
         }
     }
     
@@ -278,7 +342,6 @@ public class MemberPanel extends JPanel {
                     "Member deleted successfully", 
                     "Success", 
                     JOptionPane.INFORMATION_MESSAGE);
-                refreshData();
             } else {
                 JOptionPane.showMessageDialog(this, 
                     "Failed to delete member. The member may have books checked out.", 
@@ -292,7 +355,131 @@ public class MemberPanel extends JPanel {
      * Refresh the member data
      */
     public void refreshData() {
+        PanelRefreshEvent event = PanelRefreshEvent.start("MemberPanel");
         loadMemberData();
+        event.commit();
+    }
+    
+    /**
+     * Create a table row for a member
+     * @param member Member to display
+     * @return Row data in column order
+     */
+    private Object[] createRowData(Member member) {
+        return new Object[] {
+            member.getMemberId(),
+            member.getName(),
+            member.getEmail(),
+            member.getPhone(),
+            member.getAddress(),
+            member.getMemberType(),
+            member.getJoinDate(),
+            member.getStatus()
+        };
+    }
+    
+    /**
+     * Find the table row showing a member
+     * @param memberId Member ID
+     * @return Row index, or -1 if the member is not shown
+     */
+    private int findRow(int memberId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((int) tableModel.getValueAt(row, 0) == memberId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Create the listener that keeps the table current from member events
+     * without full reloads. It is subscribed while the panel is shown.
+     */
+    private void createEventListener() {
+        eventListener = new LoadingEdtEventListener<MemberChangedEvent, Map<Integer, Member>>() {
+            @Override
+            protected Map<Integer, Member> load(List<MemberChangedEvent> events) {
+                return loadChangedMembers(events);
+            }
+            
+            @Override
+            protected void handleEvents(List<MemberChangedEvent> events, Map<Integer, Member> members) {
+                applyMemberChanges(members);
+            }
+        };
+    }
+    
+    /**
+     * Start receiving events when the panel is shown. Changes missed while it
+     * was removed are picked up by a reload.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus.getInstance().subscribe(MemberChangedEvent.class, eventListener);
+        if (detached) {
+            detached = false;
+            loadMemberData();
+        }
+    }
+    
+    /**
+     * Stop receiving events once the panel is removed from its frame
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        EventBus.getInstance().unsubscribe(eventListener);
+        detached = true;
+    }
+    
+    /**
+     * Read the members touched by a batch of events in one query. Runs on a
+     * background thread.
+     * @param events Coalesced events
+     * @return Changed members by ID; members mapped to null were deleted
+     */
+    private Map<Integer, Member> loadChangedMembers(List<MemberChangedEvent> events) {
+        Set<Integer> changedMemberIds = new LinkedHashSet<>();
+        for (MemberChangedEvent event : events) {
+            changedMemberIds.add(event.getMemberId());
+        }
+        
+        Map<Integer, Member> members = new LinkedHashMap<>();
+        for (int memberId : changedMemberIds) {
+            members.put(memberId, null);
+        }
+        for (Member member : memberDAO.getMembersByIds(new ArrayList<>(changedMemberIds))) {
+            members.put(member.getMemberId(), member);
+        }
+        return members;
+    }
+    
+    /**
+     * Update only the rows of members touched by a batch of events
+     * @param changedMembers Changed members by ID, mapped to null if deleted
+     */
+    private void applyMemberChanges(Map<Integer, Member> changedMembers) {
+        boolean filtered = !searchField.getText().trim().isEmpty();
+        for (Map.Entry<Integer, Member> entry : changedMembers.entrySet()) {
+            int row = findRow(entry.getKey());
+            Member member = entry.getValue();
+            
+            if (member == null) {
+                // Member was deleted
+                if (row != -1) {
+                    tableModel.removeRow(row);
+                }
+            } else if (row != -1) {
+                Object[] rowData = createRowData(member);
+                for (int column = 0; column < rowData.length; column++) {
+                    tableModel.setValueAt(rowData[column], row, column);
+                }
+            } else if (!filtered) {
+                tableModel.addRow(createRowData(member));
+            }
+        }
     }
     
     /**
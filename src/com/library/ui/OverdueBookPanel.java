@@ -1,15 +1,16 @@
 package com.library.ui;
 
-import com.library.database.BookDAO;
-import com.library.database.BookIssueDAO;
+import com.library.diagnostics.PanelRefreshEvent;
 import com.library.models.BookIssue;
+import com.library.service.FineCalculator;
+import com.library.service.LibraryService;
+import com.library.service.LibraryServices;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
@@ -21,13 +22,13 @@ public class OverdueBookPanel extends JPanel {
     private JButton refreshButton;
     private JButton notifyButton;
     
-    private BookIssueDAO bookIssueDAO;
+    private LibraryService libraryService;
     
     /**
      * Constructor to initialize the panel
      */
     public OverdueBookPanel() {
-        bookIssueDAO = new BookIssueDAO();
+        libraryService = LibraryServices.getLibraryService();
         initComponents();
         loadOverdueBooks();
     }
@@ -103,20 +104,18 @@ public class OverdueBookPanel extends JPanel {
         // Clear existing data
         tableModel.setRowCount(0);
         
-        // Get all overdue books from the database
-        List<BookIssue> overdueBooks = bookIssueDAO.getOverdueBooks();
+        // Get all overdue books
+        List<BookIssue> overdueBooks = libraryService.getOverdueIssues();
         
         // Calculate days overdue and fine for each book
         LocalDate today = LocalDate.now();
-        double finePerDay = 2.50;
         
         for (BookIssue issue : overdueBooks) {
             // Calculate days overdue
-            LocalDate dueDate = issue.getDueDate().toLocalDate();
-            long daysOverdue = ChronoUnit.DAYS.between(dueDate, today);
+            long daysOverdue = FineCalculator.daysLate(issue.getDueDate(), today);
             
             // Calculate estimated fine
-            double estimatedFine = daysOverdue * finePerDay;
+            double estimatedFine = FineCalculator.fineFor(daysOverdue);
             
             Object[] rowData = {
                 issue.getIssueId(),
@@ -167,6 +166,8 @@ public class OverdueBookPanel extends JPanel {
      * Refresh the data
      */
     public void refreshData() {
+        PanelRefreshEvent event = PanelRefreshEvent.start("OverdueBookPanel");
         loadOverdueBooks();
+        event.commit();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.library.ui;
+
+import com.library.diagnostics.UiActionEvent;
+import com.library.reports.CirculationReport;
+import com.library.reports.ReportEngine;
+import com.library.reports.ReportExporter;
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Panel for generating circulation analytics reports
+ */
+public class ReportsPanel extends JPanel {
+    private static final int TOP_TITLES = 50;
+    
+    private JTextField txtFrom;
+    private JTextField txtTo;
+    private JButton generateButton;
+    private JButton exportButton;
+    private JLabel lblSummary;
+    private DefaultTableModel titlesModel;
+    private DefaultTableModel categoriesModel;
+    private DefaultTableModel memberTypesModel;
+    
+    private ReportEngine reportEngine;
+    private CirculationReport currentReport;
+    
+    /**
+     * Constructor to initialize the panel
+     */
+    public ReportsPanel() {
+        reportEngine = new ReportEngine();
+        initComponents();
+    }
+    
+    /**
+     * Initialize UI components
+     */
+    private void initComponents() {
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        
+        // Title and date range
+        JPanel topPanel = new JPanel(new BorderLayout());
+        JLabel titleLabel = new JLabel("Circulation Reports");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        topPanel.add(titleLabel, BorderLayout.NORTH);
+        
+        JPanel rangePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rangePanel.add(new JLabel("From:"));
+        txtFrom = new JTextField(LocalDate.now().minusDays(364).toString(), 10);
+        rangePanel.add(txtFrom);
+        rangePanel.add(new JLabel("To:"));
+        txtTo = new JTextField(LocalDate.now().toString(), 10);
+        rangePanel.add(txtTo);
+        
+        generateButton = new JButton("Generate");
+        generateButton.addActionListener(UiActionEvent.traced("ReportsPanel", "Generate", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                generateReport();
+            }
+        }));
+        rangePanel.add(generateButton);
+        
+        exportButton = new JButton("Export CSV...");
+        exportButton.setEnabled(false);
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportReport();
+            }
+        });
+        rangePanel.add(exportButton);
+        topPanel.add(rangePanel, BorderLayout.CENTER);
+        
+        lblSummary = new JLabel("Choose a date range and press Generate");
+        topPanel.add(lblSummary, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
+        
+        // Result tables
+        titlesModel = createModel("Rank", "Title", "Author", "Category", "Issues");
+        categoriesModel = createModel("Category", "Copies", "Issues", "Utilization", "Avg. Loan Days");
+        memberTypesModel = createModel("Member Type", "Members", "Active", "Issues", "Issues / Active",
+                                       "Returns", "Late Returns");
+        
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Top Titles", new JScrollPane(createTable(titlesModel)));
+        tabs.addTab("Category Utilization", new JScrollPane(createTable(categoriesModel)));
+        tabs.addTab("Member Activity", new JScrollPane(createTable(memberTypesModel)));
+        add(tabs, BorderLayout.CENTER);
+    }
+    
+    /**
+     * Create a read-only table model
+     * @param columnNames Column names
+     * @return Table model
+     */
+    private DefaultTableModel createModel(String... columnNames) {
+        return new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Create a table for a model
+     * @param model Table model
+     * @return Table
+     */
+    private JTable createTable(DefaultTableModel model) {
+        JTable table = new JTable(model);
+        table.getTableHeader().setReorderingAllowed(false);
+        return table;
+    }
+    
+    /**
+     * Generate the report for the entered range in the background
+     */
+    private void generateReport() {
+        final LocalDate from;
+        final LocalDate to;
+        try {
+            from = LocalDate.parse(txtFrom.getText().trim());
+            to = LocalDate.parse(txtTo.getText().trim());
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this,
+                "Invalid date format. Please use yyyy-MM-dd",
+                "Date Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this,
+                "The end date must not be before the start date",
+                "Date Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        generateButton.setEnabled(false);
+        lblSummary.setText("Generating report...");
+        
+        SwingWorker<CirculationReport, Void> worker = new SwingWorker<CirculationReport, Void>() {
+            @Override
+            protected CirculationReport doInBackground() throws Exception {
+                return reportEngine.generate(from, to, TOP_TITLES);
+            }
+            
+            @Override
+            protected void done() {
+                generateButton.setEnabled(true);
+                CirculationReport report = null;
+                try {
+                    report = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+                if (report == null) {
+                    lblSummary.setText("The report could not be generated");
+                    return;
+                }
+                showReport(report);
+            }
+        };
+        
+        worker.execute();
+    }
+    
+    /**
+     * Fill the tables from a report
+     * @param report Report to show
+     */
+    private void showReport(CirculationReport report) {
+        currentReport = report;
+        exportButton.setEnabled(true);
+        lblSummary.setText(String.format("%,d loans scanned in %,d ms, average loan %.1f days",
+            report.getLoansScanned(), report.getElapsedMillis(), report.getAverageLoanDays()));
+        
+        titlesModel.setRowCount(0);
+        int rank = 1;
+        for (CirculationReport.TitleStat title : report.getTopTitles()) {
+            titlesModel.addRow(new Object[] {
+                rank++, title.getTitle(), title.getAuthor(), title.getCategory(), title.getIssues()
+            });
+        }
+        
+        categoriesModel.setRowCount(0);
+        for (CirculationReport.CategoryStat category : report.getCategories()) {
+            categoriesModel.addRow(new Object[] {
+                category.getCategory(),
+                category.getCopies(),
+                category.getIssues(),
+                String.format("%.1f%%", category.getUtilization() * 100),
+                String.format("%.1f", category.getAverageLoanDays())
+            });
+        }
+        
+        memberTypesModel.setRowCount(0);
+        for (CirculationReport.MemberTypeStat type : report.getMemberTypes()) {
+            memberTypesModel.addRow(new Object[] {
+                type.getMemberType(),
+                type.getMembers(),
+                type.getActiveMembers(),
+                type.getIssues(),
+                String.format("%.2f", type.getIssuesPerActiveMember()),
+                type.getReturns(),
+                type.getLateReturns()
+            });
+        }
+    }
+    
+    /**
+     * Export the current report to a CSV file chosen by the user
+     */
+    private void exportReport() {
+        if (currentReport == null) {
+            return;
+        }
+        
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("circulation-" + currentReport.getFrom() + "-" +
+                                         currentReport.getTo() + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        try {
+            ReportExporter.writeCsv(currentReport, chooser.getSelectedFile().toPath());
+            JOptionPane.showMessageDialog(this,
+                "Report exported to " + chooser.getSelectedFile().getName(),
+                "Export",
+                JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Could not write the report: " + e.getMessage(),
+                "Export Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
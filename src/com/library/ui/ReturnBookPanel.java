@@ -1,11 +1,23 @@
 package com.library.ui;
 
-import com.library.database.BookDAO;
-import com.library.database.BookIssueDAO;
-import com.library.database.MemberDAO;
+import com.library.diagnostics.PanelRefreshEvent;
+import com.library.diagnostics.UiActionEvent;
+import com.library.events.BookChangedEvent;
+import com.library.events.ChangeType;
+import com.library.events.EventBus;
+import com.library.events.LibraryEvent;
+import com.library.events.LoadingEdtEventListener;
+import com.library.events.LoanIssuedEvent;
+import com.library.events.LoanReturnedEvent;
+import com.library.events.MemberChangedEvent;
 import com.library.models.Book;
 import com.library.models.BookIssue;
 import com.library.models.Member;
+import com.library.search.SuggestionIndex;
+import com.library.service.FineCalculator;
+import com.library.service.LibraryService;
+import com.library.service.LibraryServices;
+import com.library.service.ReturnPipeline;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -13,8 +25,12 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.Date;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Panel for managing book returns
@@ -33,21 +49,25 @@ public class ReturnBookPanel extends JPanel {
     private JLabel lblDueDate;
     private JLabel lblDaysLate;
     private JLabel lblFine;
+    private JTextField txtScanIssueId;
+    private JTable scannedTable;
+    private DefaultTableModel scannedModel;
+    private JLabel lblPending;
     
-    private BookIssueDAO bookIssueDAO;
-    private BookDAO bookDAO;
-    private MemberDAO memberDAO;
-    private double finePerDay = 2.50; // Fine amount per day
+    private LibraryService libraryService;
+    private LoadingEdtEventListener<LibraryEvent, Changes> eventListener;
+    private boolean detached;
+    private ReturnPipeline returnPipeline;
     
     /**
      * Constructor to initialize the panel
      */
     public ReturnBookPanel() {
-        bookIssueDAO = new BookIssueDAO();
-        bookDAO = new BookDAO();
-        memberDAO = new MemberDAO();
+        libraryService = LibraryServices.getLibraryService();
         initComponents();
         loadIssuedBooks();
+        createEventListener();
+        createReturnPipeline();
     }
     
     /**
@@ -68,14 +88,20 @@ public class ReturnBookPanel extends JPanel {
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         searchPanel.add(new JLabel("Search:"));
         txtSearchTerm = new JTextField(20);
+        SuggestionPopup.attach(txtSearchTerm, new Runnable() {
+            @Override
+            public void run() {
+                searchIssuedBooks();
+            }
+        }, SuggestionIndex.Field.TITLE, SuggestionIndex.Field.MEMBER_NAME);
         searchPanel.add(txtSearchTerm);
         btnSearch = new JButton("Search");
-        btnSearch.addActionListener(new ActionListener() {
+        btnSearch.addActionListener(UiActionEvent.traced("ReturnBookPanel", "Search", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 searchIssuedBooks();
             }
-        });
+        }));
         searchPanel.add(btnSearch);
         add(searchPanel, BorderLayout.NORTH);
         
@@ -106,21 +132,21 @@ public class ReturnBookPanel extends JPanel {
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         btnReturn = new JButton("Return Book");
-        btnReturn.addActionListener(new ActionListener() {
+        btnReturn.addActionListener(UiActionEvent.traced("ReturnBookPanel", "Return", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 returnBook();
             }
-        });
+        }));
         btnReturn.setEnabled(false);
         
         btnRefresh = new JButton("Refresh");
-        btnRefresh.addActionListener(new ActionListener() {
+        btnRefresh.addActionListener(UiActionEvent.traced("ReturnBookPanel", "Refresh", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 refreshData();
             }
-        });
+        }));
         
         buttonPanel.add(btnReturn);
         buttonPanel.add(btnRefresh);
@@ -161,6 +187,55 @@ public class ReturnBookPanel extends JPanel {
         
         splitPane.setBottomComponent(detailsContainer);
         add(splitPane, BorderLayout.CENTER);
+        
+        add(createRapidReturnPanel(), BorderLayout.SOUTH);
+    }
+    
+    /**
+     * Create the rapid return panel, where scanned issue IDs are queued and
+     * returned in the background without a confirmation per item
+     * @return Rapid return panel
+     */
+    private JPanel createRapidReturnPanel() {
+        JPanel rapidPanel = new JPanel(new BorderLayout(5, 5));
+        rapidPanel.setBorder(BorderFactory.createTitledBorder("Rapid Return"));
+        
+        JPanel scanPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        scanPanel.add(new JLabel("Scan Issue ID:"));
+        txtScanIssueId = new JTextField(12);
+        txtScanIssueId.addActionListener(UiActionEvent.traced("ReturnBookPanel", "Scan", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                queueScannedReturn();
+            }
+        }));
+        scanPanel.add(txtScanIssueId);
+        
+        JButton btnClearScanned = new JButton("Clear List");
+        btnClearScanned.addActionListener(UiActionEvent.traced("ReturnBookPanel", "Clear Scanned", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                scannedModel.setRowCount(0);
+            }
+        }));
+        scanPanel.add(btnClearScanned);
+        lblPending = new JLabel("Pending: 0");
+        scanPanel.add(lblPending);
+        rapidPanel.add(scanPanel, BorderLayout.NORTH);
+        
+        String[] columnNames = {"Issue ID", "Book Title", "Member Name", "Fine", "Status"};
+        scannedModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        scannedTable = new JTable(scannedModel);
+        JScrollPane scrollPane = new JScrollPane(scannedTable);
+        scrollPane.setPreferredSize(new Dimension(0, 140));
+        rapidPanel.add(scrollPane, BorderLayout.CENTER);
+        
+        return rapidPanel;
     }
     
     /**
@@ -171,29 +246,9 @@ public class ReturnBookPanel extends JPanel {
         tableModel.setRowCount(0);
         btnReturn.setEnabled(false);
         
-        // Load issued books
-        List<BookIssue> issuedBooks = bookIssueDAO.getAllBookIssues();
-        
-        for (BookIssue issue : issuedBooks) {
-            // Only show books that are still issued
-            if (issue.getStatus().equals("Issued")) {
-                Book book = bookDAO.getBookById(issue.getBookId());
-                Member member = memberDAO.getMemberById(issue.getMemberId());
-                
-                if (book != null && member != null) {
-                    Object[] row = {
-                        issue.getIssueId(),
-                        book.getBookId(),
-                        book.getTitle(),
-                        member.getMemberId(),
-                        member.getName(),
-                        issue.getIssueDate(),
-                        issue.getDueDate(),
-                        issue.getStatus()
-                    };
-                    tableModel.addRow(row);
-                }
-            }
+        // Load issued books with their titles and member names in one query
+        for (BookIssue issue : libraryService.searchOpenIssues("")) {
+            tableModel.addRow(toRow(issue));
         }
         
         clearReturnDetails();
@@ -203,7 +258,7 @@ public class ReturnBookPanel extends JPanel {
      * Search for issued books
      */
     private void searchIssuedBooks() {
-        String searchTerm = txtSearchTerm.getText().trim().toLowerCase();
+        String searchTerm = txtSearchTerm.getText().trim();
         if (searchTerm.isEmpty()) {
             loadIssuedBooks();
             return;
@@ -213,44 +268,32 @@ public class ReturnBookPanel extends JPanel {
         tableModel.setRowCount(0);
         btnReturn.setEnabled(false);
         
-        // Load issued books
-        List<BookIssue> issuedBooks = bookIssueDAO.getAllBookIssues();
-        
-        for (BookIssue issue : issuedBooks) {
-            // Only show books that are still issued
-            if (issue.getStatus().equals("Issued")) {
-                Book book = bookDAO.getBookById(issue.getBookId());
-                Member member = memberDAO.getMemberById(issue.getMemberId());
-                
-                if (book != null && member != null) {
-                    // Check if search term matches book title, member name, or IDs
-                    boolean matches = 
-                        book.getTitle().toLowerCase().contains(searchTerm) ||
-                        member.getName().toLowerCase().contains(searchTerm) ||
-                        String.valueOf(issue.getIssueId()).contains(searchTerm) ||
-                        String.valueOf(book.getBookId()).contains(searchTerm) ||
-                        String.valueOf(member.getMemberId()).contains(searchTerm);
-                    
-                    if (matches) {
-                        Object[] row = {
-                            issue.getIssueId(),
-                            book.getBookId(),
-                            book.getTitle(),
-                            member.getMemberId(),
-                            member.getName(),
-                            issue.getIssueDate(),
-                            issue.getDueDate(),
-                            issue.getStatus()
-                        };
-                        tableModel.addRow(row);
-                    }
-                }
-            }
+        // Match against the stored folded keys instead of lower-casing every open issue
+        for (BookIssue issue : libraryService.searchOpenIssues(searchTerm)) {
+            tableModel.addRow(toRow(issue));
         }
         
         clearReturnDetails();
     }
     
+    /**
+     * Build the table row for an open book issue
+     * @param issue Book issue with its book title and member name
+     * @return Row values
+     */
+    private Object[] toRow(BookIssue issue) {
+        return new Object[] {
+            issue.getIssueId(),
+            issue.getBookId(),
+            issue.getBookTitle(),
+            issue.getMemberId(),
+            issue.getMemberName(),
+            issue.getIssueDate(),
+            issue.getDueDate(),
+            issue.getStatus()
+        };
+    }
+    
     /**
      * Update return details when a row is selected
      */
@@ -262,17 +305,9 @@ public class ReturnBookPanel extends JPanel {
             Date issueDate = (Date) tableModel.getValueAt(selectedRow, 5);
             Date dueDate = (Date) tableModel.getValueAt(selectedRow, 6);
             
-            // Calculate days late
-            LocalDate today = LocalDate.now();
-            LocalDate dueDateLocal = dueDate.toLocalDate();
-            long daysLate = 0;
-            
-            if (today.isAfter(dueDateLocal)) {
-                daysLate = ChronoUnit.DAYS.between(dueDateLocal, today);
-            }
-            
-            // Calculate fine
-            double fine = daysLate * finePerDay;
+            // Calculate days late and fine
+            long daysLate = FineCalculator.daysLate(dueDate, LocalDate.now());
+            double fine = FineCalculator.fineFor(daysLate);
             
             // Update labels
             lblBookTitle.setText(bookTitle);
@@ -311,11 +346,10 @@ public class ReturnBookPanel extends JPanel {
         }
         
         int issueId = (int) tableModel.getValueAt(selectedRow, 0);
-        int bookId = (int) tableModel.getValueAt(selectedRow, 1);
         
         // Get days late and fine
         long daysLate = Long.parseLong(lblDaysLate.getText());
-        double fine = daysLate * finePerDay;
+        double fine = FineCalculator.fineFor(daysLate);
         
         // Show confirmation dialog with fine information
         String message = "Do you want to return this book?";
@@ -332,18 +366,15 @@ public class ReturnBookPanel extends JPanel {
         );
         
         if (confirm == JOptionPane.YES_OPTION) {
-            // Update book issue status to "Returned"
-            boolean success = bookIssueDAO.updateBookIssueStatus(issueId, "Returned");
+            // Mark the issue returned and put the copy back in one transaction
+            BookIssue returned = libraryService.returnBook(issueId);
             
-            if (success) {
-                // Update book availability
-                bookDAO.updateBookAvailability(bookId, 1);
-                
+            if (returned != null) {
                 // Show success message
-                if (daysLate > 0) {
+                if (returned.getFineAmount() > 0) {
                     JOptionPane.showMessageDialog(
                         this,
-                        String.format("Book returned successfully. Fine collected: $%.2f", fine),
+                        String.format("Book returned successfully. Fine collected: $%.2f", returned.getFineAmount()),
                         "Return Successful",
                         JOptionPane.INFORMATION_MESSAGE
                     );
@@ -356,8 +387,8 @@ public class ReturnBookPanel extends JPanel {
                     );
                 }
                 
-                // Refresh data
-                refreshData();
+                // The row is removed when the LoanReturnedEvent arrives
+                clearReturnDetails();
             } else {
                 JOptionPane.showMessageDialog(
                     this,
@@ -373,7 +404,252 @@ public class ReturnBookPanel extends JPanel {
      * Refresh the data
      */
     public void refreshData() {
+        PanelRefreshEvent event = PanelRefreshEvent.start("ReturnBookPanel");
         loadIssuedBooks();
         txtSearchTerm.setText("");
+        event.commit();
+    }
+    
+    /**
+     * Create the listener that keeps open loans current from loan, book and
+     * member events without full reloads. It is subscribed while the panel
+     * is shown.
+     */
+    private void createEventListener() {
+        eventListener = new LoadingEdtEventListener<LibraryEvent, Changes>() {
+            @Override
+            protected Changes load(List<LibraryEvent> events) {
+                return loadChanges(events);
+            }
+            
+            @Override
+            protected void handleEvents(List<LibraryEvent> events, Changes changes) {
+                applyLoanChanges(events, changes);
+            }
+        };
+    }
+    
+    /**
+     * Create the background pipeline that applies scanned returns in batches.
+     * It runs while the panel is shown.
+     */
+    private void createReturnPipeline() {
+        returnPipeline = new ReturnPipeline(libraryService, new ReturnPipeline.Listener() {
+            @Override
+            public void batchProcessed(List<BookIssue> returned, List<Integer> failed) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        showProcessedReturns(returned, failed);
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * Queue the scanned issue ID for return and clear the field for the next scan
+     */
+    private void queueScannedReturn() {
+        String text = txtScanIssueId.getText().trim();
+        txtScanIssueId.setText("");
+        if (text.isEmpty()) {
+            return;
+        }
+        
+        int issueId;
+        try {
+            issueId = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        
+        scannedModel.insertRow(0, new Object[] {issueId, "", "", "", "Queued"});
+        returnPipeline.submit(issueId);
+        lblPending.setText("Pending: " + returnPipeline.getPending());
+    }
+    
+    /**
+     * Update the scanned rows of a processed batch
+     * @param returned Issues returned, with their fines
+     * @param failed Issue IDs that could not be returned
+     */
+    private void showProcessedReturns(List<BookIssue> returned, List<Integer> failed) {
+        Map<Integer, BookIssue> returnedById = new HashMap<>();
+        for (BookIssue issue : returned) {
+            returnedById.put(issue.getIssueId(), issue);
+        }
+        Set<Integer> failedIds = new HashSet<>(failed);
+        Set<Integer> shown = new HashSet<>();
+        
+        // Newest scans are at the top, so walk up from the oldest
+        for (int row = scannedModel.getRowCount() - 1; row >= 0; row--) {
+            if (!"Queued".equals(scannedModel.getValueAt(row, 4))) {
+                continue;
+            }
+            int issueId = (int) scannedModel.getValueAt(row, 0);
+            BookIssue issue = returnedById.get(issueId);
+            if (issue != null && shown.add(issueId)) {
+                scannedModel.setValueAt(issue.getBookTitle(), row, 1);
+                scannedModel.setValueAt(issue.getMemberName(), row, 2);
+                scannedModel.setValueAt(String.format("$%.2f", issue.getFineAmount()), row, 3);
+                scannedModel.setValueAt("Returned", row, 4);
+            } else if (issue != null) {
+                scannedModel.setValueAt("Duplicate scan", row, 4);
+            } else if (failedIds.contains(issueId)) {
+                scannedModel.setValueAt("Not returned", row, 4);
+            }
+        }
+        
+        lblPending.setText("Pending: " + returnPipeline.getPending());
+    }
+    
+    /**
+     * Start receiving events and scans when the panel is shown. Loans issued or
+     * returned while it was removed are picked up by a reload.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus.getInstance().subscribe(LibraryEvent.class, eventListener);
+        returnPipeline.start();
+        if (detached) {
+            detached = false;
+            loadIssuedBooks();
+        }
+    }
+    
+    /**
+     * Stop receiving events and scans once the panel is removed from its frame
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        EventBus.getInstance().unsubscribe(eventListener);
+        detached = true;
+        returnPipeline.stop();
+    }
+    
+    /**
+     * Read the new loans and the renamed books and members of a batch of
+     * events, one query for each. Runs on a background thread.
+     * @param events Coalesced events
+     * @return Loaded loans, books and members
+     */
+    private Changes loadChanges(List<LibraryEvent> events) {
+        List<Integer> issuedIds = new ArrayList<>();
+        Set<Integer> updatedBookIds = new HashSet<>();
+        Set<Integer> updatedMemberIds = new HashSet<>();
+        for (LibraryEvent event : events) {
+            if (event instanceof LoanIssuedEvent) {
+                issuedIds.add(((LoanIssuedEvent) event).getIssueId());
+            } else if (event instanceof BookChangedEvent) {
+                BookChangedEvent bookEvent = (BookChangedEvent) event;
+                if (bookEvent.getChangeType() == ChangeType.UPDATED) {
+                    updatedBookIds.add(bookEvent.getBookId());
+                }
+            } else if (event instanceof MemberChangedEvent) {
+                MemberChangedEvent memberEvent = (MemberChangedEvent) event;
+                if (memberEvent.getChangeType() == ChangeType.UPDATED) {
+                    updatedMemberIds.add(memberEvent.getMemberId());
+                }
+            }
+        }
+        
+        Changes changes = new Changes();
+        for (BookIssue issue : libraryService.getBookIssuesByIds(issuedIds)) {
+            changes.issues.put(issue.getIssueId(), issue);
+        }
+        for (Book book : libraryService.getBooksByIds(new ArrayList<>(updatedBookIds))) {
+            changes.books.put(book.getBookId(), book);
+        }
+        for (Member member : libraryService.getMembersByIds(new ArrayList<>(updatedMemberIds))) {
+            changes.members.put(member.getMemberId(), member);
+        }
+        return changes;
+    }
+    
+    /**
+     * Add, remove or relabel only the rows touched by a batch of events
+     * @param events Coalesced events in publication order
+     * @param changes Loans, books and members read for the events
+     */
+    private void applyLoanChanges(List<LibraryEvent> events, Changes changes) {
+        boolean filtered = !txtSearchTerm.getText().trim().isEmpty();
+        Set<Integer> returnedIds = new HashSet<>();
+        
+        for (LibraryEvent event : events) {
+            if (event instanceof LoanIssuedEvent) {
+                int issueId = ((LoanIssuedEvent) event).getIssueId();
+                BookIssue issue = changes.issues.get(issueId);
+                if (!filtered && findRow(issueId) == -1 && issue != null && issue.getReturnDate() == null) {
+                    tableModel.addRow(toRow(issue));
+                }
+            } else if (event instanceof LoanReturnedEvent) {
+                returnedIds.add(((LoanReturnedEvent) event).getIssueId());
+            } else if (event instanceof BookChangedEvent) {
+                Book book = changes.books.get(((BookChangedEvent) event).getBookId());
+                if (book != null) {
+                    relabelRows(1, book.getBookId(), 2, book.getTitle());
+                }
+            } else if (event instanceof MemberChangedEvent) {
+                Member member = changes.members.get(((MemberChangedEvent) event).getMemberId());
+                if (member != null) {
+                    relabelRows(3, member.getMemberId(), 4, member.getName());
+                }
+            }
+        }
+        
+        // A rapid return batch can return hundreds of loans; remove them in one pass
+        if (!returnedIds.isEmpty()) {
+            for (int row = tableModel.getRowCount() - 1; row >= 0; row--) {
+                if (returnedIds.contains((int) tableModel.getValueAt(row, 0))) {
+                    tableModel.removeRow(row);
+                }
+            }
+        }
+        
+        if (issuedBooksTable.getSelectedRow() == -1) {
+            clearReturnDetails();
+        }
+    }
+    
+    /**
+     * Find the table row showing a book issue
+     * @param issueId Issue ID
+     * @return Row index, or -1 if the issue is not shown
+     */
+    private int findRow(int issueId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((int) tableModel.getValueAt(row, 0) == issueId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Replace the display text of every row with the given ID
+     * @param idColumn Column holding the ID
+     * @param id ID to match
+     * @param textColumn Column holding the display text
+     * @param text New display text
+     */
+    private void relabelRows(int idColumn, int id, int textColumn, String text) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((int) tableModel.getValueAt(row, idColumn) == id) {
+                tableModel.setValueAt(text, row, textColumn);
+            }
+        }
+    }
+    
+    /**
+     * Loans, books and members read for a batch of events
+     */
+    private static class Changes {
+        final Map<Integer, BookIssue> issues = new HashMap<>();
+        final Map<Integer, Book> books = new HashMap<>();
+        final Map<Integer, Member> members = new HashMap<>();
     }
-} 
\ No newline at end of file
+}
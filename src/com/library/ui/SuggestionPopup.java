@@ -0,0 +1,190 @@
+package com.library.ui;
+
+import com.library.search.SuggestionIndex;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Drop-down of autocomplete suggestions under a search field. Suggestions
+ * come from the in-memory {@link SuggestionIndex}, so they are looked up on
+ * the EDT as the user types. Up and Down move through the list, Enter or a
+ * click picks a suggestion and Escape closes the list.
+ */
+public class SuggestionPopup {
+    private static final int LIMIT = 8;
+    
+    private final JTextField field;
+    private final SuggestionIndex.Field[] fields;
+    private final Runnable onPick;
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<String> listModel = new DefaultListModel<>();
+    private final JList<String> list = new JList<>(listModel);
+    private boolean adjusting;
+    
+    /**
+     * Attach suggestions to a search field
+     * @param field Search field
+     * @param onPick Called after a suggestion has been put in the field, e.g. to run the search
+     * @param fields Fields to suggest from
+     */
+    public static void attach(JTextField field, Runnable onPick, SuggestionIndex.Field... fields) {
+        new SuggestionPopup(field, onPick, fields);
+    }
+    
+    /**
+     * Constructor
+     * @param field Search field
+     * @param onPick Called after a suggestion is picked
+     * @param fields Fields to suggest from
+     */
+    private SuggestionPopup(JTextField field, Runnable onPick, SuggestionIndex.Field[] fields) {
+        this.field = field;
+        this.fields = fields;
+        this.onPick = onPick;
+        
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                pick();
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+        
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textChanged();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textChanged();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                textChanged();
+            }
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                handleKey(e);
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+    
+    /**
+     * Show the suggestions for the current text, after the document change has finished
+     */
+    private void textChanged() {
+        if (adjusting) {
+            return;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                showSuggestions();
+            }
+        });
+    }
+    
+    /**
+     * Look up and show the suggestions for the text in the field
+     */
+    private void showSuggestions() {
+        String text = field.getText();
+        if (text.trim().isEmpty() || !field.isFocusOwner()) {
+            popup.setVisible(false);
+            return;
+        }
+        
+        List<String> suggestions = SuggestionIndex.getInstance().suggest(text, LIMIT, fields);
+        listModel.clear();
+        for (String suggestion : suggestions) {
+            listModel.addElement(suggestion);
+        }
+        if (suggestions.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        
+        list.setVisibleRowCount(suggestions.size());
+        popup.pack();
+        if (!popup.isVisible()) {
+            popup.show(field, 0, field.getHeight());
+        }
+    }
+    
+    /**
+     * Navigate or pick from the list while it is open
+     * @param e Key pressed in the field
+     */
+    private void handleKey(KeyEvent e) {
+        if (!popup.isVisible()) {
+            return;
+        }
+        
+        int index = list.getSelectedIndex();
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_DOWN:
+                list.setSelectedIndex(Math.min(index + 1, listModel.size() - 1));
+                e.consume();
+                break;
+            case KeyEvent.VK_UP:
+                list.setSelectedIndex(Math.max(index - 1, 0));
+                e.consume();
+                break;
+            case KeyEvent.VK_ENTER:
+                if (index != -1) {
+                    pick();
+                    e.consume();
+                } else {
+                    popup.setVisible(false);
+                }
+                break;
+            case KeyEvent.VK_ESCAPE:
+                popup.setVisible(false);
+                e.consume();
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Put the selected suggestion in the field and run the pick action
+     */
+    private void pick() {
+        String suggestion = list.getSelectedValue();
+        popup.setVisible(false);
+        if (suggestion == null) {
+            return;
+        }
+        
+        adjusting = true;
+        try {
+            field.setText(suggestion);
+        } finally {
+            adjusting = false;
+        }
+        onPick.run();
+    }
+}
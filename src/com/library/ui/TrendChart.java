@@ -0,0 +1,226 @@
+package com.library.ui;
+
+import com.library.metrics.CacheMetrics;
+import com.library.metrics.MetricsRegistry;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Line chart of one or more daily series. The chart is drawn once into an
+ * image that is reused for every repaint until the data or the size changes,
+ * so resizing the window or switching cards only copies pixels.
+ */
+public class TrendChart extends JComponent {
+    private static final CacheMetrics IMAGE_CACHE = MetricsRegistry.getInstance().cache("TrendChart.image");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("MMM d");
+    private static final int PAD_LEFT = 44;
+    private static final int PAD_RIGHT = 12;
+    private static final int PAD_TOP = 28;
+    private static final int PAD_BOTTOM = 22;
+    
+    private final String title;
+    private final String[] seriesNames;
+    private final Color[] seriesColors;
+    private boolean percent;
+    
+    private LocalDate firstDay;
+    private double[][] series = new double[0][];
+    private BufferedImage image;
+    
+    /**
+     * Constructor
+     * @param title Chart title
+     * @param seriesNames Legend name of each series
+     * @param seriesColors Line color of each series
+     */
+    public TrendChart(String title, String[] seriesNames, Color[] seriesColors) {
+        this.title = title;
+        this.seriesNames = seriesNames;
+        this.seriesColors = seriesColors;
+        setPreferredSize(new Dimension(300, 180));
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setBorder(BorderFactory.createEtchedBorder());
+    }
+    
+    /**
+     * Show values as percentages of 1
+     * @param percent true to label the axis in percent
+     */
+    public void setPercent(boolean percent) {
+        this.percent = percent;
+        image = null;
+        repaint();
+    }
+    
+    /**
+     * Set the data to plot. Nothing is redrawn if it equals the current data.
+     * @param firstDay Day of the first value
+     * @param values One array per series, all the same length
+     */
+    public void setData(LocalDate firstDay, double[]... values) {
+        if (firstDay.equals(this.firstDay) && Arrays.deepEquals(values, series)) {
+            return;
+        }
+        this.firstDay = firstDay;
+        this.series = values;
+        image = null;
+        repaint();
+    }
+    
+    /**
+     * Set integer data to plot
+     * @param firstDay Day of the first value
+     * @param values One array per series, all the same length
+     */
+    public void setData(LocalDate firstDay, int[]... values) {
+        double[][] converted = new double[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            converted[i] = Arrays.stream(values[i]).asDoubleStream().toArray();
+        }
+        setData(firstDay, converted);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            IMAGE_CACHE.recordMiss();
+            image = render(width, height);
+        } else {
+            IMAGE_CACHE.recordHit();
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+    
+    /**
+     * Draw the chart into a new image
+     * @param width Image width
+     * @param height Image height
+     * @return Rendered chart
+     */
+    private BufferedImage render(int width, int height) {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        BufferedImage target = config != null ? config.createCompatibleImage(width, height)
+                                              : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(getBackground());
+            g.fillRect(0, 0, width, height);
+            
+            g.setFont(new Font("Arial", Font.BOLD, 13));
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(title, 8, 18);
+            drawLegend(g, width);
+            
+            int plotWidth = width - PAD_LEFT - PAD_RIGHT;
+            int plotHeight = height - PAD_TOP - PAD_BOTTOM;
+            int points = series.length == 0 ? 0 : series[0].length;
+            if (plotWidth < 10 || plotHeight < 10 || points == 0) {
+                return target;
+            }
+            
+            double max = 0;
+            for (double[] values : series) {
+                for (double value : values) {
+                    max = Math.max(max, value);
+                }
+            }
+            max = niceCeiling(max);
+            
+            // Grid lines and axis labels
+            g.setFont(new Font("Arial", Font.PLAIN, 10));
+            FontMetrics fm = g.getFontMetrics();
+            for (int i = 0; i <= 4; i++) {
+                int y = PAD_TOP + plotHeight - plotHeight * i / 4;
+                g.setColor(new Color(230, 230, 230));
+                g.drawLine(PAD_LEFT, y, PAD_LEFT + plotWidth, y);
+                String label = axisLabel(max * i / 4);
+                g.setColor(Color.GRAY);
+                g.drawString(label, PAD_LEFT - 4 - fm.stringWidth(label), y + fm.getAscent() / 2);
+            }
+            if (firstDay != null) {
+                int baseline = height - PAD_BOTTOM + fm.getAscent() + 4;
+                g.drawString(firstDay.format(DAY_FORMAT), PAD_LEFT, baseline);
+                String last = firstDay.plusDays(points - 1).format(DAY_FORMAT);
+                g.drawString(last, PAD_LEFT + plotWidth - fm.stringWidth(last), baseline);
+            }
+            
+            // Lines
+            g.setStroke(new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            int[] xs = new int[points];
+            int[] ys = new int[points];
+            for (int s = 0; s < series.length; s++) {
+                for (int i = 0; i < points; i++) {
+                    xs[i] = PAD_LEFT + (points == 1 ? plotWidth / 2 : plotWidth * i / (points - 1));
+                    ys[i] = PAD_TOP + plotHeight - (int) Math.round(plotHeight * series[s][i] / max);
+                }
+                g.setColor(seriesColors[s % seriesColors.length]);
+                g.drawPolyline(xs, ys, points);
+            }
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+    
+    /**
+     * Draw the series names in the top right corner
+     * @param g Graphics to draw with
+     * @param width Chart width
+     */
+    private void drawLegend(Graphics2D g, int width) {
+        g.setFont(new Font("Arial", Font.PLAIN, 11));
+        FontMetrics fm = g.getFontMetrics();
+        int x = width - PAD_RIGHT;
+        for (int s = seriesNames.length - 1; s >= 0 && seriesNames.length > 1; s--) {
+            x -= fm.stringWidth(seriesNames[s]);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(seriesNames[s], x, 18);
+            x -= 14;
+            g.setColor(seriesColors[s % seriesColors.length]);
+            g.fillRect(x, 18 - 9, 10, 10);
+            x -= 10;
+        }
+    }
+    
+    /**
+     * Format a value for the vertical axis
+     * @param value Axis value
+     * @return Label
+     */
+    private String axisLabel(double value) {
+        if (percent) {
+            return Math.round(value * 100) + "%";
+        }
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.1f", value);
+    }
+    
+    /**
+     * Round the top of the axis up to 1, 2 or 5 times a power of ten
+     * @param max Largest value plotted
+     * @return Top of the axis, never zero
+     */
+    private double niceCeiling(double max) {
+        if (max <= 0) {
+            return percent ? 1 : 4;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(max)));
+        for (double step : new double[] {1, 2, 5, 10}) {
+            if (step * magnitude >= max) {
+                return step * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+}
@@ -0,0 +1,323 @@
+package com.library.ui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Editable combo box that lists one page of matches for the text typed so
+ * far. Each pause in typing runs a single prefix query in the background, so
+ * the list never holds more than a page however large the table is.
+ *
+ * Settings (system properties):
+ * <ul>
+ *   <li>library.typeahead.pageSize - most matches listed, default 20</li>
+ *   <li>library.typeahead.delayMillis - pause in typing before querying, default 150</li>
+ * </ul>
+ *
+ * @param <T> Type of the listed values
+ */
+public class TypeAheadComboBox<T> extends JComboBox<Object> {
+    
+    /**
+     * Supplies the matches for a prefix
+     * @param <T> Type of the listed values
+     */
+    public interface Source<T> {
+        
+        /**
+         * Find values whose label starts with a prefix. Called off the EDT.
+         * @param prefix Text typed so far; empty for the first page
+         * @param limit Most values to return
+         * @return Matching values in display order
+         */
+        List<T> find(String prefix, int limit);
+        
+        /**
+         * Get the text shown for a value
+         * @param value Value
+         * @return Display text
+         */
+        String getLabel(T value);
+    }
+    
+    private static final int PAGE_SIZE = Integer.getInteger("library.typeahead.pageSize", 20);
+    private static final int DELAY_MS = Integer.getInteger("library.typeahead.delayMillis", 150);
+    
+    private final Source<T> source;
+    private final PageModel model = new PageModel();
+    private final JTextField editorField;
+    private final Timer searchTimer;
+    private boolean adjusting;
+    
+    /**
+     * Constructor; the first page is loaded in the background
+     * @param source Supplies the matches
+     */
+    public TypeAheadComboBox(Source<T> source) {
+        this.source = source;
+        setModel(model);
+        setEditable(true);
+        
+        searchTimer = new Timer(DELAY_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                search(editorField.getText());
+            }
+        });
+        searchTimer.setRepeats(false);
+        
+        editorField = (JTextField) getEditor().getEditorComponent();
+        editorField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textChanged();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textChanged();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                textChanged();
+            }
+        });
+        
+        search("");
+    }
+    
+    /**
+     * Get the selected value. Text typed without picking from the list selects
+     * the listed value with exactly that label, if there is one.
+     * @return Selected value, or null if nothing is selected
+     */
+    @SuppressWarnings("unchecked")
+    public T getSelectedValue() {
+        Object selected = getSelectedItem();
+        if (selected instanceof Item) {
+            return ((Item<T>) selected).value;
+        }
+        if (selected instanceof String) {
+            for (Item<T> item : model.items) {
+                if (item.label.equalsIgnoreCase(((String) selected).trim())) {
+                    return item.value;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Check whether a listed or selected value matches a condition
+     * @param matcher Condition to test
+     * @return true if any listed or selected value matches
+     */
+    @SuppressWarnings("unchecked")
+    public boolean containsValue(Predicate<T> matcher) {
+        Object selected = getSelectedItem();
+        if (selected instanceof Item && matcher.test(((Item<T>) selected).value)) {
+            return true;
+        }
+        for (Item<T> item : model.items) {
+            if (matcher.test(item.value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Replace the listed and selected values that match a condition, for
+     * example after the value changed in the database
+     * @param matcher Condition selecting the values to replace
+     * @param value New value, or null to remove the matching values
+     */
+    @SuppressWarnings("unchecked")
+    public void replaceValue(Predicate<T> matcher, T value) {
+        Item<T> replacement = value != null ? new Item<>(value, source.getLabel(value)) : null;
+        for (int i = model.items.size() - 1; i >= 0; i--) {
+            if (matcher.test(model.items.get(i).value)) {
+                if (replacement != null) {
+                    model.items.set(i, replacement);
+                    model.fireChanged(i, i);
+                } else {
+                    model.items.remove(i);
+                    model.fireRemoved(i, i);
+                }
+            }
+        }
+        
+        Object selected = getSelectedItem();
+        if (selected instanceof Item && matcher.test(((Item<T>) selected).value)) {
+            setSelectedItem(replacement);
+        }
+    }
+    
+    /**
+     * Query the current text again, for example after the table was reloaded
+     */
+    public void reload() {
+        search(editorField.getText());
+    }
+    
+    /**
+     * Restart the typing pause unless the text is being set from a selection
+     */
+    private void textChanged() {
+        if (adjusting) {
+            return;
+        }
+        if (!isSelectionText()) {
+            searchTimer.restart();
+        }
+    }
+    
+    /**
+     * Load the matches for a prefix in the background and list them if the
+     * text has not changed since
+     * @param prefix Text to match
+     */
+    private void search(String prefix) {
+        String query = prefix.trim();
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                return source.find(query, PAGE_SIZE);
+            }
+            
+            @Override
+            protected void done() {
+                if (!editorField.getText().trim().equals(query)) {
+                    return;
+                }
+                try {
+                    showPage(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Check whether the editor shows the selected value rather than typed text
+     * @return true if the text is the label of the selected value
+     */
+    private boolean isSelectionText() {
+        Object selected = getSelectedItem();
+        return selected instanceof Item && selected.toString().equals(editorField.getText());
+    }
+    
+    /**
+     * Replace the listed values, keeping the typed text and caret
+     * @param values Values to list
+     */
+    private void showPage(List<T> values) {
+        String text = editorField.getText();
+        int caret = editorField.getCaretPosition();
+        
+        adjusting = true;
+        try {
+            int oldSize = model.items.size();
+            model.items.clear();
+            if (oldSize > 0) {
+                model.fireRemoved(0, oldSize - 1);
+            }
+            for (T value : values) {
+                model.items.add(new Item<>(value, source.getLabel(value)));
+            }
+            if (!values.isEmpty()) {
+                model.fireAdded(0, values.size() - 1);
+            }
+            
+            // The combo box copies the selection back into the editor on model changes
+            if (!editorField.getText().equals(text)) {
+                editorField.setText(text);
+                editorField.setCaretPosition(Math.min(caret, text.length()));
+            }
+        } finally {
+            adjusting = false;
+        }
+        
+        if (editorField.isFocusOwner() && isShowing() && !isSelectionText()) {
+            if (values.isEmpty()) {
+                hidePopup();
+            } else {
+                // Reopen so the popup is resized to the new page
+                hidePopup();
+                showPopup();
+            }
+        }
+    }
+    
+    /**
+     * Listed value with its display text
+     * @param <T> Type of the value
+     */
+    private static class Item<T> {
+        private final T value;
+        private final String label;
+        
+        Item(T value, String label) {
+            this.value = value;
+            this.label = label;
+        }
+        
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    
+    /**
+     * Combo box model over the current page. Unlike DefaultComboBoxModel it
+     * never selects an entry by itself when the page is replaced.
+     */
+    private class PageModel extends AbstractListModel<Object> implements ComboBoxModel<Object> {
+        private final List<Item<T>> items = new ArrayList<>();
+        private Object selected;
+        
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+        
+        @Override
+        public Object getElementAt(int index) {
+            return items.get(index);
+        }
+        
+        @Override
+        public void setSelectedItem(Object item) {
+            if (selected != item) {
+                selected = item;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+        
+        @Override
+        public Object getSelectedItem() {
+            return selected;
+        }
+        
+        void fireAdded(int from, int to) {
+            fireIntervalAdded(this, from, to);
+        }
+        
+        void fireRemoved(int from, int to) {
+            fireIntervalRemoved(this, from, to);
+        }
+        
+        void fireChanged(int from, int to) {
+            fireContentsChanged(this, from, to);
+        }
+    }
+}
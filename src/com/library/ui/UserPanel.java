@@ -1,6 +1,7 @@
 package com.library.ui;
 
 import com.library.database.UserDAO;
+import com.library.diagnostics.PanelRefreshEvent;
 import com.library.models.User;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -237,7 +238,9 @@ public class UserPanel extends JPanel {
      * Refresh the user data
      */
     public void refreshData() {
+        PanelRefreshEvent event = PanelRefreshEvent.start("UserPanel");
         loadUserData();
+        event.commit();
     }
     
     /**